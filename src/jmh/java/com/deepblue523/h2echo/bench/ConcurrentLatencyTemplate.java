@@ -0,0 +1,19 @@
+package com.deepblue523.h2echo.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Template for the latency distribution (p50/p90/p99...) of DAO calls while several
+ * threads hit the same database.  Defaults to 4 threads; change it with -t N.
+ * Extend it, declare the @EchoDao fields and implement the hooks.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public abstract class ConcurrentLatencyTemplate extends DaoBenchmarkTemplate {
+}
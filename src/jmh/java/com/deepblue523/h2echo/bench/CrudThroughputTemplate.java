@@ -0,0 +1,18 @@
+package com.deepblue523.h2echo.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Template for single-threaded CRUD throughput (operations per second) of a DAO.
+ * Extend it, declare the @EchoDao fields and implement the hooks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public abstract class CrudThroughputTemplate extends DaoBenchmarkTemplate {
+}
@@ -0,0 +1,110 @@
+package com.deepblue523.h2echo.bench;
+
+import com.deepblue523.h2echo.benchmark.EchoBenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Base for DAO benchmarks against the echoed H2 schema.  Subclasses declare their
+ * @EchoDao fields (and @EnableH2Echo if needed) and fill in the CRUD hooks; the
+ * benchmark methods and lifecycle live here.
+ * <p>
+ * Per trial the schema is built once, seedRows rows are created via create(), and
+ * the result is snapshotted.  Per iteration the snapshot is restored, so tables
+ * don't keep growing across iterations.
+ * <p>
+ * Pick the measurement style by extending CrudThroughputTemplate or
+ * ConcurrentLatencyTemplate rather than this class directly.
+ */
+@State(Scope.Benchmark)
+public abstract class DaoBenchmarkTemplate {
+
+    @Param({"1000"})
+    public int seedRows;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private EchoBenchmarkSupport support;
+    private int[] seededIds;
+
+    /***
+     * Create one record.
+     *
+     * @param sequence A number unique within the trial, for unique column values.
+     * @return The new record's id.
+     */
+    protected abstract int create(long sequence);
+
+    /***
+     * Read one record by id.
+     */
+    protected abstract Object read(int id);
+
+    /***
+     * Update one existing record.
+     *
+     * @param sequence A number unique within the trial, for unique column values.
+     */
+    protected abstract int update(int id, long sequence);
+
+    /***
+     * Delete one record by id.
+     */
+    protected abstract int delete(int id);
+
+    /***
+     * Called once per trial after the schema is built and before seeding, e.g. to
+     * create parent rows.
+     */
+    protected void beforeSeeding() {
+    }
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        support = EchoBenchmarkSupport.setUpTrial(this);
+        beforeSeeding();
+
+        seededIds = new int[seedRows];
+        for (int i = 0; i < seedRows; i++) {
+            seededIds[i] = create(sequence.incrementAndGet());
+        }
+
+        support.snapshot();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIteration() {
+        support.resetIteration();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        support.tearDownTrial();
+    }
+
+    private int randomSeededId() {
+        return seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)];
+    }
+
+    @Benchmark
+    public int insert() {
+        return create(sequence.incrementAndGet());
+    }
+
+    @Benchmark
+    public Object getById() {
+        return read(randomSeededId());
+    }
+
+    @Benchmark
+    public int updateById() {
+        return update(randomSeededId(), sequence.incrementAndGet());
+    }
+
+    // Keeps the table size steady, unlike insert().
+    @Benchmark
+    public int insertThenDelete() {
+        return delete(create(sequence.incrementAndGet()));
+    }
+}
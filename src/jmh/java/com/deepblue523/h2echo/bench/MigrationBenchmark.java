@@ -0,0 +1,83 @@
+package com.deepblue523.h2echo.bench;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.MariaDbRunner;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * End-to-end benchmark of runSqlScriptsOnH2() over a synthetic corpus: reading,
+ * splitting, translating and executing every script against H2.
+ * <p>
+ * The database is emptied before each invocation, so every run builds the schema
+ * from scratch the way a test JVM's first migration does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MigrationBenchmark {
+
+    @Param({"20", "200"})
+    public int tables;
+
+    @Param({"1.0"})
+    public double altersPerTable;
+
+    @Param({"20"})
+    public int insertRowsPerTable;
+
+    private Path corpusDirectory;
+    private File[] scripts;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = Files.createTempDirectory("h2echo-bench-");
+        new MigrationCorpusGenerator()
+                .tableCount(tables)
+                .altersPerTable(altersPerTable)
+                .insertRowsPerTable(insertRowsPerTable)
+                .writeTo(corpusDirectory);
+
+        scripts = H2Echo.sortSqlScriptsByVersion(corpusDirectory.toFile().listFiles());
+
+        jdbcTemplate = new JdbcTemplate(H2Echo.createDataSource("jdbc:h2:mem:migrationBenchmark;DB_CLOSE_DELAY=-1"));
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyDatabase() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+
+        try {
+            for (File script : scripts) {
+                Files.deleteIfExists(script.toPath());
+            }
+            Files.deleteIfExists(corpusDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public MigrationReport runSqlScriptsOnH2() {
+        MariaDbRunner runner = new MariaDbRunner();
+        runner.setSeedData(true);
+        return runner.runSqlScriptsOnH2(jdbcTemplate, scripts, false);
+    }
+}
@@ -0,0 +1,283 @@
+package com.deepblue523.h2echo.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/***
+ * Generates synthetic MariaDB migration corpora for the benchmarks.
+ * <p>
+ * The scripts look like real Flyway migrations: AUTO_INCREMENT primary keys, UNSIGNED
+ * columns, inline INDEX declarations, foreign keys to earlier tables, trailing
+ * comments, multi-clause ALTER TABLE statements (including renames with type changes)
+ * and multi-row INSERTs.  The same settings and seed always give the same corpus.
+ * <p>
+ * Tables are spread over "V1.n__tables_n.sql" scripts, followed by a
+ * "V2.0__alters.sql" and a "V3.0__data.sql".
+ * <p>
+ * Run main() to write a corpus to disk, e.g.
+ * <p>
+ *    MigrationCorpusGenerator target/corpus tables=200 altersPerTable=1.5 insertRowsPerTable=100
+ */
+public class MigrationCorpusGenerator {
+    private int tableCount = 50;
+    private int columnsPerTable = 12;
+    private int tablesPerScript = 25;
+    private double altersPerTable = 1.0;
+    private int insertRowsPerTable = 20;
+    private int rowsPerInsert = 10;
+    private double foreignKeyRatio = 0.5;
+    private long seed = 42;
+
+    public MigrationCorpusGenerator tableCount(int tableCount) {
+        this.tableCount = tableCount;
+        return this;
+    }
+
+    public MigrationCorpusGenerator columnsPerTable(int columnsPerTable) {
+        this.columnsPerTable = columnsPerTable;
+        return this;
+    }
+
+    public MigrationCorpusGenerator tablesPerScript(int tablesPerScript) {
+        this.tablesPerScript = tablesPerScript;
+        return this;
+    }
+
+    // Average number of ALTER TABLE statements per table (the "ALTER density").
+    public MigrationCorpusGenerator altersPerTable(double altersPerTable) {
+        this.altersPerTable = altersPerTable;
+        return this;
+    }
+
+    public MigrationCorpusGenerator insertRowsPerTable(int insertRowsPerTable) {
+        this.insertRowsPerTable = insertRowsPerTable;
+        return this;
+    }
+
+    public MigrationCorpusGenerator rowsPerInsert(int rowsPerInsert) {
+        this.rowsPerInsert = rowsPerInsert;
+        return this;
+    }
+
+    // Fraction of tables (after the first) with a foreign key to an earlier table.
+    public MigrationCorpusGenerator foreignKeyRatio(double foreignKeyRatio) {
+        this.foreignKeyRatio = foreignKeyRatio;
+        return this;
+    }
+
+    public MigrationCorpusGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /***
+     * Generate the corpus in memory.
+     *
+     * @return The scripts, in run order.
+     */
+    public List<Script> generate() {
+        Random random = new Random(seed);
+        List<Script> scripts = new ArrayList<>();
+
+        // ---[ CREATE TABLE scripts ]---
+        StringBuilder sql = new StringBuilder();
+        int scriptNumber = 0;
+
+        for (int table = 0; table < tableCount; table++) {
+            appendCreateTable(sql, table, random);
+
+            if ((table + 1) % tablesPerScript == 0 || table == tableCount - 1) {
+                scripts.add(new Script(String.format("V1.%d__tables_%d.sql", scriptNumber, scriptNumber), sql.toString()));
+                sql = new StringBuilder();
+                scriptNumber++;
+            }
+        }
+
+        // ---[ ALTER TABLE script ]---
+        int alterCount = (int) Math.round(tableCount * altersPerTable);
+        boolean[] renamed = new boolean[tableCount];
+        for (int alter = 0; alter < alterCount; alter++) {
+            appendAlterTable(sql, alter, random.nextInt(tableCount), renamed, random);
+        }
+        scripts.add(new Script("V2.0__alters.sql", sql.toString()));
+
+        // ---[ INSERT script ]---
+        sql = new StringBuilder();
+        for (int table = 0; table < tableCount; table++) {
+            appendInserts(sql, table, random);
+        }
+        scripts.add(new Script("V3.0__data.sql", sql.toString()));
+
+        return scripts;
+    }
+
+    /***
+     * Generate the corpus and write it to a directory.
+     *
+     * @param directory Where to write the scripts.  Created if needed.
+     * @return The directory.
+     */
+    public Path writeTo(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            for (Script script : generate()) {
+                Files.writeString(directory.resolve(script.name), script.contents, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return directory;
+    }
+
+    private void appendCreateTable(StringBuilder sql, int table, Random random) {
+        sql.append("-- Synthetic table ").append(table).append('\n');
+        sql.append("CREATE TABLE ").append(tableName(table)).append(" (\n");
+
+        if (random.nextBoolean()) {
+            sql.append("    id INT AUTO_INCREMENT PRIMARY KEY, -- Unique identifier\n");
+        } else {
+            sql.append("    id BIGINT AUTO_INCREMENT PRIMARY KEY,\n");
+        }
+
+        for (int column = 0; column < columnsPerTable; column++) {
+            sql.append("    ").append(columnName(column)).append("  ").append(columnType(column)).append(",");
+            if (column % 3 == 0) {
+                sql.append(" -- Column ").append(column);
+            }
+            sql.append('\n');
+        }
+
+        boolean hasForeignKey = table > 0 && random.nextDouble() < foreignKeyRatio;
+        if (hasForeignKey) {
+            sql.append("    parent_id INT,\n");
+        }
+
+        sql.append("    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n");
+        sql.append("    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,\n");
+        sql.append("    INDEX idx_").append(tableName(table)).append("_c0 (").append(columnName(0)).append(")");
+
+        if (hasForeignKey) {
+            sql.append(",\n    FOREIGN KEY (parent_id) REFERENCES ")
+                    .append(tableName(random.nextInt(table))).append("(id)");
+        }
+
+        sql.append("\n);\n\n");
+    }
+
+    private void appendAlterTable(StringBuilder sql, int alter, int table, boolean[] renamed, Random random) {
+        sql.append("ALTER TABLE ").append(tableName(table)).append(' ');
+
+        // Each table's col_1 is renamed at most once, so every ALTER is valid.
+        int kind = random.nextInt(3);
+        if (kind == 1 && renamed[table]) {
+            kind = 0;
+        }
+
+        switch (kind) {
+            case 0:
+                sql.append("ADD COLUMN extra_").append(alter).append("a VARCHAR(50), ")
+                        .append("ADD COLUMN extra_").append(alter).append("b INT");
+                break;
+            case 1:
+                renamed[table] = true;
+                sql.append("CHANGE COLUMN ").append(columnName(1)).append(' ')
+                        .append("renamed_").append(alter).append(" VARCHAR(200)");
+                break;
+            default:
+                sql.append("ADD COLUMN extra_").append(alter).append(" BIGINT UNSIGNED, ")
+                        .append("ADD INDEX idx_extra_").append(alter).append(" (extra_").append(alter).append(")");
+                break;
+        }
+
+        sql.append(";\n");
+    }
+
+    private void appendInserts(StringBuilder sql, int table, Random random) {
+        for (int row = 0; row < insertRowsPerTable; row += rowsPerInsert) {
+            sql.append("INSERT INTO ").append(tableName(table)).append(" (").append(columnName(0)).append(") VALUES ");
+
+            int rows = Math.min(rowsPerInsert, insertRowsPerTable - row);
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("('value_").append(random.nextInt(1_000_000)).append("')");
+            }
+
+            sql.append(";\n");
+        }
+    }
+
+    private static String tableName(int table) {
+        return "bench_table_" + table;
+    }
+
+    private static String columnName(int column) {
+        return "col_" + column;
+    }
+
+    private static String columnType(int column) {
+        switch (column % 5) {
+            case 0: return "VARCHAR(100) NOT NULL DEFAULT ''";
+            case 1: return "VARCHAR(50)";
+            case 2: return "INT UNSIGNED";
+            case 3: return "BOOLEAN DEFAULT false";
+            default: return "TEXT";
+        }
+    }
+
+    /***
+     * One generated script.
+     */
+    public static class Script {
+        public final String name;
+        public final String contents;
+
+        Script(String name, String contents) {
+            this.name = name;
+            this.contents = contents;
+        }
+    }
+
+    /***
+     * Write a corpus to disk.  Arguments: the output directory, then any of
+     * tables=, columns=, tablesPerScript=, altersPerTable=, insertRowsPerTable=,
+     * rowsPerInsert=, foreignKeyRatio=, seed=.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: MigrationCorpusGenerator <directory> [name=value ...]");
+        }
+
+        MigrationCorpusGenerator generator = new MigrationCorpusGenerator();
+        for (int i = 1; i < args.length; i++) {
+            String[] setting = args[i].split("=", 2);
+            if (setting.length != 2) {
+                throw new IllegalArgumentException("Expected name=value but got: " + args[i]);
+            }
+
+            switch (setting[0]) {
+                case "tables": generator.tableCount(Integer.parseInt(setting[1])); break;
+                case "columns": generator.columnsPerTable(Integer.parseInt(setting[1])); break;
+                case "tablesPerScript": generator.tablesPerScript(Integer.parseInt(setting[1])); break;
+                case "altersPerTable": generator.altersPerTable(Double.parseDouble(setting[1])); break;
+                case "insertRowsPerTable": generator.insertRowsPerTable(Integer.parseInt(setting[1])); break;
+                case "rowsPerInsert": generator.rowsPerInsert(Integer.parseInt(setting[1])); break;
+                case "foreignKeyRatio": generator.foreignKeyRatio(Double.parseDouble(setting[1])); break;
+                case "seed": generator.seed(Long.parseLong(setting[1])); break;
+                default: throw new IllegalArgumentException("Unknown setting: " + setting[0]);
+            }
+        }
+
+        Path directory = generator.writeTo(Paths.get(args[0]));
+        System.out.println("Wrote synthetic migration corpus to " + directory.toAbsolutePath());
+    }
+}
@@ -0,0 +1,44 @@
+package com.deepblue523.h2echo.bench;
+
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmPhoneNumberDao;
+
+/***
+ * CRUD throughput of NrmPhoneNumberDao against the echoed schema.
+ */
+public class NrmPhoneNumberCrudBenchmark extends CrudThroughputTemplate {
+
+    @EchoDao
+    private NrmPhoneNumberDao nrmPhoneNumberDao;
+
+    @EchoDao
+    private NrmCallGroupsDao nrmCallGroupsDao;
+
+    private int callGroupId;
+
+    @Override
+    protected void beforeSeeding() {
+        callGroupId = NrmPhoneNumbers.createCallGroup(nrmCallGroupsDao);
+    }
+
+    @Override
+    protected int create(long sequence) {
+        return NrmPhoneNumbers.create(nrmPhoneNumberDao, callGroupId, sequence);
+    }
+
+    @Override
+    protected Object read(int id) {
+        return nrmPhoneNumberDao.getById(id);
+    }
+
+    @Override
+    protected int update(int id, long sequence) {
+        return NrmPhoneNumbers.update(nrmPhoneNumberDao, callGroupId, id, sequence);
+    }
+
+    @Override
+    protected int delete(int id) {
+        return nrmPhoneNumberDao.delete(id);
+    }
+}
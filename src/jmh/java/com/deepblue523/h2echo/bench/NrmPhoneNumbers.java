@@ -0,0 +1,37 @@
+package com.deepblue523.h2echo.bench;
+
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmPhoneNumberDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+
+/***
+ * The NrmPhoneNumberDao operations shared by the example benchmarks.
+ */
+final class NrmPhoneNumbers {
+    private NrmPhoneNumbers() { }
+
+    static int createCallGroup(NrmCallGroupsDao callGroupsDao) {
+        return callGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+    }
+
+    static int create(NrmPhoneNumberDao phoneNumberDao, int callGroupId, long sequence) {
+        NrmPhoneNumber phoneNumber = TestUtils.getDummyNrmPhoneNumber(callGroupId);
+        phoneNumber.setPhoneNumber(phoneNumberFor(sequence));
+
+        return phoneNumberDao.insert(phoneNumber);
+    }
+
+    static int update(NrmPhoneNumberDao phoneNumberDao, int callGroupId, int id, long sequence) {
+        NrmPhoneNumber phoneNumber = TestUtils.getDummyNrmPhoneNumber(callGroupId);
+        phoneNumber.setId(id);
+        phoneNumber.setPhoneNumber(phoneNumberFor(sequence));
+
+        return phoneNumberDao.update(phoneNumber);
+    }
+
+    // Phone numbers are unique, so derive them from the sequence.
+    private static String phoneNumberFor(long sequence) {
+        return String.format("+1%010d", sequence);
+    }
+}
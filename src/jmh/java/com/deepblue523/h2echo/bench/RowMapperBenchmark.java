@@ -0,0 +1,96 @@
+package com.deepblue523.h2echo.bench;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.mapping.EchoRowMapper;
+import com.deepblue523.h2echo.synthetic.SyntheticDataGenerator;
+import com.deepblue523.h2echo.test.dao.beans.NrmAuditResult;
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.test.dao.mapper.NrmAuditResultsRowMapper;
+import com.deepblue523.h2echo.test.dao.mapper.NrmPhoneNumberRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Mapping a large result set with the hand-written mappers, EchoRowMapper and
+ * Spring's BeanPropertyRowMapper.
+ * <p>
+ * The tables are filled once per trial by SyntheticDataGenerator; every invocation
+ * runs the same query, so the difference between the mappers is the mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+    private static final String SQL_PHONE_NUMBERS = "SELECT * FROM nrm_phone_numbers";
+    private static final String SQL_AUDIT_RESULTS = "SELECT * FROM nrm_audit_results";
+
+    @Param({"10000"})
+    public int rows;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final RowMapper<NrmPhoneNumber> handWrittenPhoneNumbers = new NrmPhoneNumberRowMapper();
+    private final RowMapper<NrmPhoneNumber> echoPhoneNumbers = EchoRowMapper.forClass(NrmPhoneNumber.class);
+    private final RowMapper<NrmPhoneNumber> beanPropertyPhoneNumbers = new BeanPropertyRowMapper<>(NrmPhoneNumber.class);
+
+    private final RowMapper<NrmAuditResult> handWrittenAuditResults = new NrmAuditResultsRowMapper();
+    private final RowMapper<NrmAuditResult> echoAuditResults = EchoRowMapper.forClass(NrmAuditResult.class);
+    private final RowMapper<NrmAuditResult> beanPropertyAuditResults = new BeanPropertyRowMapper<>(NrmAuditResult.class);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DataSource dataSource = H2Echo.createDataSource("jdbc:h2:mem:rowMapperBenchmark;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, false);
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource, 1);
+        generator.setRows("nrm_call_groups", 100);
+        generator.setRows("nrm_phone_numbers", rows);
+        generator.setRows("nrm_audit_results", rows);
+        generator.generate(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<NrmPhoneNumber> phoneNumbersHandWritten() {
+        return jdbcTemplate.query(SQL_PHONE_NUMBERS, handWrittenPhoneNumbers);
+    }
+
+    @Benchmark
+    public List<NrmPhoneNumber> phoneNumbersEchoRowMapper() {
+        return jdbcTemplate.query(SQL_PHONE_NUMBERS, echoPhoneNumbers);
+    }
+
+    @Benchmark
+    public List<NrmPhoneNumber> phoneNumbersBeanProperty() {
+        return jdbcTemplate.query(SQL_PHONE_NUMBERS, beanPropertyPhoneNumbers);
+    }
+
+    @Benchmark
+    public List<NrmAuditResult> auditResultsHandWritten() {
+        return jdbcTemplate.query(SQL_AUDIT_RESULTS, handWrittenAuditResults);
+    }
+
+    @Benchmark
+    public List<NrmAuditResult> auditResultsEchoRowMapper() {
+        return jdbcTemplate.query(SQL_AUDIT_RESULTS, echoAuditResults);
+    }
+
+    @Benchmark
+    public List<NrmAuditResult> auditResultsBeanProperty() {
+        return jdbcTemplate.query(SQL_AUDIT_RESULTS, beanPropertyAuditResults);
+    }
+}
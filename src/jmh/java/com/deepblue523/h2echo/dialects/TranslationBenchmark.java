@@ -0,0 +1,91 @@
+package com.deepblue523.h2echo.dialects;
+
+import com.deepblue523.h2echo.bench.MigrationCorpusGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Micro-benchmarks for splitting scripts and for each MariaDB/MySQL translation step.
+ * <p>
+ * Lives in the dialects package so it can call the package-private translation
+ * methods directly.  Inputs come from a synthetic corpus; see MigrationCorpusGenerator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranslationBenchmark {
+
+    @Param({"50", "500"})
+    public int tables;
+
+    private String createTableScript;
+    private String alterScript;
+    private String createTableStmt;
+    private String alterStmt;
+    private String[] allStatements;
+    private MariaDbRunner runner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<MigrationCorpusGenerator.Script> scripts = new MigrationCorpusGenerator()
+                .tableCount(tables)
+                .tablesPerScript(tables)
+                .altersPerTable(2.0)
+                .generate();
+
+        runner = new MariaDbRunner();
+        createTableScript = scripts.get(0).contents;
+        alterScript = scripts.get(1).contents;
+
+        // Representative single statements, prepared the way the runner prepares them.
+        createTableStmt = runner.removeComments(DialectRunnerBase.splitScript(createTableScript)[0]).trim();
+        alterStmt = runner.removeComments(DialectRunnerBase.splitScript(alterScript)[0]).trim();
+
+        List<String> statements = new ArrayList<>();
+        for (MigrationCorpusGenerator.Script script : scripts) {
+            for (String stmt : DialectRunnerBase.splitScript(script.contents)) {
+                statements.add(runner.removeComments(stmt).trim());
+            }
+        }
+        allStatements = statements.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public String[] splitScript() {
+        return DialectRunnerBase.splitScript(createTableScript);
+    }
+
+    @Benchmark
+    public String adjustPrimaryKeySyntax() {
+        return MariaDbMySqlRunner.adjustPrimaryKeySyntax(createTableStmt);
+    }
+
+    @Benchmark
+    public String extractIndexes() {
+        List<String> indexStatements = new ArrayList<>();
+        return MariaDbMySqlRunner.extractIndexes(createTableStmt, indexStatements);
+    }
+
+    @Benchmark
+    public List<String> breakAlterIntoSmallerPieces() {
+        List<String> result = new ArrayList<>();
+        runner.breakAlterIntoSmallerPieces(alterStmt, result);
+        return result;
+    }
+
+    // Every statement in the corpus through the full per-statement translation.
+    @Benchmark
+    public List<String> translateCorpus() {
+        List<String> result = new ArrayList<>();
+        for (String stmt : allStatements) {
+            runner.makeStatementAdjustmentsForSyntax(stmt, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,258 @@
+package com.deepblue523.h2echo;
+
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import com.deepblue523.h2echo.annotations.QueryBudget;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Everything echoDaosOnObject() needs to know about a class, worked out once.
+ * <p>
+ * JUnit creates a new test instance for every test method, and each one calls
+ * echoDaosOnObject().  Walking the declared fields, reading annotations, calling
+ * setAccessible() and finding the JdbcTemplate constructor is the same work every
+ * time, so it is done once per class and cached in a ClassValue.  What's left per
+ * instance is constructing the DAOs and writing the fields.
+ */
+class EchoInjectionPlan {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, JdbcTemplate.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<EchoInjectionPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected EchoInjectionPlan computeValue(Class<?> type) {
+            return new EchoInjectionPlan(type);
+        }
+    };
+
+    /***
+     * One @EchoDao field on the class.
+     */
+    static class DaoField {
+        final String name;
+        final Class<?> daoType;
+        final ScriptSyntax syntax;
+        final MethodHandle constructor; // (JdbcTemplate)Object
+        final MethodHandle setter;      // (Object, Object)void
+
+        DaoField(String name, Class<?> daoType, ScriptSyntax syntax, MethodHandle constructor, MethodHandle setter) {
+            this.name = name;
+            this.daoType = daoType;
+            this.syntax = syntax;
+            this.constructor = constructor;
+            this.setter = setter;
+        }
+    }
+
+    final String scriptPath;
+    final boolean lazy;
+    final boolean schemaSlicing;
+    final boolean profileQueries;
+    final boolean analyzePlans;
+    final boolean validateSql;
+    final List<DaoField> daoFields;
+
+    // DAO types on the class; null unless slicing is on.
+    final List<Class<?>> sliceDaoClasses;
+
+    // How many DAO fields want each syntax, in field order.
+    final Map<ScriptSyntax, Integer> migrationsBySyntax;
+
+    private EchoInjectionPlan(Class<?> type) {
+        // Get the expected script syntax from the annotation.
+        String defaultScriptPath = H2Echo.DEFAULT_SCRIPT_PATH;
+        ScriptSyntax defaultSyntax = ScriptSyntax.MARIA_DB;
+        boolean lazy = false;
+        boolean schemaSlicing = false;
+        boolean profileQueries = false;
+        boolean analyzePlans = false;
+        boolean validateSql = false;
+
+        EnableH2Echo enableH2Echo = findEnableH2Echo(type);
+        if (enableH2Echo != null) {
+            defaultScriptPath = enableH2Echo.scriptPath();
+            defaultSyntax = enableH2Echo.syntax();
+            lazy = enableH2Echo.lazy();
+            schemaSlicing = enableH2Echo.schemaSlicing();
+            analyzePlans = enableH2Echo.analyzePlans();
+            validateSql = enableH2Echo.validateSql();
+            profileQueries = enableH2Echo.profileQueries() || analyzePlans;
+        }
+
+        // A query budget can only be checked if the queries are profiled.
+        profileQueries = profileQueries || hasQueryBudget(type);
+
+        if (defaultScriptPath == null) {
+            throw new IllegalArgumentException("For @EnableH2Echo, a Null scriptPath is not supported.");
+        }
+
+        // Look for fields annotated with @EchoDao.
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<DaoField> daoFields = new ArrayList<>();
+        Map<ScriptSyntax, Integer> migrationsBySyntax = new LinkedHashMap<>();
+
+        for (Field field : findEchoDaoFields(type)) {
+
+            ScriptSyntax scriptSyntax = field.getAnnotation(EchoDao.class).syntax();
+            if (scriptSyntax == ScriptSyntax.DEFAULT) {
+                scriptSyntax = defaultSyntax;
+            }
+
+            MethodHandle constructor;
+            try {
+                constructor = lookup.findConstructor(field.getType(), MethodType.methodType(void.class, JdbcTemplate.class))
+                        .asType(CONSTRUCTOR_TYPE);
+            }
+            catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException(
+                        "The class " + type.getName() + " should have constructor accepting JdbcTemplate");
+            }
+
+            MethodHandle setter;
+            try {
+                field.setAccessible(true);
+                setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            }
+            catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalArgumentException(
+                        "IllegalAccessException while attempt to set field '" + field.getName() + "' in class " + type.getName());
+            }
+
+            daoFields.add(new DaoField(field.getName(), field.getType(), scriptSyntax, constructor, setter));
+            migrationsBySyntax.merge(scriptSyntax, 1, Integer::sum);
+        }
+
+        List<Class<?>> sliceDaoClasses = null;
+        if (schemaSlicing) {
+            sliceDaoClasses = new ArrayList<>();
+            for (DaoField daoField : daoFields) {
+                sliceDaoClasses.add(daoField.daoType);
+            }
+        }
+
+        // The DAOs are built from the default script path; the annotation path is
+        // only validated above.
+        this.scriptPath = H2Echo.DEFAULT_SCRIPT_PATH;
+        this.lazy = lazy;
+        this.schemaSlicing = schemaSlicing;
+        this.profileQueries = profileQueries;
+        this.analyzePlans = analyzePlans;
+        this.validateSql = validateSql && !lazy;
+        this.daoFields = Collections.unmodifiableList(daoFields);
+        this.sliceDaoClasses = sliceDaoClasses == null ? null : Collections.unmodifiableList(sliceDaoClasses);
+        this.migrationsBySyntax = Collections.unmodifiableMap(migrationsBySyntax);
+    }
+
+    /***
+     * Find @EnableH2Echo on a class or the nearest superclass that has it.  Benchmark
+     * harnesses such as JMH run generated subclasses of the declared state class, so
+     * the annotation isn't always on the runtime class itself.
+     *
+     * @param type The class to look at.
+     * @return The annotation, or null if there isn't one.
+     */
+    static EnableH2Echo findEnableH2Echo(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            EnableH2Echo enableH2Echo = current.getAnnotation(EnableH2Echo.class);
+            if (enableH2Echo != null) {
+                return enableH2Echo;
+            }
+        }
+
+        return null;
+    }
+
+    /***
+     * Check for @QueryBudget on a class, its superclasses or any of their methods.
+     */
+    private static boolean hasQueryBudget(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (current.isAnnotationPresent(QueryBudget.class)) {
+                return true;
+            }
+
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(QueryBudget.class)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /***
+     * Find the @EchoDao fields declared on a class and its superclasses, for the same
+     * reason as above.
+     */
+    private static List<Field> findEchoDaoFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(EchoDao.class)) {
+                    fields.add(field);
+                }
+            }
+        }
+
+        return fields;
+    }
+
+    /***
+     * Get the cached plan for a class, building it on first use.
+     *
+     * @param type The class DAOs are injected into.
+     * @return The plan.
+     */
+    static EchoInjectionPlan forClass(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /***
+     * Construct a DAO for a field.
+     *
+     * @param daoField The field to construct for.
+     * @param owner The owning class (for messages).
+     * @param jdbcTemplate The JdbcTemplate to hand to the DAO.
+     * @return The new DAO.
+     */
+    static Object constructDao(DaoField daoField, Class<?> owner, JdbcTemplate jdbcTemplate) {
+        try {
+            return (Object) daoField.constructor.invokeExact(jdbcTemplate);
+        }
+        catch (Throwable e) {
+            throw new IllegalArgumentException(
+                    "InvocationTargetException while attempt to create instance of " + owner.getName(), e);
+        }
+    }
+
+    /***
+     * Write a DAO into its field.
+     *
+     * @param daoField The field to write.
+     * @param object The object to write into.
+     * @param dao The DAO.
+     */
+    static void setDao(DaoField daoField, Object object, Object dao) {
+        try {
+            daoField.setter.invokeExact(object, dao);
+        }
+        catch (Throwable e) {
+            throw new IllegalArgumentException(
+                    "IllegalAccessException while attempt to set field '" + daoField.name + "' in class "
+                            + object.getClass().getName(), e);
+        }
+    }
+}
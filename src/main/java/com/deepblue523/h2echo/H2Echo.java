@@ -1,16 +1,33 @@
 package com.deepblue523.h2echo;
 
 import java.io.*;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import com.deepblue523.h2echo.annotations.EchoDao;
-import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import com.deepblue523.h2echo.datasource.LazyEchoDataSource;
 import com.deepblue523.h2echo.dialects.*;
+import com.deepblue523.h2echo.jfr.DaoInjectionEvent;
+import com.deepblue523.h2echo.profiling.ProfilingDataSource;
+import com.deepblue523.h2echo.profiling.QueryProfiler;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+import com.deepblue523.h2echo.reporting.MigrationListener;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import com.deepblue523.h2echo.schema.DaoSqlValidator;
+import com.deepblue523.h2echo.schema.SchemaSlice;
+import com.deepblue523.h2echo.schema.SchemaSlicer;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
@@ -29,7 +46,29 @@ import org.springframework.jdbc.datasource.DriverManagerDataSource;
  * maintaining a separate set of scripts for H2, but this approach works.
  */
 public class H2Echo {
-  private static String DEFAULT_SCRIPT_PATH = "db/migrations/";
+  static final String DEFAULT_SCRIPT_PATH = "db/migrations/";
+
+  // The in-memory database that echoed DAOs are tied to.
+  public static final String ECHO_DB_URL = "jdbc:h2:mem:tmp;DB_CLOSE_DELAY=-1";
+
+  // Names each dry run's scratch database.
+  private static final AtomicInteger dryRunCount = new AtomicInteger();
+
+  // Makes sure the lazy summary is only hooked up once per JVM.
+  private static final AtomicBoolean lazySummaryHookRegistered = new AtomicBoolean(false);
+
+  // Schema slices are pure functions of the scripts and DAO classes, so compute each once.
+  private static final Map<String, SchemaSlice> schemaSliceCache = new ConcurrentHashMap<>();
+
+  // Migration-set hashes for DAO SQL validation, by script path, syntaxes and slice.
+  private static final Map<String, String> schemaKeyCache = new ConcurrentHashMap<>();
+
+  // Query profilers by the object whose DAOs they watch.  Weak, so finished test instances can go.
+  private static final Map<Object, QueryProfiler> queryProfilers = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // The (unprofiled) data source each object's DAOs were tied to.
+  private static final Map<Object, DataSource> echoDataSources = Collections.synchronizedMap(new WeakHashMap<>());
+
   /***
    * Get a list of files in the resources directory.
    *
@@ -126,40 +165,163 @@ public class H2Echo {
    *    has been created.
    * <p>
    * This approach allows for reproducible test environments by always starting with a known database state.
+   * <p>
+   * A MigrationReport is returned with per-script and per-statement timings, so tests
+   * can find (and assert on) the migrations that dominate setup time.
    */
-  public static void runSqlScriptsOnH2(
+  public static MigrationReport runSqlScriptsOnH2(
           JdbcTemplate jdbcTemplate, String scriptPath, ScriptSyntax syntax, boolean displayLog) {
+    return runSqlScriptsOnH2(jdbcTemplate, scriptPath, syntax, displayLog, null, null);
+  }
+
+  /***
+   * Same as above, with a listener that is called back as each script and statement is processed.
+   *
+   * @param migrationListener Listener to notify, or null.
+   */
+  public static MigrationReport runSqlScriptsOnH2(
+          JdbcTemplate jdbcTemplate, String scriptPath, ScriptSyntax syntax, boolean displayLog,
+          MigrationListener migrationListener) {
+    return runSqlScriptsOnH2(jdbcTemplate, scriptPath, syntax, displayLog, null, migrationListener);
+  }
+
+  /***
+   * Same as above, but optionally only builds the slice of the schema that a set of
+   * DAO classes needs.  The tables referenced by the DAOs' SQL constants are closed over
+   * the foreign keys declared in the scripts, and statements targeting any other table
+   * are left out.
+   *
+   * @param sliceDaoClasses DAO classes that define the slice, or null for the full schema.
+   * @param migrationListener Listener to notify, or null.
+   * @return The report for the run.
+   */
+  public static MigrationReport runSqlScriptsOnH2(
+          JdbcTemplate jdbcTemplate, String scriptPath, ScriptSyntax syntax, boolean displayLog,
+          Collection<Class<?>> sliceDaoClasses, MigrationListener migrationListener) {
     // Create appropriate syntax plugin.
-    DialectRunnerBase dialectRunner = null;
+    DialectRunnerBase dialectRunner = createDialectRunner(syntax);
+    dialectRunner.setMigrationListener(migrationListener);
+
+    // Get a list of SQL scripts and sort them by "Vnn.mm__". prefix.
+    File[] fileList = getFileList(scriptPath);
+    File[] fileListSorted = sortSqlScriptsByVersion(fileList);
+
+    // Only run what the DAOs need, if asked.
+    String variant = syntax.name();
+    if (sliceDaoClasses != null) {
+      SchemaSlice slice = getSchemaSlice(scriptPath, fileListSorted, sliceDaoClasses);
+      dialectRunner.setStatementFilter(slice::includes);
+      variant += "|" + new TreeSet<>(slice.getTables());
+
+      if (displayLog) {
+        System.out.println(slice);
+      }
+    }
+
+    // Bulk-loaded runs aren't comparable with regular ones in the timing history.
+    if (dialectRunner.isBulkLoad()) {
+      variant += "|bulkLoad";
+    }
+
+    // FINALLY - run the scripts!!!   Yabba Dabba Dooo!!!
+    MigrationReport report = dialectRunner.runSqlScriptsOnH2(jdbcTemplate, fileListSorted, displayLog);
+
+    // Keep a local timing history, and check it for regressions, if asked.
+    TimingHistory.recordMigration(fileListSorted, variant, report);
 
+    return report;
+  }
+
+  /***
+   * Check every translated statement against H2 in one fast pass, without touching
+   * the echo database.  The scripts are run into a scratch in-memory database where
+   * schema statements are executed (later statements need their tables) and data
+   * statements are only prepared, so H2 parses them and resolves their tables and
+   * columns but no rows are written.  Indexes aren't deferred and bulk-load settings
+   * aren't used, since there is no data.
+   * <p>
+   * The report's failed statements are the full list of what H2 rejects.  The run
+   * isn't recorded in the timing history.
+   *
+   * @param scriptPath The class path directory of the scripts.
+   * @param syntax The syntax they are written in.
+   * @param displayLog Print the usual summary.
+   * @return The report for the dry run.
+   */
+  public static MigrationReport dryRunSqlScriptsOnH2(String scriptPath, ScriptSyntax syntax, boolean displayLog) {
+    DialectRunnerBase dialectRunner = createDialectRunner(syntax);
+    dialectRunner.setDryRun(true);
+    dialectRunner.setSeedData(true);
+    dialectRunner.setBulkLoad(false);
+    dialectRunner.setIndexCreation(IndexCreation.UP_FRONT);
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            createDataSource("jdbc:h2:mem:h2echo-dry-run-" + dryRunCount.incrementAndGet() + ";DB_CLOSE_DELAY=-1"));
+    try {
+      return dialectRunner.runSqlScriptsOnH2(jdbcTemplate, sortSqlScriptsByVersion(getFileList(scriptPath)), displayLog);
+    } finally {
+      jdbcTemplate.execute("SHUTDOWN");
+    }
+  }
+
+  public static MigrationReport dryRunSqlScriptsOnH2(boolean displayLog) {
+    return dryRunSqlScriptsOnH2(DEFAULT_SCRIPT_PATH, ScriptSyntax.MARIA_DB, displayLog);
+  }
+
+  /***
+   * Create the dialect runner for a given script syntax.
+   *
+   * @param syntax The syntax the scripts are written in.
+   * @return The runner.  DEFAULT is treated as MariaDB.
+   */
+  public static DialectRunnerBase createDialectRunner(ScriptSyntax syntax) {
     if (syntax == ScriptSyntax.H2)
-      dialectRunner = new H2Runner();
+      return new H2Runner();
     else if (syntax == ScriptSyntax.MYSQL)
-      dialectRunner = new MySqlRunner();
+      return new MySqlRunner();
     else if (syntax == ScriptSyntax.MARIA_DB)
-      dialectRunner = new MariaDbRunner();
+      return new MariaDbRunner();
     else
-      dialectRunner = new MariaDbRunner();
+      return new MariaDbRunner();
+  }
 
-    // Get a list of SQL scripts and sort them by "Vnn.mm__". prefix.
-    File[] fileList = getFileList(scriptPath);
-    File[] fileListSorted = sortSqlScriptsByVersion(fileList);
+  /***
+   * Get (computing if needed) the schema slice for a set of DAO classes.
+   */
+  private static SchemaSlice getSchemaSlice(
+          String scriptPath, File[] fileListSorted, Collection<Class<?>> sliceDaoClasses) {
+    TreeSet<String> daoClassNames = new TreeSet<>();
+    for (Class<?> daoClass : sliceDaoClasses) {
+      daoClassNames.add(daoClass.getName());
+    }
 
-    // FINALLY - run the scripts!!!   Yabba Dabba Dooo!!!
-    dialectRunner.runSqlScriptsOnH2(jdbcTemplate, fileListSorted, displayLog);
+    String cacheKey = scriptPath + "|" + daoClassNames;
+    return schemaSliceCache.computeIfAbsent(
+            cacheKey, k -> SchemaSlicer.computeSlice(fileListSorted, sliceDaoClasses));
+  }
+
+  /***
+   * Get (computing if needed) the key DAO SQL validation results are cached under: a
+   * hash of the scripts, syntaxes and slice.  The scripts are only read and hashed
+   * the first time.
+   */
+  private static String getSchemaKey(EchoInjectionPlan plan) {
+    String variant = plan.migrationsBySyntax.keySet() + "|" + plan.sliceDaoClasses;
+    return schemaKeyCache.computeIfAbsent(plan.scriptPath + "|" + variant,
+            k -> TimingHistory.hashMigrationSet(sortSqlScriptsByVersion(getFileList(plan.scriptPath)), variant));
   }
 
-  public static void runSqlScriptsOnH2(
+  public static MigrationReport runSqlScriptsOnH2(
           JdbcTemplate jdbcTemplate, ScriptSyntax syntax, boolean displayLog) {
-    runSqlScriptsOnH2(jdbcTemplate, DEFAULT_SCRIPT_PATH, syntax, displayLog);
+    return runSqlScriptsOnH2(jdbcTemplate, DEFAULT_SCRIPT_PATH, syntax, displayLog);
   }
 
-  public static void runSqlScriptsOnH2(JdbcTemplate jdbcTemplate, boolean displayLog) {
-    runSqlScriptsOnH2(jdbcTemplate, DEFAULT_SCRIPT_PATH, ScriptSyntax.MARIA_DB, displayLog);
+  public static MigrationReport runSqlScriptsOnH2(JdbcTemplate jdbcTemplate, boolean displayLog) {
+    return runSqlScriptsOnH2(jdbcTemplate, DEFAULT_SCRIPT_PATH, ScriptSyntax.MARIA_DB, displayLog);
   }
 
-  public static void runSqlScriptsOnH2(JdbcTemplate jdbcTemplate, String scriptPath, boolean displayLog) {
-    runSqlScriptsOnH2(jdbcTemplate, scriptPath, ScriptSyntax.MARIA_DB, displayLog);
+  public static MigrationReport runSqlScriptsOnH2(JdbcTemplate jdbcTemplate, String scriptPath, boolean displayLog) {
+    return runSqlScriptsOnH2(jdbcTemplate, scriptPath, ScriptSyntax.MARIA_DB, displayLog);
   }
 
   /**
@@ -167,6 +329,14 @@ public class H2Echo {
    * This method sets up an in-memory H2 database, injects DAOs into fields
    * annotated with @EchoDao, and executes SQL SQL scripts.
    *
+   * <p>
+   * If the class is annotated with @EnableH2Echo(lazy = true), the DAOs are tied to
+   * a LazyEchoDataSource instead and the SQL scripts only run when one of them first
+   * asks for a connection.  Tests that never touch the database skip the schema build.
+   * <p>
+   * The reflective work (annotations, fields, constructors) is done once per class and
+   * cached; see EchoInjectionPlan.
+   *
    * @param object The object to process. Must be annotated with @ChimpWired.
    * @param displayLog A boolean flag to control logging during script execution.
    * @throws IllegalArgumentException If the object is not properly annotated,
@@ -177,83 +347,156 @@ public class H2Echo {
       return;
     }
 
-    // Get the expected script syntax from the annotation.
-    String defaultScriptPath = DEFAULT_SCRIPT_PATH;
-    ScriptSyntax defaultSyntax = ScriptSyntax.MARIA_DB;
-
-    if (object.getClass().isAnnotationPresent(EnableH2Echo.class)) {
-      defaultScriptPath = object.getClass().getAnnotation(EnableH2Echo.class).scriptPath();
-      defaultSyntax = object.getClass().getAnnotation(EnableH2Echo.class).syntax();
-    }
+    DaoInjectionEvent injectionEvent = new DaoInjectionEvent();
+    injectionEvent.begin();
+    ChromeTrace.Span injectionSpan = ChromeTrace.begin("injection", object.getClass().getSimpleName());
 
-    if (defaultScriptPath == null) {
-        throw new IllegalArgumentException("For @EnableH2Echo, a Null scriptPath is not supported.");
-    }
+    // Annotations, fields and constructors are only looked at once per class.
+    EchoInjectionPlan plan = EchoInjectionPlan.forClass(object.getClass());
 
     // Get the datasource we'll use to write to H2.  The annotated DAOs will also
-    // be tied to this data source.  For now, we'll use the default H2 credentials.
-    DriverManagerDataSource dataSource = new DriverManagerDataSource();
-    dataSource.setDriverClassName("org.h2.Driver");
-    dataSource.setUrl("jdbc:h2:mem:tmp;DB_CLOSE_DELAY=-1");
-    dataSource.setUsername("sa");
-    dataSource.setPassword("");
+    // be tied to this data source.
+    DriverManagerDataSource dataSource = createEchoDataSource();
 
     JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
 
-      // Run the SQL scripts.
-    // Look for fields annotated with @EchoDao.
-    for (Field field : object.getClass().getDeclaredFields()) {
-      if (field.isAnnotationPresent(EchoDao.class)) {
-        // Get the expected script syntax from the annotation.
-        String scriptPath = defaultScriptPath;
-        ScriptSyntax scriptSyntax = field.getAnnotation(EchoDao.class).syntax();
-
-        if (scriptSyntax == ScriptSyntax.DEFAULT) {
-          defaultScriptPath = object.getClass().getAnnotation(EnableH2Echo.class).scriptPath();
-          scriptSyntax = defaultSyntax;
-        }
+    // In lazy mode the DAOs get a data source that builds the schema on first use.
+    // The scripts themselves still run through the plain data source above.
+    LazyEchoDataSource lazyDataSource = null;
+    JdbcTemplate daoJdbcTemplate = jdbcTemplate;
 
-        // Construct our DAO object using the datasource we prepared.
-        field.setAccessible(true);
-        Constructor<Object> constructor = null;
+    if (plan.lazy) {
+      lazyDataSource = new LazyEchoDataSource(dataSource);
+      daoJdbcTemplate = new JdbcTemplate(lazyDataSource);
+      registerLazySummaryHook(displayLog);
+    }
 
-        try {
-            constructor = (Constructor<Object>) field.getType().getConstructor(JdbcTemplate.class);
-        }
-        catch (NoSuchMethodException e) {
-          throw new IllegalArgumentException(
-                  "The class " + object.getClass().getName() + " should have constructor accepting JdbcTemplate");
-        }
+    echoDataSources.put(object, daoJdbcTemplate.getDataSource());
 
-        Object dao = null;
-        try {
-          dao = constructor.newInstance(jdbcTemplate);
+    // When profiling, the DAOs' statements go through a profiling proxy (on top of the
+    // lazy data source, if any).  Migrations don't, so they never show up in a profile.
+    if (plan.profileQueries) {
+      QueryProfiler profiler = new QueryProfiler();
+      daoJdbcTemplate = new JdbcTemplate(new ProfilingDataSource(daoJdbcTemplate.getDataSource(), profiler));
+      queryProfilers.put(object, profiler);
+    }
 
-          // Run the SQL scripts.
-          runSqlScriptsOnH2(jdbcTemplate, scriptSyntax, displayLog);
-        }
-        catch (InstantiationException e) {
-          throw new IllegalArgumentException(
-                  "IllegalArgumentException while attempt to create instance of " + object.getClass().getName());
-        }
-        catch (IllegalAccessException e) {
-          throw new IllegalArgumentException(
-                  "IllegalAccessException while attempt to create instance of " + object.getClass().getName());
-        }
-        catch (InvocationTargetException e) {
-          throw new IllegalArgumentException(
-                  "InvocationTargetException while attempt to create instance of " + object.getClass().getName());
-        }
+    // Construct each DAO, run the SQL scripts (unless we're lazy), and set the field.
+    for (EchoInjectionPlan.DaoField daoField : plan.daoFields) {
+      Object dao = EchoInjectionPlan.constructDao(daoField, object.getClass(), daoJdbcTemplate);
 
-        // Finally, set the field in the object to the generated DAO.
-        try {
-            field.set(object, dao);
-        }
-        catch (IllegalAccessException e) {
-          throw new IllegalArgumentException(
-                  "IllegalAccessException while attempt to set field '" + field.getName() + "' in class " + object.getClass().getName());
-        }
+      if (!plan.lazy) {
+        runSqlScriptsOnH2(jdbcTemplate, plan.scriptPath, daoField.syntax, displayLog, plan.sliceDaoClasses, null);
       }
+
+      EchoInjectionPlan.setDao(daoField, object, dao);
+    }
+
+    // With the schema built, check that every DAO's SQL prepares against it.
+    if (plan.validateSql) {
+      List<Class<?>> daoClasses = new ArrayList<>();
+      for (EchoInjectionPlan.DaoField daoField : plan.daoFields) {
+        daoClasses.add(daoField.daoType);
+      }
+
+      DaoSqlValidator.validate(dataSource, getSchemaKey(plan), daoClasses, displayLog);
+    }
+
+    // Each distinct syntax only needs to be built once, on first connection.
+    if (lazyDataSource != null) {
+      for (Map.Entry<ScriptSyntax, Integer> entry : plan.migrationsBySyntax.entrySet()) {
+        ScriptSyntax scriptSyntax = entry.getKey();
+        lazyDataSource.addPendingMigration(
+                () -> runSqlScriptsOnH2(jdbcTemplate, plan.scriptPath, scriptSyntax, displayLog, plan.sliceDaoClasses, null),
+                entry.getValue());
+      }
+    }
+
+    injectionSpan.arg("daoCount", plan.daoFields.size()).arg("lazy", plan.lazy).end();
+
+    if (injectionEvent.shouldCommit()) {
+      injectionEvent.targetClass = object.getClass();
+      injectionEvent.daoCount = plan.daoFields.size();
+      injectionEvent.lazy = plan.lazy;
+      injectionEvent.commit();
+    }
+  }
+
+  /***
+   * Get the query profiler for the DAOs injected into an object.
+   *
+   * @param object The object passed to echoDaosOnObject().
+   * @return The profiler, or null if the object's class doesn't have
+   *         @EnableH2Echo(profileQueries = true).
+   */
+  public static QueryProfiler getQueryProfiler(Object object) {
+    return queryProfilers.get(object);
+  }
+
+  /***
+   * Get the data source an object's DAOs use, without query profiling.  For a lazy
+   * class this is the LazyEchoDataSource, so using it builds the schema first.
+   *
+   * @param object The object passed to echoDaosOnObject().
+   * @return The data source, or null if echoDaosOnObject() hasn't processed the object.
+   */
+  public static DataSource getEchoDataSource(Object object) {
+    return echoDataSources.get(object);
+  }
+
+  /***
+   * Check whether the DAO queries of a class's tests should have their plans analyzed.
+   *
+   * @param type The class DAOs are injected into.
+   * @return True if it (or a superclass) has @EnableH2Echo(analyzePlans = true).
+   */
+  public static boolean isAnalyzingPlans(Class<?> type) {
+    return EchoInjectionPlan.forClass(type).analyzePlans;
+  }
+
+  /***
+   * Check whether DAOs injected into a class are built lazily.
+   *
+   * @param type The class DAOs are injected into.
+   * @return True if it (or a superclass) has @EnableH2Echo(lazy = true).
+   */
+  public static boolean isLazy(Class<?> type) {
+    return EchoInjectionPlan.forClass(type).lazy;
+  }
+
+  /***
+   * Create a data source for the in-memory database echoed DAOs use.  For now, we'll
+   * use the default H2 credentials.
+   *
+   * @return A new data source for ECHO_DB_URL.
+   */
+  public static DriverManagerDataSource createEchoDataSource() {
+    return createDataSource(ECHO_DB_URL);
+  }
+
+  /***
+   * Create a data source for an H2 database, with the default H2 credentials.
+   *
+   * @param url The JDBC URL, e.g. "jdbc:h2:mem:scratch;DB_CLOSE_DELAY=-1".
+   * @return A new data source for the URL.
+   */
+  public static DriverManagerDataSource createDataSource(String url) {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    dataSource.setDriverClassName("org.h2.Driver");
+    dataSource.setUrl(url);
+    dataSource.setUsername("sa");
+    dataSource.setPassword("");
+
+    return dataSource;
+  }
+
+  /***
+   * Print the lazy summary when the JVM exits, so a test run shows how many
+   * migrations were avoided.  Only registered once, and only if logging is on.
+   */
+  private static void registerLazySummaryHook(boolean displayLog) {
+    if (displayLog && lazySummaryHookRegistered.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(LazyEchoDataSource::printSummary, "h2echo-lazy-summary"));
     }
   }
 }
@@ -0,0 +1,22 @@
+package com.deepblue523.h2echo.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/***
+ * Rows to load into the echo database before a test, from one or more fixture
+ * files (.csv, .json or .sql, found on the classpath or the file system).  Loaded
+ * by H2EchoExtension before each test; see FixtureLoader for the file formats.
+ * <p>
+ * Class fixtures (including a superclass's) load first, then the method's.  All of
+ * a test's fixtures are loaded together, parent tables before the tables whose
+ * foreign keys point at them, whatever order the files are listed in.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface EchoFixture {
+    // Fixture file paths, e.g. "fixtures/nrm_call_groups.csv".
+    String[] value();
+}
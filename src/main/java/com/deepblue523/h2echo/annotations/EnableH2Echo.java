@@ -12,4 +12,20 @@ import java.lang.annotation.Target;
 public @interface EnableH2Echo {
     ScriptSyntax syntax() default ScriptSyntax.MARIA_DB;
     String scriptPath() default "SQL/migrations";
+
+    // Defer the schema build until a DAO first asks for a connection.
+    boolean lazy() default false;
+
+    // Only build the tables the injected DAOs reference (plus their FK parents).
+    boolean schemaSlicing() default false;
+
+    // Time and count every statement the DAOs run; see H2Echo.getQueryProfiler().
+    boolean profileQueries() default false;
+
+    // EXPLAIN each distinct DAO query after every test and flag full scans (implies profileQueries).
+    boolean analyzePlans() default false;
+
+    // Prepare every SQL_xxx constant of the injected DAOs once the schema is built, and fail on any that don't
+    // (not in lazy mode, where it would force the build).
+    boolean validateSql() default false;
 }
@@ -0,0 +1,28 @@
+package com.deepblue523.h2echo.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/***
+ * Caps the database work a test's @EchoDao fields may do.  Enforced by
+ * H2EchoExtension after the test runs; the test fails with a breakdown of its
+ * statements if any limit is exceeded.
+ * <p>
+ * On a class it applies to every test method; on a method it replaces the class
+ * budget.  Its presence turns on query profiling for the class.  Negative values
+ * mean "no limit".
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface QueryBudget {
+    // Statements executed (each batch entry counts).
+    int maxStatements() default -1;
+
+    // Rows seen at the JDBC level: rows read from result sets plus rows updated.
+    long maxRowsScanned() default -1;
+
+    // Total time spent executing statements.
+    long maxMillis() default -1;
+}
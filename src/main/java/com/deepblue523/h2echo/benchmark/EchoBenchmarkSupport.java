@@ -0,0 +1,91 @@
+package com.deepblue523.h2echo.benchmark;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.snapshot.H2Snapshot;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/***
+ * Lets a benchmark state class (e.g. a JMH @State) use @EnableH2Echo / @EchoDao,
+ * with the schema built once per trial and the database reset for each iteration.
+ * <p>
+ * It doesn't depend on JMH; hook it up from the state's setup methods:
+ * <p>
+ *    @Setup(Level.Trial)      support = EchoBenchmarkSupport.setUpTrial(this);
+ *    @Setup(Level.Iteration)  support.resetIteration();
+ *    @TearDown(Level.Trial)   support.tearDownTrial();
+ * <p>
+ * setUpTrial() injects the DAOs (running the migrations) and snapshots the database.
+ * resetIteration() restores that snapshot, so rows inserted by one iteration don't
+ * slow down or break the next.  If the trial seeds data of its own, call snapshot()
+ * afterwards so the seed data is part of every reset.
+ * <p>
+ * Lazy mode isn't supported; the schema has to exist before the snapshot is taken.
+ */
+public class EchoBenchmarkSupport {
+    private final JdbcTemplate jdbcTemplate;
+    private H2Snapshot snapshot;
+
+    private EchoBenchmarkSupport(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /***
+     * Inject the @EchoDao fields of a state object, building the schema, and take
+     * the snapshot that later iterations are reset to.
+     *
+     * @param state The benchmark state object.
+     * @return The support object to call at iteration and trial end.
+     */
+    public static EchoBenchmarkSupport setUpTrial(Object state) {
+        if (H2Echo.isLazy(state.getClass())) {
+            throw new IllegalArgumentException(
+                    "Benchmark state " + state.getClass().getName() + " can't use @EnableH2Echo(lazy = true).");
+        }
+
+        H2Echo.echoDaosOnObject(state, false);
+
+        EchoBenchmarkSupport support = new EchoBenchmarkSupport(new JdbcTemplate(H2Echo.createEchoDataSource()));
+        support.snapshot();
+
+        return support;
+    }
+
+    /***
+     * Snapshot the database as it is now.  Later resets go back to this point.
+     */
+    public void snapshot() {
+        if (snapshot != null) {
+            snapshot.delete();
+        }
+
+        snapshot = H2Snapshot.take(jdbcTemplate);
+    }
+
+    /***
+     * Put the database back to the last snapshot.
+     */
+    public void resetIteration() {
+        if (snapshot == null) {
+            throw new IllegalStateException("resetIteration() called after tearDownTrial().");
+        }
+
+        snapshot.restore(jdbcTemplate);
+    }
+
+    /***
+     * Drop the snapshot.
+     */
+    public void tearDownTrial() {
+        if (snapshot != null) {
+            snapshot.delete();
+            snapshot = null;
+        }
+    }
+
+    /***
+     * @return A JdbcTemplate on the same database as the injected DAOs, e.g. for seeding.
+     */
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+}
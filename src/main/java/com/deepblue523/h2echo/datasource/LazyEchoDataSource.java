@@ -0,0 +1,148 @@
+package com.deepblue523.h2echo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * A DataSource that defers building the H2 schema until somebody actually asks
+ * for a connection.  DAOs injected by H2Echo in lazy mode are tied to one of these.
+ * <p>
+ * Tests frequently declare several @EchoDao fields but only exercise some of them
+ * (or none at all).  Eagerly, each of those fields costs a full migration run.  With
+ * this wrapper, the queued migrations run exactly once, on the first call to
+ * getConnection().  A test that never touches the database pays nothing.
+ * <p>
+ * Counters are kept for the whole JVM so a per-run summary can show how many
+ * migrations laziness avoided: the eager-equivalent migrations of every data
+ * source that was never touched.  A touched data source avoids nothing, even when
+ * its fields shared one migration run.
+ */
+public class LazyEchoDataSource extends DelegatingDataSource {
+    // JVM-wide counters for the lazy summary.
+    private static final AtomicInteger dataSourcesCreated = new AtomicInteger();
+    private static final AtomicInteger migrationsDeferred = new AtomicInteger();
+    private static final AtomicInteger migrationsRun = new AtomicInteger();
+    private static final AtomicInteger dataSourcesInitialized = new AtomicInteger();
+
+    // Eager-equivalent migrations queued on data sources that haven't been touched (yet).
+    private static final AtomicInteger migrationsUntouched = new AtomicInteger();
+
+    private final List<Runnable> pendingMigrations = new ArrayList<>();
+    private int eagerMigrationCount = 0;
+    private volatile boolean initialized = false;
+
+    public LazyEchoDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+        dataSourcesCreated.incrementAndGet();
+    }
+
+    /***
+     * Queue a migration to run on first connection.
+     *
+     * @param migration The migration to run.  It must use the target data source
+     *                  (not this one) or it will recurse.
+     * @param eagerEquivalent How many migration runs eager mode would have spent
+     *                        for the same work.  Used only for the summary.
+     */
+    public synchronized void addPendingMigration(Runnable migration, int eagerEquivalent) {
+        if (initialized) {
+            throw new IllegalStateException("Migrations can't be queued after the schema has been built.");
+        }
+
+        pendingMigrations.add(migration);
+        eagerMigrationCount += eagerEquivalent;
+        migrationsDeferred.addAndGet(eagerEquivalent);
+        migrationsUntouched.addAndGet(eagerEquivalent);
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /***
+     * Run any queued migrations if that hasn't happened yet.  Safe to call from
+     * multiple threads; the migrations run once.
+     */
+    public void initialize() {
+        if (initialized) {
+            return;
+        }
+
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
+
+            for (Runnable migration : pendingMigrations) {
+                migration.run();
+                migrationsRun.incrementAndGet();
+            }
+
+            pendingMigrations.clear();
+            migrationsUntouched.addAndGet(-eagerMigrationCount);
+            dataSourcesInitialized.incrementAndGet();
+            initialized = true;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        initialize();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        initialize();
+        return super.getConnection(username, password);
+    }
+
+    public int getEagerMigrationCount() {
+        return eagerMigrationCount;
+    }
+
+    public static int getDataSourcesCreated() {
+        return dataSourcesCreated.get();
+    }
+
+    public static int getMigrationsDeferred() {
+        return migrationsDeferred.get();
+    }
+
+    public static int getMigrationsRun() {
+        return migrationsRun.get();
+    }
+
+    /***
+     * @return Lazy data sources that have never handed out a connection.
+     */
+    public static int getDataSourcesUntouched() {
+        return dataSourcesCreated.get() - dataSourcesInitialized.get();
+    }
+
+    /***
+     * @return The migrations eager mode would have run for the data sources that
+     * were never touched.
+     */
+    public static int getMigrationsAvoided() {
+        return migrationsUntouched.get();
+    }
+
+    /***
+     * Print the JVM-wide lazy summary to the console.
+     */
+    public static void printSummary() {
+        System.out.println("\n---[ Summary of lazy H2Echo schema builds ]---");
+        System.out.println("Lazy data sources created: " + getDataSourcesCreated());
+        System.out.println("Migrations eager mode would have run: " + getMigrationsDeferred());
+        System.out.println("Lazy data sources never touched: " + getDataSourcesUntouched());
+        System.out.println("Migrations actually run: " + getMigrationsRun());
+        System.out.println("Migrations avoided by laziness: " + getMigrationsAvoided());
+    }
+}
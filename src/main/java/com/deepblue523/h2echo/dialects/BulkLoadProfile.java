@@ -0,0 +1,145 @@
+package com.deepblue523.h2echo.dialects;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * H2 settings used while the migrations and seed data are applied.  The database
+ * is thrown away after the tests, so it doesn't need per-statement constraint
+ * checking or locking while it is being built:
+ * <p>
+ *    - Referential integrity is off, so tables and rows can load in any order.
+ *    - Table locking is off (LOCK_MODE 0).  Only the migration touches the database.
+ *    - The page cache is enlarged, for file-backed databases (in-memory ones have none).
+ * <p>
+ * H2 2.x has no undo log or transaction log switches (SET UNDO_LOG is gone and
+ * SET LOG is unsupported), so those aren't touched.
+ * <p>
+ * restore() puts the original settings back and then validates every foreign key
+ * against the data that was loaded, table by table, so nothing loaded unchecked
+ * reaches a DAO.
+ * <p>
+ * The profile is off unless the system property "h2echo.bulkLoad" is "true" or
+ * setBulkLoad(true) is called on the runner.
+ */
+public class BulkLoadProfile {
+    public static final String BULK_LOAD_PROPERTY = "h2echo.bulkLoad";
+
+    // Cache size used while loading, in KB.
+    private static final long BULK_CACHE_SIZE_KB = 256 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private Integer originalLockMode = null;
+    private Long originalCacheSizeKb = null;
+    private boolean applied = false;
+
+    private long applyNanos;
+    private long restoreNanos;
+    private long verifyNanos;
+    private int tablesVerified;
+
+    public BulkLoadProfile(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /***
+     * @return True if the "h2echo.bulkLoad" system property turns the profile on.
+     */
+    public static boolean isEnabledBySystemProperty() {
+        return Boolean.parseBoolean(System.getProperty(BULK_LOAD_PROPERTY, "false"));
+    }
+
+    /***
+     * Switch the database into bulk-load settings, remembering the current ones.
+     */
+    public void apply() {
+        // The first query may be what opens the database, so it isn't part of the timing.
+        originalLockMode = jdbcTemplate.queryForObject("CALL LOCK_MODE()", Integer.class);
+        originalCacheSizeKb = getCacheSizeKb();
+
+        long startNanos = System.nanoTime();
+
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        jdbcTemplate.execute("SET LOCK_MODE 0");
+        if (originalCacheSizeKb != null && originalCacheSizeKb < BULK_CACHE_SIZE_KB) {
+            jdbcTemplate.execute("SET CACHE_SIZE " + BULK_CACHE_SIZE_KB);
+        }
+
+        applied = true;
+        applyNanos = System.nanoTime() - startNanos;
+    }
+
+    /***
+     * Put the original settings back.  Safe to call if apply() didn't run, or failed
+     * part way through.
+     */
+    public void restore() {
+        if (!applied) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        if (originalLockMode != null) {
+            jdbcTemplate.execute("SET LOCK_MODE " + originalLockMode);
+        }
+        if (originalCacheSizeKb != null && originalCacheSizeKb < BULK_CACHE_SIZE_KB) {
+            jdbcTemplate.execute("SET CACHE_SIZE " + originalCacheSizeKb);
+        }
+
+        applied = false;
+        restoreNanos = System.nanoTime() - startNanos;
+    }
+
+    /***
+     * Check every foreign key against the data loaded while referential integrity
+     * was off.  Each table with foreign keys is re-enabled with CHECK, which makes
+     * H2 scan its rows.
+     *
+     * @return One message per table with violations (empty if all is well).
+     */
+    public List<String> verifyForeignKeys() {
+        long startNanos = System.nanoTime();
+        List<String> violations = new ArrayList<>();
+
+        List<Map<String, Object>> tables = jdbcTemplate.queryForList(
+                "SELECT DISTINCT TABLE_SCHEMA, TABLE_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS "
+                        + "WHERE CONSTRAINT_TYPE = 'FOREIGN KEY' ORDER BY TABLE_SCHEMA, TABLE_NAME");
+
+        for (Map<String, Object> table : tables) {
+            String tableName = "\"" + table.get("TABLE_SCHEMA") + "\".\"" + table.get("TABLE_NAME") + "\"";
+            try {
+                jdbcTemplate.execute("ALTER TABLE " + tableName + " SET REFERENTIAL_INTEGRITY TRUE CHECK");
+            } catch (Exception e) {
+                String completeExMsg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                violations.add(tableName + " - " + DialectRunnerBase.shortErrorMessage(completeExMsg));
+            }
+        }
+
+        tablesVerified = tables.size();
+        verifyNanos = System.nanoTime() - startNanos;
+        return violations;
+    }
+
+    public long getApplyNanos() { return applyNanos; }
+    public long getRestoreNanos() { return restoreNanos; }
+    public long getVerifyNanos() { return verifyNanos; }
+    public int getTablesVerified() { return tablesVerified; }
+
+    /***
+     * @return The page cache size in KB, or null for in-memory databases (which
+     *         don't have one).
+     */
+    private Long getCacheSizeKb() {
+        List<String> values = jdbcTemplate.queryForList(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'info.CACHE_MAX_SIZE'",
+                String.class);
+
+        // Reported in MB.
+        return values.isEmpty() ? null : Long.parseLong(values.get(0)) * 1024;
+    }
+}
@@ -1,11 +1,25 @@
 package com.deepblue523.h2echo.dialects;
 
+import com.deepblue523.h2echo.jfr.MigrationEvent;
+import com.deepblue523.h2echo.jfr.ScriptReadEvent;
+import com.deepblue523.h2echo.jfr.StatementExecuteEvent;
+import com.deepblue523.h2echo.jfr.StatementTranslateEvent;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+import com.deepblue523.h2echo.reporting.MigrationListener;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,7 +27,173 @@ public abstract class DialectRunnerBase {
     // Used to track which script have already been run.  Running SQL is
     // idempotent - can be run multiple times and only newly queued ones will
     // actually be executed against H2.
-    private static List<String> scriptsAlreadyExecuted = new ArrayList<>();
+    private static Set<String> scriptsAlreadyExecuted = ConcurrentHashMap.newKeySet();
+
+    // Optional filter applied to each raw statement before translation.  Used for
+    // schema slicing, where only statements touching a subset of tables are run.
+    private Predicate<String> statementFilter = null;
+
+    // Optional callbacks as the run progresses.
+    private MigrationListener migrationListener = null;
+
+    // When index statements produced by translation are run.  Deferred ones are
+    // collected here and run once, after every script (and its seed data) has run.
+    private IndexCreation indexCreation = IndexCreation.fromSystemProperty();
+    private final List<String> deferredIndexStatements = new ArrayList<>();
+
+    // Name of the pseudo-script deferred index statements are reported under.
+    public static final String DEFERRED_INDEXES_SCRIPT_NAME = "(deferred indexes)";
+
+    // Whether the database is switched into bulk-load settings while the scripts run.
+    private boolean bulkLoad = BulkLoadProfile.isEnabledBySystemProperty();
+
+    // Name that foreign key violations found after a bulk load are reported under.
+    public static final String BULK_LOAD_SCRIPT_NAME = "(bulk load)";
+
+    // Statements H2 is known to reject, reported without running them (null for none).
+    private RejectedStatementCache rejectedStatementCache = RejectedStatementCache.fromSystemProperty();
+
+    // The H2 version the cache is keyed by, looked up on first use.
+    private String h2Version = null;
+
+    // In a dry run, data statements are only prepared (parsed and checked against the
+    // schema), never executed.
+    private boolean dryRun = false;
+
+    // Turns seed data (INSERT/UPDATE/DELETE in the scripts) on for every runner.
+    public static final String SEED_DATA_PROPERTY = "h2echo.seedData";
+
+    // Whether the MariaDB/MySQL translation passes seed data through (see setSeedData).
+    private boolean seedData = Boolean.getBoolean(SEED_DATA_PROPERTY);
+
+    // Whether a script's seed data is only loaded once into a database (see setSeedOnce).
+    private boolean seedOnce = true;
+
+    // Scripts whose seed data has been loaded: database URL, script name and content hash.
+    private static final Set<String> seededScripts = ConcurrentHashMap.newKeySet();
+
+    // Per run: tables (re)created so far, and whether the current script has seeded
+    // this database before.  Seed statements for tables that survived are skipped.
+    private final Set<String> tablesCreated = new HashSet<>();
+    private boolean scriptSeededBefore = false;
+
+    private static final Pattern CREATE_TABLE_NAME_PATTERN = Pattern.compile(
+            "(?is)^\\s*CREATE\\s+(?:CACHED\\s+|MEMORY\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?([\\w.\"`]+)");
+    private static final Pattern DATA_TABLE_NAME_PATTERN = Pattern.compile(
+            "(?is)^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|MERGE\\s+INTO|DELETE\\s+FROM|UPDATE)\\s+([\\w.\"`]+)");
+
+    // How many of the slowest scripts/statements to show in the console summary.
+    private static final int SLOWEST_COUNT_TO_DISPLAY = 5;
+
+    public void setStatementFilter(Predicate<String> statementFilter) {
+        this.statementFilter = statementFilter;
+    }
+
+    public void setMigrationListener(MigrationListener migrationListener) {
+        this.migrationListener = migrationListener;
+    }
+
+    public void setIndexCreation(IndexCreation indexCreation) {
+        this.indexCreation = indexCreation;
+    }
+
+    public IndexCreation getIndexCreation() {
+        return indexCreation;
+    }
+
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    public void setRejectedStatementCache(RejectedStatementCache rejectedStatementCache) {
+        this.rejectedStatementCache = rejectedStatementCache;
+    }
+
+    public RejectedStatementCache getRejectedStatementCache() {
+        return rejectedStatementCache;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /***
+     * @param seedData True to run the INSERT, UPDATE and DELETE statements of MariaDB/MySQL
+     *                 scripts.  Off by default (they used to be dropped), or on with
+     *                 -Dh2echo.seedData=true.
+     */
+    public void setSeedData(boolean seedData) {
+        this.seedData = seedData;
+    }
+
+    public boolean isSeedData() {
+        return seedData;
+    }
+
+    /***
+     * @param seedOnce True (the default) to load each script's seed data into a database
+     *                 only once per JVM.  DAO injection re-runs every script against the
+     *                 shared echo database; on those re-runs, seed statements only run for
+     *                 tables the run (re)created.  Turn it off when the caller resets the
+     *                 database itself, as watch mode does.
+     */
+    public void setSeedOnce(boolean seedOnce) {
+        this.seedOnce = seedOnce;
+    }
+
+    /***
+     * Queue a translated CREATE INDEX statement according to the index creation
+     * setting: run it in place, defer it until every script has run, or drop it.
+     *
+     * @param indexSql The CREATE INDEX statement.
+     * @param finalSqlListToRun The statements to run for the current source statement.
+     */
+    protected void addIndexStatement(String indexSql, List<String> finalSqlListToRun) {
+        switch (indexCreation) {
+            case UP_FRONT:
+                finalSqlListToRun.add(indexSql);
+                break;
+            case DEFERRED:
+                deferredIndexStatements.add(indexSql);
+                break;
+            case NONE:
+            default:
+                break;
+        }
+    }
+
+    /***
+     * Read the full contents of a SQL script.
+     *
+     * @param file The script to read.
+     * @return The contents of the script.
+     */
+    public static String readScript(File file) {
+        try (Reader reader = new FileReader(file)) {
+            return FileCopyUtils.copyToString(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Split the contents of a SQL script into individual statements.  This breaks on
+     * the ';' character after condensing double spaces.  Comments are left in place.
+     *
+     * @param sqlScriptContents The contents of the script.
+     * @return The raw statements.
+     */
+    public static String[] splitScript(String sqlScriptContents) {
+        return sqlScriptContents.replaceAll("  ", " ").split(";");
+    }
 
     /***
      * Remove comments from a SQL statement.
@@ -41,7 +221,10 @@ public abstract class DialectRunnerBase {
                 || stmt.startsWith("CREATE TABLE")
                 || stmt.startsWith("DROP TABLE")
                 || stmt.startsWith("ALTER TABLE")
+                || stmt.startsWith("CREATE INDEX")
+                || stmt.startsWith("CREATE UNIQUE INDEX")
                 || stmt.startsWith("INSERT")
+                || stmt.startsWith("UPDATE")
                 || stmt.startsWith("DELETE"));
     }
 
@@ -134,134 +317,250 @@ public abstract class DialectRunnerBase {
      *    CREATE TRIGGER VOICE.CNAM_AFTER_UPDATE -  expected "QUEUE, NOWAIT, AS, CALL"
      *    CREATE TRIGGER VOICE.CNAM_AFTER_DELETE -  expected "QUEUE, NOWAIT, AS, CALL"
      * <p>
+     * Failures like these come back on every run.  With the rejected statement cache
+     * on (see RejectedStatementCache), syntax errors are remembered per H2 version and
+     * reported again on later runs without sending the statement to H2.  In a dry run
+     * (setDryRun), data statements are only prepared, not executed.
+     * <p>
+     * Timings are collected as it goes (see MigrationReport) and returned, along with
+     * every skipped and failed statement.  The slowest scripts and statements are
+     * included in the console summary.
+     * <p>
      * @param jdbcTemplate The JDBC template to use.
      * @param fileList The list of script files to run.
+     * @return The report for this run.
      */
-    public void runSqlScriptsOnH2(
+    public MigrationReport runSqlScriptsOnH2(
             JdbcTemplate jdbcTemplate, File[] fileList, boolean displayLog) {
-        // Load each script.
-        int totalStmtsSkipped = 0;
-        int totalStmtsRun = 0;
+        MigrationReport report = new MigrationReport();
+        long runStartNanos = System.nanoTime();
+
+        // JFR events cost (next to) nothing unless a recording is active.
+        MigrationEvent migrationEvent = new MigrationEvent();
+        migrationEvent.begin();
+        ChromeTrace.Span migrationSpan = ChromeTrace.begin("migration", getClass().getSimpleName());
 
         List<String> errorLogList = new ArrayList<String>();
-        int totalErrors = 0;
 
-        // ---[ Look at each SQL script file ]---
-        // At this point this should be sorted by version.
-        for (File file : fileList) {
-            // Let's not execute the same scri[t more than once.
-            if (scriptsAlreadyExecuted.contains(file.getName())) {
+        // ---[ Bulk-load settings for the duration of the build ]---
+        BulkLoadProfile bulkLoadProfile = null;
+        if (bulkLoad) {
+            bulkLoadProfile = new BulkLoadProfile(jdbcTemplate);
+            bulkLoadProfile.apply();
+        }
+
+        tablesCreated.clear();
+        String databaseUrl = seedOnce ? getDatabaseUrl(jdbcTemplate) : null;
+
+        try {
+            // ---[ Look at each SQL script file ]---
+            // At this point this should be sorted by version.
+            for (File file : fileList) {
+                // Let's not execute the same scri[t more than once.
+                if (scriptsAlreadyExecuted.contains(file.getName())) {
+                    if (displayLog) {
+                        System.out.println("Script already run on H2, not re-running: " + file.getName());
+                    }
+
+                }
+
+                scriptsAlreadyExecuted.add(file.getName());
                 if (displayLog) {
-                    System.out.println("Script already run on H2, not re-running: " + file.getName());
+                    System.out.println("Running DB script on H2: " + file.getName());
                 }
 
-            }
+                MigrationReport.ScriptTiming scriptTiming = new MigrationReport.ScriptTiming(file.getName(), file.length());
+                ChromeTrace.Span scriptSpan = ChromeTrace.begin("script", file.getName());
+                if (migrationListener != null) {
+                    migrationListener.onScriptStarted(file.getName());
+                }
 
-            scriptsAlreadyExecuted.add(file.getName());
-            if (displayLog) {
-                System.out.println("Running DB script on H2: " + file.getName());
-            }
+                // ---[ Read the file contents ]---
+                ScriptReadEvent scriptReadEvent = new ScriptReadEvent();
+                scriptReadEvent.begin();
 
-            // ---[ Read the file contents ]---
-            String sqlScriptContents;
-            try (Reader reader = new FileReader(file)) {
-                sqlScriptContents = FileCopyUtils.copyToString(reader);
-            } catch (IOException e) { // Ignore for now.
-                throw new UncheckedIOException(e);
-            }
+                ChromeTrace.Span readSpan = ChromeTrace.begin("read", file.getName());
+                long phaseStartNanos = System.nanoTime();
+                String sqlScriptContents = readScript(file);
+                scriptTiming.addReadNanos(System.nanoTime() - phaseStartNanos);
+                readSpan.arg("bytes", file.length()).end();
 
-            // ---[ Split into individual SQL statements from SQL script]---
-            // Break on the ';' character ... and remove any leading spaces ...
-            // ... and condense spaces ... and convert to uppercase for easier RegEx/parsing.
-            boolean insideSprocDef = false;
-            sqlScriptContents = sqlScriptContents.replaceAll("  ", " ");
-
-            String[] sqlStatementList = sqlScriptContents.split(";");
-            for (String sqlStatement : sqlStatementList) {
-                // ---[ Weed out statements that we are not going to process for H2 for now ]---
-                // Make any adjustments to the SQL so they work in H2.
-                // Remove comments in order to simplify the regexes.
-                String originalStmtToRunAdj = removeComments(sqlStatement);
-                String stmtNoLeadingSpaces = originalStmtToRunAdj.stripLeading().toUpperCase();
-
-                // Handle stored procedure definitions.  For now, we just skip them.
-                if (stmtNoLeadingSpaces.contains("CREATE PROCEDURE")) {
-                    insideSprocDef = true;
-                    continue;
-                } else if (stmtNoLeadingSpaces.startsWith("END")) {
-                    insideSprocDef = false;
-                    totalStmtsSkipped++;
-                    continue;
-                } else if (insideSprocDef) {
-                    continue;
+                if (scriptReadEvent.shouldCommit()) {
+                    scriptReadEvent.scriptName = file.getName();
+                    scriptReadEvent.bytes = file.length();
+                    scriptReadEvent.commit();
                 }
 
-                // Kick out if we don't support the statement.
-                if (!doWeSupportStatementInH2(stmtNoLeadingSpaces)) {
-                    totalStmtsSkipped++;
-                    continue;
-                }
+                scriptSeededBefore = databaseUrl != null && !seededScripts.add(
+                        databaseUrl + "|" + file.getName() + "|" + TimingHistory.hashText(sqlScriptContents));
+
+                // ---[ Split into individual SQL statements from SQL script]---
+                // Break on the ';' character ... and remove any leading spaces ...
+                // ... and condense spaces ... and convert to uppercase for easier RegEx/parsing.
+                boolean insideSprocDef = false;
+
+                phaseStartNanos = System.nanoTime();
+                String[] sqlStatementList = splitScript(sqlScriptContents);
+                scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+
+                for (String sqlStatement : sqlStatementList) {
+                    phaseStartNanos = System.nanoTime();
+
+                    // ---[ Weed out statements that we are not going to process for H2 for now ]---
+                    // Make any adjustments to the SQL so they work in H2.
+                    // Remove comments in order to simplify the regexes.
+                    String originalStmtToRunAdj = removeComments(sqlStatement);
+                    String stmtNoLeadingSpaces = originalStmtToRunAdj.stripLeading().toUpperCase();
+
+                    // Handle stored procedure definitions.  For now, we just skip them.
+                    if (stmtNoLeadingSpaces.contains("CREATE PROCEDURE")) {
+                        insideSprocDef = true;
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    } else if (stmtNoLeadingSpaces.startsWith("END")) {
+                        insideSprocDef = false;
+                        recordSkipped(report, scriptTiming, originalStmtToRunAdj, "stored procedure definition");
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    } else if (insideSprocDef) {
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    }
 
-                // Each statement may need to be broken out into smaller, more
-                // primitive ones.  Especially ALTER statements.
-                List<String> finalSqlListToRun = new ArrayList<String>();
+                    // Kick out if we don't support the statement.
+                    if (!doWeSupportStatementInH2(stmtNoLeadingSpaces)) {
+                        recordSkipped(report, scriptTiming, originalStmtToRunAdj, "statement type not supported on H2");
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    }
 
-                // Make statement adjustments as appropriate.
-                makeStatementAdjustmentsForSyntax(originalStmtToRunAdj, finalSqlListToRun);
+                    // Kick out if the statement is outside of the schema slice we want.
+                    if (statementFilter != null && !statementFilter.test(originalStmtToRunAdj)) {
+                        report.incrementStatementsOutsideSlice();
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    }
 
-                // ---[ It's possible there is nothing to run at this point ]---
-                if (finalSqlListToRun.isEmpty()) {
-                    totalStmtsSkipped++;
-                    continue;
-                }
+                    // Each statement may need to be broken out into smaller, more
+                    // primitive ones.  Especially ALTER statements.
+                    List<String> finalSqlListToRun = new ArrayList<String>();
+
+                    // Make statement adjustments as appropriate.
+                    StatementTranslateEvent translateEvent = new StatementTranslateEvent();
+                    translateEvent.begin();
+                    ChromeTrace.Span translateSpan = ChromeTrace.begin("translate", "translate");
 
-                // Run the statements.  For now, ignore errors.  This is currently known
-                // to be a problem with the H2 database and some ALTER statements.
-                for (String sqlToRun : finalSqlListToRun) {
-                    try {
-                        // Final formatting.
-                        // ... replace any remaining back-to-back commas, dangling commas, convert
-                        // \r\n to spaces, etc.  Things can happen based upon previous replacements in some
-                        // cases.
-                        String sqlToRunAdj = sqlToRun;
-                        sqlToRunAdj = sqlToRunAdj.replaceAll("\\,\\s*?\\,", ",");
-                        sqlToRunAdj = sqlToRunAdj.replaceAll("\\,\\s*?\\)", ")");
-                        sqlToRunAdj = sqlToRunAdj.replaceAll("[\\r\\n]", " ");
-                        sqlToRunAdj = sqlToRunAdj.replaceAll("\\s{2,}", " ");
-                        sqlToRunAdj = sqlToRunAdj.replaceAll("\\sIGNORE\\s*", " ");
-
-                        totalStmtsRun++;
-                        jdbcTemplate.execute(sqlToRunAdj);
-                    } catch (Exception e) {
-                        // An "IGNORE" option in the SQL will be considered okay.  Normally
-                        // H2 would throw an exception.
-                        if (sqlToRun.contains("IGNORE")) {
-                            continue;
-                        }
-
-                        // ---[ Collect bad lines for a console log ]---
-                        totalErrors++;
-                        errorLogList.add(file.getName());
-                        errorLogList.add("  - " + sqlToRun);
-
-                        String completeExMsg = e.getCause() != null ? e.getCause().getMessage() : "";
-                        if (!completeExMsg.isBlank()) {
-                            errorLogList.add("  - " + completeExMsg.substring(0, completeExMsg.indexOf(";")));
-                        }
-
-                        errorLogList.add("");
+                    int deferredIndexCountBefore = deferredIndexStatements.size();
+                    makeStatementAdjustmentsForSyntax(originalStmtToRunAdj, finalSqlListToRun);
+
+                    if (translateSpan.isRecording()) {
+                        translateSpan.arg("kind", MigrationReport.statementKind(originalStmtToRunAdj))
+                                .arg("statementsProduced", finalSqlListToRun.size())
+                                .end();
+                    }
+
+                    if (translateEvent.shouldCommit()) {
+                        translateEvent.scriptName = file.getName();
+                        translateEvent.statementKind = MigrationReport.statementKind(originalStmtToRunAdj);
+                        translateEvent.statementsProduced = finalSqlListToRun.size();
+                        translateEvent.commit();
                     }
+
+                    // ---[ It's possible there is nothing to run at this point ]---
+                    // A statement that only declared indexes, all deferred, isn't skipped.
+                    if (finalSqlListToRun.isEmpty() && deferredIndexStatements.size() > deferredIndexCountBefore) {
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    } else if (finalSqlListToRun.isEmpty()) {
+                        recordSkipped(report, scriptTiming, originalStmtToRunAdj, "nothing left to run after translation");
+                        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+                        continue;
+                    }
+
+                    scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+
+                    // Run the statements.  For now, ignore errors.  This is currently known
+                    // to be a problem with the H2 database and some ALTER statements.
+                    ChromeTrace.Span batchSpan = ChromeTrace.begin("batch", "execute batch");
+                    for (String sqlToRun : finalSqlListToRun) {
+                        runTranslatedStatement(jdbcTemplate, report, scriptTiming, sqlToRun, errorLogList);
+                    }
+                    batchSpan.arg("statements", finalSqlListToRun.size()).end();
+                }
+
+                report.addScript(scriptTiming);
+                scriptSpan.arg("statementsRun", scriptTiming.getStatementsRun())
+                        .arg("statementsFailed", scriptTiming.getStatementsFailed())
+                        .end();
+                if (migrationListener != null) {
+                    migrationListener.onScriptFinished(scriptTiming);
+                }
+            }
+
+            scriptSeededBefore = false;
+
+            // ---[ Deferred indexes, now that the data is in ]---
+            if (!deferredIndexStatements.isEmpty()) {
+                runDeferredIndexStatements(jdbcTemplate, report, errorLogList, displayLog);
+            }
+        } finally {
+            // Normal settings are back before anything else sees the database.
+            if (bulkLoadProfile != null) {
+                bulkLoadProfile.restore();
+            }
+        }
+
+        // ---[ Validate what was loaded without referential integrity ]---
+        if (bulkLoadProfile != null) {
+            for (String violation : bulkLoadProfile.verifyForeignKeys()) {
+                MigrationReport.StatementOutcome failure =
+                        new MigrationReport.StatementOutcome(BULK_LOAD_SCRIPT_NAME, violation, "foreign key violation");
+                report.addFailedStatement(failure);
+                if (migrationListener != null) {
+                    migrationListener.onStatementFailed(failure);
                 }
+
+                errorLogList.add(BULK_LOAD_SCRIPT_NAME);
+                errorLogList.add("  - " + violation);
+                errorLogList.add("");
             }
+
+            report.setBulkLoadTimings(bulkLoadProfile.getApplyNanos(), bulkLoadProfile.getRestoreNanos(),
+                    bulkLoadProfile.getVerifyNanos(), bulkLoadProfile.getTablesVerified());
+        }
+
+        report.setWallNanos(System.nanoTime() - runStartNanos);
+        migrationSpan.arg("scripts", report.getScripts().size())
+                .arg("statementsRun", report.getTotalStatementsRun())
+                .end();
+
+        if (migrationEvent.shouldCommit()) {
+            migrationEvent.dialect = getClass().getSimpleName();
+            migrationEvent.scriptCount = report.getScripts().size();
+            migrationEvent.statementsRun = report.getTotalStatementsRun();
+            migrationEvent.statementsSkipped = report.getTotalStatementsSkipped();
+            migrationEvent.errors = report.getTotalErrors();
+            migrationEvent.bytes = report.getBytesProcessed();
+            migrationEvent.commit();
         }
 
         // Summary.
         if (displayLog) {
             System.out.println("\n---[ Summary of SQL script execution ]---");
             System.out.println("(adjusted for refactored ALTERs for H2 compatibility)");
-            System.out.println("Total SQL statements run count: " + totalStmtsRun);
-            System.out.println("Total SQL statements skipped count: " + totalStmtsSkipped);
-            System.out.println("Total SQL error count: " + totalErrors);
+            System.out.println("Total SQL statements run count: " + report.getTotalStatementsRun());
+            System.out.println("Total SQL statements skipped count: " + report.getTotalStatementsSkipped());
+            if (statementFilter != null) {
+                System.out.println("Total SQL statements outside of schema slice: " + report.getStatementsOutsideSlice());
+            }
+            System.out.println("Total SQL error count: " + report.getTotalErrors());
+            if (rejectedStatementCache != null) {
+                System.out.println("Known rejected statements not sent to H2: " + report.getStatementsRejectedFromCache());
+            }
+            if (dryRun) {
+                System.out.println("(dry run: data statements were prepared, not executed)");
+            }
+            report.printTimings(SLOWEST_COUNT_TO_DISPLAY);
 
             if (!errorLogList.isEmpty()) {
                 System.out.println("\nSQL errors:");
@@ -271,5 +570,292 @@ public abstract class DialectRunnerBase {
                 }
             }
         }
+
+        if (migrationListener != null) {
+            migrationListener.onMigrationFinished(report);
+        }
+
+        return report;
+    }
+
+    /***
+     * Run the index statements deferred while the scripts ran.  They are reported
+     * as one more script, so their cost shows up separately in the timings.
+     */
+    private void runDeferredIndexStatements(
+            JdbcTemplate jdbcTemplate, MigrationReport report, List<String> errorLogList, boolean displayLog) {
+        if (displayLog) {
+            System.out.println("Creating " + deferredIndexStatements.size() + " deferred index(es) on H2");
+        }
+
+        MigrationReport.ScriptTiming scriptTiming = new MigrationReport.ScriptTiming(DEFERRED_INDEXES_SCRIPT_NAME, 0);
+        ChromeTrace.Span scriptSpan = ChromeTrace.begin("script", DEFERRED_INDEXES_SCRIPT_NAME);
+        if (migrationListener != null) {
+            migrationListener.onScriptStarted(DEFERRED_INDEXES_SCRIPT_NAME);
+        }
+
+        for (String indexSql : deferredIndexStatements) {
+            runTranslatedStatement(jdbcTemplate, report, scriptTiming, indexSql, errorLogList);
+        }
+        deferredIndexStatements.clear();
+
+        report.addScript(scriptTiming);
+        scriptSpan.arg("statementsRun", scriptTiming.getStatementsRun())
+                .arg("statementsFailed", scriptTiming.getStatementsFailed())
+                .end();
+        if (migrationListener != null) {
+            migrationListener.onScriptFinished(scriptTiming);
+        }
+    }
+
+    /***
+     * Final-format, execute and record one translated statement.  Failures are
+     * recorded in the report and added to the console error log rather than thrown.
+     */
+    private void runTranslatedStatement(
+            JdbcTemplate jdbcTemplate, MigrationReport report, MigrationReport.ScriptTiming scriptTiming,
+            String sqlToRun, List<String> errorLogList) {
+        String scriptName = scriptTiming.getScriptName();
+
+        // Final formatting.
+        // ... replace any remaining back-to-back commas, dangling commas, convert
+        // \r\n to spaces, etc.  Things can happen based upon previous replacements in some
+        // cases.
+        long phaseStartNanos = System.nanoTime();
+        String sqlToRunAdj = finalFormatting(sqlToRun);
+        scriptTiming.addTranslateNanos(System.nanoTime() - phaseStartNanos);
+
+        // Known to be rejected by this H2?  Report it again without the round trip.
+        if (rejectedStatementCache != null) {
+            String cachedReason = rejectedStatementCache.getReason(getH2Version(jdbcTemplate), sqlToRunAdj);
+            if (cachedReason != null) {
+                report.incrementStatementsRejectedFromCache();
+                if (!sqlToRun.contains("IGNORE")) {
+                    recordFailed(report, scriptTiming, sqlToRun, cachedReason, errorLogList);
+                }
+                return;
+            }
+        }
+
+        // Seed data this script already loaded into a table that is still there.
+        if (scriptSeededBefore && isDataStatement(sqlToRunAdj)
+                && !tablesCreated.contains(tableName(DATA_TABLE_NAME_PATTERN, sqlToRunAdj))) {
+            recordSkipped(report, scriptTiming, sqlToRun, "seed data already loaded into this database");
+            return;
+        }
+
+        StatementExecuteEvent executeEvent = new StatementExecuteEvent();
+        executeEvent.begin();
+        ChromeTrace.Span executeSpan = ChromeTrace.begin("execute", "execute");
+
+        long executeStartNanos = System.nanoTime();
+        try {
+            int rowCount = dryRun && isDataStatement(sqlToRunAdj)
+                    ? prepareStatement(jdbcTemplate, sqlToRunAdj)
+                    : executeStatement(jdbcTemplate, sqlToRunAdj);
+            String createdTable = tableName(CREATE_TABLE_NAME_PATTERN, sqlToRunAdj);
+            if (createdTable != null) {
+                tablesCreated.add(createdTable);
+            }
+            recordExecuted(report, scriptTiming, sqlToRunAdj, System.nanoTime() - executeStartNanos, true, rowCount);
+            commitExecuteEvent(executeEvent, scriptName, sqlToRunAdj, rowCount, true);
+            endExecuteSpan(executeSpan, sqlToRunAdj, rowCount, true);
+        } catch (Exception e) {
+            recordExecuted(report, scriptTiming, sqlToRunAdj, System.nanoTime() - executeStartNanos, false, -1);
+            commitExecuteEvent(executeEvent, scriptName, sqlToRunAdj, -1, false);
+            endExecuteSpan(executeSpan, sqlToRunAdj, -1, false);
+
+            String completeExMsg = e.getCause() != null ? e.getCause().getMessage() : "";
+            String reason = shortErrorMessage(completeExMsg);
+
+            if (rejectedStatementCache != null && RejectedStatementCache.isCacheable(e)) {
+                rejectedStatementCache.add(getH2Version(jdbcTemplate), sqlToRunAdj, reason);
+            }
+
+            // An "IGNORE" option in the SQL will be considered okay.  Normally
+            // H2 would throw an exception.
+            if (sqlToRun.contains("IGNORE")) {
+                return;
+            }
+
+            recordFailed(report, scriptTiming, sqlToRun, reason, errorLogList);
+        }
+    }
+
+    /***
+     * Collect a failed statement for the report and the console log.
+     */
+    private void recordFailed(
+            MigrationReport report, MigrationReport.ScriptTiming scriptTiming, String sqlToRun, String reason,
+            List<String> errorLogList) {
+        String scriptName = scriptTiming.getScriptName();
+
+        scriptTiming.incrementStatementsFailed();
+        MigrationReport.StatementOutcome failure =
+                new MigrationReport.StatementOutcome(scriptName, sqlToRun, reason);
+        report.addFailedStatement(failure);
+        if (migrationListener != null) {
+            migrationListener.onStatementFailed(failure);
+        }
+
+        errorLogList.add(scriptName);
+        errorLogList.add("  - " + sqlToRun);
+
+        if (!reason.isBlank()) {
+            errorLogList.add("  - " + reason);
+        }
+
+        errorLogList.add("");
+    }
+
+    /***
+     * Final formatting applied to every translated statement right before it runs.
+     * Replaces any remaining back-to-back commas and dangling commas, converts line
+     * breaks to spaces, condenses whitespace and drops IGNORE.  Earlier replacements
+     * can leave these behind.
+     *
+     * @param sqlToRun The translated statement.
+     * @return The statement as it will be sent to H2.
+     */
+    protected String finalFormatting(String sqlToRun) {
+        String sqlToRunAdj = sqlToRun;
+        sqlToRunAdj = sqlToRunAdj.replaceAll("\\,\\s*?\\,", ",");
+        sqlToRunAdj = sqlToRunAdj.replaceAll("\\,\\s*?\\)", ")");
+        sqlToRunAdj = sqlToRunAdj.replaceAll("[\\r\\n]", " ");
+        sqlToRunAdj = sqlToRunAdj.replaceAll("\\s{2,}", " ");
+        sqlToRunAdj = sqlToRunAdj.replaceAll("\\sIGNORE\\s*", " ");
+
+        return sqlToRunAdj;
+    }
+
+    /***
+     * Execute one translated statement.
+     *
+     * @param jdbcTemplate The JDBC template to use.
+     * @param sql The statement.
+     * @return The update count, or -1 if the statement doesn't produce one.
+     */
+    protected int executeStatement(JdbcTemplate jdbcTemplate, String sql) {
+        Integer rowCount = jdbcTemplate.execute((StatementCallback<Integer>) stmt -> {
+            stmt.execute(sql);
+            return stmt.getUpdateCount();
+        });
+
+        return rowCount != null ? rowCount : -1;
+    }
+
+    /***
+     * Prepare one translated statement without executing it.  H2 parses it and
+     * resolves its tables and columns, so everything but constraint violations
+     * shows up.
+     *
+     * @param jdbcTemplate The JDBC template to use.
+     * @param sql The statement.
+     * @return -1; nothing was changed.
+     */
+    protected int prepareStatement(JdbcTemplate jdbcTemplate, String sql) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            connection.prepareStatement(sql).close();
+            return null;
+        });
+
+        return -1;
+    }
+
+    /***
+     * @return True for statements that change data rather than the schema.  Later
+     * statements don't depend on them, so a dry run only prepares them.
+     */
+    protected static boolean isDataStatement(String sql) {
+        String start = sql.stripLeading().toUpperCase();
+        return start.startsWith("INSERT") || start.startsWith("DELETE") || start.startsWith("UPDATE")
+                || start.startsWith("MERGE") || start.startsWith("REPLACE");
+    }
+
+    /***
+     * @return The unqualified, unquoted, upper-case table name the pattern finds, or null.
+     */
+    private static String tableName(Pattern pattern, String sql) {
+        Matcher m = pattern.matcher(sql);
+        if (!m.find()) {
+            return null;
+        }
+
+        String name = m.group(1).replaceAll("[\"`]", "");
+        return name.substring(name.lastIndexOf('.') + 1).toUpperCase();
+    }
+
+    private static String getDatabaseUrl(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+    }
+
+    private String getH2Version(JdbcTemplate jdbcTemplate) {
+        if (h2Version == null) {
+            h2Version = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductVersion());
+        }
+
+        return h2Version;
+    }
+
+    private static void commitExecuteEvent(
+            StatementExecuteEvent executeEvent, String scriptName, String sql, int rowCount, boolean succeeded) {
+        if (executeEvent.shouldCommit()) {
+            executeEvent.scriptName = scriptName;
+            executeEvent.statementKind = MigrationReport.statementKind(sql);
+            executeEvent.sql = sql;
+            executeEvent.rowCount = rowCount;
+            executeEvent.succeeded = succeeded;
+            executeEvent.commit();
+        }
+    }
+
+    private static void endExecuteSpan(ChromeTrace.Span executeSpan, String sql, int rowCount, boolean succeeded) {
+        if (executeSpan.isRecording()) {
+            executeSpan.arg("kind", MigrationReport.statementKind(sql))
+                    .arg("sql", sql)
+                    .arg("rowCount", rowCount)
+                    .arg("succeeded", succeeded)
+                    .end();
+        }
+    }
+
+    /***
+     * Trim an H2 error message down to its first sentence (H2 appends the SQL
+     * statement after a ';').
+     */
+    protected static String shortErrorMessage(String completeExMsg) {
+        if (completeExMsg == null) {
+            return "";
+        }
+
+        int semicolon = completeExMsg.indexOf(";");
+        return semicolon >= 0 ? completeExMsg.substring(0, semicolon) : completeExMsg;
+    }
+
+    private void recordSkipped(
+            MigrationReport report, MigrationReport.ScriptTiming scriptTiming, String sqlStmt, String reason) {
+        scriptTiming.incrementStatementsSkipped();
+
+        MigrationReport.StatementOutcome outcome =
+                new MigrationReport.StatementOutcome(scriptTiming.getScriptName(), sqlStmt.strip(), reason);
+        report.addSkippedStatement(outcome);
+        if (migrationListener != null) {
+            migrationListener.onStatementSkipped(outcome);
+        }
+    }
+
+    private void recordExecuted(
+            MigrationReport report, MigrationReport.ScriptTiming scriptTiming, String sql, long nanos,
+            boolean succeeded, int rowCount) {
+        scriptTiming.addExecuteNanos(nanos);
+        scriptTiming.incrementStatementsRun();
+
+        MigrationReport.StatementTiming statementTiming =
+                new MigrationReport.StatementTiming(scriptTiming.getScriptName(), sql, nanos, succeeded, rowCount);
+        report.addStatement(statementTiming);
+        if (migrationListener != null) {
+            migrationListener.onStatementExecuted(statementTiming);
+        }
     }
 }
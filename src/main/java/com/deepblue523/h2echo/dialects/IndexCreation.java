@@ -0,0 +1,37 @@
+package com.deepblue523.h2echo.dialects;
+
+/***
+ * When the indexes declared in the migration scripts are created on H2.
+ * <p>
+ *    - UP_FRONT: Right after the table they belong to (the default).
+ *    - DEFERRED: Once, after every script has run, so seed data is loaded into
+ *                unindexed tables and each index is built in one pass.
+ *    - NONE: Not at all.
+ * <p>
+ * The default can be changed with the system property "h2echo.indexes"
+ * ("up_front", "deferred" or "none").
+ */
+public enum IndexCreation {
+    UP_FRONT,
+    DEFERRED,
+    NONE;
+
+    public static final String INDEXES_PROPERTY = "h2echo.indexes";
+
+    /***
+     * @return The setting from the "h2echo.indexes" system property, or UP_FRONT.
+     */
+    public static IndexCreation fromSystemProperty() {
+        String value = System.getProperty(INDEXES_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return UP_FRONT;
+        }
+
+        try {
+            return valueOf(value.strip().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Invalid " + INDEXES_PROPERTY + " value '" + value + "', expected up_front, deferred or none");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.deepblue523.h2echo.dialects;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /***
@@ -55,7 +57,7 @@ public class MariaDbMySqlRunner extends DialectRunnerBase {
    * @param stmt The SQL statement to adjust.
    * @return The adjusted SQL statement.
    */
-  private static String adjustPrimaryKeySyntax(String stmt) {
+  static String adjustPrimaryKeySyntax(String stmt) {
     // Remove CONSTRAINT xxx PRIMARY KEY (xxx) from the statement.
     stmt = stmt.replaceAll("CONSTRAINT\\s*[A-Za-z0-9_]*\\s*PRIMARY\\s*KEY\\s*?\\(.*?\\),{0,1}", "");
 
@@ -73,18 +75,192 @@ public class MariaDbMySqlRunner extends DialectRunnerBase {
     return stmt;
   }
 
+  // A table-level index declaration, inside CREATE TABLE or after ALTER TABLE ... ADD:
+  //   [UNIQUE | FULLTEXT | SPATIAL] {INDEX | KEY} [name] [USING type] (cols) [USING type] [COMMENT '...']
+  // PRIMARY KEY and FOREIGN KEY never match (they start with other keywords), and neither
+  // does a plain "UNIQUE (cols)" or "CONSTRAINT x UNIQUE (cols)", which H2 accepts as is.
+  private static final Pattern INDEX_DECLARATION_PATTERN =
+      Pattern.compile(
+          "(?is)^(?:(UNIQUE)\\s+(?:INDEX|KEY)|(FULLTEXT|SPATIAL)(?:\\s+(?:INDEX|KEY))?|INDEX|KEY)\\b"
+              + "\\s*(?!USING\\b)([`\"]?\\w+[`\"]?)?\\s*(?:USING\\s+\\w+\\s*)?"
+              + "\\((.*)\\)(?:\\s+USING\\s+\\w+)?(?:\\s+COMMENT\\s+'[^']*')?\\s*$");
+
+  // A standalone CREATE INDEX statement.  Trailing MariaDB options (USING, ALGORITHM,
+  // LOCK, COMMENT) after the column list are dropped.
+  private static final Pattern CREATE_INDEX_PATTERN =
+      Pattern.compile(
+          "(?is)^\\s*CREATE\\s+(?:OR\\s+REPLACE\\s+)?(UNIQUE\\s+|FULLTEXT\\s+|SPATIAL\\s+)?INDEX\\s+"
+              + "(?:IF\\s+NOT\\s+EXISTS\\s+)?([`\"]?\\w+[`\"]?)\\s+(?:USING\\s+\\w+\\s+)?"
+              + "ON\\s+([A-Za-z0-9_\\.`\"]+)\\s*\\((.*)\\)[^)]*$");
+
+  private static final Pattern ALTER_ADD_PATTERN = Pattern.compile("(?is)^ADD\\s+(.*)$");
+
+  private static final Pattern CREATE_TABLE_NAME_PATTERN =
+      Pattern.compile("CREATE\\s*TABLE\\s*(?:IF\\s*NOT\\s*EXISTS\\s*)?([A-Za-z0-9_\\.`\"]+)");
+
   /***
-   * Remove index declarations from CREATE TABLE statements.  We won't apply
-   * the indexes in H2 for now.
+   * Pull the index declarations out of a CREATE TABLE statement and turn each one
+   * into a CREATE INDEX statement H2 understands.
+   * <p>
+   * Both plain and UNIQUE indexes are handled, as are composite ones.  Prefix lengths
+   * ("name(10)") are dropped since H2 indexes the whole column, and FULLTEXT/SPATIAL
+   * indexes are removed without a replacement.  See buildCreateIndex() for naming.
    *
-   * @param stmt The SQL statement to adjust.
-   * @return The adjusted SQL statement.
+   * @param stmt The CREATE TABLE statement.
+   * @param indexStatements Receives one CREATE INDEX statement per declaration.
+   * @return The CREATE TABLE statement without its index declarations.
    */
-  private static String removeIndexes(String stmt) {
-    // Remove index declarations on CREATE TABLE statements.
-    stmt = stmt.replaceAll("INDEX\\s*[A-Za-z0-9_]*\\s\\(.*?\\)", "");
+  public static String extractIndexes(String stmt, List<String> indexStatements) {
+    Matcher tableMatcher = CREATE_TABLE_NAME_PATTERN.matcher(stmt);
+    int open = stmt.indexOf('(');
+    int close = open >= 0 ? findClosingParen(stmt, open) : -1;
+    if (!tableMatcher.find() || close < 0) {
+      return stmt;
+    }
 
-    return stmt;
+    String tableName = tableMatcher.group(1);
+    List<String> keptElements = new ArrayList<>();
+    boolean removedAny = false;
+
+    for (String element : splitTopLevel(stmt.substring(open + 1, close))) {
+      Matcher m = INDEX_DECLARATION_PATTERN.matcher(element.strip());
+      if (!m.matches()) {
+        keptElements.add(element);
+        continue;
+      }
+
+      removedAny = true;
+      if (m.group(2) == null) {
+        indexStatements.add(buildCreateIndex(m.group(1) != null, m.group(3), tableName, m.group(4)));
+      }
+    }
+
+    if (!removedAny) {
+      return stmt;
+    }
+
+    return stmt.substring(0, open + 1) + String.join(",", keptElements) + stmt.substring(close);
+  }
+
+  /***
+   * Translate a standalone CREATE INDEX statement to H2.  The index is renamed the
+   * same way as declarations inside CREATE TABLE, so the two can't collide.
+   *
+   * @param stmt The CREATE INDEX statement.
+   * @return The H2 statement, or null for FULLTEXT/SPATIAL indexes (or anything
+   *         that can't be parsed).
+   */
+  static String translateCreateIndex(String stmt) {
+    Matcher m = CREATE_INDEX_PATTERN.matcher(stmt);
+    if (!m.matches()) {
+      return null;
+    }
+
+    String kind = m.group(1) == null ? "" : m.group(1).strip().toUpperCase();
+    if (kind.equals("FULLTEXT") || kind.equals("SPATIAL")) {
+      return null;
+    }
+
+    return buildCreateIndex(kind.equals("UNIQUE"), m.group(2), m.group(3), m.group(4));
+  }
+
+  /***
+   * Build an H2 CREATE INDEX statement.
+   * <p>
+   * MariaDB index names only need to be unique per table, whereas H2's are per
+   * schema.  So the index is named "[schema.]table_name", in the table's schema.
+   * Unnamed indexes are named after their columns: "[schema.]table_idx_col1_col2".
+   *
+   * @param unique True for a UNIQUE index.
+   * @param indexName The declared index name, or null.
+   * @param tableName The (possibly schema-qualified) table name.
+   * @param columnList The column list, without the surrounding parentheses.
+   * @return The CREATE INDEX statement.
+   */
+  static String buildCreateIndex(boolean unique, String indexName, String tableName, String columnList) {
+    // Prefix lengths, e.g. "name(10)".
+    String columns = columnList.replaceAll("([`\"]?\\w+[`\"]?)\\s*\\(\\s*\\d+\\s*\\)", "$1").strip();
+
+    String bareTableName = tableName.replaceAll("[`\"]", "");
+    int dot = bareTableName.lastIndexOf('.');
+    String schemaPrefix = dot >= 0 ? bareTableName.substring(0, dot + 1) : "";
+    String shortTableName = bareTableName.substring(dot + 1);
+
+    String suffix;
+    if (indexName != null) {
+      suffix = indexName.replaceAll("[`\"]", "");
+    } else {
+      suffix = "idx_" + columns.replaceAll("[`\"]", "")
+          .replaceAll("(?i)\\s+(ASC|DESC)\\b", "")
+          .replaceAll("\\s*,\\s*", "_");
+    }
+
+    return String.format(
+        "CREATE %sINDEX IF NOT EXISTS %s%s_%s ON %s (%s)",
+        unique ? "UNIQUE " : "", schemaPrefix, shortTableName, suffix, tableName, columns);
+  }
+
+  /***
+   * Find the parenthesis that closes the one at a given position, skipping
+   * anything inside quotes.
+   *
+   * @return The position of the closing parenthesis, or -1 if it's unbalanced.
+   */
+  public static int findClosingParen(String stmt, int openPosition) {
+    int depth = 0;
+    char quote = 0;
+
+    for (int i = openPosition; i < stmt.length(); i++) {
+      char c = stmt.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /***
+   * Split on the commas that aren't nested in parentheses or quotes, so
+   * "a INT, INDEX ix (a, b)" gives two pieces, not three.
+   *
+   * @param text The text to split.
+   * @return The pieces, untrimmed.
+   */
+  public static List<String> splitTopLevel(String text) {
+    List<String> pieces = new ArrayList<>();
+    int depth = 0;
+    char quote = 0;
+    int pieceStart = 0;
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        pieces.add(text.substring(pieceStart, i));
+        pieceStart = i + 1;
+      }
+    }
+
+    pieces.add(text.substring(pieceStart));
+    return pieces;
   }
 
   /***
@@ -163,7 +339,7 @@ public class MariaDbMySqlRunner extends DialectRunnerBase {
    * @param sqlStmt The SQL statement to adjust.
    * @param finalSqlListToRun The list of SQL statements to run.
    */
-  private void breakAlterIntoSmallerPieces(String sqlStmt, List<String> finalSqlListToRun) {
+  void breakAlterIntoSmallerPieces(String sqlStmt, List<String> finalSqlListToRun) {
     Pattern alterParseRegExPattern = Pattern.compile("ALTER\\s*TABLE\\s*([A-Za-z0-9_\\.]*)\\s");
     Pattern alterParseRegExColNames =
         Pattern.compile("ALTER\\s*COLUMN\\s+([A-Za-z0-9_\\.]{1,})\\s{1,}([A-Za-z0-9_\\.]*)\\s*");
@@ -174,10 +350,24 @@ public class MariaDbMySqlRunner extends DialectRunnerBase {
       String stmtSansAlter = sqlStmt.replaceAll("ALTER\\s*TABLE\\s*[A-Za-z0-9_\\.]*\\s", "");
       stmtSansAlter = stmtSansAlter.trim();
 
-      // Break ALTER segment into individual statements.
-      String[] alterClauseList = stmtSansAlter.split(",");
+      // Break ALTER segment into individual statements.  Commas inside parentheses
+      // (composite key/index column lists) don't start a new clause.
+      List<String> alterClauseList = splitTopLevel(stmtSansAlter);
 
       for (String alterClause : alterClauseList) {
+        // Index declarations become their own CREATE INDEX statements.
+        Matcher addMatcher = ALTER_ADD_PATTERN.matcher(alterClause.strip());
+        Matcher declaration = addMatcher.matches() ? INDEX_DECLARATION_PATTERN.matcher(addMatcher.group(1)) : null;
+        if (declaration != null && declaration.matches()) {
+          if (declaration.group(2) == null) {
+            addIndexStatement(
+                buildCreateIndex(declaration.group(1) != null, declaration.group(3), tableName, declaration.group(4)),
+                finalSqlListToRun);
+          }
+
+          continue;
+        }
+
         // Some ALTER things we'll just skip on H2.
         if (!doWeSupportAlterStatementInH2(alterClause)) {
           continue;
@@ -236,10 +426,31 @@ public class MariaDbMySqlRunner extends DialectRunnerBase {
       // Primary key syntax on CREATE TABLE is different between H2/MariaDB.
       originalStmtToRunAdj = adjustPrimaryKeySyntax(originalStmtToRunAdj);
 
-      // Other stuff.
-      originalStmtToRunAdj = removeIndexes(originalStmtToRunAdj);
+      // Index declarations become separate CREATE INDEX statements, run after the table exists.
+      List<String> indexStatements = new ArrayList<>();
+      originalStmtToRunAdj = extractIndexes(originalStmtToRunAdj, indexStatements);
 
       finalSqlListToRun.add(originalStmtToRunAdj.stripLeading());
+      for (String indexSql : indexStatements) {
+        addIndexStatement(indexSql, finalSqlListToRun);
+      }
+    }
+
+    // ---[ CREATE INDEX adjustments ]---
+    else if (originalStmtToRunAdj.stripLeading().toUpperCase().startsWith("CREATE")
+        && originalStmtToRunAdj.toUpperCase().contains("INDEX")) {
+      String indexSql = translateCreateIndex(originalStmtToRunAdj);
+      if (indexSql != null) {
+        addIndexStatement(indexSql, finalSqlListToRun);
+      }
+    }
+
+    // ---[ Seed data ]---
+    // Only when asked for (see setSeedData); INSERT, UPDATE and DELETE go through as is.
+    else if (isDataStatement(originalStmtToRunAdj)) {
+      if (isSeedData()) {
+        finalSqlListToRun.add(originalStmtToRunAdj.stripLeading());
+      }
     }
 
     // ---[ ALTER TABLE adjustments ]---
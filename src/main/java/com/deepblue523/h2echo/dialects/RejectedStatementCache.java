@@ -0,0 +1,194 @@
+package com.deepblue523.h2echo.dialects;
+
+import com.deepblue523.h2echo.reporting.TimingHistory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * A persistent record of translated statements that H2 can't parse, so later runs
+ * report them without sending them to H2 (and building an exception) again.
+ * <p>
+ * Only failures that depend on nothing but the statement text and the H2 version
+ * are recorded: syntax errors and unsupported features.  "Table not found" and
+ * the like depend on what ran before, so those statements are always run.  Entries
+ * are keyed by H2 version and a hash of the statement, one per line:
+ * <p>
+ *    2.2.224 (2023-09-17)&lt;TAB&gt;3f2a9c0e1b7d4a55&lt;TAB&gt;Syntax error in SQL statement "CREATE TRIGGER ..."
+ * <p>
+ * Opt in with system properties:
+ * <p>
+ *    - h2echo.rejectCache=true          Use the cache.
+ *    - h2echo.rejectCache.file=path     Where to keep it.  Defaults to
+ *                                       target/h2echo-rejected-statements.tsv if there is
+ *                                       a target directory, or ~/.h2echo/ otherwise.
+ * <p>
+ * Lines are appended under a file lock, so forked test JVMs can share the file.
+ * Delete it to start over.
+ */
+public class RejectedStatementCache {
+    public static final String CACHE_PROPERTY = "h2echo.rejectCache";
+    public static final String CACHE_FILE_PROPERTY = "h2echo.rejectCache.file";
+
+    // H2's error codes (org.h2.api.ErrorCode; H2 is only a runtime dependency).
+    private static final int SYNTAX_ERROR_1 = 42000;
+    private static final int SYNTAX_ERROR_2 = 42001;
+    private static final int FEATURE_NOT_SUPPORTED_1 = 50100;
+
+    private static volatile RejectedStatementCache configuredCache = null;
+
+    private final Path file;
+    private final Map<String, String> reasonsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+
+    public RejectedStatementCache(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /***
+     * @return The JVM-wide cache from the system properties, or null if it isn't on.
+     */
+    public static RejectedStatementCache fromSystemProperty() {
+        if (!Boolean.getBoolean(CACHE_PROPERTY)) {
+            return null;
+        }
+
+        Path path = getCacheFile();
+        synchronized (RejectedStatementCache.class) {
+            if (configuredCache == null || !configuredCache.file.equals(path)) {
+                configuredCache = new RejectedStatementCache(path);
+            }
+
+            return configuredCache;
+        }
+    }
+
+    /***
+     * @return The cache file the system properties point at.
+     */
+    public static Path getCacheFile() {
+        String cacheFile = System.getProperty(CACHE_FILE_PROPERTY);
+        if (cacheFile != null && !cacheFile.isBlank()) {
+            return Paths.get(cacheFile);
+        }
+
+        if (Files.isDirectory(Paths.get("target"))) {
+            return Paths.get("target", "h2echo-rejected-statements.tsv");
+        }
+
+        return Paths.get(System.getProperty("user.home"), ".h2echo", "rejected-statements.tsv");
+    }
+
+    /***
+     * @param e An exception from running a statement (usually a DataAccessException).
+     * @return True if it is a failure that only depends on the statement and H2 version.
+     */
+    public static boolean isCacheable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                int errorCode = ((SQLException) cause).getErrorCode();
+                return errorCode == SYNTAX_ERROR_1 || errorCode == SYNTAX_ERROR_2 || errorCode == FEATURE_NOT_SUPPORTED_1;
+            }
+        }
+
+        return false;
+    }
+
+    /***
+     * @param h2Version The version of the H2 the statement would run on.
+     * @param sql The statement, as it would be sent to H2.
+     * @return Why H2 rejected it before, or null if it isn't known to fail.
+     */
+    public String getReason(String h2Version, String sql) {
+        String reason = reasonsByKey.get(key(h2Version, sql));
+        if (reason != null) {
+            hits.incrementAndGet();
+        }
+
+        return reason;
+    }
+
+    /***
+     * Record a statement H2 rejected.
+     *
+     * @param h2Version The version of the H2 it failed on.
+     * @param sql The statement, as it was sent to H2.
+     * @param reason The (short) error message.
+     */
+    public void add(String h2Version, String sql, String reason) {
+        String oneLineReason = reason.replaceAll("[\\t\\r\\n]+", " ");
+        String key = key(h2Version, sql);
+        if (reasonsByKey.putIfAbsent(key, oneLineReason) == null) {
+            append(key + "\t" + oneLineReason + "\n");
+        }
+    }
+
+    /***
+     * @return How many statements were answered from the cache in this JVM.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public int size() {
+        return reasonsByKey.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static String key(String h2Version, String sql) {
+        return h2Version.replaceAll("[\\t\\r\\n]+", " ") + "\t" + TimingHistory.hashText(sql);
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int reasonTab = line.lastIndexOf('\t');
+                if (reasonTab > 0 && line.indexOf('\t') < reasonTab) {
+                    reasonsByKey.put(line.substring(0, reasonTab), line.substring(reasonTab + 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                FileLock lock = channel.lock();
+                try {
+                    channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
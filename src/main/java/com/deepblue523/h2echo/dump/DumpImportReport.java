@@ -0,0 +1,132 @@
+package com.deepblue523.h2echo.dump;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The outcome of one MySqlDumpImporter run: rows and time per table, how long
+ * each phase took, and every statement that failed.
+ * <p>
+ * The phases are:
+ * <p>
+ *    - Data: reading the dump, creating the tables and loading the rows (the
+ *      tables load in parallel, so per-table times add up to more than this)
+ *    - Constraints: primary keys, indexes, identity counters and foreign keys,
+ *      all created once the data is in
+ * <p>
+ * Everything is in nanoseconds.
+ */
+public class DumpImportReport {
+
+    /***
+     * Rows loaded into one table.
+     */
+    public static class TableLoad {
+        private final String tableName;
+        private long rows;
+        private long insertStatements;
+        private long nanos;
+
+        TableLoad(String tableName) {
+            this.tableName = tableName;
+        }
+
+        void add(long rows, long nanos) {
+            this.rows += rows;
+            this.nanos += nanos;
+            this.insertStatements++;
+        }
+
+        public String getTableName() { return tableName; }
+        public long getRows() { return rows; }
+        public long getInsertStatements() { return insertStatements; }
+        public long getNanos() { return nanos; }
+
+        public double getRowsPerSecond() {
+            return nanos > 0 ? rows / (nanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+    }
+
+    private final Map<String, TableLoad> tables = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private long bytesRead;
+    private int threads;
+    private long dataNanos;
+    private long constraintNanos;
+    private long wallNanos;
+
+    synchronized void addTableLoad(TableLoad tableLoad) { tables.put(tableLoad.getTableName(), tableLoad); }
+    synchronized void addError(String error) { errors.add(error); }
+    void setBytesRead(long bytesRead) { this.bytesRead = bytesRead; }
+    void setThreads(int threads) { this.threads = threads; }
+    void setDataNanos(long dataNanos) { this.dataNanos = dataNanos; }
+    void setConstraintNanos(long constraintNanos) { this.constraintNanos = constraintNanos; }
+    void setWallNanos(long wallNanos) { this.wallNanos = wallNanos; }
+
+    public synchronized List<TableLoad> getTables() { return new ArrayList<>(tables.values()); }
+    public synchronized List<String> getErrors() { return Collections.unmodifiableList(new ArrayList<>(errors)); }
+    public long getBytesRead() { return bytesRead; }
+    public int getThreads() { return threads; }
+    public long getDataNanos() { return dataNanos; }
+    public long getConstraintNanos() { return constraintNanos; }
+    public long getWallNanos() { return wallNanos; }
+
+    public synchronized TableLoad getTable(String tableName) {
+        return tables.get(tableName);
+    }
+
+    public synchronized long getTotalRows() {
+        return tables.values().stream().mapToLong(TableLoad::getRows).sum();
+    }
+
+    /***
+     * @return Rows loaded per second of the data phase (all tables together).
+     */
+    public double getRowsPerSecond() {
+        return dataNanos > 0 ? getTotalRows() / (dataNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+    }
+
+    /***
+     * @return A multi-line summary, with the largest tables first.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "Imported %,d rows into %d table(s) in %.1f ms (%,.0f rows/s on %d thread(s)), %,d bytes of dump%n",
+                getTotalRows(), getTables().size(), toMillis(wallNanos), getRowsPerSecond(), threads, bytesRead));
+        sb.append(String.format(Locale.ROOT, "  Data: %.1f ms, indexes and constraints: %.1f ms%n",
+                toMillis(dataNanos), toMillis(constraintNanos)));
+
+        List<TableLoad> largest = getTables();
+        largest.sort(Comparator.comparingLong(TableLoad::getRows).reversed());
+        for (TableLoad table : largest) {
+            sb.append(String.format(Locale.ROOT, "  %,12d rows  %,10.0f rows/s  %s%n",
+                    table.getRows(), table.getRowsPerSecond(), table.getTableName()));
+        }
+
+        List<String> errorList = getErrors();
+        if (!errorList.isEmpty()) {
+            sb.append(String.format("Errors (%d):%n", errorList.size()));
+            for (String error : errorList) {
+                sb.append("  - ").append(error).append(System.lineSeparator());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
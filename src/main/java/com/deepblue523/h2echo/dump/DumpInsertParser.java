@@ -0,0 +1,273 @@
+package com.deepblue523.h2echo.dump;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Parses one of mysqldump's extended INSERT statements:
+ * <p>
+ *    INSERT [IGNORE] INTO `table` [(`col`, ...)] VALUES (...),(...),...
+ * <p>
+ * Rows are handed out one at a time as Java values, ready to bind to a prepared
+ * statement:
+ * <p>
+ *    - NULL is null
+ *    - Quoted strings are unescaped (MySQL backslash escapes), character set
+ *      introducers like _utf8mb4 are dropped
+ *    - Hex literals (0x...) and _binary strings are byte arrays.  bit(n) columns are
+ *      dumped the same way, so toParameterValue() turns them into numbers when the
+ *      column they are bound to is a BOOLEAN or integer
+ *    - Bit literals (b'...') are Longs
+ *    - Numbers are left as strings, for H2 to convert to the column's type
+ * <p>
+ * Also used for the INSERTs of .sql fixtures (see FixtureLoader).
+ */
+public class DumpInsertParser {
+    private static final Pattern INSERT_PATTERN = Pattern.compile(
+            "(?is)^INSERT\\s+(?:IGNORE\\s+)?INTO\\s+([`\"\\w.]+)\\s*(\\([^)]*\\))?\\s*VALUES\\s*");
+
+    private final String sql;
+    private final String tableName;
+    private final List<String> columns;
+    private int position;
+
+    private DumpInsertParser(String sql, String tableName, List<String> columns, int position) {
+        this.sql = sql;
+        this.tableName = tableName;
+        this.columns = columns;
+        this.position = position;
+    }
+
+    /***
+     * @param sql The INSERT statement.
+     * @return A parser positioned at the first row, or null if this isn't an INSERT ... VALUES.
+     */
+    public static DumpInsertParser parse(String sql) {
+        Matcher m = INSERT_PATTERN.matcher(sql);
+        if (!m.find()) {
+            return null;
+        }
+
+        List<String> columns = null;
+        if (m.group(2) != null) {
+            String columnList = m.group(2).substring(1, m.group(2).length() - 1);
+            columns = new ArrayList<>();
+            for (String column : columnList.split(",")) {
+                columns.add(MySqlDumpImporter.toH2Identifiers(column.strip()));
+            }
+        }
+
+        return new DumpInsertParser(sql, MySqlDumpImporter.toH2Identifiers(m.group(1)), columns, m.end());
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /***
+     * @return The explicit column list, or null if the INSERT doesn't have one.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /***
+     * @return The next row's values, or null when there are no more rows.
+     */
+    public Object[] nextRow() {
+        skipWhitespace();
+        if (position < sql.length() && sql.charAt(position) == ',') {
+            position++;
+            skipWhitespace();
+        }
+
+        if (position >= sql.length() || sql.charAt(position) != '(') {
+            return null;
+        }
+        position++;
+
+        List<Object> values = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            values.add(readValue());
+            skipWhitespace();
+
+            char ch = charAt(position++);
+            if (ch == ')') {
+                return values.toArray();
+            } else if (ch != ',') {
+                throw new IllegalArgumentException(
+                        "Unexpected '" + ch + "' at position " + (position - 1) + " of INSERT into " + tableName);
+            }
+        }
+    }
+
+    private Object readValue() {
+        char ch = charAt(position);
+
+        if (ch == '\'') {
+            return readString();
+        }
+
+        // Character set introducer: _utf8mb4'...', _binary '...'.
+        if (ch == '_') {
+            int start = position;
+            while (position < sql.length() && (Character.isLetterOrDigit(sql.charAt(position)) || sql.charAt(position) == '_')) {
+                position++;
+            }
+            String introducer = sql.substring(start, position);
+            skipWhitespace();
+
+            String value = readString();
+            return introducer.equalsIgnoreCase("_binary") ? value.getBytes(StandardCharsets.ISO_8859_1) : value;
+        }
+
+        // Bit literal: b'0101'.
+        if ((ch == 'b' || ch == 'B') && charAt(position + 1) == '\'') {
+            position++;
+            return Long.parseLong(readString(), 2);
+        }
+
+        // Everything else is a bare token: NULL, a number, or a hex literal.
+        int start = position;
+        while (position < sql.length() && sql.charAt(position) != ',' && sql.charAt(position) != ')'
+                && !Character.isWhitespace(sql.charAt(position))) {
+            position++;
+        }
+        String token = sql.substring(start, position);
+
+        if (token.equalsIgnoreCase("NULL")) {
+            return null;
+        } else if (token.startsWith("0x") || token.startsWith("0X")) {
+            return hexToBytes(token.substring(2));
+        }
+
+        return token;
+    }
+
+    /***
+     * Fit a parsed value to the column it is bound to.  A binary value (how mysqldump
+     * writes bit(n) columns) bound to a BOOLEAN or integer column becomes the number it
+     * spells, big-endian; bound to anything else it stays a byte array.
+     *
+     * @param value A value from nextRow().
+     * @param sqlType The column's type (java.sql.Types), e.g. from getParameterTypes().
+     * @return The value to bind.
+     */
+    public static Object toParameterValue(Object value, int sqlType) {
+        if (!(value instanceof byte[]) || ((byte[]) value).length > 8) {
+            return value;
+        }
+
+        switch (sqlType) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                long number = 0;
+                for (byte b : (byte[]) value) {
+                    number = (number << 8) | (b & 0xFF);
+                }
+                return number;
+            default:
+                return value;
+        }
+    }
+
+    /***
+     * @param ps A prepared INSERT.
+     * @param count How many parameters it has.
+     * @return The type of each parameter's column (Types.OTHER if the driver can't say).
+     */
+    public static int[] getParameterTypes(PreparedStatement ps, int count) {
+        int[] types = new int[count];
+        Arrays.fill(types, Types.OTHER);
+
+        try {
+            ParameterMetaData metaData = ps.getParameterMetaData();
+            for (int i = 0; i < count; i++) {
+                types[i] = metaData.getParameterType(i + 1);
+            }
+        } catch (SQLException e) {
+            // Values are bound as parsed.
+        }
+
+        return types;
+    }
+
+    /***
+     * Read a single-quoted string, undoing MySQL's escapes.
+     */
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+
+        while (true) {
+            char ch = charAt(position++);
+
+            if (ch == '\\') {
+                char escaped = charAt(position++);
+                switch (escaped) {
+                    case '0': value.append('\0'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'Z': value.append((char) 26); break;
+                    default: value.append(escaped); break;
+                }
+            } else if (ch == '\'') {
+                if (position < sql.length() && sql.charAt(position) == '\'') {
+                    value.append('\'');
+                    position++;
+                } else {
+                    return value.toString();
+                }
+            } else {
+                value.append(ch);
+            }
+        }
+    }
+
+    private char charAt(int index) {
+        if (index >= sql.length()) {
+            throw new IllegalArgumentException("Unexpected end of INSERT into " + tableName);
+        }
+
+        return sql.charAt(index);
+    }
+
+    private void skipWhitespace() {
+        while (position < sql.length() && Character.isWhitespace(sql.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        if (hex.length() % 2 != 0) {
+            hex = "0" + hex;
+        }
+
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "INSERT INTO " + tableName + (columns != null ? " " + Arrays.toString(columns.toArray()) : "");
+    }
+}
@@ -0,0 +1,629 @@
+package com.deepblue523.h2echo.dump;
+
+import com.deepblue523.h2echo.dialects.MariaDbMySqlRunner;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Loads a (sanitized) mysqldump file into H2, for testing against realistic data
+ * volumes.  runSqlScriptsOnH2() reads each script whole and runs every statement
+ * through JdbcTemplate one at a time, which doesn't scale to a dump of a few GB.
+ * This streams the dump instead:
+ * <p>
+ *    - Statements are read one at a time (see MySqlDumpReader), so heap use is
+ *      bounded by the largest statement, not the dump.  ".gz" dumps are fine.
+ *    - CREATE TABLE statements are translated and run as they come.  Index
+ *      declarations are pulled out with the MariaDB runner's translation
+ *      (MariaDbMySqlRunner.extractIndexes()), and foreign keys are pulled out as
+ *      well.  Primary keys stay: rows arrive in key order, and H2 uses a single
+ *      integer key as the row id, so adding it afterwards would only cost a rebuild.
+ *    - Each table's extended INSERTs go to one of several worker threads, each
+ *      with its own connection, and are loaded with batched prepared statements.
+ *      Different tables load in parallel; a table's rows load in dump order.
+ *    - Once all the data is in, the indexes are built (in parallel, per table),
+ *      AUTO_INCREMENT counters are moved past the loaded ids, and the
+ *      foreign keys are added.
+ * <p>
+ * mysqldump's DDL needs more massaging than hand-written migrations: identifiers
+ * are back-quoted and lower case, integer types carry display widths, and tables
+ * carry ENGINE/CHARSET options.  Identifiers become upper case, double-quoted ones
+ * (the way H2 folds unquoted names, and safe for names that are keywords in H2).
+ * <p>
+ * Progress (rows loaded, rows/s, how much of the dump has been read) is printed
+ * every few seconds when logging is on, and a DumpImportReport is returned.
+ * <p>
+ * Usage:
+ * <p>
+ *    MySqlDumpImporter importer = new MySqlDumpImporter(H2Echo.createEchoDataSource());
+ *    importer.setThreads(8);
+ *    DumpImportReport report = importer.importDump(Paths.get("prod-sanitized.sql.gz"), true);
+ */
+public class MySqlDumpImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 5000;
+
+    // INSERT statements waiting for each worker.  Bounds the heap used by the import.
+    private static final int WORKER_QUEUE_CAPACITY = 4;
+
+    private static final Pattern INSERT_TABLE_PATTERN =
+            Pattern.compile("(?is)^INSERT\\s+(?:IGNORE\\s+)?INTO\\s+([`\"\\w.]+)");
+    private static final Pattern CREATE_TABLE_NAME_PATTERN =
+            Pattern.compile("(?is)^CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?([\"\\w.]+)");
+    private static final Pattern PRIMARY_KEY_PATTERN =
+            Pattern.compile("(?is)^(?:CONSTRAINT\\s+\\S+\\s+)?PRIMARY\\s+KEY\\b.*");
+    private static final Pattern BIT_LITERAL_PATTERN = Pattern.compile("(?i)\\bb'([01]+)'");
+    private static final Pattern FOREIGN_KEY_PATTERN =
+            Pattern.compile("(?is)^(?:CONSTRAINT\\s+\\S+\\s+)?FOREIGN\\s+KEY\\b.*");
+
+    private final DataSource dataSource;
+    private int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long progressIntervalMillis = DEFAULT_PROGRESS_INTERVAL_MILLIS;
+
+    /***
+     * @param dataSource Where to import to.  Each worker takes its own connection,
+     *                   so it must not be a single-connection data source.
+     */
+    public MySqlDumpImporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /***
+     * @param threads How many tables to load at once (each on its own connection).
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        this.threads = threads;
+    }
+
+    /***
+     * @param batchSize How many rows to send to H2 per JDBC batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    public void setProgressIntervalMillis(long progressIntervalMillis) {
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /***
+     * Import a mysqldump file.  Statements that fail are recorded in the report and
+     * the import carries on, the same as with the migration scripts.
+     *
+     * @param dumpFile The dump (optionally gzipped).
+     * @param displayLog True to print progress and a summary to the console.
+     * @return The report for the import.
+     */
+    public DumpImportReport importDump(Path dumpFile, boolean displayLog) {
+        DumpImportReport report = new DumpImportReport();
+        report.setThreads(threads);
+        long startNanos = System.nanoTime();
+
+        if (displayLog) {
+            System.out.println("Importing mysqldump into H2: " + dumpFile);
+        }
+
+        // ---[ Tables and data ]---
+        ChromeTrace.Span dataSpan = ChromeTrace.begin("dump", "load data");
+        Map<String, List<String>> tableIndexStatements = new LinkedHashMap<>();
+        Map<String, String> autoIncrementColumns = new LinkedHashMap<>();
+        List<String> foreignKeyStatements = new ArrayList<>();
+        AtomicLong rowsLoaded = new AtomicLong();
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(report, rowsLoaded);
+            worker.thread = new Thread(worker, "h2echo-dump-import-" + i);
+            worker.thread.setDaemon(true);
+            worker.thread.start();
+            workers.add(worker);
+        }
+
+        Map<String, Worker> tableWorkers = new HashMap<>();
+
+        try (MySqlDumpReader reader = new MySqlDumpReader(dumpFile);
+             Connection connection = dataSource.getConnection();
+             Statement ddl = connection.createStatement()) {
+            long lastProgressNanos = System.nanoTime();
+            String stmt;
+
+            while ((stmt = reader.nextStatement()) != null) {
+                Matcher insertMatcher = INSERT_TABLE_PATTERN.matcher(stmt);
+                String upperStart = stmt.substring(0, Math.min(stmt.length(), 32)).toUpperCase(Locale.ROOT);
+
+                if (insertMatcher.lookingAt()) {
+                    String tableName = toH2Identifiers(insertMatcher.group(1));
+                    Worker worker = tableWorkers.computeIfAbsent(
+                            tableName, t -> workers.get(tableWorkers.size() % workers.size()));
+                    worker.enqueue(stmt);
+                } else if (upperStart.startsWith("CREATE TABLE")) {
+                    List<String> indexStatements = new ArrayList<>();
+                    String createTable = translateCreateTable(
+                            stmt, indexStatements, foreignKeyStatements, autoIncrementColumns);
+                    tableIndexStatements.put(getCreatedTableName(createTable), indexStatements);
+                    executeDdl(ddl, createTable, report);
+                } else if (upperStart.startsWith("DROP TABLE")) {
+                    executeDdl(ddl, toH2Identifiers(stmt), report);
+                }
+                // Everything else in a dump (SET, LOCK/UNLOCK TABLES, USE, ...) is session housekeeping.
+
+                if (displayLog && System.nanoTime() - lastProgressNanos >= TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis)) {
+                    printProgress(rowsLoaded.get(), System.nanoTime() - startNanos, reader);
+                    lastProgressNanos = System.nanoTime();
+                }
+            }
+
+            report.setBytesRead(reader.getTotalBytes());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to import " + dumpFile + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing " + dumpFile, e);
+        } finally {
+            for (Worker worker : workers) {
+                worker.finish();
+            }
+        }
+
+        for (Worker worker : workers) {
+            worker.tableLoads.values().forEach(report::addTableLoad);
+        }
+
+        report.setDataNanos(System.nanoTime() - startNanos);
+        dataSpan.arg("rows", rowsLoaded.get()).end();
+
+        // ---[ Keys, indexes and constraints, now that the data is in ]---
+        ChromeTrace.Span constraintSpan = ChromeTrace.begin("dump", "indexes and constraints");
+        long constraintStartNanos = System.nanoTime();
+        if (displayLog) {
+            System.out.println(String.format(Locale.ROOT,
+                    "Loaded %,d rows; creating indexes and constraints", rowsLoaded.get()));
+        }
+
+        createIndexes(tableIndexStatements, report);
+        createConstraints(autoIncrementColumns, foreignKeyStatements, report);
+
+        report.setConstraintNanos(System.nanoTime() - constraintStartNanos);
+        constraintSpan.end();
+        report.setWallNanos(System.nanoTime() - startNanos);
+
+        if (displayLog) {
+            System.out.println("\n---[ Summary of mysqldump import ]---");
+            System.out.print(report.format());
+        }
+
+        return report;
+    }
+
+    /***
+     * Translate one of mysqldump's CREATE TABLE statements for H2.  The table is
+     * created with just its columns and primary key; its indexes and foreign keys
+     * are handed back to be created after the data.
+     *
+     * @param stmt The CREATE TABLE statement from the dump.
+     * @param indexStatements Receives one CREATE INDEX per index.
+     * @param foreignKeyStatements Receives one ALTER TABLE ... ADD per foreign key.
+     * @param autoIncrementColumns Receives the AUTO_INCREMENT column, keyed by table.
+     * @return The CREATE TABLE statement to run.
+     */
+    static String translateCreateTable(
+            String stmt, List<String> indexStatements, List<String> foreignKeyStatements,
+            Map<String, String> autoIncrementColumns) {
+        String sql = toH2Identifiers(stmt);
+
+        // Table options (ENGINE=..., DEFAULT CHARSET=..., AUTO_INCREMENT=...) go.
+        int open = sql.indexOf('(');
+        int close = open >= 0 ? MariaDbMySqlRunner.findClosingParen(sql, open) : -1;
+        if (close < 0) {
+            return sql;
+        }
+        sql = sql.substring(0, close + 1);
+
+        // Same index translation as the migration scripts.
+        sql = MariaDbMySqlRunner.extractIndexes(sql, indexStatements);
+
+        String tableName = getCreatedTableName(sql);
+        open = sql.indexOf('(');
+        close = MariaDbMySqlRunner.findClosingParen(sql, open);
+
+        List<String> elements = new ArrayList<>();
+        for (String element : MariaDbMySqlRunner.splitTopLevel(sql.substring(open + 1, close))) {
+            String trimmed = element.strip();
+
+            if (PRIMARY_KEY_PATTERN.matcher(trimmed).matches()) {
+                elements.add(trimmed);
+            } else if (FOREIGN_KEY_PATTERN.matcher(trimmed).matches()) {
+                foreignKeyStatements.add("ALTER TABLE " + tableName + " ADD " + trimmed);
+            } else {
+                String column = translateColumnDefinition(trimmed);
+                if (column.toUpperCase(Locale.ROOT).contains("AUTO_INCREMENT")) {
+                    autoIncrementColumns.put(tableName, column.split("\\s+", 2)[0]);
+                }
+                elements.add(column);
+            }
+        }
+
+        return sql.substring(0, open + 1) + "\n  " + String.join(",\n  ", elements) + "\n)";
+    }
+
+    /***
+     * Make a column definition from a dump H2-friendly.  The column name (the first
+     * token) is left alone.
+     */
+    static String translateColumnDefinition(String column) {
+        String[] nameAndRest = column.split("\\s+", 2);
+        if (nameAndRest.length < 2) {
+            return column;
+        }
+
+        String rest = nameAndRest[1];
+        rest = rest.replaceAll("(?i)\\b(tinyint|smallint|mediumint|int|integer|bigint)\\s*\\(\\s*\\d+\\s*\\)", "$1");
+        rest = rest.replaceAll("(?i)\\b(float|double|real)\\s*\\(\\s*\\d+\\s*,\\s*\\d+\\s*\\)", "$1");
+        rest = rest.replaceAll("(?i)\\bbit\\s*\\(\\s*1\\s*\\)", "BOOLEAN");
+        rest = rest.replaceAll("(?i)\\bbit\\s*\\(\\s*\\d+\\s*\\)", "BIGINT");
+        rest = rest.replaceAll("(?i)^year\\b(\\s*\\(\\s*\\d\\s*\\))?", "SMALLINT");
+        rest = rest.replaceAll("(?i)\\s*\\b(unsigned|zerofill)\\b", "");
+        rest = rest.replaceAll("(?i)\\s*\\b(CHARACTER\\s+SET|CHARSET|COLLATE)\\s+\\w+", "");
+
+        // Bit literal defaults, e.g. DEFAULT b'1'.
+        Matcher bitLiteral = BIT_LITERAL_PATTERN.matcher(rest);
+        if (bitLiteral.find()) {
+            rest = bitLiteral.replaceAll(m -> Long.toString(Long.parseLong(m.group(1), 2)));
+        }
+
+        return nameAndRest[0] + " " + rest.strip();
+    }
+
+    /***
+     * Turn back-quoted identifiers into upper case, double-quoted ones.  Single-quoted
+     * strings are left alone.
+     */
+    public static String toH2Identifiers(String sql) {
+        if (sql.indexOf('`') < 0) {
+            return sql;
+        }
+
+        StringBuilder sb = new StringBuilder(sql.length());
+        boolean inString = false;
+        boolean inIdentifier = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+
+            if (inString) {
+                sb.append(ch);
+                if (ch == '\\' && i + 1 < sql.length()) {
+                    sb.append(sql.charAt(++i));
+                } else if (ch == '\'') {
+                    inString = false;
+                }
+            } else if (inIdentifier) {
+                if (ch == '`') {
+                    sb.append('"');
+                    inIdentifier = false;
+                } else {
+                    sb.append(Character.toUpperCase(ch));
+                }
+            } else if (ch == '\'') {
+                inString = true;
+                sb.append(ch);
+            } else if (ch == '`') {
+                inIdentifier = true;
+                sb.append('"');
+            } else {
+                sb.append(ch);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String getCreatedTableName(String createTable) {
+        Matcher m = CREATE_TABLE_NAME_PATTERN.matcher(createTable);
+        return m.find() ? m.group(1) : "";
+    }
+
+    private static void executeDdl(Statement ddl, String sql, DumpImportReport report) {
+        try {
+            ddl.execute(sql);
+        } catch (SQLException e) {
+            report.addError(firstLine(sql) + " - " + shortMessage(e));
+        }
+    }
+
+    /***
+     * Build the indexes, one table per task.
+     */
+    private void createIndexes(Map<String, List<String>> tableIndexStatements, DumpImportReport report) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<String> statements : tableIndexStatements.values()) {
+            if (statements.isEmpty()) {
+                continue;
+            }
+
+            tasks.add(() -> {
+                try (Connection connection = dataSource.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    for (String sql : statements) {
+                        executeDdl(statement, sql, report);
+                    }
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            executor.invokeAll(tasks).forEach(future -> {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    report.addError("Unable to create indexes - " + e.getMessage());
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating indexes", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /***
+     * Move each AUTO_INCREMENT counter past the ids that were loaded, then add the
+     * foreign keys (which need the referenced primary keys).
+     */
+    private void createConstraints(
+            Map<String, String> autoIncrementColumns, List<String> foreignKeyStatements, DumpImportReport report) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> entry : autoIncrementColumns.entrySet()) {
+                long nextId = 1;
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT MAX(" + entry.getValue() + ") FROM " + entry.getKey())) {
+                    if (rs.next()) {
+                        nextId = rs.getLong(1) + 1;
+                    }
+                } catch (SQLException e) {
+                    report.addError(entry.getKey() + " - " + shortMessage(e));
+                    continue;
+                }
+
+                executeDdl(statement, "ALTER TABLE " + entry.getKey() + " ALTER COLUMN " + entry.getValue()
+                        + " RESTART WITH " + nextId, report);
+            }
+
+            for (String sql : foreignKeyStatements) {
+                executeDdl(statement, sql, report);
+            }
+        } catch (SQLException e) {
+            report.addError("Unable to create constraints - " + shortMessage(e));
+        }
+    }
+
+    private static void printProgress(long rows, long elapsedNanos, MySqlDumpReader reader) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        long percent = reader.getTotalBytes() > 0 ? reader.getBytesRead() * 100 / reader.getTotalBytes() : 0;
+
+        System.out.println(String.format(Locale.ROOT,
+                "  %,d rows loaded (%,.0f rows/s), %d%% of dump read", rows, rows / seconds, percent));
+    }
+
+    private static String firstLine(String sql) {
+        String line = sql.strip().split("\\R", 2)[0];
+        return line.length() > 100 ? line.substring(0, 100) + "..." : line;
+    }
+
+    private static String shortMessage(Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        int semicolon = message.indexOf(";");
+        return semicolon >= 0 ? message.substring(0, semicolon) : message;
+    }
+
+    /***
+     * Loads the INSERT statements queued for it, on its own connection.  Each table
+     * is always sent to the same worker, so its rows arrive in dump order.
+     */
+    private class Worker implements Runnable {
+        final BlockingQueue<Optional<String>> queue = new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY);
+        final Map<String, DumpImportReport.TableLoad> tableLoads = new LinkedHashMap<>();
+        final Map<PreparedStatement, int[]> parameterTypes = new HashMap<>();
+        final DumpImportReport report;
+        final AtomicLong rowsLoaded;
+        Thread thread;
+
+        Worker(DumpImportReport report, AtomicLong rowsLoaded) {
+            this.report = report;
+            this.rowsLoaded = rowsLoaded;
+        }
+
+        @Override
+        public void run() {
+            Map<String, PreparedStatement> statements = new HashMap<>();
+            Connection connection = null;
+
+            try {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                report.addError("Unable to open an import connection - " + shortMessage(e));
+                connection = null;
+            }
+
+            try {
+                while (true) {
+                    Optional<String> sql = queue.take();
+                    if (sql.isEmpty()) {
+                        break;
+                    }
+
+                    // Without a connection, keep draining so the reader isn't blocked.
+                    if (connection != null) {
+                        try {
+                            load(connection, statements, sql.get());
+                        } catch (RuntimeException e) {
+                            report.addError(firstLine(sql.get()) + " - " + e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeQuietly(connection, statements);
+            }
+        }
+
+        /***
+         * Hand an INSERT to this worker, waiting while its queue is full.
+         *
+         * @throws IllegalStateException If the worker has stopped, so nothing would drain the queue.
+         */
+        void enqueue(String sql) throws InterruptedException {
+            while (!queue.offer(Optional.of(sql), 50, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    throw new IllegalStateException(thread.getName() + " stopped before the end of the dump");
+                }
+            }
+        }
+
+        void finish() {
+            try {
+                while (thread.isAlive() && !queue.offer(Optional.empty(), 50, TimeUnit.MILLISECONDS)) {
+                    // The worker is still draining.
+                }
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void load(Connection connection, Map<String, PreparedStatement> statements, String sql) {
+            long startNanos = System.nanoTime();
+            DumpInsertParser insert = DumpInsertParser.parse(sql);
+            if (insert == null) {
+                report.addError(firstLine(sql) + " - not an INSERT ... VALUES statement");
+                return;
+            }
+
+            PreparedStatement ps = null;
+            int[] types = null;
+            long rows = 0;
+
+            try {
+                Object[] row = insert.nextRow();
+                int inBatch = 0;
+
+                while (row != null) {
+                    if (ps == null) {
+                        ps = getPreparedStatement(connection, statements, insert, row.length);
+                        types = parameterTypes.get(ps);
+                    }
+
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, DumpInsertParser.toParameterValue(row[i], types[i]));
+                    }
+                    ps.addBatch();
+                    rows++;
+
+                    if (++inBatch == batchSize) {
+                        ps.executeBatch();
+                        inBatch = 0;
+                    }
+
+                    row = insert.nextRow();
+                }
+
+                if (inBatch > 0) {
+                    ps.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException | IllegalArgumentException e) {
+                rollbackQuietly(connection, ps);
+                report.addError(insert + " - " + (e instanceof SQLException ? shortMessage(e) : e.getMessage()));
+                rows = 0;
+            }
+
+            tableLoads.computeIfAbsent(insert.getTableName(), DumpImportReport.TableLoad::new)
+                    .add(rows, System.nanoTime() - startNanos);
+            rowsLoaded.addAndGet(rows);
+        }
+
+        private PreparedStatement getPreparedStatement(
+                Connection connection, Map<String, PreparedStatement> statements, DumpInsertParser insert,
+                int valueCount) throws SQLException {
+            String columns = insert.getColumns() != null ? " (" + String.join(", ", insert.getColumns()) + ")" : "";
+            String key = insert.getTableName() + columns + "/" + valueCount;
+
+            PreparedStatement ps = statements.get(key);
+            if (ps == null) {
+                StringBuilder sql = new StringBuilder("INSERT INTO ").append(insert.getTableName()).append(columns)
+                        .append(" VALUES (");
+                for (int i = 0; i < valueCount; i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+
+                ps = connection.prepareStatement(sql.toString());
+                statements.put(key, ps);
+                parameterTypes.put(ps, DumpInsertParser.getParameterTypes(ps, valueCount));
+            }
+
+            return ps;
+        }
+
+        private void rollbackQuietly(Connection connection, PreparedStatement ps) {
+            try {
+                if (ps != null) {
+                    ps.clearBatch();
+                }
+                connection.rollback();
+            } catch (SQLException e) {
+                // Already reporting the original failure.
+            }
+        }
+
+        private void closeQuietly(Connection connection, Map<String, PreparedStatement> statements) {
+            try {
+                for (PreparedStatement ps : statements.values()) {
+                    ps.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                // Nothing useful to do.
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.deepblue523.h2echo.dump;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/***
+ * Reads a mysqldump file one statement at a time, so the whole dump never has to
+ * be in memory (only the statement being read).
+ * <p>
+ * Statements end at a ';' outside of quotes and comments.  Comments are dropped,
+ * including MySQL's version-conditional ones ("/*!40101 SET ..."), which in a dump
+ * only hold session settings and key/table locking.  Files ending in ".gz" are
+ * decompressed on the fly.
+ * <p>
+ * Also used for the statements of .sql fixtures (see FixtureLoader).
+ */
+public class MySqlDumpReader implements Closeable {
+    private final CountingInputStream countingStream;
+    private final BufferedReader reader;
+    private final long totalBytes;
+
+    public MySqlDumpReader(Path dumpFile) {
+        try {
+            totalBytes = Files.size(dumpFile);
+            countingStream = new CountingInputStream(Files.newInputStream(dumpFile));
+
+            InputStream in = dumpFile.getFileName().toString().endsWith(".gz")
+                    ? new GZIPInputStream(countingStream, 64 * 1024)
+                    : countingStream;
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 256 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Read statements from text that is already in memory.
+     *
+     * @param sqlReader The statements.
+     */
+    public MySqlDumpReader(Reader sqlReader) {
+        countingStream = null;
+        totalBytes = -1;
+        reader = new BufferedReader(sqlReader);
+    }
+
+    /***
+     * @return The next statement, without its ';' and trimmed, or null at the end of the dump.
+     */
+    public String nextStatement() {
+        StringBuilder stmt = new StringBuilder();
+
+        try {
+            int c;
+            while ((c = reader.read()) != -1) {
+                char ch = (char) c;
+
+                if (ch == '\'' || ch == '"' || ch == '`') {
+                    readQuoted(ch, stmt);
+                } else if (ch == '-' && peek() == '-') {
+                    skipLine();
+                } else if (ch == '#') {
+                    skipLine();
+                } else if (ch == '/' && peek() == '*') {
+                    skipBlockComment();
+                } else if (ch == ';') {
+                    String text = stmt.toString().strip();
+                    if (!text.isEmpty()) {
+                        return text;
+                    }
+                    stmt.setLength(0);
+                } else {
+                    stmt.append(ch);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String text = stmt.toString().strip();
+        return text.isEmpty() ? null : text;
+    }
+
+    /***
+     * @return Bytes of the dump file read so far (compressed bytes, for a .gz file),
+     *         or 0 when reading from a Reader.
+     */
+    long getBytesRead() {
+        return countingStream != null ? countingStream.count : 0;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Copy a quoted string or identifier.  Backslash escapes are copied as is
+     * (they only matter to whoever parses the value later).
+     */
+    private void readQuoted(char quote, StringBuilder stmt) throws IOException {
+        stmt.append(quote);
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            char ch = (char) c;
+            stmt.append(ch);
+
+            if (ch == '\\' && quote != '`') {
+                int escaped = reader.read();
+                if (escaped != -1) {
+                    stmt.append((char) escaped);
+                }
+            } else if (ch == quote) {
+                // A doubled quote is an escaped quote, not the end.
+                if (peek() == quote) {
+                    stmt.append((char) reader.read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        reader.mark(1);
+        int c = reader.read();
+        reader.reset();
+        return c;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            // Skip.
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int previous = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (previous == '*' && c == '/') {
+                return;
+            }
+            previous = c;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.deepblue523.h2echo.fixtures;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * A parsed fixture file: the rows it holds for each table, ready to bind to prepared
+ * statements.  Fixtures are immutable, so one parsed copy is shared by every test
+ * that loads the file.
+ */
+public class Fixture {
+
+    /***
+     * Rows for one table, all with the same columns.
+     */
+    public static class TableRows {
+        private final String tableName;
+        private final List<String> columns;
+        private final List<Object[]> rows;
+
+        TableRows(String tableName, List<String> columns, List<Object[]> rows) {
+            this.tableName = tableName;
+            this.columns = Collections.unmodifiableList(columns);
+            this.rows = Collections.unmodifiableList(rows);
+        }
+
+        /***
+         * @return The table name as written in the fixture (quoted if it was quoted).
+         */
+        public String getTableName() { return tableName; }
+        public List<String> getColumns() { return columns; }
+        public List<Object[]> getRows() { return rows; }
+
+        /***
+         * @return The name H2 stores the table under: unquoted names upper cased,
+         *         quoted ones as is, without any schema.
+         */
+        public String getTableKey() {
+            return identifierKey(tableName.substring(tableName.lastIndexOf('.') + 1));
+        }
+    }
+
+    private final String path;
+    private final List<TableRows> tables;
+
+    Fixture(String path, List<TableRows> tables) {
+        this.path = path;
+        this.tables = Collections.unmodifiableList(tables);
+    }
+
+    public String getPath() { return path; }
+    public List<TableRows> getTables() { return tables; }
+
+    public int getRowCount() {
+        return tables.stream().mapToInt(table -> table.getRows().size()).sum();
+    }
+
+    static String identifierKey(String identifier) {
+        String name = identifier.strip();
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+            return name.substring(1, name.length() - 1);
+        }
+
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + tables.size() + " table(s), " + getRowCount() + " row(s))";
+    }
+}
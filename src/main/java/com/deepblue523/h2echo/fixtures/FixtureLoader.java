@@ -0,0 +1,324 @@
+package com.deepblue523.h2echo.fixtures;
+
+import com.deepblue523.h2echo.dump.DumpInsertParser;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Loads fixture files (see @EchoFixture) into the echo database.
+ * <p>
+ * Each file is parsed once per JVM and the parsed Fixture is cached, so any number
+ * of tests can share a fixture without reading it again.  The formats are:
+ * <p>
+ *    - .csv: rows for the table named by the file ("nrm_call_groups.csv"), with a
+ *      header row of column names.  An empty unquoted field is NULL.
+ *    - .json: an object of table name to an array of row objects, e.g.
+ *      {"nrm_call_groups": [{"id": 1, "name": "Sales"}]}
+ *    - .sql: INSERT ... (columns) VALUES (...), (...) statements
+ * <p>
+ * Values are handed to H2 as is (numbers and dates can be written as strings), and
+ * columns a fixture leaves out get their defaults.
+ * <p>
+ * All the tables of one load() call go in together on one connection and in one
+ * transaction: parent tables first (ordered by the foreign keys in the database, not
+ * by the order of the files), each table through a single batched prepared
+ * statement.  Tables whose primary key is in the fixture are written with MERGE, so
+ * loading the same fixture before every test doesn't hit duplicate keys.  Afterwards
+ * identity columns are moved past the loaded ids, so DAO inserts don't collide
+ * with them.
+ */
+public class FixtureLoader {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final Map<String, Fixture> fixtureCache = new ConcurrentHashMap<>();
+
+    private FixtureLoader() {
+    }
+
+    /***
+     * Get a fixture, parsing it the first time it's asked for.
+     *
+     * @param path A classpath resource, or failing that a file path.
+     * @return The parsed fixture.
+     * @throws IllegalArgumentException If the file can't be found or parsed.
+     */
+    public static Fixture getFixture(String path) {
+        return fixtureCache.computeIfAbsent(path, p -> FixtureParser.parse(p, readFixture(p)));
+    }
+
+    /***
+     * @return How many fixtures have been parsed (and are cached) in this JVM.
+     */
+    public static int getCachedFixtureCount() {
+        return fixtureCache.size();
+    }
+
+    /***
+     * Load fixtures into a database.
+     *
+     * @param dataSource The database to load into.
+     * @param paths The fixture files.
+     * @return The number of rows written.
+     * @throws IllegalStateException If a row can't be written (nothing is left loaded).
+     */
+    public static int load(DataSource dataSource, String... paths) {
+        List<Fixture.TableRows> tables = new ArrayList<>();
+        for (String path : paths) {
+            tables.addAll(getFixture(path).getTables());
+        }
+
+        if (tables.isEmpty()) {
+            return 0;
+        }
+
+        ChromeTrace.Span span = ChromeTrace.begin("fixture", String.join(", ", paths));
+        int rowsLoaded = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try {
+                TableMetadata metadata = TableMetadata.read(connection, tables);
+
+                for (Fixture.TableRows table : orderByForeignKeys(tables, metadata.parentsByTable)) {
+                    rowsLoaded += loadTable(connection, table, metadata.primaryKeysByTable.get(table.getTableKey()));
+                }
+
+                restartIdentities(connection, tables, metadata.identitiesByTable);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to load fixture(s) " + String.join(", ", paths) + ": " + e.getMessage(), e);
+        }
+
+        span.arg("rows", rowsLoaded).end();
+        return rowsLoaded;
+    }
+
+    private static int loadTable(Connection connection, Fixture.TableRows table, Set<String> primaryKey)
+            throws SQLException {
+        if (table.getRows().isEmpty()) {
+            return 0;
+        }
+
+        Set<String> columnKeys = new HashSet<>();
+        for (String column : table.getColumns()) {
+            columnKeys.add(Fixture.identifierKey(column));
+        }
+
+        boolean merge = primaryKey != null && !primaryKey.isEmpty() && columnKeys.containsAll(primaryKey);
+        String placeholders = String.join(", ", Collections.nCopies(table.getColumns().size(), "?"));
+        String sql = (merge ? "MERGE INTO " : "INSERT INTO ") + table.getTableName()
+                + " (" + String.join(", ", table.getColumns()) + ") VALUES (" + placeholders + ")";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int[] types = DumpInsertParser.getParameterTypes(ps, table.getColumns().size());
+            int pending = 0;
+            for (Object[] row : table.getRows()) {
+                for (int i = 0; i < row.length; i++) {
+                    ps.setObject(i + 1, DumpInsertParser.toParameterValue(row[i], types[i]));
+                }
+                ps.addBatch();
+
+                if (++pending == BATCH_SIZE) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new SQLException(table.getTableName() + " - " + e.getMessage(), e.getSQLState(), e);
+        }
+
+        return table.getRows().size();
+    }
+
+    /***
+     * Order tables so that every table comes after the tables its foreign keys
+     * reference.  Tables that aren't related keep their fixture order.  If the keys
+     * form a cycle the remaining tables are taken as listed.
+     */
+    static List<Fixture.TableRows> orderByForeignKeys(
+            List<Fixture.TableRows> tables, Map<String, Set<String>> parentsByTable) {
+        Set<String> pendingKeys = new HashSet<>();
+        for (Fixture.TableRows table : tables) {
+            pendingKeys.add(table.getTableKey());
+        }
+
+        List<Fixture.TableRows> remaining = new ArrayList<>(tables);
+        List<Fixture.TableRows> ordered = new ArrayList<>(tables.size());
+
+        while (!remaining.isEmpty()) {
+            Fixture.TableRows next = null;
+
+            for (Fixture.TableRows table : remaining) {
+                boolean parentsDone = true;
+                for (String parent : parentsByTable.getOrDefault(table.getTableKey(), Set.of())) {
+                    if (!parent.equals(table.getTableKey()) && pendingKeys.contains(parent)) {
+                        parentsDone = false;
+                        break;
+                    }
+                }
+
+                if (parentsDone) {
+                    next = table;
+                    break;
+                }
+            }
+
+            if (next == null) {
+                next = remaining.get(0);
+            }
+
+            remaining.remove(next);
+            ordered.add(next);
+
+            // Another fixture may still hold rows for the same table.
+            String nextKey = next.getTableKey();
+            if (remaining.stream().noneMatch(table -> table.getTableKey().equals(nextKey))) {
+                pendingKeys.remove(nextKey);
+            }
+        }
+
+        return ordered;
+    }
+
+    /***
+     * Move each loaded table's identity column past the highest id in it.  H2 doesn't
+     * advance an identity when rows are inserted with explicit ids.
+     */
+    private static void restartIdentities(
+            Connection connection, List<Fixture.TableRows> tables, Map<String, String> identitiesByTable)
+            throws SQLException {
+        Map<String, String> tableNames = new LinkedHashMap<>();
+        for (Fixture.TableRows table : tables) {
+            if (identitiesByTable.containsKey(table.getTableKey())) {
+                tableNames.putIfAbsent(table.getTableKey(), table.getTableName());
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> entry : tableNames.entrySet()) {
+                String identity = "\"" + identitiesByTable.get(entry.getKey()) + "\"";
+
+                long nextId = 1;
+                try (ResultSet rs = statement.executeQuery("SELECT MAX(" + identity + ") FROM " + entry.getValue())) {
+                    if (rs.next()) {
+                        nextId = rs.getLong(1) + 1;
+                    }
+                }
+
+                statement.execute("ALTER TABLE " + entry.getValue() + " ALTER COLUMN " + identity + " RESTART WITH " + nextId);
+            }
+        }
+    }
+
+    private static String readFixture(String path) {
+        try {
+            InputStream resource = Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
+            if (resource != null) {
+                try (InputStream in = resource) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+
+            Path file = Paths.get(path);
+            if (Files.isRegularFile(file)) {
+                return Files.readString(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        throw new IllegalArgumentException("Fixture not found on the classpath or file system: " + path);
+    }
+
+    /***
+     * Foreign keys, primary keys and identity columns of the tables being loaded,
+     * read from INFORMATION_SCHEMA in one query each.  Keys are H2's table and
+     * column names.
+     */
+    private static class TableMetadata {
+        final Map<String, Set<String>> parentsByTable = new HashMap<>();
+        final Map<String, Set<String>> primaryKeysByTable = new HashMap<>();
+        final Map<String, String> identitiesByTable = new HashMap<>();
+
+        static TableMetadata read(Connection connection, Collection<Fixture.TableRows> tables) throws SQLException {
+            TableMetadata metadata = new TableMetadata();
+            Set<String> tableKeys = new HashSet<>();
+            for (Fixture.TableRows table : tables) {
+                tableKeys.add(table.getTableKey());
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT FK.TABLE_NAME, PK.TABLE_NAME FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS RC "
+                                + "JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS FK ON FK.CONSTRAINT_SCHEMA = RC.CONSTRAINT_SCHEMA "
+                                + "AND FK.CONSTRAINT_NAME = RC.CONSTRAINT_NAME "
+                                + "JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS PK ON PK.CONSTRAINT_SCHEMA = RC.UNIQUE_CONSTRAINT_SCHEMA "
+                                + "AND PK.CONSTRAINT_NAME = RC.UNIQUE_CONSTRAINT_NAME")) {
+                    while (rs.next()) {
+                        if (tableKeys.contains(rs.getString(1))) {
+                            metadata.parentsByTable.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2));
+                        }
+                    }
+                }
+
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT KCU.TABLE_NAME, KCU.COLUMN_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS TC "
+                                + "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE KCU ON KCU.CONSTRAINT_SCHEMA = TC.CONSTRAINT_SCHEMA "
+                                + "AND KCU.CONSTRAINT_NAME = TC.CONSTRAINT_NAME "
+                                + "WHERE TC.CONSTRAINT_TYPE = 'PRIMARY KEY'")) {
+                    while (rs.next()) {
+                        if (tableKeys.contains(rs.getString(1))) {
+                            metadata.primaryKeysByTable.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2));
+                        }
+                    }
+                }
+
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE IS_IDENTITY = 'YES'")) {
+                    while (rs.next()) {
+                        if (tableKeys.contains(rs.getString(1))) {
+                            metadata.identitiesByTable.put(rs.getString(1), rs.getString(2));
+                        }
+                    }
+                }
+            }
+
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.deepblue523.h2echo.fixtures;
+
+import com.deepblue523.h2echo.dump.DumpInsertParser;
+import com.deepblue523.h2echo.dump.MySqlDumpReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/***
+ * Turns the text of a fixture file into a Fixture.  The format comes from the file
+ * extension; see FixtureLoader for what each one looks like.
+ */
+class FixtureParser {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private FixtureParser() {
+    }
+
+    static Fixture parse(String path, String text) {
+        String lowerPath = path.toLowerCase(Locale.ROOT);
+
+        if (lowerPath.endsWith(".csv")) {
+            return new Fixture(path, List.of(parseCsv(tableNameFromPath(path), text)));
+        } else if (lowerPath.endsWith(".json")) {
+            return new Fixture(path, parseJson(path, text));
+        } else if (lowerPath.endsWith(".sql")) {
+            return new Fixture(path, parseSql(path, text));
+        }
+
+        throw new IllegalArgumentException("Unsupported fixture type (expected .csv, .json or .sql): " + path);
+    }
+
+    // ---[ CSV ]---
+
+    /***
+     * The header row names the columns.  Fields may be quoted ("" is a quote inside
+     * a quoted field), and an empty unquoted field is NULL.
+     */
+    static Fixture.TableRows parseCsv(String tableName, String text) {
+        List<List<Object>> records = new ArrayList<>();
+        List<Object> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+
+            if (inQuotes) {
+                if (ch == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    inQuotes = false;
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                inQuotes = true;
+                quoted = true;
+            } else if (ch == ',') {
+                record.add(csvValue(field, quoted));
+                quoted = false;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (!record.isEmpty() || field.length() > 0 || quoted) {
+                    record.add(csvValue(field, quoted));
+                    records.add(record);
+                    record = new ArrayList<>();
+                }
+                quoted = false;
+            } else {
+                field.append(ch);
+            }
+        }
+
+        if (inQuotes) {
+            throw new IllegalArgumentException("Unterminated quoted field in CSV fixture for " + tableName);
+        }
+        if (!record.isEmpty() || field.length() > 0 || quoted) {
+            record.add(csvValue(field, quoted));
+            records.add(record);
+        }
+
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("CSV fixture for " + tableName + " has no header row");
+        }
+
+        List<String> columns = new ArrayList<>();
+        for (Object column : records.get(0)) {
+            columns.add(String.valueOf(column).strip());
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int r = 1; r < records.size(); r++) {
+            List<Object> values = records.get(r);
+            if (values.size() != columns.size()) {
+                throw new IllegalArgumentException("CSV fixture for " + tableName + ", row " + r + " has "
+                        + values.size() + " value(s) for " + columns.size() + " column(s)");
+            }
+            rows.add(values.toArray());
+        }
+
+        return new Fixture.TableRows(tableName, columns, rows);
+    }
+
+    private static Object csvValue(StringBuilder field, boolean quoted) {
+        String value = field.toString();
+        field.setLength(0);
+
+        return (!quoted && value.isEmpty()) ? null : value;
+    }
+
+    /***
+     * "fixtures/nrm_call_groups.csv" loads into nrm_call_groups.
+     */
+    private static String tableNameFromPath(String path) {
+        String fileName = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    // ---[ JSON ]---
+
+    /***
+     * An object whose fields are table names, each holding an array of row objects.
+     * A table's columns are every key used by any of its rows; a row without one of
+     * them gets NULL.
+     */
+    private static List<Fixture.TableRows> parseJson(String path, String text) {
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to parse fixture " + path + ": " + e.getMessage(), e);
+        }
+
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Fixture " + path + " must be an object of table name -> rows");
+        }
+
+        List<Fixture.TableRows> tables = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> table = it.next();
+            if (!table.getValue().isArray()) {
+                throw new IllegalArgumentException("Fixture " + path + ", table " + table.getKey() + " must be an array of rows");
+            }
+
+            Set<String> columnSet = new LinkedHashSet<>();
+            for (JsonNode row : table.getValue()) {
+                row.fieldNames().forEachRemaining(columnSet::add);
+            }
+
+            List<String> columns = new ArrayList<>(columnSet);
+            List<Object[]> rows = new ArrayList<>();
+            for (JsonNode row : table.getValue()) {
+                Object[] values = new Object[columns.size()];
+                for (int c = 0; c < columns.size(); c++) {
+                    values[c] = jsonValue(path, table.getKey(), row.get(columns.get(c)));
+                }
+                rows.add(values);
+            }
+
+            tables.add(new Fixture.TableRows(table.getKey(), columns, rows));
+        }
+
+        return tables;
+    }
+
+    private static Object jsonValue(String path, String tableName, JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        } else if (node.isTextual()) {
+            return node.textValue();
+        } else if (node.isBoolean()) {
+            return node.booleanValue();
+        } else if (node.isIntegralNumber()) {
+            return node.numberValue();
+        } else if (node.isNumber()) {
+            return node.decimalValue();
+        }
+
+        throw new IllegalArgumentException("Fixture " + path + ", table " + tableName
+                + " has a nested value (only scalars can be loaded): " + node);
+    }
+
+    // ---[ SQL ]---
+
+    /***
+     * INSERT statements with column lists, one or many rows each.  Anything else is
+     * rejected, so a fixture stays data only.
+     */
+    private static List<Fixture.TableRows> parseSql(String path, String text) {
+        // Rows for the same table and columns are kept together, so they share a batch.
+        Map<String, DumpInsertParser> firstInserts = new LinkedHashMap<>();
+        Map<String, List<Object[]>> rowsByInsert = new LinkedHashMap<>();
+
+        try (MySqlDumpReader reader = new MySqlDumpReader(new StringReader(text))) {
+            String stmt;
+            while ((stmt = reader.nextStatement()) != null) {
+                DumpInsertParser insert = DumpInsertParser.parse(stmt);
+                if (insert == null) {
+                    throw new IllegalArgumentException("Fixture " + path + " may only hold INSERT ... VALUES statements: "
+                            + stmt.substring(0, Math.min(stmt.length(), 60)));
+                } else if (insert.getColumns() == null) {
+                    throw new IllegalArgumentException("Fixture " + path + " needs a column list on its INSERT into "
+                            + insert.getTableName());
+                }
+
+                String key = insert.getTableName() + "|" + insert.getColumns();
+                firstInserts.putIfAbsent(key, insert);
+                List<Object[]> rows = rowsByInsert.computeIfAbsent(key, k -> new ArrayList<>());
+
+                Object[] row;
+                while ((row = insert.nextRow()) != null) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        List<Fixture.TableRows> tables = new ArrayList<>();
+        for (Map.Entry<String, DumpInsertParser> entry : firstInserts.entrySet()) {
+            DumpInsertParser insert = entry.getValue();
+            tables.add(new Fixture.TableRows(insert.getTableName(), insert.getColumns(), rowsByInsert.get(entry.getKey())));
+        }
+
+        return tables;
+    }
+}
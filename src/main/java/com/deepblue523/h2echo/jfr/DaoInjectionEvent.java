@@ -0,0 +1,25 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/***
+ * JFR event spanning an echoDaosOnObject() call.  When not lazy this includes the
+ * migrations run for the injected DAOs.
+ */
+@Name("com.deepblue523.h2echo.DaoInjection")
+@Label("DAO Injection")
+@Category({"H2Echo", "Injection"})
+@Description("@EchoDao fields were injected into an object")
+public class DaoInjectionEvent extends jdk.jfr.Event {
+    @Label("Target Class")
+    public Class<?> targetClass;
+
+    @Label("DAO Count")
+    public int daoCount;
+
+    @Label("Lazy")
+    public boolean lazy;
+}
@@ -0,0 +1,35 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/***
+ * JFR event spanning a whole runSqlScriptsOnH2() call.
+ */
+@Name("com.deepblue523.h2echo.Migration")
+@Label("Migration")
+@Category({"H2Echo", "Migration"})
+@Description("A set of migration scripts was run on H2")
+public class MigrationEvent extends jdk.jfr.Event {
+    @Label("Dialect")
+    public String dialect;
+
+    @Label("Scripts")
+    public int scriptCount;
+
+    @Label("Statements Run")
+    public int statementsRun;
+
+    @Label("Statements Skipped")
+    public int statementsSkipped;
+
+    @Label("Errors")
+    public int errors;
+
+    @Label("Script Size")
+    @DataAmount
+    public long bytes;
+}
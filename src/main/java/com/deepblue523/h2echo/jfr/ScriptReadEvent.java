@@ -0,0 +1,25 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/***
+ * JFR event for reading a migration script from disk.
+ */
+@Name("com.deepblue523.h2echo.ScriptRead")
+@Label("Script Read")
+@Category({"H2Echo", "Migration"})
+@Description("A migration script was read")
+@StackTrace(false)
+public class ScriptReadEvent extends jdk.jfr.Event {
+    @Label("Script")
+    public String scriptName;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
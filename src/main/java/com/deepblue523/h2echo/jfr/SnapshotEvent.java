@@ -0,0 +1,23 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/***
+ * JFR event spanning taking or restoring an H2 snapshot.
+ */
+@Name("com.deepblue523.h2echo.Snapshot")
+@Label("Snapshot")
+@Category({"H2Echo", "Snapshot"})
+@Description("An H2 snapshot was taken or restored")
+public class SnapshotEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Snapshot Size")
+    @DataAmount
+    public long bytes;
+}
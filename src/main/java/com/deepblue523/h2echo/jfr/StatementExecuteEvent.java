@@ -0,0 +1,32 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/***
+ * JFR event for executing one translated statement against H2.
+ */
+@Name("com.deepblue523.h2echo.StatementExecute")
+@Label("Statement Execute")
+@Category({"H2Echo", "Migration"})
+@Description("A translated statement was executed on H2")
+@StackTrace(false)
+public class StatementExecuteEvent extends jdk.jfr.Event {
+    @Label("Script")
+    public String scriptName;
+
+    @Label("Statement Kind")
+    public String statementKind;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Row Count")
+    public long rowCount;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
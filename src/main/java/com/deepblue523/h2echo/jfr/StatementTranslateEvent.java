@@ -0,0 +1,27 @@
+package com.deepblue523.h2echo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/***
+ * JFR event for translating one script statement into H2 syntax.  A single statement
+ * may translate into several (ALTERs are broken up, DROPs are added, etc.).
+ */
+@Name("com.deepblue523.h2echo.StatementTranslate")
+@Label("Statement Translate")
+@Category({"H2Echo", "Migration"})
+@Description("A script statement was translated for H2")
+@StackTrace(false)
+public class StatementTranslateEvent extends jdk.jfr.Event {
+    @Label("Script")
+    public String scriptName;
+
+    @Label("Statement Kind")
+    public String statementKind;
+
+    @Label("Statements Produced")
+    public int statementsProduced;
+}
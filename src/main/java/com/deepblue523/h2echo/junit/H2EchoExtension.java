@@ -0,0 +1,188 @@
+package com.deepblue523.h2echo.junit;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoFixture;
+import com.deepblue523.h2echo.annotations.QueryBudget;
+import com.deepblue523.h2echo.fixtures.FixtureLoader;
+import com.deepblue523.h2echo.plans.IndexAdvisor;
+import com.deepblue523.h2echo.plans.PlanAnalyzer;
+import com.deepblue523.h2echo.plans.PlanBaseline;
+import com.deepblue523.h2echo.plans.PlanReport;
+import com.deepblue523.h2echo.profiling.QueryProfileReport;
+import com.deepblue523.h2echo.profiling.QueryProfiler;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * JUnit 5 extension for tests whose DAOs are injected with
+ * @EnableH2Echo(profileQueries = true).
+ * <p>
+ * Use it with @ExtendWith(H2EchoExtension.class).  Before each test any
+ * @EchoFixture files are loaded (see FixtureLoader) and the query profiler is
+ * reset, so fixture rows never count against a profile or budget.  After each test its report is attached to the test result
+ * as a report entry ("h2echo.queries"), and any likely N+1 patterns as
+ * "h2echo.nPlusOne".  Build tools and IDEs show these next to the test.
+ * <p>
+ * With @EnableH2Echo(analyzePlans = true), each distinct query is also explained
+ * (see PlanAnalyzer).  Full scans and suggested indexes are attached as "h2echo.plans"
+ * and collected by IndexAdvisor, and if a plan baseline is configured (see
+ * PlanBaseline) a degraded plan fails the test.
+ * <p>
+ * A @QueryBudget on the test method (or class) is checked last; going over it fails
+ * the test with the full query breakdown.
+ * <p>
+ * After the test class, migration timing regressions are checked (see TimingHistory);
+ * with -Dh2echo.regression.mode=fail any found while the class ran fail it.
+ * <p>
+ * Tests without fixtures or a profiler are left alone.
+ */
+public class H2EchoExtension implements BeforeEachCallback, AfterEachCallback, AfterAllCallback {
+    public static final String QUERIES_REPORT_KEY = "h2echo.queries";
+    public static final String N_PLUS_ONE_REPORT_KEY = "h2echo.nPlusOne";
+    public static final String PLANS_REPORT_KEY = "h2echo.plans";
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        List<String> fixturePaths = findFixturePaths(context);
+        if (!fixturePaths.isEmpty()) {
+            Object testInstance = context.getRequiredTestInstance();
+            DataSource dataSource = H2Echo.getEchoDataSource(testInstance);
+            FixtureLoader.load(dataSource != null ? dataSource : H2Echo.createEchoDataSource(),
+                    fixturePaths.toArray(new String[0]));
+        }
+
+        QueryProfiler profiler = getProfiler(context);
+        if (profiler != null) {
+            profiler.reset();
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryProfiler profiler = getProfiler(context);
+        if (profiler == null) {
+            return;
+        }
+
+        QueryProfileReport report = profiler.getReport();
+        context.publishReportEntry(QUERIES_REPORT_KEY, report.format());
+
+        if (!report.getNPlusOneSuspects().isEmpty()) {
+            StringBuilder suspects = new StringBuilder();
+            for (QueryProfileReport.QueryShape shape : report.getNPlusOneSuspects()) {
+                suspects.append(shape.getCount()).append(" x ").append(shape.getNormalizedSql()).append('\n');
+            }
+
+            context.publishReportEntry(N_PLUS_ONE_REPORT_KEY, suspects.toString().trim());
+        }
+
+        Object testInstance = context.getRequiredTestInstance();
+        if (H2Echo.isAnalyzingPlans(testInstance.getClass())) {
+            analyzePlans(context, report);
+        }
+
+        QueryBudget budget = findQueryBudget(context);
+        if (budget != null) {
+            checkQueryBudget(budget, report);
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        TimingHistory.assertNoRegressions();
+    }
+
+    /***
+     * @return The test's fixture files: the class hierarchy's (superclass first), then
+     *         the method's.
+     */
+    private static List<String> findFixturePaths(ExtensionContext context) {
+        List<String> paths = new ArrayList<>();
+
+        for (Class<?> type = context.getRequiredTestClass(); type != null; type = type.getSuperclass()) {
+            EchoFixture fixture = type.getAnnotation(EchoFixture.class);
+            if (fixture != null) {
+                paths.addAll(0, Arrays.asList(fixture.value()));
+            }
+        }
+
+        context.getTestMethod()
+                .map(method -> method.getAnnotation(EchoFixture.class))
+                .ifPresent(fixture -> paths.addAll(Arrays.asList(fixture.value())));
+
+        return paths;
+    }
+
+    private static QueryBudget findQueryBudget(ExtensionContext context) {
+        QueryBudget budget = context.getTestMethod().map(method -> method.getAnnotation(QueryBudget.class)).orElse(null);
+        if (budget != null) {
+            return budget;
+        }
+
+        for (Class<?> type = context.getRequiredTestClass(); type != null; type = type.getSuperclass()) {
+            budget = type.getAnnotation(QueryBudget.class);
+            if (budget != null) {
+                return budget;
+            }
+        }
+
+        return null;
+    }
+
+    /***
+     * Check a test's queries against its budget.
+     *
+     * @param budget The budget.
+     * @param report What the test's DAOs did.
+     * @throws AssertionError If any limit was exceeded.
+     */
+    public static void checkQueryBudget(QueryBudget budget, QueryProfileReport report) {
+        List<String> exceeded = new ArrayList<>();
+        double millis = report.getTotalNanos() / 1_000_000.0;
+
+        if (budget.maxStatements() >= 0 && report.getTotalStatements() > budget.maxStatements()) {
+            exceeded.add(report.getTotalStatements() + " statements (budget " + budget.maxStatements() + ")");
+        }
+        if (budget.maxRowsScanned() >= 0 && report.getTotalRows() > budget.maxRowsScanned()) {
+            exceeded.add(report.getTotalRows() + " rows (budget " + budget.maxRowsScanned() + ")");
+        }
+        if (budget.maxMillis() >= 0 && millis > budget.maxMillis()) {
+            exceeded.add(String.format(Locale.ROOT, "%.2f ms (budget %d)", millis, budget.maxMillis()));
+        }
+
+        if (!exceeded.isEmpty()) {
+            throw new AssertionError("Query budget exceeded: " + String.join(", ", exceeded) + "\n" + report.format());
+        }
+    }
+
+    private static void analyzePlans(ExtensionContext context, QueryProfileReport queryReport) {
+        // Explain on a plain connection, so the EXPLAINs aren't profiled themselves.
+        PlanAnalyzer analyzer = PlanAnalyzer.fromSystemProperties(new JdbcTemplate(H2Echo.createEchoDataSource()));
+        PlanReport planReport = analyzer.analyze(queryReport.getExecutions());
+
+        context.publishReportEntry(PLANS_REPORT_KEY, planReport.format());
+        IndexAdvisor.add(planReport);
+
+        PlanBaseline baseline = PlanBaseline.fromSystemProperties();
+        if (baseline != null) {
+            List<String> degradations = baseline.check(planReport);
+            if (!degradations.isEmpty()) {
+                throw new AssertionError(String.join("\n", degradations));
+            }
+        }
+    }
+
+    static QueryProfiler getProfiler(ExtensionContext context) {
+        return context.getTestInstance().map(H2Echo::getQueryProfiler).orElse(null);
+    }
+}
@@ -0,0 +1,275 @@
+package com.deepblue523.h2echo.mapping;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A RowMapper that fills a bean through its setters, matching columns to
+ * properties the way BeanPropertyRowMapper does (case and underscores ignored, so
+ * phone_number goes to setPhoneNumber()), but without its per-row reflection.
+ * <p>
+ *    - Per class (cached in a ClassValue): the no-arg constructor and every setter,
+ *      as MethodHandles.
+ *    - Per result set shape (the column labels, in order): which column index goes
+ *      to which setter, and a typed ResultSet getter for each, chosen from the
+ *      setter's parameter type.
+ *    - Per row: construct the bean and call the setters, nothing else.
+ * <p>
+ * The shape of the result set in use is remembered, so rows after the first don't
+ * look at the metadata.  Columns without a matching setter are skipped.  NULLs are
+ * kept for wrapper types (where a hand-written rs.getInt() would give 0) and become
+ * the default value for primitives.
+ * <p>
+ * Mappers are thread-safe and shared, so a DAO can hold one in a constant:
+ * <p>
+ *    private static final RowMapper&lt;NrmPhoneNumber&gt; ROW_MAPPER = EchoRowMapper.forClass(NrmPhoneNumber.class);
+ */
+public class EchoRowMapper<T> implements RowMapper<T> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<EchoRowMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected EchoRowMapper<?> computeValue(Class<?> type) {
+            return new EchoRowMapper<>(type);
+        }
+    };
+
+    /***
+     * Reads one column with the getter suited to the property it goes to.
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    /***
+     * One bean property that can be set.
+     */
+    private static class Property {
+        final String name;
+        final Class<?> type;
+        final MethodHandle setter; // (Object, Object)void
+
+        Property(String name, Class<?> type, MethodHandle setter) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+
+    /***
+     * The column-to-property plan for one result set shape.
+     */
+    private static class Binding {
+        final int[] indexes;
+        final ColumnReader[] readers;
+        final MethodHandle[] setters;
+        final List<String> unmappedColumns;
+
+        Binding(int[] indexes, ColumnReader[] readers, MethodHandle[] setters, List<String> unmappedColumns) {
+            this.indexes = indexes;
+            this.readers = readers;
+            this.setters = setters;
+            this.unmappedColumns = unmappedColumns;
+        }
+    }
+
+    /***
+     * The result set the last binding was used for.  Weak, so a finished query's
+     * results aren't kept alive by a mapper held in a constant.
+     */
+    private static class BoundResultSet {
+        final WeakReference<ResultSet> resultSet;
+        final Binding binding;
+
+        BoundResultSet(ResultSet resultSet, Binding binding) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.binding = binding;
+        }
+    }
+
+    private final Class<T> type;
+    private final MethodHandle constructor; // ()Object
+    private final Map<String, Property> properties;
+    private final Map<List<String>, Binding> bindings = new ConcurrentHashMap<>();
+    private volatile BoundResultSet lastBound;
+
+    private EchoRowMapper(Class<T> type) {
+        this.type = type;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<T> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(noArgs).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("The class " + type.getName() + " should have a no-arg constructor");
+        }
+
+        Map<String, Property> properties = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            if (!name.startsWith("set") || name.length() == 3 || method.getParameterCount() != 1
+                    || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+
+            try {
+                method.setAccessible(true);
+                MethodHandle setter = lookup.unreflect(method).asType(SETTER_TYPE);
+                String propertyName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                properties.putIfAbsent(propertyKey(propertyName),
+                        new Property(propertyName, method.getParameterTypes()[0], setter));
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalArgumentException("Unable to use '" + name + "' of " + type.getName() + ": "
+                        + e.getMessage(), e);
+            }
+        }
+
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /***
+     * @param type The bean class; it needs a no-arg constructor and setters.
+     * @return The mapper for the class (one per class, shared).
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EchoRowMapper<T> forClass(Class<T> type) {
+        return (EchoRowMapper<T>) MAPPERS.get(type);
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Binding binding = bindingFor(rs);
+
+        try {
+            Object bean = (Object) constructor.invokeExact();
+            for (int i = 0; i < binding.setters.length; i++) {
+                binding.setters[i].invokeExact(bean, binding.readers[i].read(rs, binding.indexes[i]));
+            }
+
+            return type.cast(bean);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to map a row to " + type.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /***
+     * @return The columns of the last result set mapped that had no matching setter.
+     */
+    public List<String> getUnmappedColumns() {
+        BoundResultSet bound = lastBound;
+        return bound != null ? bound.binding.unmappedColumns : Collections.emptyList();
+    }
+
+    private Binding bindingFor(ResultSet rs) throws SQLException {
+        BoundResultSet bound = lastBound;
+        if (bound != null && bound.resultSet.get() == rs) {
+            return bound.binding;
+        }
+
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<String> labels = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            labels.add(metaData.getColumnLabel(i));
+        }
+
+        Binding binding = bindings.computeIfAbsent(labels, this::bind);
+        lastBound = new BoundResultSet(rs, binding);
+        return binding;
+    }
+
+    private Binding bind(List<String> labels) {
+        List<Integer> indexes = new ArrayList<>();
+        List<ColumnReader> readers = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        List<String> unmapped = new ArrayList<>();
+        List<String> bound = new ArrayList<>();
+
+        for (int i = 0; i < labels.size(); i++) {
+            Property property = properties.get(propertyKey(labels.get(i)));
+
+            // The first column for a property wins, as with duplicate labels in a join.
+            if (property == null || bound.contains(property.name)) {
+                unmapped.add(labels.get(i));
+                continue;
+            }
+
+            bound.add(property.name);
+            indexes.add(i + 1);
+            readers.add(readerFor(property.type));
+            setters.add(property.setter);
+        }
+
+        int[] indexArray = new int[indexes.size()];
+        for (int i = 0; i < indexArray.length; i++) {
+            indexArray[i] = indexes.get(i);
+        }
+
+        return new Binding(indexArray, readers.toArray(new ColumnReader[0]), setters.toArray(new MethodHandle[0]),
+                Collections.unmodifiableList(unmapped));
+    }
+
+    private static ColumnReader readerFor(Class<?> type) {
+        // Primitives: the getter's default stands in for NULL.
+        if (type == int.class) return ResultSet::getInt;
+        if (type == long.class) return ResultSet::getLong;
+        if (type == boolean.class) return ResultSet::getBoolean;
+        if (type == double.class) return ResultSet::getDouble;
+        if (type == float.class) return ResultSet::getFloat;
+        if (type == short.class) return ResultSet::getShort;
+        if (type == byte.class) return ResultSet::getByte;
+
+        // Wrappers: check wasNull(), so NULL stays null.
+        if (type == Integer.class) return (rs, i) -> { int v = rs.getInt(i); return rs.wasNull() ? null : v; };
+        if (type == Long.class) return (rs, i) -> { long v = rs.getLong(i); return rs.wasNull() ? null : v; };
+        if (type == Boolean.class) return (rs, i) -> { boolean v = rs.getBoolean(i); return rs.wasNull() ? null : v; };
+        if (type == Double.class) return (rs, i) -> { double v = rs.getDouble(i); return rs.wasNull() ? null : v; };
+        if (type == Float.class) return (rs, i) -> { float v = rs.getFloat(i); return rs.wasNull() ? null : v; };
+        if (type == Short.class) return (rs, i) -> { short v = rs.getShort(i); return rs.wasNull() ? null : v; };
+        if (type == Byte.class) return (rs, i) -> { byte v = rs.getByte(i); return rs.wasNull() ? null : v; };
+
+        if (type == String.class) return ResultSet::getString;
+        if (type == Timestamp.class) return ResultSet::getTimestamp;
+        if (type == java.sql.Date.class) return ResultSet::getDate;
+        if (type == Time.class) return ResultSet::getTime;
+        if (type == BigDecimal.class) return ResultSet::getBigDecimal;
+        if (type == byte[].class) return ResultSet::getBytes;
+        if (type.isEnum()) return (rs, i) -> enumValue(type, rs.getString(i));
+
+        // Anything else (LocalDateTime, UUID, ...) is left to the driver's conversions.
+        return (rs, i) -> rs.getObject(i, type);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String value) {
+        return value != null ? Enum.valueOf((Class<? extends Enum>) type, value) : null;
+    }
+
+    private static String propertyKey(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+}
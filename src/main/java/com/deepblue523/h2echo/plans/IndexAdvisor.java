@@ -0,0 +1,91 @@
+package com.deepblue523.h2echo.plans;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/***
+ * Collects the suggested indexes from every plan report in the JVM, and writes them
+ * as a MariaDB script when the JVM exits.
+ * <p>
+ * The script goes to "h2echo.plans.adviceFile" if set, otherwise to
+ * target/h2echo-index-advice.sql when there is a target directory.  Each suggestion
+ * is preceded by a comment naming a query that needed it.
+ */
+public class IndexAdvisor {
+    public static final String ADVICE_FILE_PROPERTY = "h2echo.plans.adviceFile";
+
+    // Suggested DDL -> an example query that needed it.
+    private static final Map<String, String> advice = new TreeMap<>();
+    private static final AtomicBoolean shutdownHookRegistered = new AtomicBoolean(false);
+
+    private IndexAdvisor() { }
+
+    /***
+     * Add the suggestions from a report.
+     */
+    public static void add(PlanReport report) {
+        synchronized (advice) {
+            for (QueryPlan plan : report.getPlans()) {
+                for (QueryPlan.FullScan scan : plan.getFullScans()) {
+                    if (scan.getSuggestedIndexDdl() != null) {
+                        advice.putIfAbsent(scan.getSuggestedIndexDdl(), plan.getNormalizedSql());
+                    }
+                }
+            }
+
+            if (!advice.isEmpty() && shutdownHookRegistered.compareAndSet(false, true)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(IndexAdvisor::writeQuietly, "h2echo-index-advice"));
+            }
+        }
+    }
+
+    /***
+     * @return The advice collected so far, as a MariaDB script.
+     */
+    public static String getScript() {
+        StringBuilder script = new StringBuilder("-- Indexes suggested by H2Echo plan analysis\n");
+        synchronized (advice) {
+            for (Map.Entry<String, String> entry : advice.entrySet()) {
+                script.append("\n-- Full table scan in: ").append(entry.getValue()).append('\n');
+                script.append(entry.getKey()).append('\n');
+            }
+        }
+
+        return script.toString();
+    }
+
+    /***
+     * @return Where the script will be written, or null if nowhere.
+     */
+    public static Path getAdviceFile() {
+        String path = System.getProperty(ADVICE_FILE_PROPERTY);
+        if (path != null && !path.isBlank()) {
+            return Paths.get(path);
+        }
+
+        return Files.isDirectory(Paths.get("target")) ? Paths.get("target", "h2echo-index-advice.sql") : null;
+    }
+
+    private static void writeQuietly() {
+        Path file = getAdviceFile();
+        if (file == null) {
+            return;
+        }
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, getScript(), StandardCharsets.UTF_8);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Unable to write H2Echo index advice: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.deepblue523.h2echo.plans;
+
+import com.deepblue523.h2echo.profiling.QueryProfiler;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Runs H2's EXPLAIN on the distinct queries a QueryProfiler saw, and flags full
+ * table scans on tables with more than minRows rows.
+ * <p>
+ * Each query is explained with the parameters of its first execution.  A table is
+ * fully scanned when the plan reads it with "tableScan", or walks an index without
+ * a lookup condition.  For each such scan, the columns the query filters that table
+ * on (equality first, then ranges) become a suggested MariaDB index:
+ * <p>
+ *    CREATE INDEX idx_nrm_phone_numbers_call_group_id ON nrm_phone_numbers (call_group_id);
+ * <p>
+ * Only SELECT, UPDATE and DELETE statements are explained.
+ */
+public class PlanAnalyzer {
+    public static final String MIN_ROWS_PROPERTY = "h2echo.plans.minRows";
+
+    // Scanning a table this small is as cheap as an index lookup, so it isn't flagged.
+    public static final long DEFAULT_MIN_ROWS = 100;
+
+    // Most columns to put in one suggested index.
+    private static final int MAX_INDEX_COLUMNS = 3;
+
+    // "PUBLIC"."T" ["ALIAS"] /* PUBLIC.T.tableScan */   or   /* PUBLIC.IX_NAME[: condition] */
+    private static final Pattern TABLE_ACCESS = Pattern.compile(
+            "\"([^\"]+)\"\\.\"([^\"]+)\"(?:\\s+\"([^\"]+)\")?\\s*/\\*\\s*([^:*]+?)\\s*(:[^*]*)?\\*/");
+
+    // ["QUALIFIER".]"COLUMN" followed by a comparison.
+    private static final Pattern FILTER_COLUMN = Pattern.compile(
+            "(?:\"([^\"]+)\"\\.)?\"([^\"]+)\"\\s*(=|IN\\s*\\(|>=|<=|<>|>|<|LIKE|BETWEEN)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long minRows;
+
+    /***
+     * @param jdbcTemplate The database the queries ran against.
+     * @param minRows Full scans of tables with this many rows or fewer are ignored.
+     */
+    public PlanAnalyzer(JdbcTemplate jdbcTemplate, long minRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minRows = minRows;
+    }
+
+    /***
+     * @param jdbcTemplate The database the queries ran against.
+     * @return An analyzer using the "h2echo.plans.minRows" system property (default
+     *         DEFAULT_MIN_ROWS).
+     */
+    public static PlanAnalyzer fromSystemProperties(JdbcTemplate jdbcTemplate) {
+        return new PlanAnalyzer(jdbcTemplate, Long.getLong(MIN_ROWS_PROPERTY, DEFAULT_MIN_ROWS));
+    }
+
+    /***
+     * Explain each distinct query in a set of executions.
+     *
+     * @param executions Executions from a QueryProfiler.
+     * @return The report.
+     */
+    public PlanReport analyze(Collection<QueryProfiler.Execution> executions) {
+        Map<String, QueryProfiler.Execution> firstByShape = new LinkedHashMap<>();
+        for (QueryProfiler.Execution execution : executions) {
+            firstByShape.putIfAbsent(execution.getNormalizedSql(), execution);
+        }
+
+        List<QueryPlan> plans = new ArrayList<>();
+        for (QueryProfiler.Execution execution : firstByShape.values()) {
+            if (!isExplainable(execution.getSql())) {
+                continue;
+            }
+
+            String plan;
+            try {
+                plan = explain(execution.getSql(), execution.getParameterValues());
+            } catch (DataAccessException e) {
+                continue;
+            }
+
+            plans.add(analyzePlan(execution.getNormalizedSql(), execution.getSql(), plan));
+        }
+
+        return new PlanReport(plans);
+    }
+
+    private static boolean isExplainable(String sql) {
+        String start = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return start.startsWith("SELECT") || start.startsWith("WITH")
+                || start.startsWith("UPDATE") || start.startsWith("DELETE");
+    }
+
+    /***
+     * Get H2's plan for a statement.
+     *
+     * @param sql The statement.
+     * @param parameters Values for its '?' parameters, in order.
+     * @return The plan text.
+     */
+    public String explain(String sql, List<Object> parameters) {
+        return jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = ps.getParameterMetaData().getParameterCount();
+                for (int i = 0; i < parameterCount; i++) {
+                    ps.setObject(i + 1, i < parameters.size() ? parameters.get(i) : null);
+                }
+
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    return resultSet.next() ? resultSet.getString(1) : "";
+                }
+            }
+        });
+    }
+
+    QueryPlan analyzePlan(String normalizedSql, String sql, String plan) {
+        QueryPlan queryPlan = new QueryPlan(normalizedSql, sql, plan, parseTableAccesses(plan));
+
+        for (QueryPlan.TableAccess access : queryPlan.getTableAccesses()) {
+            if (!access.isFullScan()) {
+                continue;
+            }
+
+            long rows = countRows(access);
+            if (rows <= minRows) {
+                continue;
+            }
+
+            List<String> columns = findFilterColumns(plan, access, queryPlan.getTableAccesses().size() == 1);
+            String ddl = columns.isEmpty() ? null : suggestIndex(access.getTable(), columns);
+            queryPlan.addFullScan(new QueryPlan.FullScan(access.getTable(), rows, columns, ddl));
+        }
+
+        return queryPlan;
+    }
+
+    /***
+     * Find how each table is read in a plan.
+     */
+    static List<QueryPlan.TableAccess> parseTableAccesses(String plan) {
+        List<QueryPlan.TableAccess> accesses = new ArrayList<>();
+        if (plan.contains("/* direct lookup */")) {
+            return accesses;
+        }
+
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            String schema = matcher.group(1);
+            String table = matcher.group(2);
+            String alias = matcher.group(3) != null ? matcher.group(3) : table;
+            String accessPath = matcher.group(4);
+            boolean hasCondition = matcher.group(5) != null;
+
+            if (accessPath.endsWith(".tableScan")) {
+                accesses.add(new QueryPlan.TableAccess(schema, table, alias, null, true));
+            } else {
+                String index = accessPath.substring(accessPath.lastIndexOf('.') + 1);
+                accesses.add(new QueryPlan.TableAccess(schema, table, alias, index, !hasCondition));
+            }
+        }
+
+        return accesses;
+    }
+
+    /***
+     * Find the columns of a table that the plan's WHERE/ON conditions filter on.
+     * Equality columns come first, then ranges.
+     */
+    static List<String> findFilterColumns(String plan, QueryPlan.TableAccess access, boolean singleTable) {
+        int whereIndex = plan.indexOf("\nWHERE ");
+        int onIndex = plan.indexOf(" ON ");
+        int start = whereIndex >= 0 ? whereIndex : onIndex;
+        if (onIndex >= 0 && onIndex < start) {
+            start = onIndex;
+        }
+        if (start < 0) {
+            return List.of();
+        }
+
+        Set<String> equalityColumns = new LinkedHashSet<>();
+        Set<String> rangeColumns = new LinkedHashSet<>();
+
+        Matcher matcher = FILTER_COLUMN.matcher(plan.substring(start));
+        while (matcher.find()) {
+            String qualifier = matcher.group(1);
+            boolean ours = qualifier == null ? singleTable : qualifier.equals(access.getAlias());
+            if (!ours) {
+                continue;
+            }
+
+            String operator = matcher.group(3);
+            if (operator.equals("=") || operator.startsWith("IN")) {
+                equalityColumns.add(matcher.group(2));
+            } else if (!operator.equals("<>")) {
+                rangeColumns.add(matcher.group(2));
+            }
+        }
+
+        List<String> columns = new ArrayList<>(equalityColumns);
+        for (String column : rangeColumns) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+
+        return columns.size() > MAX_INDEX_COLUMNS ? columns.subList(0, MAX_INDEX_COLUMNS) : columns;
+    }
+
+    /***
+     * Suggest a MariaDB index.  H2 reports unquoted names in upper case; MariaDB scripts
+     * normally use lower case, so that's what is suggested.
+     */
+    static String suggestIndex(String table, List<String> columns) {
+        String tableName = table.toLowerCase(Locale.ROOT);
+        List<String> columnNames = new ArrayList<>();
+        for (String column : columns) {
+            columnNames.add(column.toLowerCase(Locale.ROOT));
+        }
+
+        return "CREATE INDEX idx_" + tableName + "_" + String.join("_", columnNames)
+                + " ON " + tableName + " (" + String.join(", ", columnNames) + ");";
+    }
+
+    private long countRows(QueryPlan.TableAccess access) {
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"" + access.getSchema() + "\".\"" + access.getTable() + "\"", Long.class);
+        return rows == null ? 0 : rows;
+    }
+}
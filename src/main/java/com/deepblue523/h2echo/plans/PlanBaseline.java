@@ -0,0 +1,157 @@
+package com.deepblue523.h2echo.plans;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/***
+ * A stored record of how each query's tables were read, so that a plan that gets
+ * worse (a table that used to be read through an index is now fully scanned) can
+ * fail the test.
+ * <p>
+ * The file has one line per normalized query:
+ * <p>
+ *    NRM_PHONE_NUMBERS:PRIMARY_KEY_5&lt;TAB&gt;SELECT * FROM nrm_phone_numbers WHERE id = ?
+ * <p>
+ * Set "h2echo.plans.baseline" to the file to use.  Queries missing from the file are
+ * added, and the file is written when the JVM exits.  Set
+ * "h2echo.plans.updateBaseline=true" to accept the current plans instead of failing.
+ */
+public class PlanBaseline {
+    public static final String BASELINE_PROPERTY = "h2echo.plans.baseline";
+    public static final String UPDATE_BASELINE_PROPERTY = "h2echo.plans.updateBaseline";
+
+    private static volatile PlanBaseline configuredBaseline = null;
+
+    private final Path file;
+    private final boolean update;
+    private final Map<String, String> signaturesBySql = new TreeMap<>();
+    private final AtomicBoolean changed = new AtomicBoolean(false);
+
+    public PlanBaseline(Path file, boolean update) {
+        this.file = file;
+        this.update = update;
+        load();
+    }
+
+    /***
+     * @return The JVM-wide baseline from the system properties, or null if none is set.
+     *         It is saved when the JVM exits.
+     */
+    public static PlanBaseline fromSystemProperties() {
+        String path = System.getProperty(BASELINE_PROPERTY);
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+
+        synchronized (PlanBaseline.class) {
+            if (configuredBaseline == null || !configuredBaseline.file.equals(Paths.get(path))) {
+                PlanBaseline baseline = new PlanBaseline(Paths.get(path), Boolean.getBoolean(UPDATE_BASELINE_PROPERTY));
+                Runtime.getRuntime().addShutdownHook(new Thread(baseline::saveQuietly, "h2echo-plan-baseline"));
+                configuredBaseline = baseline;
+            }
+
+            return configuredBaseline;
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    signaturesBySql.put(line.substring(tab + 1), line.substring(0, tab));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Compare a report with the baseline.  New queries are added to the baseline;
+     * in update mode, changed ones are overwritten.
+     *
+     * @param report The report to check.
+     * @return One message per query whose plan got worse.  Empty if none did (or in update mode).
+     */
+    public synchronized List<String> check(PlanReport report) {
+        List<String> degradations = new ArrayList<>();
+
+        for (QueryPlan plan : report.getPlans()) {
+            String signature = plan.getSignature();
+            String baselineSignature = signaturesBySql.get(plan.getNormalizedSql());
+
+            if (baselineSignature == null || update) {
+                if (!signature.equals(baselineSignature)) {
+                    signaturesBySql.put(plan.getNormalizedSql(), signature);
+                    changed.set(true);
+                }
+                continue;
+            }
+
+            Map<String, String> baselineAccesses = new TreeMap<>();
+            for (String part : baselineSignature.split(",")) {
+                int colon = part.lastIndexOf(':');
+                if (colon > 0) {
+                    baselineAccesses.put(part.substring(0, colon), part.substring(colon + 1));
+                }
+            }
+
+            for (QueryPlan.TableAccess access : plan.getTableAccesses()) {
+                String baselineAccess = baselineAccesses.get(access.getTable());
+                if (access.isFullScan() && baselineAccess != null && !baselineAccess.equals("scan")) {
+                    degradations.add("Plan degraded for " + plan.getNormalizedSql()
+                            + "\n  baseline: " + baselineSignature + "\n  now:      " + signature);
+                    break;
+                }
+            }
+        }
+
+        return degradations;
+    }
+
+    /***
+     * Write the baseline if anything was added or changed.
+     */
+    public synchronized void save() {
+        if (!changed.get()) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : signaturesBySql.entrySet()) {
+            text.append(entry.getValue()).append('\t').append(entry.getKey()).append('\n');
+        }
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, text.toString(), StandardCharsets.UTF_8);
+            changed.set(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (RuntimeException e) {
+            System.err.println("Unable to write H2Echo plan baseline: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.deepblue523.h2echo.plans;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/***
+ * The plans for a set of distinct queries, with the full scans found in them.
+ */
+public class PlanReport {
+    private final List<QueryPlan> plans;
+
+    PlanReport(List<QueryPlan> plans) {
+        this.plans = plans;
+    }
+
+    public List<QueryPlan> getPlans() {
+        return plans;
+    }
+
+    /***
+     * @return The plans that include at least one flagged full scan.
+     */
+    public List<QueryPlan> getPlansWithFullScans() {
+        List<QueryPlan> withScans = new ArrayList<>();
+        for (QueryPlan plan : plans) {
+            if (!plan.getFullScans().isEmpty()) {
+                withScans.add(plan);
+            }
+        }
+
+        return withScans;
+    }
+
+    /***
+     * @return The distinct suggested index DDL statements.
+     */
+    public Set<String> getSuggestedIndexes() {
+        Set<String> ddl = new LinkedHashSet<>();
+        for (QueryPlan plan : plans) {
+            for (QueryPlan.FullScan scan : plan.getFullScans()) {
+                if (scan.getSuggestedIndexDdl() != null) {
+                    ddl.add(scan.getSuggestedIndexDdl());
+                }
+            }
+        }
+
+        return ddl;
+    }
+
+    /***
+     * @return The report as text.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(plans.size()).append(" queries explained, ")
+                .append(getPlansWithFullScans().size()).append(" with full table scans\n");
+
+        for (QueryPlan plan : getPlansWithFullScans()) {
+            for (QueryPlan.FullScan scan : plan.getFullScans()) {
+                text.append("  Full scan of ").append(scan.getTable()).append(" (").append(scan.getRows())
+                        .append(" rows) in: ").append(plan.getNormalizedSql()).append('\n');
+            }
+        }
+
+        for (String ddl : getSuggestedIndexes()) {
+            text.append("  Suggested: ").append(ddl).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
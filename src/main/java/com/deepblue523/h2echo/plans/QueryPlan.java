@@ -0,0 +1,100 @@
+package com.deepblue523.h2echo.plans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * H2's plan for one distinct query, and what it means.
+ */
+public class QueryPlan {
+
+    /***
+     * How one table is read in the plan.
+     */
+    public static class TableAccess {
+        private final String schema;
+        private final String table;
+        private final String alias;
+        private final String index;      // Null for a table scan.
+        private final boolean fullScan;
+
+        TableAccess(String schema, String table, String alias, String index, boolean fullScan) {
+            this.schema = schema;
+            this.table = table;
+            this.alias = alias;
+            this.index = index;
+            this.fullScan = fullScan;
+        }
+
+        public String getSchema() { return schema; }
+        public String getTable() { return table; }
+        public String getAlias() { return alias; }
+        public String getIndex() { return index; }
+        public boolean isFullScan() { return fullScan; }
+
+        // e.g. "NRM_CALL_GROUPS:scan" or "NRM_CALL_GROUPS:PRIMARY_KEY_5".
+        String signature() {
+            return table + ":" + (fullScan ? "scan" : index);
+        }
+    }
+
+    /***
+     * A full scan of a table big enough to matter, with a suggested index.
+     */
+    public static class FullScan {
+        private final String table;
+        private final long rows;
+        private final List<String> columns;
+        private final String suggestedIndexDdl;
+
+        FullScan(String table, long rows, List<String> columns, String suggestedIndexDdl) {
+            this.table = table;
+            this.rows = rows;
+            this.columns = columns;
+            this.suggestedIndexDdl = suggestedIndexDdl;
+        }
+
+        public String getTable() { return table; }
+        public long getRows() { return rows; }
+        public List<String> getColumns() { return columns; }
+
+        // Null if no filter columns could be found (e.g. an unfiltered SELECT).
+        public String getSuggestedIndexDdl() { return suggestedIndexDdl; }
+    }
+
+    private final String normalizedSql;
+    private final String sql;
+    private final String plan;
+    private final List<TableAccess> tableAccesses;
+    private final List<FullScan> fullScans = new ArrayList<>();
+
+    QueryPlan(String normalizedSql, String sql, String plan, List<TableAccess> tableAccesses) {
+        this.normalizedSql = normalizedSql;
+        this.sql = sql;
+        this.plan = plan;
+        this.tableAccesses = tableAccesses;
+    }
+
+    void addFullScan(FullScan fullScan) {
+        fullScans.add(fullScan);
+    }
+
+    public String getNormalizedSql() { return normalizedSql; }
+    public String getSql() { return sql; }
+    public String getPlan() { return plan; }
+    public List<TableAccess> getTableAccesses() { return tableAccesses; }
+    public List<FullScan> getFullScans() { return fullScans; }
+
+    /***
+     * @return How each table is read, e.g. "NRM_PHONE_NUMBERS:scan,NRM_CALL_GROUPS:PRIMARY_KEY_5".
+     *         Used for the plan baseline.
+     */
+    public String getSignature() {
+        List<String> parts = new ArrayList<>();
+        for (TableAccess access : tableAccesses) {
+            parts.add(access.signature());
+        }
+
+        return String.join(",", parts);
+    }
+}
@@ -0,0 +1,252 @@
+package com.deepblue523.h2echo.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***
+ * A DataSource that times and counts every statement run through it, for the
+ * QueryProfiler it is tied to.
+ * <p>
+ * Connections, statements and result sets are wrapped in JDK proxies.  What is
+ * recorded per execution:
+ * <p>
+ *    - The SQL (and its normalized shape).
+ *    - The bound parameters, for prepared statements.
+ *    - The time spent in execute()/executeQuery()/executeUpdate()/executeBatch().
+ *    - Rows: the update count, or the rows read from the result set.
+ * <p>
+ * Only the DAOs' data source is wrapped.  Migrations run on the plain data source,
+ * so they never show up in a profile.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+    private final QueryProfiler profiler;
+
+    public ProfilingDataSource(DataSource targetDataSource, QueryProfiler profiler) {
+        super(targetDataSource);
+        this.profiler = profiler;
+    }
+
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                ProfilingDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ---[ Connection ]---
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingDataSource.invoke(connection, method, args);
+
+            switch (method.getName()) {
+                case "createStatement":
+                    return wrapStatement(Statement.class, (Statement) result, null);
+                case "prepareStatement":
+                    return wrapStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall":
+                    return wrapStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrapStatement(Class<?> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(
+                    ProfilingDataSource.class.getClassLoader(),
+                    new Class<?>[] { type },
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    // ---[ Statement / PreparedStatement / CallableStatement ]---
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private final List<String> batchSql = new ArrayList<>();
+        private int preparedBatchSize = 0;
+        private QueryProfiler.Execution lastQuery = null;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            // Bound parameters, for prepared statements.
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return ProfilingDataSource.invoke(statement, method, args);
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    parameters.clear();
+                    return ProfilingDataSource.invoke(statement, method, args);
+
+                case "addBatch":
+                    if (args != null && args.length == 1) {
+                        batchSql.add((String) args[0]);
+                    } else {
+                        preparedBatchSize++;
+                    }
+                    return ProfilingDataSource.invoke(statement, method, args);
+
+                case "clearBatch":
+                    batchSql.clear();
+                    preparedBatchSize = 0;
+                    return ProfilingDataSource.invoke(statement, method, args);
+
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    return execute(method, args);
+
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return executeBatch(method, args);
+
+                case "getResultSet":
+                    return wrapResultSet(ProfilingDataSource.invoke(statement, method, args), lastQuery);
+
+                default:
+                    return ProfilingDataSource.invoke(statement, method, args);
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            boolean prepared = args == null || args.length == 0;
+            String sql = prepared ? preparedSql : (String) args[0];
+            List<Object> parameterValues = prepared ? new ArrayList<>(parameters.values()) : List.of();
+
+            long startNanos = System.nanoTime();
+            Object result = ProfilingDataSource.invoke(statement, method, args);
+            long nanos = System.nanoTime() - startNanos;
+
+            long rows = result instanceof Number ? ((Number) result).longValue() : 0;
+            QueryProfiler.Execution execution = profiler.record(
+                    sql, parameterValues, parameterValues.toString(), nanos, rows);
+            lastQuery = execution;
+
+            return result instanceof ResultSet ? wrapResultSet(result, execution) : result;
+        }
+
+        private Object executeBatch(Method method, Object[] args) throws Throwable {
+            long startNanos = System.nanoTime();
+            Object result = ProfilingDataSource.invoke(statement, method, args);
+            long nanos = System.nanoTime() - startNanos;
+
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            }
+
+            // The batch is timed as a whole, so split the time evenly.  Each entry is
+            // recorded, so it counts as a statement against a query budget.
+            if (preparedSql != null) {
+                int entries = Math.max(1, preparedBatchSize);
+                for (int i = 0; i < entries; i++) {
+                    profiler.record(preparedSql, List.of(), "batch of " + preparedBatchSize,
+                            nanos / entries, rows / entries);
+                }
+            } else {
+                for (String sql : batchSql) {
+                    profiler.record(sql, List.of(), "",
+                            nanos / Math.max(1, batchSql.size()), rows / Math.max(1, batchSql.size()));
+                }
+            }
+
+            batchSql.clear();
+            preparedBatchSize = 0;
+
+            return result;
+        }
+
+        private Object wrapResultSet(Object resultSet, QueryProfiler.Execution execution) {
+            if (!(resultSet instanceof ResultSet) || execution == null) {
+                return resultSet;
+            }
+
+            return Proxy.newProxyInstance(
+                    ProfilingDataSource.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    new ResultSetHandler((ResultSet) resultSet, execution));
+        }
+    }
+
+    // ---[ ResultSet: count rows as they are read ]---
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final QueryProfiler.Execution execution;
+
+        ResultSetHandler(ResultSet resultSet, QueryProfiler.Execution execution) {
+            this.resultSet = resultSet;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingDataSource.invoke(resultSet, method, args);
+
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                execution.addRow();
+            }
+
+            return result;
+        }
+    }
+}
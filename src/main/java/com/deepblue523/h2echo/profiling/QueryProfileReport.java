@@ -0,0 +1,122 @@
+package com.deepblue523.h2echo.profiling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/***
+ * The statements a QueryProfiler saw, grouped by normalized SQL.
+ * <p>
+ * A query shape that ran at least nPlusOneThreshold times with as many different
+ * parameter sets is reported as a likely N+1: code fetching rows one at a time in a
+ * loop where one query would do.
+ */
+public class QueryProfileReport {
+
+    /***
+     * Totals for one normalized query.
+     */
+    public static class QueryShape {
+        private final String normalizedSql;
+        private int count;
+        private long totalNanos;
+        private long maxNanos;
+        private long rows;
+        private final Set<String> distinctParameters = new HashSet<>();
+
+        QueryShape(String normalizedSql) {
+            this.normalizedSql = normalizedSql;
+        }
+
+        void add(QueryProfiler.Execution execution) {
+            count++;
+            totalNanos += execution.getNanos();
+            maxNanos = Math.max(maxNanos, execution.getNanos());
+            rows += execution.getRows();
+            distinctParameters.add(execution.getParameters() + "|" + execution.getSql());
+        }
+
+        public String getNormalizedSql() { return normalizedSql; }
+        public int getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getRows() { return rows; }
+        public int getDistinctParameterSets() { return distinctParameters.size(); }
+    }
+
+    private final List<QueryProfiler.Execution> executions;
+    private final List<QueryShape> shapes;
+    private final List<QueryShape> nPlusOneSuspects = new ArrayList<>();
+
+    QueryProfileReport(List<QueryProfiler.Execution> executions, int nPlusOneThreshold) {
+        this.executions = executions;
+
+        Map<String, QueryShape> shapesBySql = new LinkedHashMap<>();
+        for (QueryProfiler.Execution execution : executions) {
+            shapesBySql.computeIfAbsent(execution.getNormalizedSql(), QueryShape::new).add(execution);
+        }
+
+        shapes = new ArrayList<>(shapesBySql.values());
+        shapes.sort(Comparator.comparingLong(QueryShape::getTotalNanos).reversed());
+
+        for (QueryShape shape : shapes) {
+            if (shape.getCount() >= nPlusOneThreshold && shape.getDistinctParameterSets() >= nPlusOneThreshold) {
+                nPlusOneSuspects.add(shape);
+            }
+        }
+    }
+
+    public List<QueryProfiler.Execution> getExecutions() { return executions; }
+
+    // Slowest (by total time) first.
+    public List<QueryShape> getShapes() { return shapes; }
+
+    public List<QueryShape> getNPlusOneSuspects() { return nPlusOneSuspects; }
+
+    public int getTotalStatements() {
+        return executions.size();
+    }
+
+    public long getTotalNanos() {
+        return executions.stream().mapToLong(QueryProfiler.Execution::getNanos).sum();
+    }
+
+    public long getTotalRows() {
+        return executions.stream().mapToLong(QueryProfiler.Execution::getRows).sum();
+    }
+
+    /***
+     * @return The report as text, one line per query shape.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%d statements, %d distinct, %.2f ms, %d rows%n",
+                getTotalStatements(), shapes.size(), getTotalNanos() / 1_000_000.0, getTotalRows()));
+
+        for (QueryShape shape : shapes) {
+            text.append(String.format(Locale.ROOT, "  %5d x  %9.2f ms  %7d rows  %s%n",
+                    shape.getCount(), shape.getTotalNanos() / 1_000_000.0, shape.getRows(), abbreviate(shape.getNormalizedSql())));
+        }
+
+        for (QueryShape suspect : nPlusOneSuspects) {
+            text.append(String.format(Locale.ROOT, "  Possible N+1: %d executions with %d parameter sets: %s%n",
+                    suspect.getCount(), suspect.getDistinctParameterSets(), abbreviate(suspect.getNormalizedSql())));
+        }
+
+        return text.toString();
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() > 120 ? sql.substring(0, 117) + "..." : sql;
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
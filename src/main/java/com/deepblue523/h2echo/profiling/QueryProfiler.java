@@ -0,0 +1,92 @@
+package com.deepblue523.h2echo.profiling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Collects every statement run through a ProfilingDataSource.
+ * <p>
+ * There is one profiler per object that DAOs were injected into.  JUnit creates a
+ * new test instance per test method, so in practice that is one profiler per test
+ * method.  The H2Echo JUnit extension also resets it before each test, which covers
+ * per-class test lifecycles.
+ */
+public class QueryProfiler {
+    // Same query shape this many times, with different parameters, is a likely N+1.
+    public static final int DEFAULT_N_PLUS_ONE_THRESHOLD = 5;
+
+    /***
+     * One statement execution.
+     */
+    public static class Execution {
+        private final String sql;
+        private final String normalizedSql;
+        private final List<Object> parameterValues;
+        private final String parameters;
+        private final long nanos;
+        private volatile long rows;
+
+        Execution(String sql, List<Object> parameterValues, String parameters, long nanos, long rows) {
+            this.sql = sql;
+            this.normalizedSql = SqlNormalizer.normalize(sql);
+            this.parameterValues = parameterValues;
+            this.parameters = parameters;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+
+        public String getSql() { return sql; }
+        public String getNormalizedSql() { return normalizedSql; }
+        public List<Object> getParameterValues() { return parameterValues; }
+        public String getParameters() { return parameters; }
+        public long getNanos() { return nanos; }
+        public long getRows() { return rows; }
+
+        // Rows read from a result set are counted as they are fetched.
+        void addRow() {
+            rows++;
+        }
+    }
+
+    private final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+    private final int nPlusOneThreshold;
+
+    public QueryProfiler() {
+        this(DEFAULT_N_PLUS_ONE_THRESHOLD);
+    }
+
+    public QueryProfiler(int nPlusOneThreshold) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    Execution record(String sql, List<Object> parameterValues, String parameters, long nanos, long rows) {
+        Execution execution = new Execution(sql, parameterValues, parameters, nanos, rows);
+        executions.add(execution);
+
+        return execution;
+    }
+
+    /***
+     * Forget everything recorded so far.
+     */
+    public void reset() {
+        executions.clear();
+    }
+
+    /***
+     * @return A copy of the executions so far, in order.
+     */
+    public List<Execution> getExecutions() {
+        synchronized (executions) {
+            return new ArrayList<>(executions);
+        }
+    }
+
+    /***
+     * @return A report of everything recorded so far.
+     */
+    public QueryProfileReport getReport() {
+        return new QueryProfileReport(getExecutions(), nPlusOneThreshold);
+    }
+}
@@ -0,0 +1,38 @@
+package com.deepblue523.h2echo.profiling;
+
+import java.util.regex.Pattern;
+
+/***
+ * Reduces SQL to its "shape", so that the same query with different literal values
+ * is grouped together.
+ * <p>
+ *    SELECT * FROM t WHERE id = 42 AND name = 'x'   ->   SELECT * FROM t WHERE id = ? AND name = ?
+ * <p>
+ * String and numeric literals become '?', IN lists collapse to "IN (?)", and runs of
+ * whitespace collapse to a single space.
+ */
+public class SqlNormalizer {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![A-Za-z0-9_\\.])-?\\d+(?:\\.\\d+)?(?![A-Za-z0-9_])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlNormalizer() { }
+
+    /***
+     * @param sql The SQL as executed.
+     * @return Its normalized shape.
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMERIC_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (?)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+
+        return normalized.trim();
+    }
+}
@@ -0,0 +1,113 @@
+package com.deepblue523.h2echo.replay;
+
+import java.util.Arrays;
+
+/***
+ * A latency histogram in the style of HdrHistogram: fixed memory, constant-time
+ * recording and a bounded relative error, whatever the range of values.
+ * <p>
+ * Values below 128 get a bucket each.  Above that, every power of two is split
+ * into 64 equal buckets, so a value is placed to within 1/64 (about 1.6%) of
+ * itself.  That covers the whole long range (nanoseconds to centuries) in 3,712
+ * buckets, about 29 KB.
+ * <p>
+ * Not thread-safe: record into one histogram per thread and add() them together.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;     // 128
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2; // 64
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    /***
+     * @param value A latency (any unit, usually nanoseconds); negative values count as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[indexOf(v)]++;
+        totalCount++;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+        sum += v;
+    }
+
+    /***
+     * Add another histogram's values to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+    }
+
+    public long getCount() { return totalCount; }
+    public long getMin() { return totalCount > 0 ? min : 0; }
+    public long getMax() { return max; }
+    public double getMean() { return totalCount > 0 ? sum / totalCount : 0; }
+
+    /***
+     * @param percentile 0 to 100.
+     * @return The value at or below which the given percentage of recorded values
+     * fall (the top of its bucket, capped at the largest value recorded).
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        double clamped = Math.min(100, Math.max(0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(clamped / 100 * totalCount));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        sum = 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (msb - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / HALF_SUB_BUCKET_COUNT + 1;
+        long lowest = (long) (offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
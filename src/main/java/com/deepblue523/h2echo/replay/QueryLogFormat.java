@@ -0,0 +1,15 @@
+package com.deepblue523.h2echo.replay;
+
+/***
+ * The kinds of query log QueryReplayer reads.
+ */
+public enum QueryLogFormat {
+    // A MariaDB/MySQL general query log (general_log_file); Query and Execute entries are replayed.
+    GENERAL_LOG,
+
+    // One SQL statement per line; blank lines and "--" or "#" comments are skipped.
+    SQL_PER_LINE,
+
+    // Decide from the first lines of the file.
+    AUTO
+}
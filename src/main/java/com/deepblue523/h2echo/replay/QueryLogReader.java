@@ -0,0 +1,155 @@
+package com.deepblue523.h2echo.replay;
+
+import com.deepblue523.h2echo.dump.MySqlDumpImporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Reads the statements to replay out of a query log, one at a time, so a log of any
+ * size can be replayed without holding it in memory.
+ * <p>
+ * General log entries look like this (MariaDB prints the time only when it changes,
+ * MySQL prints an ISO timestamp on every line):
+ * <p>
+ *    240101 10:00:00     12 Connect   app@10.0.0.5 on nrm
+ *                        12 Query     SELECT * FROM nrm_phone_numbers
+ *                                     WHERE id = 42
+ * <p>
+ * Lines that aren't an entry or a header continue the previous entry's SQL.
+ * Statements that only make sense on the original server or session (SET, USE,
+ * SHOW, transaction control, ...) are skipped and counted.  Back-quoted identifiers
+ * are turned into H2 ones.
+ */
+class QueryLogReader {
+    private static final Pattern GENERAL_LOG_ENTRY =
+            Pattern.compile("^[^\\t]*\\t+\\s*(\\d+)\\s+([A-Za-z][A-Za-z ]*)\\t(.*)$");
+
+    private static final Pattern GENERAL_LOG_HEADER =
+            Pattern.compile("^(?:\\S.*, Version: .*|Tcp port: .*|Time\\s+Id\\s+Command\\s+Argument.*)$");
+
+    private static final Pattern SESSION_STATEMENT = Pattern.compile(
+            "(?is)^(?:(?:SET|USE|SHOW|BEGIN|START\\s+TRANSACTION|COMMIT|ROLLBACK|SAVEPOINT|RELEASE|FLUSH|KILL|DO)\\b"
+                    + "|SELECT\\s+(?:@@|DATABASE\\s*\\(|VERSION\\s*\\(|CONNECTION_ID\\s*\\()|/\\*!).*");
+
+    // How many lines AUTO looks at to recognize a general log.
+    private static final int DETECT_LINES = 20;
+
+    private final BufferedReader reader;
+    private final QueryLogFormat format;
+    private String pendingLine;
+    private long skipped;
+
+    QueryLogReader(Reader reader, QueryLogFormat format) throws IOException {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.format = format == QueryLogFormat.AUTO ? detect(this.reader) : format;
+    }
+
+    QueryLogFormat getFormat() { return format; }
+
+    /***
+     * @return How many statements or log entries were left out.
+     */
+    long getSkipped() { return skipped; }
+
+    /***
+     * @return The next statement to replay, or null at the end of the log.
+     */
+    String next() throws IOException {
+        while (true) {
+            String sql = format == QueryLogFormat.GENERAL_LOG ? nextGeneralLogStatement() : nextLine();
+            if (sql == null) {
+                return null;
+            }
+
+            sql = trimStatement(sql);
+            if (sql.isEmpty()) {
+                continue;
+            }
+
+            if (SESSION_STATEMENT.matcher(sql).matches()) {
+                skipped++;
+                continue;
+            }
+
+            return MySqlDumpImporter.toH2Identifiers(sql);
+        }
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("--") && !trimmed.startsWith("#")) {
+                return trimmed;
+            }
+        }
+
+        return null;
+    }
+
+    private String nextGeneralLogStatement() throws IOException {
+        while (true) {
+            String line = pendingLine != null ? pendingLine : reader.readLine();
+            pendingLine = null;
+            if (line == null) {
+                return null;
+            }
+
+            Matcher entry = GENERAL_LOG_ENTRY.matcher(line);
+            if (!entry.matches()) {
+                continue; // Headers, or the tail of an entry that isn't replayed.
+            }
+
+            String command = entry.group(2).trim();
+            if (!command.equalsIgnoreCase("Query") && !command.equalsIgnoreCase("Execute")) {
+                skipped++;
+                continue;
+            }
+
+            // Gather continuation lines up to the next entry or header.
+            StringBuilder sql = new StringBuilder(entry.group(3));
+            String next;
+            while ((next = reader.readLine()) != null) {
+                if (GENERAL_LOG_ENTRY.matcher(next).matches() || GENERAL_LOG_HEADER.matcher(next).matches()) {
+                    pendingLine = next;
+                    break;
+                }
+                sql.append('\n').append(next);
+            }
+
+            return sql.toString();
+        }
+    }
+
+    private static String trimStatement(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+
+        return trimmed;
+    }
+
+    private static QueryLogFormat detect(BufferedReader reader) throws IOException {
+        reader.mark(1 << 20);
+        try {
+            for (int i = 0; i < DETECT_LINES; i++) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (GENERAL_LOG_HEADER.matcher(line).matches() || GENERAL_LOG_ENTRY.matcher(line).matches()) {
+                    return QueryLogFormat.GENERAL_LOG;
+                }
+            }
+        } finally {
+            reader.reset();
+        }
+
+        return QueryLogFormat.SQL_PER_LINE;
+    }
+}
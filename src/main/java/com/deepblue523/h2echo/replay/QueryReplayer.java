@@ -0,0 +1,200 @@
+package com.deepblue523.h2echo.replay;
+
+import com.deepblue523.h2echo.profiling.SqlNormalizer;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Replays a captured query log against an echoed schema, to load-test schema and
+ * index changes locally before they ship:
+ * <p>
+ *    QueryReplayer replayer = new QueryReplayer(H2Echo.createEchoDataSource());
+ *    replayer.setConcurrency(32);
+ *    ReplayReport report = replayer.replay(Paths.get("general.log"), QueryLogFormat.AUTO, true);
+ * <p>
+ * The log is streamed (see QueryLogReader for the formats) into a bounded queue,
+ * and each of `concurrency` workers takes statements from it and runs them on its
+ * own connection, in autocommit.  Statement order across workers is not kept; each
+ * statement stands alone.  A statement that fails is counted against its shape and
+ * the replay goes on.
+ * <p>
+ * Workers run on virtual threads when the JVM has them (Java 21+) and on a fixed
+ * pool of platform threads otherwise.  Either way each worker records latencies
+ * per normalized query shape (see SqlNormalizer) into its own histograms, which are
+ * merged at the end, so recording never contends.
+ */
+public class QueryReplayer {
+    // Statements buffered between the reader and the workers, per worker.
+    private static final int QUEUE_PER_WORKER = 256;
+
+    // Compared by identity, so no statement in a log can be mistaken for it.
+    private static final String END_OF_LOG = new String("(end of log)");
+
+    private final DataSource dataSource;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads = true;
+
+    public QueryReplayer(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /***
+     * @param concurrency How many statements run at once (one connection each).
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    /***
+     * @param virtualThreads Use virtual threads if the JVM has them (the default).
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /***
+     * Replay a log file.
+     *
+     * @param logFile The general log or SQL-per-line trace.
+     * @param format Its format, or AUTO.
+     * @param displayLog Print the report when done.
+     * @return The report.
+     */
+    public ReplayReport replay(Path logFile, QueryLogFormat format, boolean displayLog) {
+        try (Reader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            return replay(reader, format, displayLog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + logFile, e);
+        }
+    }
+
+    /***
+     * Replay a log read from any Reader.
+     */
+    public ReplayReport replay(Reader log, QueryLogFormat format, boolean displayLog) throws IOException {
+        QueryLogReader logReader = new QueryLogReader(log, format);
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(concurrency * QUEUE_PER_WORKER);
+        ExecutorService executor = virtualThreads ? WorkerThreads.newVirtualExecutor() : null;
+        boolean usingVirtualThreads = executor != null;
+        if (executor == null) {
+            executor = WorkerThreads.newPlatformExecutor(concurrency, "h2echo-replay-");
+        }
+
+        ChromeTrace.Span span = ChromeTrace.begin("replay", "replay");
+        long start = System.nanoTime();
+
+        List<Future<Map<String, ReplayReport.ShapeStats>>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> runWorker(queue)));
+            }
+
+            String sql;
+            while ((sql = logReader.next()) != null) {
+                enqueue(queue, sql, workers);
+            }
+            for (int i = 0; i < concurrency; i++) {
+                enqueue(queue, END_OF_LOG, workers);
+            }
+
+            Map<String, ReplayReport.ShapeStats> shapes = new LinkedHashMap<>();
+            for (Future<Map<String, ReplayReport.ShapeStats>> worker : workers) {
+                for (ReplayReport.ShapeStats stats : worker.get().values()) {
+                    shapes.computeIfAbsent(stats.getNormalizedSql(), ReplayReport.ShapeStats::new).add(stats);
+                }
+            }
+
+            ReplayReport report = new ReplayReport(new ArrayList<>(shapes.values()), concurrency, usingVirtualThreads,
+                    logReader.getSkipped(), System.nanoTime() - start);
+            span.arg("statements", report.getTotalStatements()).arg("concurrency", concurrency);
+
+            if (displayLog) {
+                System.out.print(report.format());
+            }
+
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A replay worker failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            span.end();
+            executor.shutdownNow();
+        }
+    }
+
+    /***
+     * Wait for room in the queue, unless a worker has stopped early (it couldn't get
+     * a connection, say), in which case the queue would never drain.
+     */
+    private static void enqueue(BlockingQueue<String> queue, String sql,
+                                List<Future<Map<String, ReplayReport.ShapeStats>>> workers)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(sql, 50, TimeUnit.MILLISECONDS)) {
+            for (Future<Map<String, ReplayReport.ShapeStats>> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("A replay worker stopped before the end of the log");
+                }
+            }
+        }
+    }
+
+    private Map<String, ReplayReport.ShapeStats> runWorker(BlockingQueue<String> queue)
+            throws SQLException, InterruptedException {
+        Map<String, ReplayReport.ShapeStats> shapes = new HashMap<>();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+
+            String sql;
+            while ((sql = queue.take()) != END_OF_LOG) {
+                ReplayReport.ShapeStats stats = shapes.computeIfAbsent(SqlNormalizer.normalize(sql),
+                        ReplayReport.ShapeStats::new);
+
+                long begin = System.nanoTime();
+                try {
+                    if (statement.execute(sql)) {
+                        try (ResultSet rs = statement.getResultSet()) {
+                            while (rs.next()) {
+                                // Reading the rows is part of the latency.
+                            }
+                        }
+                    }
+                    stats.latencyHistogram().record(System.nanoTime() - begin);
+                } catch (SQLException e) {
+                    stats.recordError(e.getMessage() != null ? e.getMessage().split("\n", 2)[0] : e.toString());
+                }
+            }
+        }
+
+        return shapes;
+    }
+}
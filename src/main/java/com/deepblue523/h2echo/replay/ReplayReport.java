@@ -0,0 +1,144 @@
+package com.deepblue523.h2echo.replay;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The outcome of one QueryReplayer run: throughput, and for each normalized query
+ * shape its count, errors and latency percentiles.
+ * <p>
+ * Latencies are in nanoseconds, measured around execute() plus reading every row
+ * of the result.
+ */
+public class ReplayReport {
+
+    /***
+     * Everything recorded for one query shape.
+     */
+    public static class ShapeStats {
+        private final String normalizedSql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long errors;
+        private String firstError;
+
+        ShapeStats(String normalizedSql) {
+            this.normalizedSql = normalizedSql;
+        }
+
+        void recordError(String message) {
+            errors++;
+            if (firstError == null) {
+                firstError = message;
+            }
+        }
+
+        void add(ShapeStats other) {
+            latency.add(other.latency);
+            errors += other.errors;
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+
+        LatencyHistogram latencyHistogram() { return latency; }
+
+        public String getNormalizedSql() { return normalizedSql; }
+        public long getCount() { return latency.getCount() + errors; }
+        public long getErrors() { return errors; }
+        public String getFirstError() { return firstError; }
+        public LatencyHistogram getLatency() { return latency; }
+        public long getTotalNanos() { return Math.round(latency.getMean() * latency.getCount()); }
+    }
+
+    private final List<ShapeStats> shapes;
+    private final LatencyHistogram overall = new LatencyHistogram();
+    private final int concurrency;
+    private final boolean virtualThreads;
+    private final long skipped;
+    private final long wallNanos;
+
+    ReplayReport(List<ShapeStats> shapes, int concurrency, boolean virtualThreads, long skipped, long wallNanos) {
+        this.shapes = new ArrayList<>(shapes);
+        this.shapes.sort(Comparator.comparingLong(ShapeStats::getTotalNanos).reversed());
+        this.concurrency = concurrency;
+        this.virtualThreads = virtualThreads;
+        this.skipped = skipped;
+        this.wallNanos = wallNanos;
+
+        for (ShapeStats shape : shapes) {
+            overall.add(shape.latency);
+        }
+    }
+
+    /***
+     * @return The query shapes, the most total time first.
+     */
+    public List<ShapeStats> getShapes() { return new ArrayList<>(shapes); }
+    public LatencyHistogram getLatency() { return overall; }
+    public int getConcurrency() { return concurrency; }
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public long getSkipped() { return skipped; }
+    public long getWallNanos() { return wallNanos; }
+
+    public long getTotalStatements() {
+        return shapes.stream().mapToLong(ShapeStats::getCount).sum();
+    }
+
+    public long getTotalErrors() {
+        return shapes.stream().mapToLong(ShapeStats::getErrors).sum();
+    }
+
+    /***
+     * @return Statements replayed per second of wall time (errors included).
+     */
+    public double getStatementsPerSecond() {
+        return wallNanos > 0 ? getTotalStatements() / (wallNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+    }
+
+    /***
+     * @return A multi-line summary: throughput, then one line per shape with the
+     * latency percentiles in microseconds.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "Replayed %,d statement(s) in %.1f ms (%,.0f/s, concurrency %d on %s threads), %,d error(s), %,d skipped%n",
+                getTotalStatements(), toMillis(wallNanos), getStatementsPerSecond(), concurrency,
+                virtualThreads ? "virtual" : "platform", getTotalErrors(), skipped));
+        sb.append(String.format(Locale.ROOT, "  %10s %10s %10s %10s %10s %10s %8s  %s%n",
+                "count", "ops/s", "p50 us", "p90 us", "p99 us", "max us", "errors", "query"));
+        appendLine(sb, getTotalStatements(), overall, getTotalErrors(), "(all)");
+
+        for (ShapeStats shape : shapes) {
+            appendLine(sb, shape.getCount(), shape.latency, shape.errors, shape.normalizedSql);
+            if (shape.firstError != null) {
+                sb.append("             first error: ").append(shape.firstError).append(System.lineSeparator());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private void appendLine(StringBuilder sb, long count, LatencyHistogram latency, long errors, String label) {
+        double opsPerSecond = wallNanos > 0 ? count / (wallNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+        sb.append(String.format(Locale.ROOT, "  %,10d %,10.0f %,10.1f %,10.1f %,10.1f %,10.1f %,8d  %s%n",
+                count, opsPerSecond, toMicros(latency.getValueAtPercentile(50)), toMicros(latency.getValueAtPercentile(90)),
+                toMicros(latency.getValueAtPercentile(99)), toMicros(latency.getMax()), errors, label));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
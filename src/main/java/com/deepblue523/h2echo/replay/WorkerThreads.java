@@ -0,0 +1,41 @@
+package com.deepblue523.h2echo.replay;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Executors for load-generating workers.  H2Echo is built for Java 17, so virtual
+ * threads (Java 21+) are looked up by reflection and used when they are there.
+ */
+public class WorkerThreads {
+    private WorkerThreads() { }
+
+    /***
+     * @return A virtual-thread-per-task executor, or null if the JVM doesn't have
+     * virtual threads.
+     */
+    public static ExecutorService newVirtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /***
+     * @param threads The pool size.
+     * @param namePrefix Thread names are this plus a number.
+     * @return A fixed pool of daemon platform threads.
+     */
+    public static ExecutorService newPlatformExecutor(int threads, String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
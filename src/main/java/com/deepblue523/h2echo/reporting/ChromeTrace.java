@@ -0,0 +1,283 @@
+package com.deepblue523.h2echo.reporting;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Optional timeline of everything H2Echo does, written in the Chrome trace-event
+ * JSON format.  The file can be loaded into Perfetto (ui.perfetto.dev) or
+ * chrome://tracing to see scripts, translation, statement batches and DAO injection
+ * per thread, nested by time.
+ * <p>
+ * Tracing is off unless either:
+ * <p>
+ *    - The system property "h2echo.trace.file" is set to an output path, or
+ *    - enable(Path) is called.
+ * <p>
+ * The path may contain "{pid}", which is replaced by the process id so that forked
+ * test JVMs don't overwrite each other.  The file is written when the JVM exits,
+ * or whenever write() is called.
+ * <p>
+ * When tracing is off, begin() hands back a shared no-op span, so the instrumented
+ * code doesn't allocate anything.
+ * <p>
+ * Spans are held in memory until the JVM exits, so they are capped: after
+ * "h2echo.trace.maxEvents" spans (default 200,000) new ones are dropped and counted
+ * in the file's "otherData".  Text arguments (such as a statement's SQL) are cut to
+ * MAX_ARG_LENGTH characters.
+ */
+public class ChromeTrace {
+    public static final String TRACE_FILE_PROPERTY = "h2echo.trace.file";
+    public static final String MAX_EVENTS_PROPERTY = "h2echo.trace.maxEvents";
+
+    // Longest text argument kept; longer ones are cut and end in "...".
+    public static final int MAX_ARG_LENGTH = 500;
+
+    /***
+     * One timed section of work on one thread.
+     */
+    public static class Span {
+        private final String name;
+        private final String category;
+        private final long startNanos;
+        private final long threadId;
+        private Map<String, Object> args;
+
+        private Span(String name, String category, long startNanos, long threadId) {
+            this.name = name;
+            this.category = category;
+            this.startNanos = startNanos;
+            this.threadId = threadId;
+        }
+
+        /***
+         * @return True if this span will actually be written.  Use it to avoid
+         *         computing expensive argument values for nothing.
+         */
+        public boolean isRecording() {
+            return this != NOOP_SPAN;
+        }
+
+        /***
+         * Attach an argument, shown in the trace viewer's details pane.
+         */
+        public Span arg(String key, Object value) {
+            if (isRecording()) {
+                if (args == null) {
+                    args = new LinkedHashMap<>();
+                }
+
+                if (value instanceof String && ((String) value).length() > MAX_ARG_LENGTH) {
+                    value = ((String) value).substring(0, MAX_ARG_LENGTH - 3) + "...";
+                }
+                args.put(key, value);
+            }
+
+            return this;
+        }
+
+        /***
+         * End the span and queue it for writing.
+         */
+        public void end() {
+            if (isRecording()) {
+                if (eventCount.incrementAndGet() <= maxEvents) {
+                    events.add(new CompletedSpan(this, System.nanoTime()));
+                } else {
+                    eventCount.decrementAndGet();
+                    droppedEvents.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class CompletedSpan {
+        final Span span;
+        final long endNanos;
+
+        CompletedSpan(Span span, long endNanos) {
+            this.span = span;
+            this.endNanos = endNanos;
+        }
+    }
+
+    private static final Span NOOP_SPAN = new Span("", "", 0, 0);
+
+    private static final Queue<CompletedSpan> events = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger eventCount = new AtomicInteger();
+    private static final AtomicLong droppedEvents = new AtomicLong();
+    private static final int maxEvents = Integer.getInteger(MAX_EVENTS_PROPERTY, 200_000);
+    private static final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+    private static final AtomicBoolean shutdownHookRegistered = new AtomicBoolean(false);
+    private static final long originNanos = System.nanoTime();
+    private static volatile Path traceFile = null;
+
+    static {
+        String tracePath = System.getProperty(TRACE_FILE_PROPERTY);
+        if (tracePath != null && !tracePath.isBlank()) {
+            enable(Paths.get(tracePath));
+        }
+    }
+
+    private ChromeTrace() { }
+
+    /***
+     * Turn tracing on.  The trace is written to the path when the JVM exits.
+     *
+     * @param path The output file.  "{pid}" is replaced by the process id.
+     */
+    public static void enable(Path path) {
+        String pathString = path.toString().replace("{pid}", Long.toString(ProcessHandle.current().pid()));
+        traceFile = Paths.get(pathString);
+
+        if (shutdownHookRegistered.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ChromeTrace::writeQuietly, "h2echo-chrome-trace"));
+        }
+    }
+
+    /***
+     * Turn tracing off.  Anything already recorded is kept until written.
+     */
+    public static void disable() {
+        traceFile = null;
+    }
+
+    public static boolean isEnabled() {
+        return traceFile != null;
+    }
+
+    /***
+     * @return How many spans were dropped because the cap was reached.
+     */
+    public static long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /***
+     * Start a span on the current thread.
+     *
+     * @param category The kind of work, e.g. "migration", "injection".
+     * @param name What is being done, e.g. the script name.
+     * @return The span; call end() when done.
+     */
+    public static Span begin(String category, String name) {
+        if (traceFile == null) {
+            return NOOP_SPAN;
+        }
+
+        Thread thread = Thread.currentThread();
+        long threadId = thread.getId();
+        threadNames.putIfAbsent(threadId, thread.getName());
+
+        return new Span(name, category, System.nanoTime(), threadId);
+    }
+
+    /***
+     * Write everything recorded so far to the trace file.  Each call rewrites the
+     * whole file.
+     */
+    public static void write() {
+        Path path = traceFile;
+        if (path != null) {
+            write(path);
+        }
+    }
+
+    /***
+     * Write everything recorded so far to a specific file.
+     *
+     * @param path The output file.
+     */
+    public static void write(Path path) {
+        long pid = ProcessHandle.current().pid();
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+
+            try (JsonGenerator json = new JsonFactory().createGenerator(path.toFile(), JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeStringField("displayTimeUnit", "ms");
+                json.writeArrayFieldStart("traceEvents");
+
+                // ---[ Thread names ]---
+                for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                    json.writeStartObject();
+                    json.writeStringField("name", "thread_name");
+                    json.writeStringField("ph", "M");
+                    json.writeNumberField("pid", pid);
+                    json.writeNumberField("tid", thread.getKey());
+                    json.writeObjectFieldStart("args");
+                    json.writeStringField("name", thread.getValue());
+                    json.writeEndObject();
+                    json.writeEndObject();
+                }
+
+                // ---[ Complete ("X") events, timestamps in microseconds ]---
+                for (CompletedSpan completed : events) {
+                    Span span = completed.span;
+
+                    json.writeStartObject();
+                    json.writeStringField("name", span.name);
+                    json.writeStringField("cat", span.category);
+                    json.writeStringField("ph", "X");
+                    json.writeNumberField("ts", (span.startNanos - originNanos) / 1000.0);
+                    json.writeNumberField("dur", (completed.endNanos - span.startNanos) / 1000.0);
+                    json.writeNumberField("pid", pid);
+                    json.writeNumberField("tid", span.threadId);
+
+                    if (span.args != null) {
+                        json.writeObjectFieldStart("args");
+                        for (Map.Entry<String, Object> arg : span.args.entrySet()) {
+                            if (arg.getValue() instanceof Integer || arg.getValue() instanceof Long) {
+                                json.writeNumberField(arg.getKey(), ((Number) arg.getValue()).longValue());
+                            } else if (arg.getValue() instanceof Number) {
+                                json.writeNumberField(arg.getKey(), ((Number) arg.getValue()).doubleValue());
+                            } else {
+                                json.writeStringField(arg.getKey(), String.valueOf(arg.getValue()));
+                            }
+                        }
+                        json.writeEndObject();
+                    }
+
+                    json.writeEndObject();
+                }
+
+                json.writeEndArray();
+
+                json.writeObjectFieldStart("otherData");
+                json.writeNumberField("droppedEvents", droppedEvents.get());
+                json.writeNumberField("maxEvents", maxEvents);
+                json.writeEndObject();
+
+                json.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeQuietly() {
+        try {
+            write();
+        } catch (RuntimeException e) {
+            System.err.println("Unable to write H2Echo trace: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.deepblue523.h2echo.reporting;
+
+/***
+ * Callbacks for following a migration run as it happens.  Every method has an
+ * empty default, so implement only what you need.
+ * <p>
+ * Callbacks run on the migrating thread, in order, and should be quick.
+ */
+public interface MigrationListener {
+    default void onScriptStarted(String scriptName) { }
+
+    default void onStatementExecuted(MigrationReport.StatementTiming statementTiming) { }
+
+    default void onStatementSkipped(MigrationReport.StatementOutcome outcome) { }
+
+    default void onStatementFailed(MigrationReport.StatementOutcome outcome) { }
+
+    default void onScriptFinished(MigrationReport.ScriptTiming scriptTiming) { }
+
+    default void onMigrationFinished(MigrationReport report) { }
+}
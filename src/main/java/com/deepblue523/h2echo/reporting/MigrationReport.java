@@ -0,0 +1,272 @@
+package com.deepblue523.h2echo.reporting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The outcome of one runSqlScriptsOnH2() call.  Before this existed the only output
+ * was a handful of counters on the console, which made it hard to tell which
+ * migrations were actually eating test setup time.
+ * <p>
+ * The report holds:
+ * <p>
+ *    - Wall time for the whole run and bytes of script processed
+ *    - Per-script timings, split into the read, translate and execute phases
+ *    - A timing for every statement that was executed against H2
+ *    - Skipped statements and failed statements, each with a reason
+ *    - With the bulk-load profile on, the time spent switching settings before the
+ *      run and restoring/verifying them after it
+ * <p>
+ * Everything is in nanoseconds.  Tests can assert on the report directly.
+ */
+public class MigrationReport {
+
+    /***
+     * Timings for one script.
+     */
+    public static class ScriptTiming {
+        private final String scriptName;
+        private final long bytes;
+        private long readNanos;
+        private long translateNanos;
+        private long executeNanos;
+        private int statementsRun;
+        private int statementsSkipped;
+        private int statementsFailed;
+
+        public ScriptTiming(String scriptName, long bytes) {
+            this.scriptName = scriptName;
+            this.bytes = bytes;
+        }
+
+        public void addReadNanos(long nanos) { readNanos += nanos; }
+        public void addTranslateNanos(long nanos) { translateNanos += nanos; }
+        public void addExecuteNanos(long nanos) { executeNanos += nanos; }
+        public void incrementStatementsRun() { statementsRun++; }
+        public void incrementStatementsSkipped() { statementsSkipped++; }
+        public void incrementStatementsFailed() { statementsFailed++; }
+
+        public String getScriptName() { return scriptName; }
+        public long getBytes() { return bytes; }
+        public long getReadNanos() { return readNanos; }
+        public long getTranslateNanos() { return translateNanos; }
+        public long getExecuteNanos() { return executeNanos; }
+        public long getTotalNanos() { return readNanos + translateNanos + executeNanos; }
+        public int getStatementsRun() { return statementsRun; }
+        public int getStatementsSkipped() { return statementsSkipped; }
+        public int getStatementsFailed() { return statementsFailed; }
+    }
+
+    /***
+     * Timing for one statement executed against H2 (after translation).
+     */
+    public static class StatementTiming {
+        private final String scriptName;
+        private final String sql;
+        private final long nanos;
+        private final boolean succeeded;
+        private final int rowCount;
+
+        public StatementTiming(String scriptName, String sql, long nanos, boolean succeeded, int rowCount) {
+            this.scriptName = scriptName;
+            this.sql = sql;
+            this.nanos = nanos;
+            this.succeeded = succeeded;
+            this.rowCount = rowCount;
+        }
+
+        public String getScriptName() { return scriptName; }
+        public String getSql() { return sql; }
+        public long getNanos() { return nanos; }
+        public boolean isSucceeded() { return succeeded; }
+
+        /***
+         * @return Rows affected, or -1 if not applicable (DDL, failures).
+         */
+        public int getRowCount() { return rowCount; }
+
+        /***
+         * @return The statement kind, e.g. "CREATE TABLE", "ALTER TABLE", "INSERT".
+         */
+        public String getKind() {
+            return statementKind(sql);
+        }
+    }
+
+    /***
+     * A statement that was left out or that failed, along with why.
+     */
+    public static class StatementOutcome {
+        private final String scriptName;
+        private final String sql;
+        private final String reason;
+
+        public StatementOutcome(String scriptName, String sql, String reason) {
+            this.scriptName = scriptName;
+            this.sql = sql;
+            this.reason = reason;
+        }
+
+        public String getScriptName() { return scriptName; }
+        public String getSql() { return sql; }
+        public String getReason() { return reason; }
+    }
+
+    private final List<ScriptTiming> scripts = new ArrayList<>();
+    private final List<StatementTiming> statements = new ArrayList<>();
+    private final List<StatementOutcome> skippedStatements = new ArrayList<>();
+    private final List<StatementOutcome> failedStatements = new ArrayList<>();
+    private int statementsOutsideSlice;
+    private int statementsRejectedFromCache;
+    private long wallNanos;
+    private boolean bulkLoad;
+    private long bulkLoadApplyNanos;
+    private long bulkLoadRestoreNanos;
+    private long foreignKeyVerifyNanos;
+    private int foreignKeyTablesVerified;
+
+    public void addScript(ScriptTiming scriptTiming) { scripts.add(scriptTiming); }
+    public void addStatement(StatementTiming statementTiming) { statements.add(statementTiming); }
+    public void addSkippedStatement(StatementOutcome outcome) { skippedStatements.add(outcome); }
+    public void addFailedStatement(StatementOutcome outcome) { failedStatements.add(outcome); }
+    public void incrementStatementsOutsideSlice() { statementsOutsideSlice++; }
+    public void incrementStatementsRejectedFromCache() { statementsRejectedFromCache++; }
+    public void setWallNanos(long wallNanos) { this.wallNanos = wallNanos; }
+
+    public void setBulkLoadTimings(long applyNanos, long restoreNanos, long verifyNanos, int tablesVerified) {
+        this.bulkLoad = true;
+        this.bulkLoadApplyNanos = applyNanos;
+        this.bulkLoadRestoreNanos = restoreNanos;
+        this.foreignKeyVerifyNanos = verifyNanos;
+        this.foreignKeyTablesVerified = tablesVerified;
+    }
+
+    public List<ScriptTiming> getScripts() { return Collections.unmodifiableList(scripts); }
+    public List<StatementTiming> getStatements() { return Collections.unmodifiableList(statements); }
+    public List<StatementOutcome> getSkippedStatements() { return Collections.unmodifiableList(skippedStatements); }
+    public List<StatementOutcome> getFailedStatements() { return Collections.unmodifiableList(failedStatements); }
+    public long getWallNanos() { return wallNanos; }
+    public boolean isBulkLoad() { return bulkLoad; }
+    public long getBulkLoadApplyNanos() { return bulkLoadApplyNanos; }
+    public long getBulkLoadRestoreNanos() { return bulkLoadRestoreNanos; }
+    public long getForeignKeyVerifyNanos() { return foreignKeyVerifyNanos; }
+    public int getForeignKeyTablesVerified() { return foreignKeyTablesVerified; }
+
+    public int getTotalStatementsRun() { return statements.size(); }
+    public int getTotalStatementsSkipped() { return skippedStatements.size(); }
+    public int getTotalErrors() { return failedStatements.size(); }
+    public int getStatementsOutsideSlice() { return statementsOutsideSlice; }
+
+    /***
+     * @return Failed statements that were not sent to H2, because the rejected
+     * statement cache already knew they fail.  They are still in getFailedStatements().
+     */
+    public int getStatementsRejectedFromCache() { return statementsRejectedFromCache; }
+
+    public long getBytesProcessed() {
+        return scripts.stream().mapToLong(ScriptTiming::getBytes).sum();
+    }
+
+    public long getReadNanos() {
+        return scripts.stream().mapToLong(ScriptTiming::getReadNanos).sum();
+    }
+
+    public long getTranslateNanos() {
+        return scripts.stream().mapToLong(ScriptTiming::getTranslateNanos).sum();
+    }
+
+    public long getExecuteNanos() {
+        return scripts.stream().mapToLong(ScriptTiming::getExecuteNanos).sum();
+    }
+
+    /***
+     * Get the slowest executed statements.
+     *
+     * @param count How many to return.
+     * @return Up to count statements, slowest first.
+     */
+    public List<StatementTiming> getSlowestStatements(int count) {
+        return statements.stream()
+                .sorted(Comparator.comparingLong(StatementTiming::getNanos).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    /***
+     * Get the slowest scripts by total time.
+     *
+     * @param count How many to return.
+     * @return Up to count scripts, slowest first.
+     */
+    public List<ScriptTiming> getSlowestScripts(int count) {
+        return scripts.stream()
+                .sorted(Comparator.comparingLong(ScriptTiming::getTotalNanos).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    /***
+     * Work out a short kind for a SQL statement from its leading keywords.
+     *
+     * @param sql The statement.
+     * @return E.g. "CREATE TABLE", "ALTER TABLE", "INSERT".
+     */
+    public static String statementKind(String sql) {
+        String[] tokens = sql.stripLeading().toUpperCase(Locale.ROOT).split("\\s+", 4);
+
+        if (tokens.length >= 2 && (tokens[0].equals("CREATE") || tokens[0].equals("DROP") || tokens[0].equals("ALTER"))) {
+            // CREATE UNIQUE INDEX and friends.
+            if (tokens[1].equals("UNIQUE") && tokens.length >= 3) {
+                return tokens[0] + " " + tokens[1] + " " + tokens[2];
+            }
+
+            return tokens[0] + " " + tokens[1];
+        }
+
+        return tokens.length > 0 ? tokens[0] : "";
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /***
+     * Print timing details to the console.  The counters and error list are already
+     * printed by the runner; this adds where the time went.
+     *
+     * @param slowestCount How many of the slowest scripts and statements to show.
+     */
+    public void printTimings(int slowestCount) {
+        System.out.println(String.format(Locale.ROOT,
+                "Total wall time: %.1f ms (read %.1f ms, translate %.1f ms, execute %.1f ms), %d bytes of script",
+                toMillis(wallNanos), toMillis(getReadNanos()), toMillis(getTranslateNanos()),
+                toMillis(getExecuteNanos()), getBytesProcessed()));
+
+        if (bulkLoad) {
+            System.out.println(String.format(Locale.ROOT,
+                    "Bulk load: settings applied in %.1f ms before the scripts, restored in %.1f ms after, "
+                            + "foreign keys on %d table(s) verified in %.1f ms",
+                    toMillis(bulkLoadApplyNanos), toMillis(bulkLoadRestoreNanos),
+                    foreignKeyTablesVerified, toMillis(foreignKeyVerifyNanos)));
+        }
+
+        if (!scripts.isEmpty()) {
+            System.out.println("\nSlowest scripts:");
+            for (ScriptTiming script : getSlowestScripts(slowestCount)) {
+                System.out.println(String.format(Locale.ROOT, "  %8.2f ms  %s", toMillis(script.getTotalNanos()), script.getScriptName()));
+            }
+        }
+
+        if (!statements.isEmpty()) {
+            System.out.println("\nSlowest statements:");
+            for (StatementTiming stmt : getSlowestStatements(slowestCount)) {
+                String sql = stmt.getSql().length() > 100 ? stmt.getSql().substring(0, 100) + "..." : stmt.getSql();
+                System.out.println(String.format(Locale.ROOT, "  %8.2f ms  %s: %s", toMillis(stmt.getNanos()), stmt.getScriptName(), sql));
+            }
+        }
+    }
+}
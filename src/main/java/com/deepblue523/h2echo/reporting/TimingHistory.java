@@ -0,0 +1,457 @@
+package com.deepblue523.h2echo.reporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A local, append-only history of schema setup timings, plus an optional regression
+ * gate against it.
+ * <p>
+ * Each migration (and each snapshot restore, where used) appends one CSV line:
+ * <p>
+ *    epochMillis,kind,migrationSetHash,machineFingerprint,firstInJvm,wallMillis,statements
+ * <p>
+ * The migration-set hash covers the script names and contents (plus the syntax and
+ * schema slice, which change what runs), and the machine
+ * fingerprint covers OS, CPU count, max heap and Java version.  Timings are only ever
+ * compared with earlier entries that have the same kind, hash, fingerprint and
+ * firstInJvm flag.  The first migration in a JVM builds a fresh schema while later
+ * ones mostly re-run against existing tables, so the two are never mixed.
+ * <p>
+ * Everything is opt-in through system properties:
+ * <p>
+ *    - h2echo.history=true                 Record timings.
+ *    - h2echo.history.file=path            Where to record them.  Defaults to
+ *                                          target/h2echo-timing-history.csv if there is a
+ *                                          target directory, or ~/.h2echo/ otherwise.
+ *    - h2echo.regression.threshold=25      Check each timing against the rolling median;
+ *                                          a value more than 25% above it is a regression.
+ *                                          Setting this also turns recording on.
+ *    - h2echo.regression.mode=warn|fail    Warn on the console (default), or also fail
+ *                                          the tests (see below).
+ *    - h2echo.regression.window=10         How many earlier entries the median covers.
+ *    - h2echo.regression.minMillis=50      Ignore regressions smaller than this.
+ * <p>
+ * A new V*.sql script changes the migration-set hash and starts a fresh history,
+ * so run the suite a few times on the baseline to build up a median.
+ * <p>
+ * Regressions are never thrown from the migration that found them, since that would
+ * fail whichever test happened to migrate.  They are collected instead, and in "fail"
+ * mode assertNoRegressions() throws once for all of them.  H2EchoExtension calls it
+ * after each test class, so the class that ran the slow migration fails; tests that
+ * don't use the extension can call it themselves (from an @AfterAll, for example).
+ */
+public class TimingHistory {
+    public static final String HISTORY_PROPERTY = "h2echo.history";
+    public static final String HISTORY_FILE_PROPERTY = "h2echo.history.file";
+    public static final String THRESHOLD_PROPERTY = "h2echo.regression.threshold";
+    public static final String MODE_PROPERTY = "h2echo.regression.mode";
+    public static final String WINDOW_PROPERTY = "h2echo.regression.window";
+    public static final String MIN_MILLIS_PROPERTY = "h2echo.regression.minMillis";
+
+    public static final String KIND_MIGRATION = "migration";
+    public static final String KIND_RESET = "reset";
+
+    private static final String HEADER =
+            "epochMillis,kind,migrationSetHash,machineFingerprint,firstInJvm,wallMillis,statements";
+
+    // Minimum number of earlier entries before the regression check kicks in.
+    private static final int MIN_SAMPLES = 3;
+
+    // Keys (kind + hash) already seen in this JVM.
+    private static final Set<String> keysSeenInJvm = ConcurrentHashMap.newKeySet();
+
+    private static volatile String machineFingerprint = null;
+
+    // Regressions found in this JVM, for assertNoRegressions().
+    private static final List<String> regressions = Collections.synchronizedList(new ArrayList<>());
+
+    // The history the regression gate compares against, read from each file once per
+    // JVM and then kept up to date with what this JVM appends.  Grouped by comparison key.
+    private static final Map<Path, Map<String, List<Entry>>> loadedHistories = new ConcurrentHashMap<>();
+
+    /***
+     * One line of history.
+     */
+    public static class Entry {
+        private final long epochMillis;
+        private final String kind;
+        private final String migrationSetHash;
+        private final String machineFingerprint;
+        private final boolean firstInJvm;
+        private final double wallMillis;
+        private final int statements;
+
+        public Entry(long epochMillis, String kind, String migrationSetHash, String machineFingerprint,
+                     boolean firstInJvm, double wallMillis, int statements) {
+            this.epochMillis = epochMillis;
+            this.kind = kind;
+            this.migrationSetHash = migrationSetHash;
+            this.machineFingerprint = machineFingerprint;
+            this.firstInJvm = firstInJvm;
+            this.wallMillis = wallMillis;
+            this.statements = statements;
+        }
+
+        public long getEpochMillis() { return epochMillis; }
+        public String getKind() { return kind; }
+        public String getMigrationSetHash() { return migrationSetHash; }
+        public String getMachineFingerprint() { return machineFingerprint; }
+        public boolean isFirstInJvm() { return firstInJvm; }
+        public double getWallMillis() { return wallMillis; }
+        public int getStatements() { return statements; }
+
+        boolean isComparableTo(Entry other) {
+            return comparisonKey().equals(other.comparisonKey());
+        }
+
+        String comparisonKey() {
+            return kind + "|" + migrationSetHash + "|" + machineFingerprint + "|" + firstInJvm;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%s,%s,%s,%b,%.3f,%d",
+                    epochMillis, kind, migrationSetHash, machineFingerprint, firstInJvm, wallMillis, statements);
+        }
+
+        static Entry fromCsv(String line) {
+            String[] parts = line.split(",");
+            if (parts.length != 7) {
+                return null;
+            }
+
+            try {
+                return new Entry(Long.parseLong(parts[0]), parts[1], parts[2], parts[3],
+                        Boolean.parseBoolean(parts[4]), Double.parseDouble(parts[5]), Integer.parseInt(parts[6]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private TimingHistory() { }
+
+    /***
+     * @return True if timings should be recorded.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(HISTORY_PROPERTY) || System.getProperty(THRESHOLD_PROPERTY) != null;
+    }
+
+    /***
+     * Record the timing of a migration run, and check it for a regression if asked to.
+     *
+     * @param scriptFiles The scripts that were run.
+     * @param variant Anything else that changes what was run, e.g. the syntax and schema slice.
+     * @param report The report from the run.
+     */
+    public static void recordMigration(File[] scriptFiles, String variant, MigrationReport report) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        record(KIND_MIGRATION, hashMigrationSet(scriptFiles, variant), report.getWallNanos(),
+                report.getTotalStatementsRun());
+    }
+
+    /***
+     * Record the timing of some other kind of setup work (e.g. a snapshot restore),
+     * and check it for a regression if asked to.
+     *
+     * @param kind What was timed, e.g. KIND_RESET.
+     * @param migrationSetHash The hash of the migration set the work belongs to.
+     * @param wallNanos How long it took.
+     * @param statements How many statements were involved.
+     */
+    public static void record(String kind, String migrationSetHash, long wallNanos, int statements) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        boolean firstInJvm = keysSeenInJvm.add(kind + "|" + migrationSetHash);
+        Entry entry = new Entry(System.currentTimeMillis(), kind, migrationSetHash, getMachineFingerprint(),
+                firstInJvm, wallNanos / 1_000_000.0, statements);
+
+        Path historyFile = getHistoryFile();
+        if (System.getProperty(THRESHOLD_PROPERTY) == null) {
+            append(historyFile, entry);
+            return;
+        }
+
+        // The file is only read once per JVM; after that, the gate compares against
+        // what was read plus what this JVM has recorded since.
+        Map<String, List<Entry>> history = loadedHistories.computeIfAbsent(historyFile.toAbsolutePath(),
+                path -> groupByComparisonKey(readHistory(historyFile)));
+        append(historyFile, entry);
+
+        List<Entry> earlier;
+        synchronized (history) {
+            List<Entry> comparable = history.computeIfAbsent(entry.comparisonKey(), key -> new ArrayList<>());
+            earlier = new ArrayList<>(comparable);
+            comparable.add(entry);
+        }
+        checkForRegression(entry, earlier);
+    }
+
+    /***
+     * Compare an entry with the rolling median of comparable earlier entries.  A regression
+     * is printed and kept for assertNoRegressions().
+     *
+     * @param entry The new entry.
+     * @param history Earlier entries.
+     * @return A description of the regression, or null if there isn't one.
+     */
+    public static String checkForRegression(Entry entry, List<Entry> history) {
+        String thresholdProperty = System.getProperty(THRESHOLD_PROPERTY);
+        if (thresholdProperty == null) {
+            return null;
+        }
+
+        double thresholdPercent = Double.parseDouble(thresholdProperty);
+        int window = Integer.getInteger(WINDOW_PROPERTY, 10);
+        double minMillis = Double.parseDouble(System.getProperty(MIN_MILLIS_PROPERTY, "50"));
+
+        // ---[ Rolling median of the most recent comparable entries ]---
+        List<Entry> comparable = new ArrayList<>();
+        for (Entry previous : history) {
+            if (previous.isComparableTo(entry)) {
+                comparable.add(previous);
+            }
+        }
+
+        if (comparable.size() < MIN_SAMPLES) {
+            return null;
+        }
+
+        double[] recent = comparable.subList(Math.max(0, comparable.size() - window), comparable.size())
+                .stream()
+                .mapToDouble(Entry::getWallMillis)
+                .sorted()
+                .toArray();
+        double median = median(recent);
+
+        double limit = median * (1 + thresholdPercent / 100.0);
+        if (entry.getWallMillis() <= limit || entry.getWallMillis() - median < minMillis) {
+            return null;
+        }
+
+        String message = String.format(Locale.ROOT,
+                "H2Echo %s time regressed: %.1f ms vs. rolling median %.1f ms over %d runs (threshold %.0f%%)."
+                        + "  Migration set %s, machine %s.",
+                entry.getKind(), entry.getWallMillis(), median, recent.length, thresholdPercent,
+                entry.getMigrationSetHash(), entry.getMachineFingerprint());
+
+        regressions.add(message);
+        System.err.println("WARNING: " + message);
+        return message;
+    }
+
+    /***
+     * In "fail" mode, fail if any timing recorded in this JVM was a regression.  The
+     * regressions reported are then forgotten, so each one fails only one caller.
+     *
+     * @throws AssertionError Listing every regression found since the last call.
+     */
+    public static void assertNoRegressions() {
+        if (!"fail".equalsIgnoreCase(System.getProperty(MODE_PROPERTY, "warn"))) {
+            return;
+        }
+
+        List<String> found;
+        synchronized (regressions) {
+            found = new ArrayList<>(regressions);
+            regressions.clear();
+        }
+
+        if (!found.isEmpty()) {
+            throw new AssertionError(found.size() + " H2Echo timing regression(s):\n  "
+                    + String.join("\n  ", found));
+        }
+    }
+
+    /***
+     * @return The regressions found in this JVM so far.
+     */
+    public static List<String> getRegressions() {
+        synchronized (regressions) {
+            return new ArrayList<>(regressions);
+        }
+    }
+
+    /***
+     * Forget the regressions found so far.
+     */
+    public static void clearRegressions() {
+        regressions.clear();
+    }
+
+    static double median(double[] sortedValues) {
+        int middle = sortedValues.length / 2;
+        return sortedValues.length % 2 == 1
+                ? sortedValues[middle]
+                : (sortedValues[middle - 1] + sortedValues[middle]) / 2.0;
+    }
+
+    /***
+     * @return The history file in use.
+     */
+    public static Path getHistoryFile() {
+        String historyFile = System.getProperty(HISTORY_FILE_PROPERTY);
+        if (historyFile != null && !historyFile.isBlank()) {
+            return Paths.get(historyFile);
+        }
+
+        if (Files.isDirectory(Paths.get("target"))) {
+            return Paths.get("target", "h2echo-timing-history.csv");
+        }
+
+        return Paths.get(System.getProperty("user.home"), ".h2echo", "timing-history.csv");
+    }
+
+    /***
+     * Read all entries from a history file.  Malformed lines are ignored.
+     *
+     * @param historyFile The file.
+     * @return The entries, oldest first.  Empty if there is no file.
+     */
+    public static List<Entry> readHistory(Path historyFile) {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(historyFile)) {
+            return entries;
+        }
+
+        try {
+            for (String line : Files.readAllLines(historyFile, StandardCharsets.UTF_8)) {
+                Entry entry = Entry.fromCsv(line);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return entries;
+    }
+
+    private static Map<String, List<Entry>> groupByComparisonKey(List<Entry> entries) {
+        Map<String, List<Entry>> grouped = new HashMap<>();
+        for (Entry entry : entries) {
+            grouped.computeIfAbsent(entry.comparisonKey(), key -> new ArrayList<>()).add(entry);
+        }
+
+        return Collections.synchronizedMap(grouped);
+    }
+
+    /***
+     * Append an entry, holding a file lock so forked test JVMs don't interleave lines.
+     */
+    private static void append(Path historyFile, Entry entry) {
+        try {
+            if (historyFile.getParent() != null) {
+                Files.createDirectories(historyFile.getParent());
+            }
+
+            try (FileChannel channel = FileChannel.open(historyFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                FileLock lock = channel.lock();
+                try {
+                    String text = (channel.size() == 0 ? HEADER + "\n" : "") + entry.toCsv() + "\n";
+                    channel.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Hash the names and contents of a set of migration scripts.
+     *
+     * @param scriptFiles The scripts, in run order.
+     * @param variant Anything else that changes what was run, or null.
+     * @return A short hex hash.
+     */
+    public static String hashMigrationSet(File[] scriptFiles, String variant) {
+        MessageDigest digest = sha256();
+        if (variant != null) {
+            digest.update(variant.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        try {
+            for (File file : scriptFiles) {
+                digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file.toPath()));
+                digest.update((byte) 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return HexFormat.of().formatHex(Arrays.copyOf(digest.digest(), 8));
+    }
+
+    /***
+     * Hash some text, e.g. a snapshot script.
+     *
+     * @param text The text.
+     * @return A short hex hash.
+     */
+    public static String hashText(String text) {
+        return HexFormat.of().formatHex(Arrays.copyOf(sha256().digest(text.getBytes(StandardCharsets.UTF_8)), 8));
+    }
+
+    /***
+     * @return A short hash identifying this machine and JVM setup.
+     */
+    public static String getMachineFingerprint() {
+        if (machineFingerprint == null) {
+            String hostName = System.getenv().getOrDefault("HOSTNAME", System.getenv().getOrDefault("COMPUTERNAME", ""));
+            String description = String.join("|",
+                    hostName,
+                    System.getProperty("os.name"),
+                    System.getProperty("os.arch"),
+                    Integer.toString(Runtime.getRuntime().availableProcessors()),
+                    Long.toString(Runtime.getRuntime().maxMemory()),
+                    System.getProperty("java.version"));
+
+            machineFingerprint = HexFormat.of().formatHex(
+                    Arrays.copyOf(sha256().digest(description.getBytes(StandardCharsets.UTF_8)), 6));
+        }
+
+        return machineFingerprint;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.deepblue523.h2echo.schema;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Static inspection of the SQL that a DAO class carries around.  Our DAOs keep their
+ * SQL in string constants named SQL_xxx (SQL_GET_BY_ID, SQL_INSERT, etc.), so we can
+ * find out what a DAO touches without ever running it.
+ * <p>
+ * The table extraction is regex-based and deliberately forgiving.  It understands
+ * FROM, JOIN, INTO and UPDATE clauses, including comma-separated FROM lists.  That
+ * covers the DAO SQL we write; anything exotic may be missed, which at worst means a
+ * table is left out of a slice.
+ */
+public class DaoSqlScanner {
+    private static final String SQL_CONSTANT_PREFIX = "SQL_";
+
+    // A (possibly schema-qualified, possibly quoted) table name.
+    private static final String NAME = "[`\"A-Za-z0-9_\\.]+";
+
+    private static final Pattern SINGLE_TABLE_REF =
+            Pattern.compile("\\b(?:JOIN|INTO|UPDATE)\\s+(" + NAME + ")", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FROM_LIST =
+            Pattern.compile(
+                    "\\bFROM\\s+(.+?)(?=\\bWHERE\\b|\\bGROUP\\b|\\bORDER\\b|\\bHAVING\\b|\\bLIMIT\\b|\\bUNION\\b"
+                            + "|\\bJOIN\\b|\\bLEFT\\b|\\bRIGHT\\b|\\bINNER\\b|\\bOUTER\\b|\\bCROSS\\b|\\bFOR\\b|\\)|;|$)",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private DaoSqlScanner() { }
+
+    /***
+     * Find the SQL constants on a DAO class.  These are static String fields whose
+     * names start with "SQL_".  Superclasses are included, then the interfaces they
+     * implement (and their superinterfaces); a class constant wins over an interface
+     * constant of the same name.
+     *
+     * @param daoClass The DAO class to inspect.
+     * @return Map of constant name to SQL text, in declaration order.
+     */
+    public static Map<String, String> findSqlConstants(Class<?> daoClass) {
+        Map<String, String> sqlConstants = new LinkedHashMap<>();
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+
+        for (Class<?> clazz = daoClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            addSqlConstants(clazz, sqlConstants);
+            interfaces.addAll(Arrays.asList(clazz.getInterfaces()));
+        }
+
+        // Breadth-first, so an interface comes before its superinterfaces.
+        Deque<Class<?>> pending = new ArrayDeque<>(interfaces);
+        while (!pending.isEmpty()) {
+            Class<?> iface = pending.removeFirst();
+            addSqlConstants(iface, sqlConstants);
+
+            for (Class<?> superInterface : iface.getInterfaces()) {
+                if (interfaces.add(superInterface)) {
+                    pending.addLast(superInterface);
+                }
+            }
+        }
+
+        return sqlConstants;
+    }
+
+    private static void addSqlConstants(Class<?> clazz, Map<String, String> sqlConstants) {
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())
+                    || field.getType() != String.class
+                    || !field.getName().startsWith(SQL_CONSTANT_PREFIX)) {
+                continue;
+            }
+
+            try {
+                field.setAccessible(true);
+                String sql = (String) field.get(null);
+
+                if (sql != null) {
+                    sqlConstants.putIfAbsent(field.getName(), sql);
+                }
+            }
+            catch (IllegalAccessException | RuntimeException e) {
+                // Inaccessible constants are simply not considered.
+            }
+        }
+    }
+
+    /***
+     * Find the tables referenced by a single SQL statement.
+     *
+     * @param sql The SQL to inspect.
+     * @return Normalized (lowercase, unqualified) table names.
+     */
+    public static Set<String> findReferencedTables(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+
+        Matcher singleMatcher = SINGLE_TABLE_REF.matcher(sql);
+        while (singleMatcher.find()) {
+            tables.add(normalizeTableName(singleMatcher.group(1)));
+        }
+
+        Matcher fromMatcher = FROM_LIST.matcher(sql);
+        while (fromMatcher.find()) {
+            for (String fromItem : fromMatcher.group(1).split(",")) {
+                String[] tokens = fromItem.trim().split("\\s+");
+
+                // Skip subqueries and anything that isn't a plain name.
+                if (tokens.length > 0 && tokens[0].matches(NAME)) {
+                    tables.add(normalizeTableName(tokens[0]));
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    /***
+     * Find every table referenced by the SQL constants of a DAO class.
+     *
+     * @param daoClass The DAO class to inspect.
+     * @return Normalized table names.
+     */
+    public static Set<String> findReferencedTables(Class<?> daoClass) {
+        Set<String> tables = new LinkedHashSet<>();
+
+        for (String sql : findSqlConstants(daoClass).values()) {
+            tables.addAll(findReferencedTables(sql));
+        }
+
+        return tables;
+    }
+
+    /***
+     * Normalize a table name so names from DAOs and scripts can be compared.  Quotes
+     * and any schema qualifier are removed and the name is lowercased.
+     *
+     * @param tableName The table name as written.
+     * @return The normalized name.
+     */
+    public static String normalizeTableName(String tableName) {
+        String name = tableName.replaceAll("[`\"]", "");
+
+        int lastDot = name.lastIndexOf('.');
+        if (lastDot >= 0) {
+            name = name.substring(lastDot + 1);
+        }
+
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
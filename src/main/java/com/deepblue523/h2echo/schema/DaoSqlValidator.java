@@ -0,0 +1,114 @@
+package com.deepblue523.h2echo.schema;
+
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Checks the SQL constants of DAO classes (see DaoSqlScanner) against the migrated
+ * schema by preparing each one, so a broken statement fails the test class up front
+ * instead of only the test that happens to call it.
+ * <p>
+ * H2 parses a statement and works out its plan when it is prepared, checking every
+ * table and column against the schema, so nothing is executed and no data changes.
+ * All the statements are checked and every failure is reported together.  Preparing
+ * them also loads and JIT-warms H2's parser and optimizer before the first test
+ * call.  (H2's query cache is per connection, and the echo data source opens a new
+ * connection per operation, so the parsed statements themselves aren't reused.)
+ * <p>
+ * Results are cached per DAO class and schema key, so a DAO is only checked once per
+ * migration set (scripts, syntax and slice); other schemas check it again.
+ */
+public class DaoSqlValidator {
+    private static final Map<String, List<String>> PROBLEMS_BY_DAO = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, List<String>> LATEST_PROBLEMS = new ConcurrentHashMap<>();
+
+    private DaoSqlValidator() { }
+
+    /***
+     * Prepare the SQL constants of DAO classes, unless they have been checked already
+     * against the same schema.
+     *
+     * @param dataSource The migrated database.
+     * @param schemaKey Identifies the schema, e.g. a hash of the migration set.
+     * @param daoClasses The DAO classes to check.
+     * @param displayLog Print how many statements were checked.
+     * @throws IllegalStateException Listing every statement that doesn't prepare.
+     */
+    public static void validate(DataSource dataSource, String schemaKey, Collection<Class<?>> daoClasses,
+                                boolean displayLog) {
+        List<String> problems = new ArrayList<>();
+
+        for (Class<?> daoClass : daoClasses) {
+            List<String> daoProblems = PROBLEMS_BY_DAO.computeIfAbsent(schemaKey + "|" + daoClass.getName(),
+                    key -> check(dataSource, daoClass, displayLog));
+            LATEST_PROBLEMS.put(daoClass, daoProblems);
+            problems.addAll(daoProblems);
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(problems.size() + " DAO SQL statement(s) failed to prepare against the "
+                    + "migrated schema:" + System.lineSeparator() + "  " + String.join(System.lineSeparator() + "  ", problems));
+        }
+    }
+
+    /***
+     * @return The problems found by the latest check of a DAO class's SQL, or null if it
+     *         hasn't been checked.
+     */
+    public static List<String> getProblems(Class<?> daoClass) {
+        return LATEST_PROBLEMS.get(daoClass);
+    }
+
+    private static List<String> check(DataSource dataSource, Class<?> daoClass, boolean displayLog) {
+        Map<String, String> sqlConstants = DaoSqlScanner.findSqlConstants(daoClass);
+        List<String> problems = new ArrayList<>();
+        long start = System.nanoTime();
+        ChromeTrace.Span span = ChromeTrace.begin("validation", daoClass.getSimpleName());
+
+        try (Connection connection = dataSource.getConnection()) {
+            for (Map.Entry<String, String> entry : sqlConstants.entrySet()) {
+                try {
+                    // Preparing is the check.
+                    connection.prepareStatement(entry.getValue()).close();
+                } catch (SQLException e) {
+                    problems.add(daoClass.getSimpleName() + "." + entry.getKey() + ": " + errorSummary(e.getMessage()));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to validate the SQL of " + daoClass.getName() + ": "
+                    + e.getMessage(), e);
+        } finally {
+            span.arg("statements", sqlConstants.size()).end();
+        }
+
+        if (displayLog) {
+            System.out.printf("Validated %d SQL statement(s) of %s in %.1f ms, %d failed%n", sqlConstants.size(),
+                    daoClass.getSimpleName(), (System.nanoTime() - start) / 1_000_000.0, problems.size());
+        }
+
+        return Collections.unmodifiableList(problems);
+    }
+
+    // H2 repeats the statement after the message; the part before says what's wrong.
+    private static String errorSummary(String message) {
+        if (message == null) {
+            return "";
+        }
+
+        int end = message.indexOf("; SQL statement:");
+        if (end < 0) {
+            end = message.indexOf('\n');
+        }
+
+        return end >= 0 ? message.substring(0, end).trim() : message;
+    }
+}
@@ -0,0 +1,49 @@
+package com.deepblue523.h2echo.schema;
+
+import java.util.Collections;
+import java.util.Set;
+
+/***
+ * A subset of the tables defined by a set of migration scripts.  Statements that
+ * target a table outside the slice are left out when the scripts are run.
+ * Statements that don't target a table at all (CREATE SCHEMA, etc.) are always kept.
+ */
+public class SchemaSlice {
+    private final Set<String> tables;
+    private final Set<String> allTables;
+
+    public SchemaSlice(Set<String> tables, Set<String> allTables) {
+        this.tables = Collections.unmodifiableSet(tables);
+        this.allTables = Collections.unmodifiableSet(allTables);
+    }
+
+    /***
+     * Determine if a raw script statement belongs to this slice.
+     *
+     * @param sqlStmt The statement, as read from the script.
+     * @return True if it should be run.
+     */
+    public boolean includes(String sqlStmt) {
+        String targetTable = SchemaSlicer.findTargetTable(sqlStmt);
+        return targetTable == null || tables.contains(targetTable);
+    }
+
+    /***
+     * @return The normalized names of the tables in the slice.
+     */
+    public Set<String> getTables() {
+        return tables;
+    }
+
+    /***
+     * @return The normalized names of every table the scripts define.
+     */
+    public Set<String> getAllTables() {
+        return allTables;
+    }
+
+    @Override
+    public String toString() {
+        return "Schema slice: " + tables.size() + " of " + allTables.size() + " tables " + tables;
+    }
+}
@@ -0,0 +1,135 @@
+package com.deepblue523.h2echo.schema;
+
+import com.deepblue523.h2echo.dialects.DialectRunnerBase;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Works out which part of a migration set a group of DAOs actually needs.
+ * <p>
+ * Process:
+ * <p>
+ * 1. The tables referenced by the SQL constants of each DAO class are extracted
+ *    (see DaoSqlScanner).
+ * <p>
+ * 2. The migration scripts are scanned for CREATE TABLE and ALTER TABLE statements,
+ *    and every REFERENCES clause is recorded as a foreign-key dependency.
+ * <p>
+ * 3. The DAO tables are closed over those dependencies, so a DAO on a child table
+ *    also gets the parent tables its foreign keys point at.
+ * <p>
+ * The result is a SchemaSlice that the dialect runner uses to filter statements.
+ * Production migration sets can have hundreds of tables, and a DAO test typically
+ * needs a handful of them.
+ */
+public class SchemaSlicer {
+    private static final String NAME = "([`\"A-Za-z0-9_\\.]+)";
+
+    private static final Pattern[] TARGET_TABLE_PATTERNS = {
+        Pattern.compile("^\\s*CREATE\\s+(?:TEMPORARY\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^\\s*DROP\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?" + NAME, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^\\s*ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?" + NAME, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^\\s*(?:INSERT|REPLACE)\\s+(?:IGNORE\\s+)?INTO\\s+" + NAME, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^\\s*DELETE\\s+FROM\\s+" + NAME, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^\\s*CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+\\S+\\s+ON\\s+" + NAME, Pattern.CASE_INSENSITIVE),
+    };
+
+    private static final Pattern REFERENCES_PATTERN =
+            Pattern.compile("\\bREFERENCES\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+
+    private SchemaSlicer() { }
+
+    /***
+     * Determine the table a script statement operates on.
+     *
+     * @param sqlStmt The statement.  Comments are tolerated.
+     * @return The normalized table name, or null if the statement doesn't target a table.
+     */
+    public static String findTargetTable(String sqlStmt) {
+        String stmt = sqlStmt.replaceAll("--.*", "");
+
+        for (Pattern pattern : TARGET_TABLE_PATTERNS) {
+            Matcher m = pattern.matcher(stmt);
+            if (m.find()) {
+                return DaoSqlScanner.normalizeTableName(m.group(1));
+            }
+        }
+
+        return null;
+    }
+
+    /***
+     * Compute the slice of the schema needed by a set of DAO classes.
+     *
+     * @param scriptFiles The migration scripts.
+     * @param daoClasses The DAO classes whose SQL constants define the starting tables.
+     * @return The slice.
+     */
+    public static SchemaSlice computeSlice(File[] scriptFiles, Collection<Class<?>> daoClasses) {
+        Set<String> rootTables = new LinkedHashSet<>();
+        for (Class<?> daoClass : daoClasses) {
+            rootTables.addAll(DaoSqlScanner.findReferencedTables(daoClass));
+        }
+
+        return computeSlice(scriptFiles, rootTables);
+    }
+
+    /***
+     * Compute the slice of the schema needed for a set of tables.
+     *
+     * @param scriptFiles The migration scripts.
+     * @param rootTables The tables that are needed directly.
+     * @return The slice, closed over foreign-key dependencies.
+     */
+    public static SchemaSlice computeSlice(File[] scriptFiles, Set<String> rootTables) {
+        Set<String> allTables = new LinkedHashSet<>();
+        Map<String, Set<String>> dependencies = new HashMap<>();
+
+        // ---[ Gather tables and foreign-key dependencies from the scripts ]---
+        for (File file : scriptFiles) {
+            for (String sqlStmt : DialectRunnerBase.splitScript(DialectRunnerBase.readScript(file))) {
+                String stmt = sqlStmt.replaceAll("--.*", "");
+                String upperStmt = stmt.stripLeading().toUpperCase();
+
+                if (!upperStmt.startsWith("CREATE TABLE") && !upperStmt.startsWith("ALTER TABLE")) {
+                    continue;
+                }
+
+                String tableName = findTargetTable(stmt);
+                if (tableName == null) {
+                    continue;
+                }
+
+                allTables.add(tableName);
+                Set<String> tableDeps = dependencies.computeIfAbsent(tableName, k -> new LinkedHashSet<>());
+
+                Matcher m = REFERENCES_PATTERN.matcher(stmt);
+                while (m.find()) {
+                    tableDeps.add(DaoSqlScanner.normalizeTableName(m.group(1)));
+                }
+            }
+        }
+
+        // ---[ Close the root tables over their dependencies ]---
+        Set<String> sliceTables = new LinkedHashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(rootTables);
+
+        while (!toVisit.isEmpty()) {
+            String tableName = toVisit.pop();
+            if (sliceTables.add(tableName)) {
+                toVisit.addAll(dependencies.getOrDefault(tableName, Set.of()));
+            }
+        }
+
+        return new SchemaSlice(sliceTables, allTables);
+    }
+}
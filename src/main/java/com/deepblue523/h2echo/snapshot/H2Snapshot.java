@@ -0,0 +1,115 @@
+package com.deepblue523.h2echo.snapshot;
+
+import com.deepblue523.h2echo.jfr.SnapshotEvent;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/***
+ * A point-in-time copy of an H2 database (schema and data), that can be put back
+ * as often as needed.
+ * <p>
+ * Taking a snapshot uses H2's SCRIPT command to write the whole database to a
+ * temporary file.  Restoring drops everything and runs that file back in with
+ * RUNSCRIPT.  That is much cheaper than re-running (and re-translating) the
+ * migrations, and also brings back any seed data and identity counters.
+ * <p>
+ * Restores are recorded in the timing history (kind "reset") when that is on.
+ */
+public class H2Snapshot {
+    private final Path scriptFile;
+    private final String contentHash;
+
+    private H2Snapshot(Path scriptFile, String contentHash) {
+        this.scriptFile = scriptFile;
+        this.contentHash = contentHash;
+    }
+
+    /***
+     * Take a snapshot of the database a JdbcTemplate points at.
+     *
+     * @param jdbcTemplate The database to copy.
+     * @return The snapshot.  Call delete() when done with it.
+     */
+    public static H2Snapshot take(JdbcTemplate jdbcTemplate) {
+        SnapshotEvent snapshotEvent = new SnapshotEvent();
+        snapshotEvent.begin();
+        ChromeTrace.Span span = ChromeTrace.begin("snapshot", "take");
+
+        try {
+            Path scriptFile = Files.createTempFile("h2echo-snapshot-", ".sql");
+            scriptFile.toFile().deleteOnExit();
+
+            jdbcTemplate.execute("SCRIPT NOPASSWORDS DROP TO '" + escape(scriptFile) + "'");
+            H2Snapshot snapshot = new H2Snapshot(scriptFile, TimingHistory.hashText(Files.readString(scriptFile)));
+
+            long bytes = Files.size(scriptFile);
+            span.arg("bytes", bytes).end();
+
+            if (snapshotEvent.shouldCommit()) {
+                snapshotEvent.operation = "take";
+                snapshotEvent.bytes = bytes;
+                snapshotEvent.commit();
+            }
+
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Put the database back to how it was when the snapshot was taken.  Everything
+     * created since is dropped.
+     *
+     * @param jdbcTemplate The database to restore.
+     */
+    public void restore(JdbcTemplate jdbcTemplate) {
+        if (!Files.exists(scriptFile)) {
+            throw new IllegalStateException("The snapshot has been deleted: " + scriptFile);
+        }
+
+        SnapshotEvent snapshotEvent = new SnapshotEvent();
+        snapshotEvent.begin();
+        ChromeTrace.Span span = ChromeTrace.begin("snapshot", "restore");
+        long startNanos = System.nanoTime();
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("RUNSCRIPT FROM '" + escape(scriptFile) + "'");
+
+        long wallNanos = System.nanoTime() - startNanos;
+        span.end();
+
+        if (snapshotEvent.shouldCommit()) {
+            snapshotEvent.operation = "restore";
+            snapshotEvent.bytes = scriptFile.toFile().length();
+            snapshotEvent.commit();
+        }
+
+        TimingHistory.record(TimingHistory.KIND_RESET, contentHash, wallNanos, 2);
+    }
+
+    /***
+     * Delete the snapshot file.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(scriptFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getScriptFile() {
+        return scriptFile;
+    }
+
+    private static String escape(Path path) {
+        return path.toAbsolutePath().toString().replace("'", "''");
+    }
+}
@@ -0,0 +1,362 @@
+package com.deepblue523.h2echo.stress;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.replay.WorkerThreads;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Drives a weighted mix of DAO calls from many threads at once and reports how
+ * the DAOs hold up: throughput, latency percentiles, deadlocks, lock timeouts,
+ * duplicate keys, and the tables the contention was on.
+ * <p>
+ *    @EchoDao private NrmPhoneNumberDao phoneNumberDao;
+ *    ...
+ *    DaoStressHarness harness = DaoStressHarness.forEchoedObject(this);
+ *    harness.addOperation("insert", 3, (worker, i) -> phoneNumberDao.insert(randomPhoneNumber()));
+ *    harness.addOperation("getById", 7, (worker, i) -> phoneNumberDao.getById(randomId()));
+ *    harness.setThreads(32);
+ *    harness.setDuration(Duration.ofSeconds(10));
+ *    StressReport report = harness.run(true);
+ * <p>
+ * Each worker picks operations by weight with its own seeded Random, so the mix is
+ * the same from run to run.  Workers run on virtual threads when the JVM has them
+ * (Java 21+).  The echo database is an in-memory MVStore database, so concurrent
+ * transactions take row locks and wait on each other for up to the lock timeout,
+ * as they would on InnoDB.  While the run goes on, a LockSampler watches for
+ * blocked sessions.
+ * <p>
+ * A failed call is counted against its operation and the run goes on.  Failures
+ * are classified by the H2 error code of the SQLException behind them (DAOs usually
+ * throw Spring's DataAccessException, which wraps it).
+ */
+public class DaoStressHarness {
+    // H2's error codes (org.h2.api.ErrorCode; H2 is only a runtime dependency).
+    private static final int DEADLOCK = 40001;
+    private static final int LOCK_TIMEOUT = 50200;
+    private static final int DUPLICATE_KEY = 23505;
+    private static final int CONCURRENT_UPDATE = 90131;
+
+    // How H2 names the tables in those errors.
+    private static final Pattern QUOTED_TABLE = Pattern.compile("(?i)\\btable \"([^\"]+)\"");
+    private static final Pattern INDEX_ON_TABLE = Pattern.compile("\\bON (?:\"?\\w+\"?\\.)?\"?(\\w+)\"?\\(");
+    private static final Pattern DEADLOCK_DETAILS = Pattern.compile("Details: ([^;]*)");
+    private static final Pattern QUOTED_NAME = Pattern.compile("\"([^\"]+)\"");
+
+    private final DataSource dataSource;
+    private final Map<String, Integer> weights = new LinkedHashMap<>();
+    private final Map<String, StressOperation> operations = new LinkedHashMap<>();
+    private int threads = 8;
+    private Duration duration = Duration.ofSeconds(5);
+    private long operationsPerThread;
+    private long seed = 1;
+    private long lockSampleMillis = 10;
+    private boolean virtualThreads = true;
+
+    /***
+     * @param dataSource The database the DAOs use; it is sampled for lock waits.
+     */
+    public DaoStressHarness(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /***
+     * @param object An object whose @EchoDao fields have been set by echoDaosOnObject().
+     * @return A harness sampling the database those DAOs use.
+     */
+    public static DaoStressHarness forEchoedObject(Object object) {
+        DataSource dataSource = H2Echo.getEchoDataSource(object);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("No DAOs have been echoed onto " + object.getClass().getName()
+                    + "; call H2Echo.echoDaosOnObject() first");
+        }
+
+        return new DaoStressHarness(dataSource);
+    }
+
+    /***
+     * @param name The name to report it under.
+     * @param weight Its share of the mix, relative to the other operations' weights.
+     * @param operation The call to make.
+     */
+    public void addOperation(String name, int weight, StressOperation operation) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight of " + name + " must be at least 1: " + weight);
+        }
+        if (operations.containsKey(name)) {
+            throw new IllegalArgumentException("There is already an operation named " + name);
+        }
+
+        weights.put(name, weight);
+        operations.put(name, operation);
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /***
+     * @param duration How long to run (null for no limit, if operationsPerThread is set).
+     */
+    public void setDuration(Duration duration) { this.duration = duration; }
+
+    /***
+     * @param operationsPerThread Stop each worker after this many operations (0 for no limit).
+     */
+    public void setOperationsPerThread(long operationsPerThread) { this.operationsPerThread = operationsPerThread; }
+
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /***
+     * @param lockSampleMillis How often to look for blocked sessions (0 to not sample).
+     */
+    public void setLockSampleMillis(long lockSampleMillis) { this.lockSampleMillis = lockSampleMillis; }
+
+    /***
+     * @param virtualThreads Use virtual threads if the JVM has them (the default).
+     */
+    public void setVirtualThreads(boolean virtualThreads) { this.virtualThreads = virtualThreads; }
+
+    /***
+     * Run the mix until the duration is up or every worker has run its operations.
+     *
+     * @param displayLog Print the report when done.
+     * @return The report.
+     */
+    public StressReport run(boolean displayLog) {
+        if (operations.isEmpty()) {
+            throw new IllegalStateException("No operations have been added");
+        }
+        if ((duration == null || duration.isZero()) && operationsPerThread <= 0) {
+            throw new IllegalStateException("Set a duration or a number of operations per thread");
+        }
+
+        String[] names = operations.keySet().toArray(new String[0]);
+        StressOperation[] mix = operations.values().toArray(new StressOperation[0]);
+        int[] cumulativeWeights = new int[names.length];
+        int totalWeight = 0;
+        for (int i = 0; i < names.length; i++) {
+            totalWeight += weights.get(names[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        ExecutorService executor = virtualThreads ? WorkerThreads.newVirtualExecutor() : null;
+        boolean usingVirtualThreads = executor != null;
+        if (executor == null) {
+            executor = WorkerThreads.newPlatformExecutor(threads, "h2echo-stress-");
+        }
+
+        LockSampler sampler = lockSampleMillis > 0 ? new LockSampler(dataSource, lockSampleMillis) : null;
+        ChromeTrace.Span span = ChromeTrace.begin("stress", "stress");
+        long start = System.nanoTime();
+        long deadline = duration != null && !duration.isZero() ? start + duration.toNanos() : Long.MAX_VALUE;
+        int weightTotal = totalWeight;
+
+        try {
+            if (sampler != null) {
+                sampler.start();
+            }
+
+            List<Future<WorkerResult>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int worker = i;
+                workers.add(executor.submit(() -> runWorker(worker, names, mix, cumulativeWeights, weightTotal, deadline)));
+            }
+
+            List<StressReport.OperationStats> totals = new ArrayList<>();
+            for (String name : names) {
+                totals.add(new StressReport.OperationStats(name));
+            }
+            Map<String, StressReport.TableContention> tables = new HashMap<>();
+            for (Future<WorkerResult> worker : workers) {
+                WorkerResult result = worker.get();
+                for (int i = 0; i < names.length; i++) {
+                    totals.get(i).add(result.operations.get(i));
+                }
+                result.tables.values().forEach(table -> tables
+                        .computeIfAbsent(table.getTableName(), StressReport.TableContention::new).add(table));
+            }
+
+            long wallNanos = System.nanoTime() - start;
+            long lockSamples = 0;
+            if (sampler != null) {
+                sampler.stop();
+                lockSamples = sampler.getSamples();
+                sampler.getBlockedByTable().forEach((table, count) -> tables
+                        .computeIfAbsent(table, StressReport.TableContention::new).addBlockedSamples(count));
+                if (sampler.getError() != null && displayLog) {
+                    System.out.println("Lock sampling stopped: " + sampler.getError());
+                }
+            }
+
+            StressReport report = new StressReport(totals, tables, threads, usingVirtualThreads, lockSamples, wallNanos);
+            span.arg("operations", report.getTotalOperations()).arg("threads", threads);
+
+            if (displayLog) {
+                System.out.print(report.format());
+            }
+
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during the stress run", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A stress worker failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            span.end();
+            executor.shutdownNow();
+            stopQuietly(sampler);
+        }
+    }
+
+    // Stops the sampler if a worker failed before the normal stop.
+    private static void stopQuietly(LockSampler sampler) {
+        if (sampler == null) {
+            return;
+        }
+
+        try {
+            sampler.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /***
+     * What one worker recorded: its stats per operation (in the order they were
+     * added) and the tables named in its failures.
+     */
+    private static class WorkerResult {
+        final List<StressReport.OperationStats> operations = new ArrayList<>();
+        final Map<String, StressReport.TableContention> tables = new HashMap<>();
+    }
+
+    private WorkerResult runWorker(int worker, String[] names, StressOperation[] mix,
+                                   int[] cumulativeWeights, int totalWeight, long deadline) {
+        WorkerResult result = new WorkerResult();
+        for (String name : names) {
+            result.operations.add(new StressReport.OperationStats(name));
+        }
+
+        Random random = new Random(seed * 31 + worker);
+        for (long iteration = 0; operationsPerThread <= 0 || iteration < operationsPerThread; iteration++) {
+            if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            int pick = random.nextInt(totalWeight);
+            int index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+
+            long begin = System.nanoTime();
+            try {
+                mix[index].run(worker, iteration);
+                result.operations.get(index).latencyHistogram().record(System.nanoTime() - begin);
+            } catch (Exception e) {
+                SQLException sqlException = findSqlException(e);
+                StressReport.Failure failure = classify(sqlException);
+                String message = sqlException != null ? firstLine(sqlException.getMessage()) : e.toString();
+                result.operations.get(index).recordFailure(failure, message);
+
+                for (String table : tablesIn(failure, message)) {
+                    result.tables.computeIfAbsent(table, StressReport.TableContention::new).addFailure(failure, 1);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static SQLException findSqlException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return (SQLException) cause;
+            }
+        }
+
+        return null;
+    }
+
+    static StressReport.Failure classify(SQLException e) {
+        if (e == null) {
+            return StressReport.Failure.OTHER;
+        }
+
+        switch (e.getErrorCode()) {
+            case DEADLOCK:
+                return StressReport.Failure.DEADLOCK;
+            case LOCK_TIMEOUT:
+                return StressReport.Failure.LOCK_TIMEOUT;
+            case DUPLICATE_KEY:
+                return StressReport.Failure.DUPLICATE_KEY;
+            case CONCURRENT_UPDATE:
+                return StressReport.Failure.CONCURRENT_UPDATE;
+            default:
+                return StressReport.Failure.OTHER;
+        }
+    }
+
+    /***
+     * @return The (upper case, unqualified) tables an H2 error message names.
+     */
+    static List<String> tablesIn(StressReport.Failure failure, String message) {
+        List<String> tables = new ArrayList<>();
+        if (message == null || failure == StressReport.Failure.OTHER) {
+            return tables;
+        }
+
+        Matcher matcher;
+        if (failure == StressReport.Failure.DUPLICATE_KEY) {
+            matcher = INDEX_ON_TABLE.matcher(message);
+            if (matcher.find()) {
+                tables.add(unqualified(matcher.group(1)));
+            }
+        } else if (failure == StressReport.Failure.DEADLOCK && (matcher = DEADLOCK_DETAILS.matcher(message)).find()) {
+            Matcher names = QUOTED_NAME.matcher(matcher.group(1));
+            while (names.find()) {
+                tables.add(unqualified(names.group(1)));
+            }
+        } else {
+            matcher = QUOTED_TABLE.matcher(message);
+            while (matcher.find()) {
+                tables.add(unqualified(matcher.group(1)));
+            }
+        }
+
+        return tables;
+    }
+
+    private static String unqualified(String name) {
+        int dot = name.lastIndexOf('.');
+        return (dot >= 0 ? name.substring(dot + 1) : name).toUpperCase(Locale.ROOT);
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "";
+        }
+
+        int end = message.indexOf("; SQL statement:");
+        return end >= 0 ? message.substring(0, end) : message.split("\n", 2)[0];
+    }
+}
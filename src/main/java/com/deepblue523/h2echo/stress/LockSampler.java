@@ -0,0 +1,90 @@
+package com.deepblue523.h2echo.stress;
+
+import com.deepblue523.h2echo.schema.DaoSqlScanner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/***
+ * Polls H2's session list while a stress run is going, counting the sessions that
+ * are blocked on another's lock and the tables their statements touch.
+ * <p>
+ * MVStore takes row locks that INFORMATION_SCHEMA.LOCKS doesn't show (it lists
+ * table locks, and every DML statement holds a shared one), but a waiting session
+ * has a BLOCKER_ID in INFORMATION_SCHEMA.SESSIONS along with the statement it is
+ * running, which says where the contention is.
+ */
+class LockSampler implements Runnable {
+    private static final String BLOCKED_SESSIONS_SQL =
+            "SELECT EXECUTING_STATEMENT FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL";
+
+    private final DataSource dataSource;
+    private final long intervalMillis;
+    private final Map<String, Long> blockedByTable = new HashMap<>();
+    private volatile boolean stopped;
+    private long samples;
+    private String error;
+    private Thread thread;
+
+    LockSampler(DataSource dataSource, long intervalMillis) {
+        this.dataSource = dataSource;
+        this.intervalMillis = intervalMillis;
+    }
+
+    void start() {
+        thread = new Thread(this, "h2echo-lock-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /***
+     * Stop sampling and wait for the last sample to finish.  Safe to call more than
+     * once, or before start().
+     */
+    void stop() throws InterruptedException {
+        stopped = true;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Override
+    public void run() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            while (!stopped) {
+                try (ResultSet rs = statement.executeQuery(BLOCKED_SESSIONS_SQL)) {
+                    while (rs.next()) {
+                        String sql = rs.getString(1);
+                        if (sql != null) {
+                            for (String table : DaoSqlScanner.findReferencedTables(sql)) {
+                                blockedByTable.merge(table.toUpperCase(Locale.ROOT), 1L, Long::sum);
+                            }
+                        }
+                    }
+                }
+                samples++;
+
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    // Stopping.
+                }
+            }
+        } catch (SQLException e) {
+            error = e.getMessage();
+        }
+    }
+
+    // Only read after stop(), which joins the thread.
+    long getSamples() { return samples; }
+    Map<String, Long> getBlockedByTable() { return blockedByTable; }
+    String getError() { return error; }
+}
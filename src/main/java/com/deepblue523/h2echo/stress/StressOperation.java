@@ -0,0 +1,16 @@
+package com.deepblue523.h2echo.stress;
+
+/***
+ * One kind of DAO call in a stress mix, usually a lambda over an injected DAO:
+ * <p>
+ *    (worker, iteration) -> phoneNumberDao.insert(newPhoneNumber(worker, iteration))
+ */
+@FunctionalInterface
+public interface StressOperation {
+    /***
+     * @param worker The worker running it, 0 to threads - 1.
+     * @param iteration How many operations this worker has run before this one.
+     * @throws Exception Counted as a failure of the operation, by kind.
+     */
+    void run(int worker, long iteration) throws Exception;
+}
@@ -0,0 +1,218 @@
+package com.deepblue523.h2echo.stress;
+
+import com.deepblue523.h2echo.replay.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The outcome of a DaoStressHarness run: throughput and latency per operation,
+ * failures by kind, and the tables that contention was seen on.
+ * <p>
+ * Tables come from two places: the messages of failed statements (H2 names the
+ * table in lock timeouts, deadlocks and key violations), and the lock sampler,
+ * which counts how often a session was seen blocked while running a statement on
+ * the table.
+ */
+public class StressReport {
+
+    /***
+     * How an operation failed, from the H2 error code of the SQLException behind it.
+     */
+    public enum Failure {
+        DEADLOCK,
+        LOCK_TIMEOUT,
+        DUPLICATE_KEY,
+        CONCURRENT_UPDATE,
+        OTHER
+    }
+
+    /***
+     * Everything recorded for one operation.
+     */
+    public static class OperationStats {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Failure, Long> failures = new EnumMap<>(Failure.class);
+        private String firstError;
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        void recordFailure(Failure failure, String message) {
+            failures.merge(failure, 1L, Long::sum);
+            if (firstError == null) {
+                firstError = message;
+            }
+        }
+
+        void add(OperationStats other) {
+            latency.add(other.latency);
+            other.failures.forEach((failure, count) -> failures.merge(failure, count, Long::sum));
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+
+        LatencyHistogram latencyHistogram() { return latency; }
+
+        public String getName() { return name; }
+        public long getSucceeded() { return latency.getCount(); }
+        public long getFailed() { return failures.values().stream().mapToLong(Long::longValue).sum(); }
+        public long getCount() { return getSucceeded() + getFailed(); }
+        public long getFailures(Failure failure) { return failures.getOrDefault(failure, 0L); }
+        public String getFirstError() { return firstError; }
+
+        /***
+         * @return Latencies of the calls that succeeded, in nanoseconds.
+         */
+        public LatencyHistogram getLatency() { return latency; }
+    }
+
+    /***
+     * Contention seen on one table.
+     */
+    public static class TableContention {
+        private final String tableName;
+        private final Map<Failure, Long> failures = new EnumMap<>(Failure.class);
+        private long blockedSamples;
+
+        TableContention(String tableName) {
+            this.tableName = tableName;
+        }
+
+        void addFailure(Failure failure, long count) { failures.merge(failure, count, Long::sum); }
+        void addBlockedSamples(long count) { blockedSamples += count; }
+
+        void add(TableContention other) {
+            other.failures.forEach(this::addFailure);
+            blockedSamples += other.blockedSamples;
+        }
+
+        public String getTableName() { return tableName; }
+        public long getFailures(Failure failure) { return failures.getOrDefault(failure, 0L); }
+
+        /***
+         * @return How many times a session was sampled waiting on a lock while running
+         * a statement on this table.
+         */
+        public long getBlockedSamples() { return blockedSamples; }
+
+        long getTotal() {
+            return blockedSamples + failures.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    private final List<OperationStats> operations;
+    private final Map<String, TableContention> tables;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final long lockSamples;
+    private final long wallNanos;
+
+    StressReport(List<OperationStats> operations, Map<String, TableContention> tables, int threads,
+                 boolean virtualThreads, long lockSamples, long wallNanos) {
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+        this.tables = Collections.unmodifiableMap(new TreeMap<>(tables));
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+        this.lockSamples = lockSamples;
+        this.wallNanos = wallNanos;
+    }
+
+    public List<OperationStats> getOperations() { return operations; }
+    public int getThreads() { return threads; }
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public long getLockSamples() { return lockSamples; }
+    public long getWallNanos() { return wallNanos; }
+
+    public OperationStats getOperation(String name) {
+        return operations.stream().filter(operation -> operation.name.equals(name)).findFirst().orElse(null);
+    }
+
+    /***
+     * @return The tables with any contention, the most first.
+     */
+    public List<TableContention> getTables() {
+        List<TableContention> sorted = new ArrayList<>(tables.values());
+        sorted.sort(Comparator.comparingLong(TableContention::getTotal).reversed());
+        return sorted;
+    }
+
+    public TableContention getTable(String tableName) {
+        return tables.get(tableName.toUpperCase(Locale.ROOT));
+    }
+
+    public long getTotalOperations() {
+        return operations.stream().mapToLong(OperationStats::getCount).sum();
+    }
+
+    public long getTotalFailures(Failure failure) {
+        return operations.stream().mapToLong(operation -> operation.getFailures(failure)).sum();
+    }
+
+    public double getOperationsPerSecond() {
+        return perSecond(getTotalOperations());
+    }
+
+    /***
+     * @return A multi-line summary: throughput, one line per operation with its
+     * latency percentiles in microseconds and failures, then the contended tables.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "Ran %,d operation(s) in %.1f ms (%,.0f/s on %d %s thread(s)), %,d lock sample(s)%n",
+                getTotalOperations(), wallNanos / (double) TimeUnit.MILLISECONDS.toNanos(1), getOperationsPerSecond(),
+                threads, virtualThreads ? "virtual" : "platform", lockSamples));
+        sb.append(String.format(Locale.ROOT, "  %-20s %10s %10s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "count",
+                "ops/s", "p50 us", "p99 us", "max us", "deadlock", "timeout", "dup key", "other"));
+
+        for (OperationStats operation : operations) {
+            LatencyHistogram latency = operation.latency;
+            sb.append(String.format(Locale.ROOT, "  %-20s %,10d %,10.0f %,9.1f %,9.1f %,9.1f %,9d %,9d %,9d %,9d%n",
+                    operation.name, operation.getCount(), perSecond(operation.getCount()),
+                    toMicros(latency.getValueAtPercentile(50)), toMicros(latency.getValueAtPercentile(99)),
+                    toMicros(latency.getMax()), operation.getFailures(Failure.DEADLOCK),
+                    operation.getFailures(Failure.LOCK_TIMEOUT), operation.getFailures(Failure.DUPLICATE_KEY),
+                    operation.getFailures(Failure.CONCURRENT_UPDATE) + operation.getFailures(Failure.OTHER)));
+            if (operation.firstError != null) {
+                sb.append("      first error: ").append(operation.firstError).append(System.lineSeparator());
+            }
+        }
+
+        List<TableContention> contended = getTables();
+        if (!contended.isEmpty()) {
+            sb.append("  Contention by table:").append(System.lineSeparator());
+            for (TableContention table : contended) {
+                sb.append(String.format(Locale.ROOT,
+                        "    %-30s blocked %,d sample(s), %,d deadlock(s), %,d lock timeout(s), %,d duplicate key(s)%n",
+                        table.tableName, table.blockedSamples, table.getFailures(Failure.DEADLOCK),
+                        table.getFailures(Failure.LOCK_TIMEOUT), table.getFailures(Failure.DUPLICATE_KEY)));
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private double perSecond(long count) {
+        return wallNanos > 0 ? count / (wallNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,251 @@
+package com.deepblue523.h2echo.synthetic;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/***
+ * Produces one column's values.  A value is a pure function of the seed, the
+ * column and the row number, so rows can be generated in any order, on any number
+ * of threads, and still come out the same.
+ * <p>
+ * There are three kinds of column:
+ * <p>
+ *    - KEY: every row gets a different value (primary keys, UNIQUE columns).
+ *      Row n gets value number offset + n, where offset skips past existing rows.
+ *    - REFERENCE: a foreign key; each row picks one of the parent's keys.
+ *    - VALUE: anything else; each row picks one of cardinality values.
+ * <p>
+ * Picks are uniform, or with a skew > 0 lean towards the first values following a
+ * power law (u^(1 + skew)), so a few parents own most of the children the way a few
+ * big customers do in production.
+ */
+class ColumnGenerator {
+    enum Kind { KEY, REFERENCE, VALUE }
+
+    /***
+     * The values a foreign key can pick from.
+     */
+    interface KeyDomain {
+        long size();
+        Object get(long index);
+    }
+
+    private static final List<String> SUPPORTED_TYPES = Arrays.asList(
+            "TINYINT", "SMALLINT", "INTEGER", "BIGINT", "BOOLEAN", "NUMERIC", "DECIMAL", "DECFLOAT",
+            "REAL", "DOUBLE PRECISION", "FLOAT", "CHARACTER", "CHARACTER VARYING", "VARCHAR_IGNORECASE",
+            "CHARACTER LARGE OBJECT", "DATE", "TIME", "TIMESTAMP", "TIMESTAMP WITH TIME ZONE", "UUID",
+            "BINARY", "BINARY VARYING", "BINARY LARGE OBJECT");
+
+    // Length used for strings with no declared maximum (TEXT, CLOB).
+    private static final int UNBOUNDED_STRING_LENGTH = 64;
+
+    private static final LocalDateTime BASE_TIMESTAMP = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    final SyntheticSchema.Column column;
+    final Kind kind;
+    private final long salt;
+    private final long cardinality;
+    private final double skew;
+    private final long keyOffset;
+    private final KeyDomain parent;
+    private int keyStringForm = 0;
+
+    private ColumnGenerator(SyntheticSchema.Column column, Kind kind, long salt, long cardinality, double skew,
+                            long keyOffset, KeyDomain parent) {
+        this.column = column;
+        this.kind = kind;
+        this.salt = salt;
+        this.cardinality = cardinality;
+        this.skew = skew;
+        this.keyOffset = keyOffset;
+        this.parent = parent;
+    }
+
+    static ColumnGenerator key(String tableName, SyntheticSchema.Column column, long seed, long keyOffset, long rows) {
+        ColumnGenerator generator = new ColumnGenerator(
+                column, Kind.KEY, salt(seed, tableName, column), rows, 0, keyOffset, null);
+        generator.checkKeyFits(keyOffset + rows);
+        return generator;
+    }
+
+    static ColumnGenerator reference(String tableName, SyntheticSchema.Column column, long seed, KeyDomain parent,
+                                     long cardinality, double skew) {
+        long parentCardinality = cardinality > 0 ? Math.min(cardinality, parent.size()) : parent.size();
+        return new ColumnGenerator(
+                column, Kind.REFERENCE, salt(seed, tableName, column), parentCardinality, skew, 0, parent);
+    }
+
+    static ColumnGenerator value(String tableName, SyntheticSchema.Column column, long seed, long cardinality,
+                                 double skew) {
+        long valueCardinality = cardinality > 0 ? cardinality : (column.dataType.equals("BOOLEAN") ? 2 : 1000);
+        return new ColumnGenerator(
+                column, Kind.VALUE, salt(seed, tableName, column), valueCardinality, skew, 0, null);
+    }
+
+    static boolean isSupported(String dataType) {
+        return SUPPORTED_TYPES.contains(dataType);
+    }
+
+    /***
+     * A KEY column's values, as a domain for the foreign keys that reference it.
+     */
+    KeyDomain asKeyDomain(long rows) {
+        return new KeyDomain() {
+            @Override
+            public long size() {
+                return rows;
+            }
+
+            @Override
+            public Object get(long index) {
+                return format(keyOffset + index, true);
+            }
+        };
+    }
+
+    Object valueFor(long rowIndex) {
+        switch (kind) {
+            case KEY:
+                return format(keyOffset + rowIndex, true);
+            case REFERENCE:
+                // A unique foreign key (one-to-one) takes the parents in turn.
+                return parent.get(column.unique ? rowIndex % parent.size() : pick(rowIndex));
+            default:
+                return format(pick(rowIndex), false);
+        }
+    }
+
+    private long pick(long rowIndex) {
+        double u = (mix64(salt + rowIndex * 0x9E3779B97F4A7C15L) >>> 11) * 0x1.0p-53;
+        if (skew > 0) {
+            u = Math.pow(u, 1 + skew);
+        }
+
+        return Math.min(cardinality - 1, (long) (u * cardinality));
+    }
+
+    /***
+     * Value number n of this column's type.  Keys never repeat; plain values may
+     * be cut short to fit the column.
+     */
+    private Object format(long n, boolean key) {
+        switch (column.dataType) {
+            case "TINYINT":
+                return n % 128;
+            case "SMALLINT":
+                return n % 32768;
+            case "INTEGER":
+            case "BIGINT":
+                return n + 1;
+            case "BOOLEAN":
+                return n % 2 == 1;
+            case "NUMERIC":
+            case "DECIMAL":
+            case "DECFLOAT":
+                int precision = column.precision > 0 ? Math.min(column.precision, 18) : 18;
+                long limit = BigInteger.TEN.pow(precision).longValue();
+                return BigDecimal.valueOf((n + 1) % limit, column.scale);
+            case "REAL":
+            case "DOUBLE PRECISION":
+            case "FLOAT":
+                return (n + 1) / 100.0;
+            case "DATE":
+                return LocalDate.of(2020, 1, 1).plusDays(key ? n : n % 20_000);
+            case "TIME":
+                return LocalTime.ofSecondOfDay(n % 86_400);
+            case "TIMESTAMP":
+                return BASE_TIMESTAMP.plusSeconds(n);
+            case "TIMESTAMP WITH TIME ZONE":
+                return OffsetDateTime.of(BASE_TIMESTAMP.plusSeconds(n), ZoneOffset.UTC);
+            case "UUID":
+                return new UUID(salt, n);
+            case "BINARY":
+            case "BINARY VARYING":
+            case "BINARY LARGE OBJECT":
+                byte[] bytes = ByteBuffer.allocate(8).putLong(n).array();
+                return column.maxLength > 0 && column.maxLength < 8
+                        ? Arrays.copyOfRange(bytes, (int) (8 - column.maxLength), 8)
+                        : bytes;
+            default:
+                return formatString(n, key);
+        }
+    }
+
+    /***
+     * Strings are "column_name-n" when that fits, else n in decimal, else in base 36.
+     * A key column uses the same form for every row (the one its highest value
+     * needs), so no two rows can meet.
+     */
+    private String formatString(long n, boolean key) {
+        long maxLength = column.maxLength > 0 ? column.maxLength : UNBOUNDED_STRING_LENGTH;
+        int form = key ? keyStringForm : stringForm(n, maxLength);
+
+        String value = formatString(n, form);
+        return (key || value.length() <= maxLength) ? value : value.substring(value.length() - (int) maxLength);
+    }
+
+    private String formatString(long n, int form) {
+        switch (form) {
+            case 0:
+                return column.name.toLowerCase(Locale.ROOT) + "-" + n;
+            case 1:
+                return Long.toString(n);
+            default:
+                return Long.toString(n, 36);
+        }
+    }
+
+    private int stringForm(long n, long maxLength) {
+        for (int form = 0; form < 2; form++) {
+            if (formatString(n, form).length() <= maxLength) {
+                return form;
+            }
+        }
+
+        return 2;
+    }
+
+    private void checkKeyFits(long highestN) {
+        if (column.dataType.equals("TINYINT") || column.dataType.equals("SMALLINT")) {
+            long limit = column.dataType.equals("TINYINT") ? 128 : 32768;
+            if (highestN > limit) {
+                throw new IllegalArgumentException(
+                        column.name + " can't hold " + highestN + " distinct " + column.dataType + " values");
+            }
+        } else if (column.dataType.equals("INTEGER") && highestN >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(column.name + " can't hold " + highestN + " distinct INTEGER values");
+        } else if (column.dataType.equals("BOOLEAN") && highestN > 2) {
+            throw new IllegalArgumentException(column.name + " is a unique BOOLEAN, so it can only have 2 rows");
+        } else if (format(0, true) instanceof String) {
+            long maxLength = column.maxLength > 0 ? column.maxLength : UNBOUNDED_STRING_LENGTH;
+            keyStringForm = stringForm(highestN, maxLength);
+            if (formatString(highestN, keyStringForm).length() > maxLength) {
+                throw new IllegalArgumentException(column.name + " (length " + maxLength + ") is too short for "
+                        + highestN + " distinct values");
+            }
+        }
+    }
+
+    private static long salt(long seed, String tableName, SyntheticSchema.Column column) {
+        return mix64(seed ^ mix64((tableName + "." + column.name).hashCode()));
+    }
+
+    /***
+     * SplittableRandom's 64-bit mix: consecutive inputs give unrelated outputs.
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
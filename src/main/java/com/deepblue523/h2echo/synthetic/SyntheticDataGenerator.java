@@ -0,0 +1,452 @@
+package com.deepblue523.h2echo.synthetic;
+
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Fills tables of an already migrated database with synthetic rows, for exercising
+ * DAOs (paging, lookups, joins) at production volumes.  Everything it needs comes
+ * from the schema itself:
+ * <p>
+ *    - Column types and lengths decide what values look like.
+ *    - Primary keys, identity columns and UNIQUE constraints get values that never
+ *      repeat (for a composite UNIQUE key, one of its columns is made unique).
+ *    - Single-column foreign keys point at rows of the parent: rows generated for
+ *      it in the same run, or else the rows it already has.  Tables are filled
+ *      parents first.
+ * <p>
+ * Rows are deterministic: the same seed and settings give the same rows, however
+ * many threads are used (see ColumnGenerator).  Each table's rows are split into
+ * chunks that are inserted in parallel, each on its own connection with batched
+ * prepared statements.  Identity columns are moved past the generated ids
+ * afterwards.
+ * <p>
+ * By default each plain column picks from 1000 distinct values (BOOLEAN from 2),
+ * uniformly, and each foreign key from all of its parent's rows.  setCardinality()
+ * and setSkew() change that per column.  Nullable columns the generator can't fill
+ * (unsupported types, self references, parents with no rows) are left NULL.
+ * <p>
+ * Usage:
+ * <p>
+ *    SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource, 42);
+ *    generator.setRows("nrm_call_groups", 1_000);
+ *    generator.setRows("nrm_phone_numbers", 10_000_000);
+ *    generator.setSkew("nrm_phone_numbers.call_group_id", 1.5);
+ *    generator.setCardinality("nrm_phone_numbers.department", 25);
+ *    SyntheticDataReport report = generator.generate(true);
+ * <p>
+ * Table and column names are looked up the way H2 folds unquoted names (upper
+ * case), falling back to the name exactly as given.
+ */
+public class SyntheticDataGenerator {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Batches per parallel chunk of a table.  Small enough to spread a table evenly.
+    private static final int BATCHES_PER_CHUNK = 20;
+
+    private final DataSource dataSource;
+    private final long seed;
+    private final Map<String, Long> rowsByTable = new LinkedHashMap<>();
+    private final Map<String, Long> cardinalities = new HashMap<>();
+    private final Map<String, Double> skews = new HashMap<>();
+    private int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /***
+     * @param dataSource The database to fill.  Each thread takes its own connection,
+     *                   so it must not be a single-connection data source.
+     * @param seed Decides every generated value.
+     */
+    public SyntheticDataGenerator(DataSource dataSource, long seed) {
+        this.dataSource = dataSource;
+        this.seed = seed;
+    }
+
+    /***
+     * @param tableName A table to fill.
+     * @param rows How many rows to add to it.
+     */
+    public void setRows(String tableName, long rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be at least 1");
+        }
+
+        rowsByTable.put(tableName, rows);
+    }
+
+    /***
+     * @param columnName "table.column".
+     * @param cardinality How many distinct values the column gets (for a foreign
+     *                    key: how many of the parent's rows are used).
+     */
+    public void setCardinality(String columnName, long cardinality) {
+        if (cardinality < 1) {
+            throw new IllegalArgumentException("cardinality must be at least 1");
+        }
+
+        cardinalities.put(columnKey(columnName), cardinality);
+    }
+
+    /***
+     * @param columnName "table.column".
+     * @param skew 0 for uniform picks; higher values crowd more of the rows onto the
+     *             first few values (1 to 2 is a typical "few big customers" shape).
+     */
+    public void setSkew(String columnName, double skew) {
+        if (skew < 0) {
+            throw new IllegalArgumentException("skew can't be negative");
+        }
+
+        skews.put(columnKey(columnName), skew);
+    }
+
+    /***
+     * @param threads How many chunks of a table to insert at once.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        this.threads = threads;
+    }
+
+    /***
+     * @param batchSize How many rows to send to H2 per JDBC batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /***
+     * Generate the rows.
+     *
+     * @param displayLog True to print each table's rows and rows/s to the console.
+     * @return The report for the run.
+     * @throws IllegalArgumentException If a table is unknown, or a column can't be filled.
+     * @throws IllegalStateException If the rows can't be inserted.
+     */
+    public SyntheticDataReport generate(boolean displayLog) {
+        SyntheticDataReport report = new SyntheticDataReport(seed, threads);
+        long startNanos = System.nanoTime();
+
+        // Generated key columns, as "TABLE.COLUMN", for the foreign keys that follow.
+        Map<String, ColumnGenerator.KeyDomain> generatedKeys = new HashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "h2echo-synthetic");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            SyntheticSchema schema;
+            try (Connection connection = dataSource.getConnection()) {
+                schema = SyntheticSchema.read(connection);
+            }
+
+            Map<SyntheticSchema.Table, Long> tables = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : rowsByTable.entrySet()) {
+                tables.put(findTable(schema, entry.getKey()), entry.getValue());
+            }
+
+            for (SyntheticSchema.Table table : orderByForeignKeys(tables.keySet())) {
+                long rows = tables.get(table);
+                ChromeTrace.Span span = ChromeTrace.begin("synthetic", table.name);
+                long tableStartNanos = System.nanoTime();
+
+                List<ColumnGenerator> generators = planTable(schema, table, rows, generatedKeys);
+                fillTable(executor, table, rows, generators);
+                restartIdentity(table);
+
+                for (ColumnGenerator generator : generators) {
+                    if (generator.kind == ColumnGenerator.Kind.KEY) {
+                        generatedKeys.put(table.name + "." + generator.column.name, generator.asKeyDomain(rows));
+                    }
+                }
+
+                SyntheticDataReport.TableFill fill =
+                        new SyntheticDataReport.TableFill(table.name, rows, System.nanoTime() - tableStartNanos);
+                report.addTableFill(fill);
+                span.arg("rows", rows).end();
+
+                if (displayLog) {
+                    System.out.printf(Locale.ROOT, "Synthetic data: %,d rows into %s (%,.0f rows/s)%n",
+                            rows, table.name, fill.getRowsPerSecond());
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to generate synthetic data: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.setWallNanos(System.nanoTime() - startNanos);
+        if (displayLog) {
+            System.out.print(report.format());
+        }
+
+        return report;
+    }
+
+    /***
+     * Decide how each column of a table is filled.  Columns left out of the list are
+     * left to their defaults (or NULL).
+     */
+    private List<ColumnGenerator> planTable(SyntheticSchema schema, SyntheticSchema.Table table, long rows,
+                                            Map<String, ColumnGenerator.KeyDomain> generatedKeys)
+            throws SQLException {
+        Set<String> keyColumns = new HashSet<>();
+        for (SyntheticSchema.Column column : table.columns.values()) {
+            if ((column.unique || column.identity) && column.parentTable == null) {
+                keyColumns.add(column.name);
+            }
+        }
+
+        // One unique column is enough to keep a composite UNIQUE key unique.
+        for (List<String> uniqueKey : table.uniqueKeys) {
+            if (uniqueKey.stream().anyMatch(keyColumns::contains)) {
+                continue;
+            }
+
+            String keyColumn = uniqueKey.stream()
+                    .filter(name -> table.columns.get(name).parentTable == null)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Can't keep " + table.name + " " + uniqueKey
+                            + " unique: every column of it is a foreign key"));
+            keyColumns.add(keyColumn);
+        }
+
+        List<ColumnGenerator> generators = new ArrayList<>();
+        for (SyntheticSchema.Column column : table.columns.values()) {
+            String columnKey = table.name + "." + column.name;
+            long cardinality = cardinalities.getOrDefault(columnKey, 0L);
+            double skew = skews.getOrDefault(columnKey, 0.0);
+
+            if (!ColumnGenerator.isSupported(column.dataType)) {
+                requireNullable(table, column, "has an unsupported type (" + column.dataType + ")");
+            } else if (keyColumns.contains(column.name)) {
+                long offset = getKeyOffset(table, column);
+                generators.add(ColumnGenerator.key(table.name, column, seed, offset, rows));
+            } else if (column.parentTable != null) {
+                ColumnGenerator.KeyDomain parent = null;
+                if (!column.parentTable.equals(table.name)) {
+                    parent = generatedKeys.get(column.parentTable + "." + column.parentColumn);
+                    if (parent == null) {
+                        parent = readExistingKeys(schema.getTable(column.parentTable), column);
+                    }
+                }
+
+                if (parent == null || parent.size() == 0) {
+                    requireNullable(table, column, "references " + column.parentTable + ", which has no rows to use");
+                } else {
+                    generators.add(ColumnGenerator.reference(table.name, column, seed, parent, cardinality, skew));
+                }
+            } else {
+                generators.add(ColumnGenerator.value(table.name, column, seed, cardinality, skew));
+            }
+        }
+
+        return generators;
+    }
+
+    private void fillTable(
+            ExecutorService executor, SyntheticSchema.Table table, long rows, List<ColumnGenerator> generators)
+            throws SQLException {
+        List<String> columnNames = new ArrayList<>();
+        for (ColumnGenerator generator : generators) {
+            columnNames.add("\"" + generator.column.name + "\"");
+        }
+
+        String sql = "INSERT INTO " + table.qualifiedName() + " (" + String.join(", ", columnNames) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columnNames.size(), "?")) + ")";
+
+        long chunkRows = (long) batchSize * BATCHES_PER_CHUNK;
+        List<Future<?>> chunks = new ArrayList<>();
+        for (long firstRow = 0; firstRow < rows; firstRow += chunkRows) {
+            long from = firstRow;
+            long to = Math.min(rows, firstRow + chunkRows);
+            chunks.add(executor.submit(() -> {
+                insertRows(sql, generators, from, to);
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating " + table.name, e);
+        } catch (ExecutionException e) {
+            for (Future<?> chunk : chunks) {
+                chunk.cancel(true);
+            }
+
+            Throwable cause = e.getCause();
+            throw new SQLException(table.name + " - " + cause.getMessage(), cause);
+        }
+    }
+
+    private void insertRows(String sql, List<ColumnGenerator> generators, long from, long to) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+
+            int pending = 0;
+            for (long row = from; row < to; row++) {
+                for (int i = 0; i < generators.size(); i++) {
+                    ps.setObject(i + 1, generators.get(i).valueFor(row));
+                }
+                ps.addBatch();
+
+                if (++pending == batchSize) {
+                    ps.executeBatch();
+                    connection.commit();
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                ps.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+
+    /***
+     * Where a key column's generated values start, so they miss the rows already
+     * there: past the row count, and for integers past the highest value too.
+     */
+    private long getKeyOffset(SyntheticSchema.Table table, SyntheticSchema.Column column) throws SQLException {
+        boolean integer = column.dataType.equals("INTEGER") || column.dataType.equals("BIGINT");
+        String sql = "SELECT COUNT(*)" + (integer ? ", COALESCE(MAX(\"" + column.name + "\"), 0)" : "")
+                + " FROM " + table.qualifiedName();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return integer ? Math.max(rs.getLong(1), rs.getLong(2)) : rs.getLong(1);
+        }
+    }
+
+    /***
+     * The keys a parent that isn't being generated already has.
+     */
+    private ColumnGenerator.KeyDomain readExistingKeys(SyntheticSchema.Table parentTable, SyntheticSchema.Column column) {
+        List<Object> keys = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT DISTINCT \"" + column.parentColumn + "\" FROM "
+                     + parentTable.qualifiedName() + " WHERE \"" + column.parentColumn + "\" IS NOT NULL ORDER BY 1")) {
+            while (rs.next()) {
+                keys.add(rs.getObject(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to read the keys of " + column.parentTable + ": " + e.getMessage(), e);
+        }
+
+        return new ColumnGenerator.KeyDomain() {
+            @Override
+            public long size() {
+                return keys.size();
+            }
+
+            @Override
+            public Object get(long index) {
+                return keys.get((int) index);
+            }
+        };
+    }
+
+    private void restartIdentity(SyntheticSchema.Table table) throws SQLException {
+        for (SyntheticSchema.Column column : table.columns.values()) {
+            if (!column.identity) {
+                continue;
+            }
+
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                long nextId = 1;
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT MAX(\"" + column.name + "\") FROM " + table.qualifiedName())) {
+                    if (rs.next()) {
+                        nextId = rs.getLong(1) + 1;
+                    }
+                }
+
+                statement.execute("ALTER TABLE " + table.qualifiedName() + " ALTER COLUMN \"" + column.name
+                        + "\" RESTART WITH " + nextId);
+            }
+        }
+    }
+
+    /***
+     * Parents before children.  A cycle is broken by taking the remaining tables in
+     * the order they were added.
+     */
+    private static List<SyntheticSchema.Table> orderByForeignKeys(Set<SyntheticSchema.Table> tables) {
+        List<SyntheticSchema.Table> remaining = new ArrayList<>(tables);
+        List<SyntheticSchema.Table> ordered = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+            SyntheticSchema.Table next = remaining.stream()
+                    .filter(table -> table.columns.values().stream().noneMatch(column ->
+                            column.parentTable != null && !column.parentTable.equals(table.name)
+                                    && remaining.stream().anyMatch(other -> other.name.equals(column.parentTable))))
+                    .findFirst()
+                    .orElse(remaining.get(0));
+
+            remaining.remove(next);
+            ordered.add(next);
+        }
+
+        return ordered;
+    }
+
+    private static SyntheticSchema.Table findTable(SyntheticSchema schema, String tableName) {
+        String upper = tableName.toUpperCase(Locale.ROOT);
+        return schema.tables.containsKey(upper) ? schema.getTable(upper) : schema.getTable(tableName);
+    }
+
+    private static void requireNullable(SyntheticSchema.Table table, SyntheticSchema.Column column, String reason) {
+        if (!column.nullable) {
+            throw new IllegalArgumentException(table.name + "." + column.name + " " + reason + " and can't be NULL");
+        }
+    }
+
+    private static String columnKey(String columnName) {
+        int dot = columnName.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Expected \"table.column\", got: " + columnName);
+        }
+
+        return columnName.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,90 @@
+package com.deepblue523.h2echo.synthetic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * What one SyntheticDataGenerator run wrote: rows and time per table, in the order
+ * the tables were filled (parents first).  Times are in nanoseconds.
+ */
+public class SyntheticDataReport {
+
+    /***
+     * Rows generated for one table.
+     */
+    public static class TableFill {
+        private final String tableName;
+        private final long rows;
+        private final long nanos;
+
+        TableFill(String tableName, long rows, long nanos) {
+            this.tableName = tableName;
+            this.rows = rows;
+            this.nanos = nanos;
+        }
+
+        public String getTableName() { return tableName; }
+        public long getRows() { return rows; }
+        public long getNanos() { return nanos; }
+
+        public double getRowsPerSecond() {
+            return nanos > 0 ? rows / (nanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+    }
+
+    private final Map<String, TableFill> tables = new LinkedHashMap<>();
+    private final long seed;
+    private final int threads;
+    private long wallNanos;
+
+    SyntheticDataReport(long seed, int threads) {
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    void addTableFill(TableFill tableFill) { tables.put(tableFill.getTableName(), tableFill); }
+    void setWallNanos(long wallNanos) { this.wallNanos = wallNanos; }
+
+    public List<TableFill> getTables() { return new ArrayList<>(tables.values()); }
+    public long getSeed() { return seed; }
+    public int getThreads() { return threads; }
+    public long getWallNanos() { return wallNanos; }
+
+    public TableFill getTable(String tableName) {
+        return tables.get(tableName);
+    }
+
+    public long getTotalRows() {
+        return tables.values().stream().mapToLong(TableFill::getRows).sum();
+    }
+
+    public double getRowsPerSecond() {
+        return wallNanos > 0 ? getTotalRows() / (wallNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+    }
+
+    /***
+     * @return A multi-line summary, one line per table.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "Generated %,d rows into %d table(s) in %.1f ms (%,.0f rows/s on %d thread(s), seed %d)%n",
+                getTotalRows(), tables.size(), wallNanos / 1_000_000.0, getRowsPerSecond(), threads, seed));
+
+        for (TableFill table : tables.values()) {
+            sb.append(String.format(Locale.ROOT, "  %,12d rows  %,10.0f rows/s  %s%n",
+                    table.getRows(), table.getRowsPerSecond(), table.getTableName()));
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,157 @@
+package com.deepblue523.h2echo.synthetic;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * The parts of the migrated schema the generator needs, read from H2's
+ * INFORMATION_SCHEMA: column types, primary keys, UNIQUE constraints and
+ * single-column foreign keys.  Table and column names are as H2 stores them
+ * (upper case, unless they were quoted).
+ */
+class SyntheticSchema {
+
+    static class Column {
+        final String name;
+        final String dataType;
+        final long maxLength;
+        final int precision;
+        final int scale;
+        final boolean nullable;
+        final boolean identity;
+
+        // Set when the column's values must all differ.
+        boolean unique;
+
+        // Set for a single-column foreign key: the referenced table and column.
+        String parentTable;
+        String parentColumn;
+
+        Column(String name, String dataType, long maxLength, int precision, int scale,
+               boolean nullable, boolean identity) {
+            this.name = name;
+            this.dataType = dataType;
+            this.maxLength = maxLength;
+            this.precision = precision;
+            this.scale = scale;
+            this.nullable = nullable;
+            this.identity = identity;
+        }
+    }
+
+    static class Table {
+        final String schema;
+        final String name;
+        final Map<String, Column> columns = new LinkedHashMap<>();
+        final List<List<String>> uniqueKeys = new ArrayList<>();
+
+        Table(String schema, String name) {
+            this.schema = schema;
+            this.name = name;
+        }
+
+        String qualifiedName() {
+            return "\"" + schema + "\".\"" + name + "\"";
+        }
+    }
+
+    // By table name.
+    final Map<String, Table> tables = new LinkedHashMap<>();
+
+    static SyntheticSchema read(Connection connection) throws SQLException {
+        SyntheticSchema schema = new SyntheticSchema();
+
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT C.TABLE_SCHEMA, C.TABLE_NAME, C.COLUMN_NAME, C.DATA_TYPE, C.CHARACTER_MAXIMUM_LENGTH, "
+                            + "C.NUMERIC_PRECISION, C.NUMERIC_SCALE, C.IS_NULLABLE, C.IS_IDENTITY "
+                            + "FROM INFORMATION_SCHEMA.COLUMNS C JOIN INFORMATION_SCHEMA.TABLES T "
+                            + "ON T.TABLE_SCHEMA = C.TABLE_SCHEMA AND T.TABLE_NAME = C.TABLE_NAME "
+                            + "WHERE T.TABLE_TYPE = 'BASE TABLE' AND C.TABLE_SCHEMA <> 'INFORMATION_SCHEMA' "
+                            + "ORDER BY C.TABLE_SCHEMA, C.TABLE_NAME, C.ORDINAL_POSITION")) {
+                while (rs.next()) {
+                    String tableSchema = rs.getString(1);
+                    Table table = schema.tables.computeIfAbsent(rs.getString(2), name -> new Table(tableSchema, name));
+                    table.columns.put(rs.getString(3), new Column(rs.getString(3), rs.getString(4),
+                            rs.getLong(5), rs.getInt(6), rs.getInt(7),
+                            "YES".equals(rs.getString(8)), "YES".equals(rs.getString(9))));
+                }
+            }
+
+            // Primary keys and UNIQUE constraints, with their columns in key order.
+            Map<String, List<String>> keyColumns = new LinkedHashMap<>();
+            Map<String, String> keyTables = new LinkedHashMap<>();
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT TC.CONSTRAINT_SCHEMA, TC.CONSTRAINT_NAME, TC.TABLE_NAME, KCU.COLUMN_NAME "
+                            + "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS TC JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE KCU "
+                            + "ON KCU.CONSTRAINT_SCHEMA = TC.CONSTRAINT_SCHEMA AND KCU.CONSTRAINT_NAME = TC.CONSTRAINT_NAME "
+                            + "WHERE TC.CONSTRAINT_TYPE IN ('PRIMARY KEY', 'UNIQUE') "
+                            + "ORDER BY TC.CONSTRAINT_SCHEMA, TC.CONSTRAINT_NAME, KCU.ORDINAL_POSITION")) {
+                while (rs.next()) {
+                    String key = rs.getString(1) + "." + rs.getString(2);
+                    keyTables.put(key, rs.getString(3));
+                    keyColumns.computeIfAbsent(key, k -> new ArrayList<>()).add(rs.getString(4));
+                }
+            }
+
+            for (Map.Entry<String, List<String>> entry : keyColumns.entrySet()) {
+                Table table = schema.tables.get(keyTables.get(entry.getKey()));
+                if (table != null) {
+                    table.uniqueKeys.add(entry.getValue());
+                    if (entry.getValue().size() == 1) {
+                        table.columns.get(entry.getValue().get(0)).unique = true;
+                    }
+                }
+            }
+
+            // Foreign keys.  Only single-column ones can be followed value by value.
+            Map<String, List<String[]>> foreignKeys = new LinkedHashMap<>();
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT RC.CONSTRAINT_SCHEMA, RC.CONSTRAINT_NAME, FK.TABLE_NAME, FK.COLUMN_NAME, "
+                            + "PK.TABLE_NAME, PK.COLUMN_NAME "
+                            + "FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS RC "
+                            + "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE FK "
+                            + "ON FK.CONSTRAINT_SCHEMA = RC.CONSTRAINT_SCHEMA AND FK.CONSTRAINT_NAME = RC.CONSTRAINT_NAME "
+                            + "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE PK "
+                            + "ON PK.CONSTRAINT_SCHEMA = RC.UNIQUE_CONSTRAINT_SCHEMA "
+                            + "AND PK.CONSTRAINT_NAME = RC.UNIQUE_CONSTRAINT_NAME "
+                            + "AND PK.ORDINAL_POSITION = FK.POSITION_IN_UNIQUE_CONSTRAINT")) {
+                while (rs.next()) {
+                    foreignKeys.computeIfAbsent(rs.getString(1) + "." + rs.getString(2), k -> new ArrayList<>())
+                            .add(new String[] {rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6)});
+                }
+            }
+
+            for (List<String[]> foreignKey : foreignKeys.values()) {
+                if (foreignKey.size() != 1) {
+                    continue;
+                }
+
+                String[] reference = foreignKey.get(0);
+                Table table = schema.tables.get(reference[0]);
+                if (table != null) {
+                    Column column = table.columns.get(reference[1]);
+                    column.parentTable = reference[2];
+                    column.parentColumn = reference[3];
+                }
+            }
+        }
+
+        return schema;
+    }
+
+    Table getTable(String tableName) {
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("Table not found in the database: " + tableName);
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,280 @@
+package com.deepblue523.h2echo.verify;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Field-by-field comparison of beans, for checking the results of DAO calls.
+ * <p>
+ * Walking the declared fields, calling setAccessible() and looking up the excluded
+ * names is the same work for every pair of beans, so it is done once per class
+ * (cached in a ClassValue) and once per exclude list.  Each comparator holds a
+ * getter MethodHandle per compared field; what's left per bean is reading the
+ * fields and calling equals().
+ * <p>
+ * The instance fields of the class and its superclasses are compared.  Whole lists
+ * (by position), maps (by key) or collections keyed by an id field can be compared
+ * in one call, giving a BeanDiff:
+ * <p>
+ *    BeanComparator&lt;NrmPhoneNumber&gt; comparator = BeanComparator.forClass(NrmPhoneNumber.class, "createdAt", "updatedAt");
+ *    BeanDiff diff = comparator.compareById(expected, dao.getAll(), "id");
+ *    assertTrue(diff.isEmpty(), diff.format());
+ */
+public class BeanComparator<T> {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ClassPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ClassPlan computeValue(Class<?> type) {
+            return new ClassPlan(type);
+        }
+    };
+
+    /***
+     * The fields of a class, and the comparators built for it so far (by exclude list).
+     */
+    private static class ClassPlan {
+        final Class<?> type;
+        final List<String> names = new ArrayList<>();
+        final List<MethodHandle> getters = new ArrayList<>();
+        final Map<List<String>, BeanComparator<?>> comparators = new ConcurrentHashMap<>();
+
+        ClassPlan(Class<?> type) {
+            this.type = type;
+
+            // Superclass fields first, so differences are listed in declaration order.
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+
+            // The beans do have (Lombok) getters, but the fields are read directly: that
+            // compares the stored state of any bean, whatever its accessors are named or
+            // do, and a field handle costs no more to call than a getter bound with
+            // LambdaMetafactory would.
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (Class<?> current : hierarchy) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                        continue;
+                    }
+
+                    try {
+                        field.setAccessible(true);
+                        getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+                        names.add(field.getName());
+                    } catch (IllegalAccessException | RuntimeException e) {
+                        throw new IllegalArgumentException("Unable to read field '" + field.getName() + "' of "
+                                + type.getName() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private final Class<T> type;
+    private final String[] names;
+    private final MethodHandle[] getters;
+
+    private BeanComparator(Class<T> type, String[] names, MethodHandle[] getters) {
+        this.type = type;
+        this.names = names;
+        this.getters = getters;
+    }
+
+    /***
+     * @param type The bean class.
+     * @param excludeFields Fields to leave out of the comparison.
+     * @return A comparator for the class, cached for the same exclude list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanComparator<T> forClass(Class<T> type, String... excludeFields) {
+        ClassPlan plan = PLANS.get(type);
+        List<String> excluded = excludeFields != null ? List.copyOf(Arrays.asList(excludeFields)) : Collections.emptyList();
+
+        return (BeanComparator<T>) plan.comparators.computeIfAbsent(excluded, key -> build(plan, key));
+    }
+
+    private static BeanComparator<?> build(ClassPlan plan, List<String> excluded) {
+        Set<String> excludeSet = new HashSet<>(excluded);
+        for (String name : excludeSet) {
+            if (!plan.names.contains(name)) {
+                throw new IllegalArgumentException("Excluded field '" + name + "' is not a field of " + plan.type.getName());
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        for (int i = 0; i < plan.names.size(); i++) {
+            if (!excludeSet.contains(plan.names.get(i))) {
+                names.add(plan.names.get(i));
+                getters.add(plan.getters.get(i));
+            }
+        }
+
+        return new BeanComparator<>(plan.type, names.toArray(new String[0]), getters.toArray(new MethodHandle[0]));
+    }
+
+    /***
+     * @return The fields compared, in order.
+     */
+    public List<String> getFieldNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /***
+     * @return True if every compared field is equal (or both null).
+     */
+    public boolean matches(T expected, T actual) {
+        if (expected == actual) {
+            return true;
+        }
+        if (expected == null || actual == null) {
+            return false;
+        }
+
+        for (MethodHandle getter : getters) {
+            if (!Objects.equals(get(getter, expected), get(getter, actual))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /***
+     * @return The fields that differ, in order; empty if the beans match.
+     * @throws IllegalArgumentException If either bean is null.
+     */
+    public List<BeanDiff.FieldDifference> diff(T expected, T actual) {
+        if (expected == null || actual == null) {
+            throw new IllegalArgumentException("Beans to compare cannot be null");
+        }
+
+        List<BeanDiff.FieldDifference> differences = null;
+        for (int i = 0; i < getters.length; i++) {
+            Object expectedValue = get(getters[i], expected);
+            Object actualValue = get(getters[i], actual);
+
+            if (!Objects.equals(expectedValue, actualValue)) {
+                if (differences == null) {
+                    differences = new ArrayList<>();
+                }
+                differences.add(new BeanDiff.FieldDifference(names[i], expectedValue, actualValue));
+            }
+        }
+
+        return differences != null ? differences : Collections.emptyList();
+    }
+
+    /***
+     * Compare two lists position by position; the keys in the result are the indexes.
+     */
+    public BeanDiff compareLists(List<? extends T> expected, List<? extends T> actual) {
+        Map<Object, T> expectedByIndex = new LinkedHashMap<>();
+        for (int i = 0; i < expected.size(); i++) {
+            expectedByIndex.put(i, expected.get(i));
+        }
+
+        Map<Object, T> actualByIndex = new LinkedHashMap<>();
+        for (int i = 0; i < actual.size(); i++) {
+            actualByIndex.put(i, actual.get(i));
+        }
+
+        return compareMaps(expectedByIndex, actualByIndex);
+    }
+
+    /***
+     * Compare two collections, pairing beans up by the value of a field such as "id".
+     *
+     * @throws IllegalArgumentException If the field doesn't exist or a value repeats.
+     */
+    public BeanDiff compareById(Collection<? extends T> expected, Collection<? extends T> actual, String idField) {
+        MethodHandle idGetter = PLANS.get(type).getters.get(indexOfField(idField));
+
+        return compareMaps(byId(expected, idGetter, idField, "expected"), byId(actual, idGetter, idField, "actual"));
+    }
+
+    /***
+     * Compare two maps, pairing beans up by key.  Keys are reported in the expected
+     * map's order, then the actual map's.
+     */
+    public BeanDiff compareMaps(Map<?, ? extends T> expected, Map<?, ? extends T> actual) {
+        BeanDiff diff = new BeanDiff(type.getSimpleName());
+
+        for (Map.Entry<?, ? extends T> entry : expected.entrySet()) {
+            if (!actual.containsKey(entry.getKey())) {
+                diff.missing.add(entry.getKey());
+                continue;
+            }
+
+            T actualBean = actual.get(entry.getKey());
+            T expectedBean = entry.getValue();
+            if (expectedBean == null || actualBean == null) {
+                if (expectedBean != actualBean) {
+                    diff.changed.put(entry.getKey(), Collections.singletonList(
+                            new BeanDiff.FieldDifference("(bean)", expectedBean, actualBean)));
+                }
+                continue;
+            }
+
+            List<BeanDiff.FieldDifference> differences = diff(expectedBean, actualBean);
+            if (!differences.isEmpty()) {
+                diff.changed.put(entry.getKey(), differences);
+            }
+        }
+
+        for (Object key : actual.keySet()) {
+            if (!expected.containsKey(key)) {
+                diff.unexpected.add(key);
+            }
+        }
+
+        return diff;
+    }
+
+    private Map<Object, T> byId(Collection<? extends T> beans, MethodHandle idGetter, String idField, String side) {
+        Map<Object, T> byId = new LinkedHashMap<>();
+        for (T bean : beans) {
+            Object id = get(idGetter, bean);
+            if (byId.put(id, bean) != null) {
+                throw new IllegalArgumentException("The " + side + " beans have more than one with " + idField + " = " + id);
+            }
+        }
+
+        return byId;
+    }
+
+    private int indexOfField(String name) {
+        int index = PLANS.get(type).names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("'" + name + "' is not a field of " + type.getName());
+        }
+
+        return index;
+    }
+
+    private static Object get(MethodHandle getter, Object bean) {
+        try {
+            return (Object) getter.invokeExact(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to read a field of " + bean.getClass().getName(), e);
+        }
+    }
+}
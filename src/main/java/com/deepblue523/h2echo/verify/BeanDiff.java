@@ -0,0 +1,112 @@
+package com.deepblue523.h2echo.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/***
+ * The result of comparing two sets of beans with a BeanComparator, keyed by list
+ * index, map key or id:
+ * <p>
+ *    - Missing: keys expected but not found.
+ *    - Unexpected: keys found but not expected.
+ *    - Changed: keys found on both sides, with the fields that differ.
+ */
+public class BeanDiff {
+    /***
+     * How many keys of each kind format() lists.
+     */
+    public static final int MAX_KEYS = TableDiff.MAX_KEYS;
+
+    /***
+     * One field that differs between an expected and an actual bean.
+     */
+    public static class FieldDifference {
+        private final String field;
+        private final Object expected;
+        private final Object actual;
+
+        FieldDifference(String field, Object expected, Object actual) {
+            this.field = field;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public String getField() { return field; }
+        public Object getExpected() { return expected; }
+        public Object getActual() { return actual; }
+
+        @Override
+        public String toString() {
+            return field + ": " + quote(expected) + " != " + quote(actual);
+        }
+
+        private static String quote(Object value) {
+            return value == null ? "NULL" : "'" + value + "'";
+        }
+    }
+
+    private final String beanName;
+    final List<Object> missing = new ArrayList<>();
+    final List<Object> unexpected = new ArrayList<>();
+    final Map<Object, List<FieldDifference>> changed = new LinkedHashMap<>();
+
+    BeanDiff(String beanName) {
+        this.beanName = beanName;
+    }
+
+    public boolean isEmpty() {
+        return missing.isEmpty() && unexpected.isEmpty() && changed.isEmpty();
+    }
+
+    public List<Object> getMissing() { return Collections.unmodifiableList(missing); }
+    public List<Object> getUnexpected() { return Collections.unmodifiableList(unexpected); }
+    public Map<Object, List<FieldDifference>> getChanged() { return Collections.unmodifiableMap(changed); }
+
+    /***
+     * @return A summary with the first keys of each kind of difference, and the
+     * differing fields of the first changed beans.
+     */
+    public String format() {
+        if (isEmpty()) {
+            return "No differences in " + beanName;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%,d missing, %,d unexpected, %,d changed %s(s)%n",
+                missing.size(), unexpected.size(), changed.size(), beanName));
+        appendKeys(sb, "Missing", missing);
+        appendKeys(sb, "Unexpected", unexpected);
+
+        int listed = 0;
+        for (Map.Entry<Object, List<FieldDifference>> entry : changed.entrySet()) {
+            if (listed++ == MAX_KEYS) {
+                sb.append("  and ").append(changed.size() - MAX_KEYS).append(" more changed").append(System.lineSeparator());
+                break;
+            }
+            sb.append("  Changed ").append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendKeys(StringBuilder sb, String label, List<Object> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        sb.append("  ").append(label).append(": ").append(keys.subList(0, Math.min(keys.size(), MAX_KEYS)));
+        if (keys.size() > MAX_KEYS) {
+            sb.append(" and ").append(keys.size() - MAX_KEYS).append(" more");
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,100 @@
+package com.deepblue523.h2echo.verify;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Builds the SQL that hashes a row inside H2, so rows can be compared without being
+ * read into Java.
+ * <p>
+ * Each value is turned into text (binary values as hex), NULL becomes a NUL
+ * character, and the values are joined with the ASCII unit separator (CHAR(31)),
+ * which doesn't turn up in real data.  The text is hashed with SHA-256 and the
+ * first 8 bytes are taken as a BIGINT.  Building the text is most of the cost, so
+ * it is kept to one CONCAT_WS per row (length-prefixing every value doubled it).
+ */
+class RowHash {
+    private RowHash() {
+    }
+
+    /***
+     * @return The column names of a query's results, in order.
+     */
+    static List<String> getColumns(Connection connection, String sourceSql) throws SQLException {
+        List<String> columns = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM (" + sourceSql + ") WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i));
+            }
+        }
+
+        return columns;
+    }
+
+    /***
+     * @param connection Used to look up the column types.
+     * @param sourceSql The query the columns belong to.
+     * @param columns The columns to hash, in order.
+     * @param alias The query's alias in the surrounding SQL, or null for none.
+     * @return A BIGINT expression.
+     */
+    static String expression(Connection connection, String sourceSql, List<String> columns, String alias)
+            throws SQLException {
+        List<Integer> types = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + quoteAll(columns, null) + " FROM (" + sourceSql + ") WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                types.add(metaData.getColumnType(i));
+            }
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = quote(columns.get(i), alias);
+            String text = isBinary(types.get(i)) ? "RAWTOHEX(" + column + ")" : "CAST(" + column + " AS VARCHAR)";
+            parts.add("COALESCE(" + text + ", CHAR(0))");
+        }
+
+        // CONCAT_WS needs at least two values.
+        if (parts.size() == 1) {
+            parts.add("''");
+        }
+
+        return "CAST(SUBSTRING(HASH('SHA-256', CONCAT_WS(CHAR(31), " + String.join(", ", parts) + ")) FROM 1 FOR 8) AS BIGINT)";
+    }
+
+    static String quote(String column, String alias) {
+        return (alias != null ? alias + "." : "") + "\"" + column.replace("\"", "\"\"") + "\"";
+    }
+
+    static String quoteAll(List<String> columns, String alias) {
+        List<String> quoted = new ArrayList<>();
+        for (String column : columns) {
+            quoted.add(quote(column, alias));
+        }
+
+        return String.join(", ", quoted);
+    }
+
+    /***
+     * @return A query over a whole table: "SELECT * FROM table".
+     */
+    static String tableSql(String tableName) {
+        return "SELECT * FROM " + tableName;
+    }
+
+    private static boolean isBinary(int type) {
+        return type == Types.BINARY || type == Types.VARBINARY || type == Types.LONGVARBINARY || type == Types.BLOB;
+    }
+}
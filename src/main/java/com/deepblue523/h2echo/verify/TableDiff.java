@@ -0,0 +1,276 @@
+package com.deepblue523.h2echo.verify;
+
+import com.deepblue523.h2echo.fixtures.Fixture;
+import com.deepblue523.h2echo.fixtures.FixtureLoader;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * A keyed comparison of actual rows against expected ones, done inside H2: each
+ * side's rows are hashed (see RowHash) into a temporary table indexed on the key
+ * columns, and the two are joined, so only the keys of rows that differ come back
+ * to Java.
+ * <p>
+ *    - Missing: keys expected but not found.
+ *    - Unexpected: keys found but not expected.
+ *    - Changed: keys found on both sides with different values.
+ * <p>
+ * Only the expected side's columns are compared, so columns a test doesn't care
+ * about (timestamps, generated ids) can be left out of the expected data.  Every
+ * difference is counted, but only the first MAX_KEYS keys of each kind are kept.
+ * <p>
+ * The expected rows can be another query in the same database, or a fixture file
+ * (see FixtureLoader), which is loaded into a temporary table first so that both
+ * sides go through the same column types:
+ * <p>
+ *    TableDiff diff = TableDiff.compareToFixture(dataSource, "nrm_phone_numbers",
+ *            "fixtures/expected_phone_numbers.csv", "id");
+ *    assertTrue(diff.isEmpty(), diff.format());
+ */
+public class TableDiff {
+    public static final int MAX_KEYS = 20;
+
+    private static final String ROW_HASH_COLUMN = "H2ECHO_ROW_HASH";
+    private static final String EXPECTED_TABLE = "H2ECHO_EXPECTED_ROWS";
+    private static final String ACTUAL_HASHES_TABLE = "H2ECHO_ACTUAL_HASHES";
+    private static final String EXPECTED_HASHES_TABLE = "H2ECHO_EXPECTED_HASHES";
+
+    private final List<String> keyColumns;
+    private final List<String> comparedColumns;
+    private final List<List<Object>> missing = new ArrayList<>();
+    private final List<List<Object>> unexpected = new ArrayList<>();
+    private final List<List<Object>> changed = new ArrayList<>();
+    private long missingCount;
+    private long unexpectedCount;
+    private long changedCount;
+
+    private TableDiff(List<String> keyColumns, List<String> comparedColumns) {
+        this.keyColumns = Collections.unmodifiableList(keyColumns);
+        this.comparedColumns = Collections.unmodifiableList(comparedColumns);
+    }
+
+    /***
+     * Compare two queries on the same database.
+     *
+     * @param dataSource The database.
+     * @param actualSql The rows to check.
+     * @param expectedSql The rows expected; its columns are the ones compared.
+     * @param keyColumns The columns that identify a row.
+     * @return The differences.
+     */
+    public static TableDiff compareQueries(DataSource dataSource, String actualSql, String expectedSql,
+                                           String... keyColumns) {
+        try (Connection connection = dataSource.getConnection()) {
+            return compare(connection, actualSql, expectedSql, Arrays.asList(keyColumns));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to compare " + actualSql + " with " + expectedSql + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /***
+     * Compare a table with a fixture file's rows for it.
+     *
+     * @param dataSource The database.
+     * @param tableName The table to check.
+     * @param fixturePath A fixture file holding the expected rows of the table.
+     * @param keyColumns The columns that identify a row.
+     * @return The differences.
+     */
+    public static TableDiff compareToFixture(DataSource dataSource, String tableName, String fixturePath,
+                                             String... keyColumns) {
+        Fixture fixture = FixtureLoader.getFixture(fixturePath);
+        String tableKey = tableName.toUpperCase(Locale.ROOT);
+
+        List<Fixture.TableRows> expected = new ArrayList<>();
+        for (Fixture.TableRows table : fixture.getTables()) {
+            if (table.getTableKey().equals(tableKey) || table.getTableKey().equals(tableName)) {
+                expected.add(table);
+            }
+        }
+
+        if (expected.isEmpty()) {
+            throw new IllegalArgumentException("Fixture " + fixturePath + " has no rows for " + tableName);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            List<String> columns = expected.get(0).getColumns();
+            String actualSql = "SELECT " + String.join(", ", columns) + " FROM " + tableName;
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + EXPECTED_TABLE);
+                statement.execute("CREATE LOCAL TEMPORARY TABLE " + EXPECTED_TABLE + " AS " + actualSql + " WITH NO DATA");
+            }
+
+            try {
+                for (Fixture.TableRows table : expected) {
+                    insertExpectedRows(connection, table);
+                }
+
+                return compare(connection, actualSql, "SELECT * FROM " + EXPECTED_TABLE, Arrays.asList(keyColumns));
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS " + EXPECTED_TABLE);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to compare " + tableName + " with " + fixturePath + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static void insertExpectedRows(Connection connection, Fixture.TableRows table) throws SQLException {
+        String sql = "INSERT INTO " + EXPECTED_TABLE + " (" + String.join(", ", table.getColumns()) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(table.getColumns().size(), "?")) + ")";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Object[] row : table.getRows()) {
+                for (int i = 0; i < row.length; i++) {
+                    ps.setObject(i + 1, row[i]);
+                }
+                ps.addBatch();
+            }
+
+            ps.executeBatch();
+        }
+    }
+
+    private static TableDiff compare(Connection connection, String actualSql, String expectedSql, List<String> keys)
+            throws SQLException {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one key column is needed");
+        }
+
+        // Both sides are compared on the expected side's columns (H2 reports them upper cased).
+        List<String> columns = RowHash.getColumns(connection, expectedSql);
+        List<String> keyColumns = new ArrayList<>();
+        for (String key : keys) {
+            keyColumns.add(columns.contains(key) ? key : key.toUpperCase(Locale.ROOT));
+        }
+
+        String projection = RowHash.quoteAll(columns, null);
+        hashRows(connection, ACTUAL_HASHES_TABLE, "SELECT " + projection + " FROM (" + actualSql + ")", columns, keyColumns);
+        hashRows(connection, EXPECTED_HASHES_TABLE, expectedSql, columns, keyColumns);
+
+        try {
+            List<String> joinConditions = new ArrayList<>();
+            for (String key : keyColumns) {
+                joinConditions.add(RowHash.quote(key, "E") + " = " + RowHash.quote(key, "A"));
+            }
+            String join = String.join(" AND ", joinConditions);
+            String expected = EXPECTED_HASHES_TABLE + " E";
+            String actual = ACTUAL_HASHES_TABLE + " A";
+
+            TableDiff diff = new TableDiff(keyColumns, columns);
+            diff.missingCount = collectKeys(connection, "SELECT " + RowHash.quoteAll(keyColumns, "E") + " FROM " + expected
+                    + " LEFT JOIN " + actual + " ON " + join + " WHERE A." + ROW_HASH_COLUMN + " IS NULL", diff.missing);
+            diff.unexpectedCount = collectKeys(connection, "SELECT " + RowHash.quoteAll(keyColumns, "A") + " FROM " + actual
+                    + " LEFT JOIN " + expected + " ON " + join + " WHERE E." + ROW_HASH_COLUMN + " IS NULL", diff.unexpected);
+            diff.changedCount = collectKeys(connection, "SELECT " + RowHash.quoteAll(keyColumns, "E") + " FROM " + expected
+                    + " JOIN " + actual + " ON " + join + " WHERE E." + ROW_HASH_COLUMN + " <> A." + ROW_HASH_COLUMN,
+                    diff.changed);
+
+            return diff;
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + ACTUAL_HASHES_TABLE);
+                statement.execute("DROP TABLE IF EXISTS " + EXPECTED_HASHES_TABLE);
+            }
+        }
+    }
+
+    /***
+     * Put each row's key columns and hash into a temporary table, indexed on the
+     * key, so the joins that find the differences are index lookups rather than
+     * scans of a derived table per row.
+     */
+    private static void hashRows(Connection connection, String hashTable, String sql, List<String> columns,
+                                 List<String> keyColumns) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + hashTable);
+            statement.execute("CREATE LOCAL TEMPORARY TABLE " + hashTable + " AS SELECT "
+                    + RowHash.quoteAll(keyColumns, "R") + ", " + RowHash.expression(connection, sql, columns, "R")
+                    + " AS " + ROW_HASH_COLUMN + " FROM (" + sql + ") R");
+            statement.execute("CREATE INDEX " + hashTable + "_KEY ON " + hashTable + " ("
+                    + RowHash.quoteAll(keyColumns, null) + ")");
+        }
+    }
+
+    private static long collectKeys(Connection connection, String sql, List<List<Object>> keys) throws SQLException {
+        long count = 0;
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            int keyCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                if (count++ < MAX_KEYS) {
+                    List<Object> key = new ArrayList<>(keyCount);
+                    for (int i = 1; i <= keyCount; i++) {
+                        key.add(rs.getObject(i));
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return missingCount == 0 && unexpectedCount == 0 && changedCount == 0;
+    }
+
+    public List<String> getKeyColumns() { return keyColumns; }
+    public List<String> getComparedColumns() { return comparedColumns; }
+    public List<List<Object>> getMissing() { return Collections.unmodifiableList(missing); }
+    public List<List<Object>> getUnexpected() { return Collections.unmodifiableList(unexpected); }
+    public List<List<Object>> getChanged() { return Collections.unmodifiableList(changed); }
+    public long getMissingCount() { return missingCount; }
+    public long getUnexpectedCount() { return unexpectedCount; }
+    public long getChangedCount() { return changedCount; }
+
+    /***
+     * @return A summary with the first keys of each kind of difference.
+     */
+    public String format() {
+        if (isEmpty()) {
+            return "No differences in " + comparedColumns + " by " + keyColumns;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%,d missing, %,d unexpected, %,d changed row(s) by %s%n",
+                missingCount, unexpectedCount, changedCount, keyColumns));
+        appendKeys(sb, "Missing", missing, missingCount);
+        appendKeys(sb, "Unexpected", unexpected, unexpectedCount);
+        appendKeys(sb, "Changed", changed, changedCount);
+
+        return sb.toString();
+    }
+
+    private static void appendKeys(StringBuilder sb, String label, List<List<Object>> keys, long count) {
+        if (count == 0) {
+            return;
+        }
+
+        sb.append("  ").append(label).append(": ").append(keys);
+        if (count > keys.size()) {
+            sb.append(" and ").append(count - keys.size()).append(" more");
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,98 @@
+package com.deepblue523.h2echo.verify;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/***
+ * An order-independent fingerprint of a table or query result: its row count and
+ * the sum of its row hashes (see RowHash), both computed by H2 in one aggregate
+ * query.  Only two numbers come back, however many rows there are, so a test can
+ * check the effect of a bulk DAO method on millions of rows by comparing a
+ * fingerprint taken afterwards with one of the expected data:
+ * <p>
+ *    assertEquals(TableFingerprint.ofQuery(dataSource, "SELECT * FROM expected_numbers"),
+ *                 TableFingerprint.ofTable(dataSource, "nrm_phone_numbers"));
+ * <p>
+ * A sum rather than XOR is used, so duplicated rows don't cancel each other out.
+ * Equal fingerprints mean the same multiset of rows, with a collision chance of
+ * about 2^-64; when they differ, TableDiff shows where.
+ */
+public class TableFingerprint {
+    private final long rowCount;
+    private final long hash;
+    private final List<String> columns;
+
+    TableFingerprint(long rowCount, long hash, List<String> columns) {
+        this.rowCount = rowCount;
+        this.hash = hash;
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /***
+     * @param dataSource The database.
+     * @param tableName The table (all of its columns are included).
+     * @return The table's fingerprint.
+     */
+    public static TableFingerprint ofTable(DataSource dataSource, String tableName) {
+        return ofQuery(dataSource, RowHash.tableSql(tableName));
+    }
+
+    /***
+     * @param dataSource The database.
+     * @param sql A query; its rows are fingerprinted whatever order they come in.
+     * @return The query result's fingerprint.
+     */
+    public static TableFingerprint ofQuery(DataSource dataSource, String sql) {
+        try (Connection connection = dataSource.getConnection()) {
+            List<String> columns = RowHash.getColumns(connection, sql);
+            String hashSql = "SELECT COUNT(*), SUM(" + RowHash.expression(connection, sql, columns, "F")
+                    + ") FROM (" + sql + ") F";
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(hashSql)) {
+                rs.next();
+                BigDecimal sum = rs.getBigDecimal(2);
+
+                // Only the low 64 bits of the sum matter (it's a sum modulo 2^64).
+                return new TableFingerprint(rs.getLong(1), sum != null ? sum.toBigInteger().longValue() : 0, columns);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to fingerprint " + sql + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long getRowCount() { return rowCount; }
+    public long getHash() { return hash; }
+    public List<String> getColumns() { return columns; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TableFingerprint)) {
+            return false;
+        }
+
+        TableFingerprint other = (TableFingerprint) o;
+        return rowCount == other.rowCount && hash == other.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rowCount, hash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%,d rows, hash %016x %s", rowCount, hash, columns);
+    }
+}
@@ -0,0 +1,383 @@
+package com.deepblue523.h2echo.watch;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.DialectRunnerBase;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+import com.deepblue523.h2echo.reporting.MigrationListener;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import com.deepblue523.h2echo.snapshot.H2Snapshot;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/***
+ * A dev mode for writing migrations: watches the migration directory and keeps a
+ * live H2 database in step with it, without restarting the JVM.
+ * <p>
+ *    MigrationWatcher watcher = new MigrationWatcher(Paths.get("src/main/resources/db/migrations"), ScriptSyntax.MARIA_DB);
+ *    watcher.watch(true);   // Blocks; prints what each edit did.
+ * <p>
+ * The first pass builds the database one script at a time and takes an H2Snapshot
+ * after each one, as a checkpoint.  After that, every change in the directory is
+ * handled at the cost of the scripts it affects:
+ * <p>
+ *    - A new script after the last one is applied on top of the live database.
+ *    - An edited (or removed, or inserted) script puts the database back to the
+ *      checkpoint just before it and re-applies from there.
+ * <p>
+ * Each pass prints, per script, how its translated statements and their outcomes
+ * in H2 differ from the last time it ran.  Scripts are compared by content, so
+ * saving a file without changing it does nothing.
+ * <p>
+ * Checkpoints are temporary files, and a checkpoint restore brings back the
+ * checkpoint's data, so anything written to the database since is lost.
+ */
+public class MigrationWatcher implements Closeable {
+    // Editors write temp and backup files next to the scripts; only V<version>__<name>.sql counts.
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V[0-9.]+__.*\\.sql", Pattern.CASE_INSENSITIVE);
+
+    // After a change, wait this long for the rest of a save (editors often write more than once).
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    /***
+     * A script that has been applied, with its content hash and the database as it
+     * was right after it ran.
+     */
+    private static class Checkpoint {
+        final String scriptName;
+        final String contentHash;
+        final H2Snapshot snapshot;
+
+        Checkpoint(String scriptName, String contentHash, H2Snapshot snapshot) {
+            this.scriptName = scriptName;
+            this.contentHash = contentHash;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final Path directory;
+    private final ScriptSyntax syntax;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private final Map<String, List<WatchUpdate.StatementResult>> lastResults = new HashMap<>();
+    private Consumer<WatchUpdate> updateListener;
+    private boolean built;
+    private volatile boolean closed;
+    private volatile WatchService watchService;
+    private Thread watchThread;
+
+    /***
+     * Watch a directory and keep the echo database (ECHO_DB_URL) in step with it.
+     */
+    public MigrationWatcher(Path directory, ScriptSyntax syntax) {
+        this(directory, syntax, H2Echo.createEchoDataSource());
+    }
+
+    /***
+     * @param directory The migration scripts, on disk (not the copies on the class path).
+     * @param syntax The syntax they are written in.
+     * @param dataSource The H2 database to keep in step.
+     */
+    public MigrationWatcher(Path directory, ScriptSyntax syntax, DataSource dataSource) {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+
+        this.directory = directory;
+        this.syntax = syntax;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /***
+     * @param updateListener Called with each non-empty update from the watch loop.
+     */
+    public void setUpdateListener(Consumer<WatchUpdate> updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    /***
+     * Drop everything in the database and build it from the scripts, taking a
+     * checkpoint after each one.
+     *
+     * @param displayLog Print the update.
+     * @return The update.  Scripts are compared with their last run, if any.
+     */
+    public synchronized WatchUpdate build(boolean displayLog) {
+        built = true;
+        return apply(0, true, new ArrayList<>(), displayLog);
+    }
+
+    /***
+     * Look at the directory again and apply whatever changed since the last pass.
+     * Builds first if that hasn't been done.
+     *
+     * @param displayLog Print the update (if it isn't empty).
+     * @return The update; empty if nothing changed.
+     */
+    public synchronized WatchUpdate refresh(boolean displayLog) {
+        if (!built) {
+            return build(displayLog);
+        }
+
+        List<File> scripts = listScripts();
+        int firstChange = 0;
+        while (firstChange < checkpoints.size() && firstChange < scripts.size()
+                && checkpoints.get(firstChange).scriptName.equals(scripts.get(firstChange).getName())
+                && checkpoints.get(firstChange).contentHash.equals(hashScript(scripts.get(firstChange)))) {
+            firstChange++;
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Checkpoint checkpoint : checkpoints.subList(firstChange, checkpoints.size())) {
+            if (scripts.stream().noneMatch(script -> script.getName().equals(checkpoint.scriptName))) {
+                removed.add(checkpoint.scriptName);
+            }
+        }
+
+        if (firstChange == checkpoints.size() && firstChange == scripts.size()) {
+            return new WatchUpdate(false, null, removed);
+        }
+
+        return apply(firstChange, firstChange < checkpoints.size(), removed, displayLog);
+    }
+
+    /***
+     * Build, then watch the directory and refresh on every change until the thread
+     * is interrupted or the watcher is closed.
+     *
+     * @param displayLog Print each update.
+     */
+    public void watch(boolean displayLog) {
+        refresh(displayLog);
+        watchChanges(openWatchService(displayLog), displayLog);
+    }
+
+    /***
+     * Build now, then watch on a daemon thread until close().
+     *
+     * @param displayLog Print each update.
+     * @return The build's update.
+     */
+    public synchronized WatchUpdate start(boolean displayLog) {
+        if (watchThread != null) {
+            throw new IllegalStateException("The watcher has already been started");
+        }
+
+        // Registered before returning, so nothing saved from here on is missed.
+        WatchUpdate update = refresh(displayLog);
+        WatchService service = openWatchService(displayLog);
+        watchThread = new Thread(() -> watchChanges(service, displayLog), "h2echo-migration-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        return update;
+    }
+
+    private WatchService openWatchService(boolean displayLog) {
+        try {
+            WatchService service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchService = service;
+
+            if (displayLog) {
+                System.out.println("Watching " + directory.toAbsolutePath() + " for migration changes");
+            }
+
+            return service;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Refresh on every change until closed or interrupted.
+     */
+    private void watchChanges(WatchService service, boolean displayLog) {
+        try (service) {
+            while (!closed) {
+                WatchKey key = service.take();
+                drain(key);
+
+                // Let the save finish.
+                while ((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+
+                try {
+                    WatchUpdate update = refresh(displayLog);
+                    if (!update.isEmpty() && updateListener != null) {
+                        updateListener.accept(update);
+                    }
+                } catch (RuntimeException e) {
+                    // Keep watching; the next save may fix it.
+                    System.out.println("Migration watch: could not apply the change: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            watchService = null;
+        }
+    }
+
+    /***
+     * Stop watching and delete the checkpoints.  The database is left as it is.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+
+        synchronized (this) {
+            checkpoints.forEach(checkpoint -> checkpoint.snapshot.delete());
+            checkpoints.clear();
+        }
+    }
+
+    /***
+     * Apply every script from scripts[fromIndex] on, one at a time.  When rebuilding,
+     * the database is first put back to the checkpoint before that script (or emptied).
+     */
+    private WatchUpdate apply(int fromIndex, boolean rebuilding, List<String> removed, boolean displayLog) {
+        ChromeTrace.Span span = ChromeTrace.begin("watch", "apply");
+        long startNanos = System.nanoTime();
+
+        // ---[ Back to the nearest checkpoint, unless only appending ]---
+        String restoredFrom = null;
+        if (rebuilding) {
+            for (Checkpoint stale : checkpoints.subList(fromIndex, checkpoints.size())) {
+                stale.snapshot.delete();
+            }
+            checkpoints.subList(fromIndex, checkpoints.size()).clear();
+
+            if (fromIndex == 0) {
+                jdbcTemplate.execute("DROP ALL OBJECTS");
+            } else {
+                Checkpoint nearest = checkpoints.get(fromIndex - 1);
+                nearest.snapshot.restore(jdbcTemplate);
+                restoredFrom = nearest.scriptName;
+            }
+        }
+
+        WatchUpdate update = new WatchUpdate(rebuilding, restoredFrom, removed);
+        removed.forEach(lastResults::remove);
+
+        // ---[ Apply each script and checkpoint after it ]---
+        List<File> scripts = listScripts();
+        for (File script : scripts.subList(fromIndex, scripts.size())) {
+            List<WatchUpdate.StatementResult> results = runScript(script);
+            update.addScript(new WatchUpdate.ScriptDiff(script.getName(), lastResults.get(script.getName()), results));
+            lastResults.put(script.getName(), results);
+
+            checkpoints.add(new Checkpoint(script.getName(), hashScript(script), H2Snapshot.take(jdbcTemplate)));
+        }
+
+        update.setWallNanos(System.nanoTime() - startNanos);
+        span.arg("scripts", update.getAppliedScripts().size()).arg("rebuilt", rebuilding).end();
+
+        if (displayLog) {
+            System.out.print(update.format());
+        }
+
+        return update;
+    }
+
+    /***
+     * Run one script through the dialect runner, collecting what happened to each
+     * statement from the migration callbacks.
+     */
+    private List<WatchUpdate.StatementResult> runScript(File script) {
+        List<WatchUpdate.StatementResult> results = new ArrayList<>();
+        DialectRunnerBase dialectRunner = H2Echo.createDialectRunner(syntax);
+
+        // The watcher resets the database itself, so seed data runs every time its script does.
+        dialectRunner.setSeedData(true);
+        dialectRunner.setSeedOnce(false);
+
+        dialectRunner.setMigrationListener(new MigrationListener() {
+            @Override
+            public void onStatementExecuted(MigrationReport.StatementTiming statementTiming) {
+                results.add(new WatchUpdate.StatementResult(statementTiming.getSql(),
+                        statementTiming.isSucceeded() ? WatchUpdate.Status.RAN : WatchUpdate.Status.FAILED, null));
+            }
+
+            @Override
+            public void onStatementSkipped(MigrationReport.StatementOutcome outcome) {
+                results.add(new WatchUpdate.StatementResult(outcome.getSql(), WatchUpdate.Status.SKIPPED, outcome.getReason()));
+            }
+
+            @Override
+            public void onStatementFailed(MigrationReport.StatementOutcome outcome) {
+                // Reported right after the statement's timing; anything else (bulk-load
+                // foreign key checks) stands on its own.
+                WatchUpdate.StatementResult last = results.isEmpty() ? null : results.get(results.size() - 1);
+                if (last != null && last.getStatus() == WatchUpdate.Status.FAILED && last.getReason() == null) {
+                    last.setReason(outcome.getReason());
+                } else {
+                    results.add(new WatchUpdate.StatementResult(outcome.getSql(), WatchUpdate.Status.FAILED, outcome.getReason()));
+                }
+            }
+        });
+
+        dialectRunner.runSqlScriptsOnH2(jdbcTemplate, new File[] { script }, false);
+        return results;
+    }
+
+    private List<File> listScripts() {
+        try (Stream<Path> paths = Files.list(directory)) {
+            File[] files = paths.filter(path -> SCRIPT_NAME.matcher(path.getFileName().toString()).matches())
+                    .filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .toArray(File[]::new);
+
+            return new ArrayList<>(List.of(H2Echo.sortSqlScriptsByVersion(files)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hashScript(File script) {
+        return TimingHistory.hashText(DialectRunnerBase.readScript(script));
+    }
+
+    private static void drain(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+}
@@ -0,0 +1,283 @@
+package com.deepblue523.h2echo.watch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * What one MigrationWatcher pass did: which scripts it applied, where it started
+ * from, and for each script how its translated statements and their outcomes
+ * differ from the last time it ran.
+ */
+public class WatchUpdate {
+
+    /***
+     * What happened to one statement in a script.
+     */
+    public enum Status {
+        RAN,
+        FAILED,
+        SKIPPED
+    }
+
+    /***
+     * One statement as it reached H2 (or, if skipped, as it was in the script).
+     */
+    public static class StatementResult {
+        private final String sql;
+        private final Status status;
+        private String reason;
+
+        StatementResult(String sql, Status status, String reason) {
+            this.sql = sql;
+            this.status = status;
+            this.reason = reason;
+        }
+
+        void setReason(String reason) { this.reason = reason; }
+
+        public String getSql() { return sql; }
+        public Status getStatus() { return status; }
+
+        /***
+         * @return Why it failed or was skipped, or null.
+         */
+        public String getReason() { return reason; }
+    }
+
+    /***
+     * How one script's statements changed since it last ran.
+     */
+    public static class ScriptDiff {
+        // Past this many cells, the diff is done by content instead of in order.
+        private static final long MAX_LCS_CELLS = 4_000_000;
+
+        private final String scriptName;
+        private final boolean firstRun;
+        private final List<StatementResult> results;
+        private final List<StatementResult> added = new ArrayList<>();
+        private final List<StatementResult> removed = new ArrayList<>();
+        private final List<StatementResult> nowFailing = new ArrayList<>();
+        private final List<StatementResult> nowRunning = new ArrayList<>();
+
+        ScriptDiff(String scriptName, List<StatementResult> previous, List<StatementResult> current) {
+            this.scriptName = scriptName;
+            this.firstRun = previous == null;
+            this.results = Collections.unmodifiableList(current);
+
+            if (firstRun) {
+                added.addAll(current);
+            } else {
+                compare(previous, current);
+            }
+        }
+
+        /***
+         * Line up the two runs by SQL (longest common subsequence, after trimming the
+         * common ends), then look at the outcome of every statement in both.
+         */
+        private void compare(List<StatementResult> previous, List<StatementResult> current) {
+            int start = 0;
+            while (start < previous.size() && start < current.size()
+                    && previous.get(start).sql.equals(current.get(start).sql)) {
+                compareOutcome(previous.get(start), current.get(start));
+                start++;
+            }
+
+            int previousEnd = previous.size();
+            int currentEnd = current.size();
+            while (previousEnd > start && currentEnd > start
+                    && previous.get(previousEnd - 1).sql.equals(current.get(currentEnd - 1).sql)) {
+                compareOutcome(previous.get(previousEnd - 1), current.get(currentEnd - 1));
+                previousEnd--;
+                currentEnd--;
+            }
+
+            List<StatementResult> before = previous.subList(start, previousEnd);
+            List<StatementResult> after = current.subList(start, currentEnd);
+            if ((long) before.size() * after.size() > MAX_LCS_CELLS) {
+                compareByContent(before, after);
+                return;
+            }
+
+            int[][] lengths = new int[before.size() + 1][after.size() + 1];
+            for (int i = before.size() - 1; i >= 0; i--) {
+                for (int j = after.size() - 1; j >= 0; j--) {
+                    lengths[i][j] = before.get(i).sql.equals(after.get(j).sql)
+                            ? lengths[i + 1][j + 1] + 1
+                            : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+                }
+            }
+
+            int i = 0;
+            int j = 0;
+            while (i < before.size() && j < after.size()) {
+                if (before.get(i).sql.equals(after.get(j).sql)) {
+                    compareOutcome(before.get(i++), after.get(j++));
+                } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                    removed.add(before.get(i++));
+                } else {
+                    added.add(after.get(j++));
+                }
+            }
+            removed.addAll(before.subList(i, before.size()));
+            added.addAll(after.subList(j, after.size()));
+        }
+
+        private void compareByContent(List<StatementResult> before, List<StatementResult> after) {
+            Map<String, List<StatementResult>> unmatched = new HashMap<>();
+            for (StatementResult result : before) {
+                unmatched.computeIfAbsent(result.sql, sql -> new ArrayList<>()).add(result);
+            }
+
+            for (StatementResult result : after) {
+                List<StatementResult> candidates = unmatched.get(result.sql);
+                if (candidates != null && !candidates.isEmpty()) {
+                    compareOutcome(candidates.remove(0), result);
+                } else {
+                    added.add(result);
+                }
+            }
+            unmatched.values().forEach(removed::addAll);
+        }
+
+        private void compareOutcome(StatementResult before, StatementResult after) {
+            if (after.status == Status.FAILED && before.status != Status.FAILED) {
+                nowFailing.add(after);
+            } else if (after.status == Status.RAN && before.status == Status.FAILED) {
+                nowRunning.add(after);
+            }
+        }
+
+        public String getScriptName() { return scriptName; }
+
+        /***
+         * @return True if the script hadn't run before, so everything in it is "added".
+         */
+        public boolean isFirstRun() { return firstRun; }
+
+        public List<StatementResult> getResults() { return results; }
+        public List<StatementResult> getAdded() { return added; }
+        public List<StatementResult> getRemoved() { return removed; }
+
+        /***
+         * @return Statements that ran before (unchanged) but fail now.
+         */
+        public List<StatementResult> getNowFailing() { return nowFailing; }
+
+        /***
+         * @return Statements that failed before (unchanged) but run now.
+         */
+        public List<StatementResult> getNowRunning() { return nowRunning; }
+
+        public boolean isUnchanged() {
+            return !firstRun && added.isEmpty() && removed.isEmpty() && nowFailing.isEmpty() && nowRunning.isEmpty();
+        }
+
+        public long getFailures() {
+            return results.stream().filter(result -> result.status == Status.FAILED).count();
+        }
+    }
+
+    private final String restoredFrom;
+    private final boolean rebuilt;
+    private final List<String> removedScripts;
+    private final Map<String, ScriptDiff> scripts = new LinkedHashMap<>();
+    private long wallNanos;
+
+    WatchUpdate(boolean rebuilt, String restoredFrom, List<String> removedScripts) {
+        this.rebuilt = rebuilt;
+        this.restoredFrom = restoredFrom;
+        this.removedScripts = Collections.unmodifiableList(new ArrayList<>(removedScripts));
+    }
+
+    void addScript(ScriptDiff diff) { scripts.put(diff.scriptName, diff); }
+    void setWallNanos(long wallNanos) { this.wallNanos = wallNanos; }
+
+    /***
+     * @return True if the database was put back to an earlier state (because a
+     * script that had already run changed or went away) rather than added to.
+     */
+    public boolean isRebuilt() { return rebuilt; }
+
+    /***
+     * @return The script whose checkpoint the database was restored to, or null if
+     * it was rebuilt from empty (or not rebuilt at all).
+     */
+    public String getRestoredFrom() { return restoredFrom; }
+
+    public List<String> getRemovedScripts() { return removedScripts; }
+    public List<String> getAppliedScripts() { return new ArrayList<>(scripts.keySet()); }
+    public List<ScriptDiff> getScripts() { return new ArrayList<>(scripts.values()); }
+    public ScriptDiff getScript(String scriptName) { return scripts.get(scriptName); }
+    public long getWallNanos() { return wallNanos; }
+
+    /***
+     * @return True if nothing changed on disk, so nothing was done.
+     */
+    public boolean isEmpty() {
+        return scripts.isEmpty() && removedScripts.isEmpty() && !rebuilt;
+    }
+
+    /***
+     * @return What was applied and, per script, the statements that were added,
+     * removed, or changed outcome.  For a script's first run only its failures are
+     * listed.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        String from = !rebuilt ? "on top of the live database"
+                : restoredFrom != null ? "from the checkpoint after " + restoredFrom : "from an empty database";
+        sb.append(String.format(Locale.ROOT, "Applied %d script(s) %s in %.1f ms%n",
+                scripts.size(), from, wallNanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+
+        for (String scriptName : removedScripts) {
+            sb.append("  ").append(scriptName).append(": removed").append(System.lineSeparator());
+        }
+
+        for (ScriptDiff diff : scripts.values()) {
+            sb.append("  ").append(diff.scriptName).append(": ");
+            if (diff.firstRun) {
+                sb.append(String.format(Locale.ROOT, "%d statement(s), %d failed%n", diff.results.size(), diff.getFailures()));
+                for (StatementResult result : diff.results) {
+                    if (result.status == Status.FAILED) {
+                        appendLine(sb, "!", result);
+                    }
+                }
+            } else if (diff.isUnchanged()) {
+                sb.append("unchanged").append(System.lineSeparator());
+            } else {
+                sb.append(String.format(Locale.ROOT, "%d added, %d removed, %d now failing, %d now running%n",
+                        diff.added.size(), diff.removed.size(), diff.nowFailing.size(), diff.nowRunning.size()));
+                diff.removed.forEach(result -> appendLine(sb, "-", result));
+                diff.added.forEach(result -> appendLine(sb, "+", result));
+                diff.nowFailing.forEach(result -> appendLine(sb, "!", result));
+                diff.nowRunning.forEach(result -> appendLine(sb, "*", result));
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String marker, StatementResult result) {
+        sb.append("    ").append(marker).append(' ').append(result.sql.strip());
+        if (result.status != Status.RAN) {
+            sb.append("   [").append(result.status.name().toLowerCase(Locale.ROOT));
+            if (result.reason != null && !result.reason.isBlank()) {
+                sb.append(": ").append(result.reason);
+            }
+            sb.append(']');
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,59 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.verify.BeanComparator;
+import com.deepblue523.h2echo.verify.BeanDiff;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+class BeanComparatorTest {
+
+    @Test
+    void testCompareByIdReportsEachKindOfDifference() {
+        List<NrmPhoneNumber> expected = new ArrayList<>();
+        List<NrmPhoneNumber> actual = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            expected.add(phoneNumber(i, "Sales"));
+            actual.add(phoneNumber(i, "Sales"));
+        }
+
+        actual.get(9).setDepartment("Support");
+        actual.get(19).setDescription(null);
+        actual.get(29).setUpdatedAt(new Timestamp(0)); // Excluded below.
+        actual.remove(999);
+        actual.add(phoneNumber(5_000, "Sales"));
+
+        BeanComparator<NrmPhoneNumber> comparator = BeanComparator.forClass(NrmPhoneNumber.class, "createdAt", "updatedAt");
+        assertSame(comparator, BeanComparator.forClass(NrmPhoneNumber.class, "createdAt", "updatedAt"));
+        assertFalse(comparator.getFieldNames().contains("updatedAt"));
+
+        BeanDiff diff = comparator.compareById(expected, actual, "id");
+        assertEquals(List.of(1_000), diff.getMissing());
+        assertEquals(List.of(5_000), diff.getUnexpected());
+        assertEquals(List.of(10, 20), new ArrayList<>(diff.getChanged().keySet()));
+        assertEquals("department", diff.getChanged().get(10).get(0).getField());
+        assertEquals("Support", diff.getChanged().get(10).get(0).getActual());
+        assertTrue(diff.format().contains("description: 'Number 20' != NULL"), diff.format());
+
+        // ---[ Positional comparison, and typos in the exclude list ]---
+        assertTrue(comparator.compareLists(expected.subList(0, 5), actual.subList(0, 5)).isEmpty());
+        assertTrue(comparator.matches(expected.get(29), actual.get(29)));
+        assertThrows(IllegalArgumentException.class, () -> BeanComparator.forClass(NrmPhoneNumber.class, "updatedAtt"));
+    }
+
+    private static NrmPhoneNumber phoneNumber(int id, String department) {
+        return NrmPhoneNumber.builder()
+                .id(id)
+                .phoneNumber("+1555" + String.format("%07d", id))
+                .description("Number " + id)
+                .department(department)
+                .createdAt(new Timestamp(1_700_000_000_000L))
+                .updatedAt(new Timestamp(1_700_000_000_000L))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.DialectRunnerBase;
+import com.deepblue523.h2echo.dialects.MariaDbRunner;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class BulkLoadTest {
+
+    private static final String SCHEMA_SCRIPT =
+            "CREATE TABLE IF NOT EXISTS CARRIER (\n"
+            + "    ID BIGINT AUTO_INCREMENT PRIMARY KEY,\n"
+            + "    NAME VARCHAR(100) NOT NULL\n"
+            + ");\n"
+            + "CREATE TABLE IF NOT EXISTS ROUTE (\n"
+            + "    ID BIGINT AUTO_INCREMENT PRIMARY KEY,\n"
+            + "    CARRIER_ID BIGINT NOT NULL,\n"
+            + "    FOREIGN KEY (CARRIER_ID) REFERENCES CARRIER (ID)\n"
+            + ");\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSeedDataLoadsOutOfOrderAndSettingsAreRestored() throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("bulkLoadTest");
+
+        // Children before their parent - only fine with referential integrity off.
+        MigrationReport report = run(jdbcTemplate,
+                "INSERT INTO ROUTE (ID, CARRIER_ID) VALUES (1, 7);\n"
+                + "INSERT INTO CARRIER (ID, NAME) VALUES (7, 'Acme');\n");
+
+        assertEquals(0, report.getTotalErrors());
+        assertTrue(report.isBulkLoad());
+        assertEquals(1, report.getForeignKeyTablesVerified());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ROUTE", Integer.class));
+
+        // Back to normal: locking on, and foreign keys enforced again.
+        assertEquals(3, jdbcTemplate.queryForObject("CALL LOCK_MODE()", Integer.class));
+        assertThrows(Exception.class, () -> jdbcTemplate.update("INSERT INTO ROUTE (ID, CARRIER_ID) VALUES (2, 99)"));
+    }
+
+    @Test
+    void testViolationsAreReportedAfterTheLoad() throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("bulkLoadViolationTest");
+
+        MigrationReport report = run(jdbcTemplate, "INSERT INTO ROUTE (ID, CARRIER_ID) VALUES (1, 42);\n");
+
+        assertEquals(1, report.getTotalErrors());
+        MigrationReport.StatementOutcome failure = report.getFailedStatements().get(0);
+        assertEquals(DialectRunnerBase.BULK_LOAD_SCRIPT_NAME, failure.getScriptName());
+        assertTrue(failure.getSql().contains("ROUTE"));
+    }
+
+    @Test
+    void testSeedDataIsLoadedOncePerDatabase() {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("seedDataTest");
+
+        // Off by default: the statements are dropped, as they always were.
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/seeded/", ScriptSyntax.MARIA_DB, false);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seed_carrier", Integer.class));
+
+        // Injection re-runs the scripts for each test instance and DAO field, like this.
+        System.setProperty(DialectRunnerBase.SEED_DATA_PROPERTY, "true");
+        try {
+            jdbcTemplate.execute("DROP TABLE seed_carrier");
+            H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/seeded/", ScriptSyntax.MARIA_DB, false);
+            H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/seeded/", ScriptSyntax.MARIA_DB, false);
+        } finally {
+            System.clearProperty(DialectRunnerBase.SEED_DATA_PROPERTY);
+        }
+
+        // seed_carrier survived the second run and keeps its rows; seed_route was
+        // recreated empty, so it was seeded again.
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seed_carrier", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM seed_carrier WHERE name = 'Acme Corp'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seed_route", Integer.class));
+    }
+
+    private MigrationReport run(JdbcTemplate jdbcTemplate, String seedScript) throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve(Long.toString(System.nanoTime())));
+        Path schema = Files.writeString(dir.resolve("V1.0__schema.sql"), SCHEMA_SCRIPT);
+        Path seed = Files.writeString(dir.resolve("V2.0__seed.sql"), seedScript);
+
+        MariaDbRunner runner = new MariaDbRunner();
+        runner.setBulkLoad(true);
+        runner.setSeedData(true);
+        return runner.runSqlScriptsOnH2(jdbcTemplate, new File[] {schema.toFile(), seed.toFile()}, false);
+    }
+}
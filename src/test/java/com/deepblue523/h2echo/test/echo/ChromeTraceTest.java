@@ -0,0 +1,81 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.reporting.ChromeTrace;
+import com.deepblue523.h2echo.test.dao.impl.NrmEntityDao;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+class ChromeTraceTest {
+
+    static class Holder {
+        @EchoDao
+        private NrmEntityDao nrmEntityDao;
+    }
+
+    @Test
+    void testTraceContainsNestedSpans() throws Exception {
+        Path traceFile = Files.createTempFile("h2echo-trace", ".json");
+
+        try {
+            ChromeTrace.enable(traceFile);
+            H2Echo.echoDaosOnObject(new Holder(), false);
+        } finally {
+            ChromeTrace.disable();
+        }
+
+        ChromeTrace.write(traceFile);
+        JsonNode trace = new ObjectMapper().readTree(traceFile.toFile());
+
+        Set<String> categories = new HashSet<>();
+        for (JsonNode event : trace.get("traceEvents")) {
+            if (event.get("ph").asText().equals("X")) {
+                categories.add(event.get("cat").asText());
+                assertTrue(event.get("dur").asDouble() >= 0);
+                assertTrue(event.has("tid"));
+            }
+        }
+
+        assertTrue(categories.containsAll(Set.of("injection", "migration", "script", "read", "translate", "batch", "execute")));
+
+        Files.deleteIfExists(traceFile);
+    }
+
+    @Test
+    void testLongArgumentsAreCut() throws Exception {
+        Path traceFile = Files.createTempFile("h2echo-trace", ".json");
+
+        try {
+            ChromeTrace.enable(traceFile);
+            ChromeTrace.begin("test", "longArg").arg("sql", "x".repeat(10_000)).end();
+        } finally {
+            ChromeTrace.disable();
+        }
+
+        ChromeTrace.write(traceFile);
+        JsonNode trace = new ObjectMapper().readTree(traceFile.toFile());
+
+        String sql = null;
+        for (JsonNode event : trace.get("traceEvents")) {
+            if (event.get("name").asText().equals("longArg")) {
+                sql = event.get("args").get("sql").asText();
+            }
+        }
+
+        assertNotNull(sql);
+        assertEquals(ChromeTrace.MAX_ARG_LENGTH, sql.length());
+        assertTrue(sql.endsWith("..."));
+        assertEquals(ChromeTrace.getDroppedEvents(), trace.get("otherData").get("droppedEvents").asLong());
+
+        Files.deleteIfExists(traceFile);
+    }
+}
@@ -0,0 +1,85 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import com.deepblue523.h2echo.schema.DaoSqlValidator;
+import com.deepblue523.h2echo.test.dao.impl.NrmAuditResultsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmEntityDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmPhoneNumberDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmRemediationDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+class DaoSqlValidationTest {
+
+    @Test
+    void testValidDaosInjectAndBrokenSqlIsReportedTogether() {
+        ValidDaos valid = new ValidDaos();
+        H2Echo.echoDaosOnObject(valid, false);
+        assertNotNull(valid.nrmPhoneNumberDao);
+        assertEquals(List.of(), DaoSqlValidator.getProblems(NrmPhoneNumberDao.class));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> H2Echo.echoDaosOnObject(new BrokenDaos(), false));
+        assertTrue(e.getMessage().startsWith("2 DAO SQL statement(s) failed"), e.getMessage());
+        assertTrue(e.getMessage().contains("BrokenDao.SQL_MISSING_TABLE: Table \"NRM_NO_SUCH_TABLE\" not found"),
+                e.getMessage());
+        assertTrue(e.getMessage().contains("BrokenDao.SQL_MISSING_COLUMN"), e.getMessage());
+        assertFalse(e.getMessage().contains("SQL_GET_BY_ID"), e.getMessage());
+
+        // Checked once per class and schema; the result is reused.
+        List<String> problems = DaoSqlValidator.getProblems(BrokenDao.class);
+        assertThrows(IllegalStateException.class, () -> H2Echo.echoDaosOnObject(new BrokenDaos(), false));
+        assertSame(problems, DaoSqlValidator.getProblems(BrokenDao.class));
+    }
+
+    @Test
+    void testOtherSchemaIsCheckedAgain() {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("daoSqlValidationOtherSchema");
+        jdbcTemplate.execute("CREATE TABLE nrm_phone_numbers (id INT PRIMARY KEY, no_such_column INT)");
+        jdbcTemplate.execute("CREATE TABLE nrm_no_such_table (id INT PRIMARY KEY)");
+
+        DaoSqlValidator.validate(jdbcTemplate.getDataSource(), "otherSchema", List.of(BrokenDao.class), false);
+        assertEquals(List.of(), DaoSqlValidator.getProblems(BrokenDao.class));
+    }
+
+    @EnableH2Echo(validateSql = true)
+    static class ValidDaos {
+        @EchoDao
+        NrmPhoneNumberDao nrmPhoneNumberDao;
+
+        @EchoDao
+        NrmCallGroupsDao nrmCallGroupsDao;
+
+        @EchoDao
+        NrmAuditResultsDao nrmAuditResultsDao;
+
+        @EchoDao
+        NrmEntityDao nrmEntityDao;
+
+        @EchoDao
+        NrmRemediationDao nrmRemediationDao;
+    }
+
+    @EnableH2Echo(validateSql = true)
+    static class BrokenDaos {
+        @EchoDao
+        BrokenDao brokenDao;
+    }
+
+    public static class BrokenDao {
+        static final String SQL_GET_BY_ID = "SELECT * FROM nrm_phone_numbers WHERE id = ?";
+        static final String SQL_MISSING_TABLE = "SELECT * FROM nrm_no_such_table WHERE id = ?";
+        static final String SQL_MISSING_COLUMN = "UPDATE nrm_phone_numbers SET no_such_column = ? WHERE id = ?";
+
+        public BrokenDao(JdbcTemplate jdbcTemplate) {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import com.deepblue523.h2echo.stress.DaoStressHarness;
+import com.deepblue523.h2echo.stress.StressReport;
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmPhoneNumberDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+class DaoStressHarnessTest {
+
+    @EnableH2Echo
+    static class StressHolder {
+        @EchoDao
+        private NrmCallGroupsDao nrmCallGroupsDao;
+
+        @EchoDao
+        private NrmPhoneNumberDao nrmPhoneNumberDao;
+    }
+
+    @Test
+    void testUniquePhoneNumberRacesAreReported() {
+        StressHolder holder = new StressHolder();
+        H2Echo.echoDaosOnObject(holder, false);
+        int callGroupId = holder.nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+        int existingId = holder.nrmPhoneNumberDao.insert(TestUtils.getDummyNrmPhoneNumber(callGroupId));
+
+        DaoStressHarness harness = DaoStressHarness.forEchoedObject(holder);
+        harness.addOperation("insert", 1, (worker, iteration) -> {
+            // Every worker cycles through the same 25 numbers, so they collide.
+            NrmPhoneNumber phoneNumber = TestUtils.getDummyNrmPhoneNumber(callGroupId);
+            phoneNumber.setPhoneNumber(String.format("+1999000%04d", iteration % 25));
+            holder.nrmPhoneNumberDao.insert(phoneNumber);
+        });
+        harness.addOperation("getById", 3, (worker, iteration) -> holder.nrmPhoneNumberDao.getById(existingId));
+        harness.setThreads(4);
+        harness.setOperationsPerThread(200);
+        StressReport report = harness.run(false);
+
+        assertEquals(800, report.getTotalOperations());
+        StressReport.OperationStats inserts = report.getOperation("insert");
+        StressReport.OperationStats reads = report.getOperation("getById");
+        assertEquals(0, reads.getFailed(), report.format());
+        assertTrue(reads.getLatency().getValueAtPercentile(50) > 0);
+
+        // At most 25 of the inserts can win; the rest hit the unique index.
+        assertTrue(inserts.getSucceeded() <= 25, report.format());
+        assertEquals(inserts.getFailed(), inserts.getFailures(StressReport.Failure.DUPLICATE_KEY), report.format());
+        assertTrue(inserts.getFirstError().startsWith("Unique index or primary key violation"), inserts.getFirstError());
+        assertEquals(inserts.getFailed(), report.getTable("nrm_phone_numbers").getFailures(StressReport.Failure.DUPLICATE_KEY));
+        assertTrue(report.format().contains("Contention by table:"));
+    }
+
+    @Test
+    void testBlockedSessionsAreSampled() {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("daoStressHarnessTest");
+        jdbcTemplate.update("INSERT INTO nrm_call_groups (id, cidr_group_id, name) VALUES (1, 100, 'Sales')");
+
+        // Everyone updates the same row and holds the lock for a moment.
+        DaoStressHarness harness = new DaoStressHarness(jdbcTemplate.getDataSource());
+        harness.addOperation("updateHot", 1, (worker, iteration) -> {
+            try (Connection connection = jdbcTemplate.getDataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.executeUpdate("UPDATE nrm_call_groups SET cidr_group_id = cidr_group_id + 1 WHERE id = 1");
+                Thread.sleep(ThreadLocalRandom.current().nextInt(2, 5));
+                connection.commit();
+            }
+        });
+        harness.setThreads(4);
+        harness.setOperationsPerThread(40);
+        harness.setLockSampleMillis(1);
+        harness.setVirtualThreads(false);
+        StressReport report = harness.run(false);
+
+        assertFalse(report.isVirtualThreads());
+        assertEquals(160, report.getOperation("updateHot").getSucceeded(), report.format());
+        assertEquals(260L, jdbcTemplate.queryForObject("SELECT cidr_group_id FROM nrm_call_groups WHERE id = 1", Long.class));
+        assertTrue(report.getLockSamples() > 0);
+        assertTrue(report.getTable("nrm_call_groups").getBlockedSamples() > 0, report.format());
+    }
+}
@@ -0,0 +1,86 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EchoFixture;
+import com.deepblue523.h2echo.fixtures.Fixture;
+import com.deepblue523.h2echo.fixtures.FixtureLoader;
+import com.deepblue523.h2echo.junit.H2EchoExtension;
+import com.deepblue523.h2echo.test.dao.beans.NrmAuditResult;
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.test.dao.impl.NrmAuditResultsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmPhoneNumberDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Timestamp;
+
+// The phone numbers are listed before the call groups they reference, to check the
+// rows are loaded in foreign key order rather than file order.
+@ExtendWith(H2EchoExtension.class)
+@EchoFixture({"fixtures/nrm_phone_numbers.csv", "fixtures/nrm_call_groups.json"})
+class EchoFixtureTest {
+
+    @EchoDao
+    private NrmCallGroupsDao nrmCallGroupsDao;
+
+    @EchoDao
+    private NrmPhoneNumberDao nrmPhoneNumberDao;
+
+    @EchoDao
+    private NrmAuditResultsDao nrmAuditResultsDao;
+
+    public EchoFixtureTest() {
+        H2Echo.echoDaosOnObject(this, false);
+    }
+
+    @Test
+    @EchoFixture("fixtures/nrm_audit_results.sql")
+    void testClassAndMethodFixtures() {
+        // ---[ CSV, with quoting and NULLs ]---
+        NrmPhoneNumber reception = nrmPhoneNumberDao.getById(9001);
+        assertEquals("Reception, main office", reception.getDescription());
+        assertEquals(9001, reception.getCallGroupId());
+        assertFalse(reception.getArchive());
+        assertNull(reception.getArchiveDate());
+
+        NrmPhoneNumber nightLine = nrmPhoneNumberDao.getById(9002);
+        assertEquals("The \"night\" line", nightLine.getDescription());
+        assertNull(nightLine.getDepartment());
+        assertEquals(Timestamp.valueOf("2024-01-15 08:30:00"), nightLine.getArchiveDate());
+
+        // ---[ JSON, with a column left to its default ]---
+        assertEquals("Fixture Support", nrmCallGroupsDao.getById(9002).getName());
+        assertNotNull(nrmCallGroupsDao.getById(9002).getCreatedAt());
+
+        // ---[ SQL, from the method's fixture ]---
+        NrmAuditResult auditResult = nrmAuditResultsDao.getById(9002);
+        assertEquals(9002, auditResult.getPhoneNumberId());
+        assertTrue(auditResult.getNomoroboFlagged());
+
+        // ---[ DAO inserts get ids past the fixture's ]---
+        assertTrue(nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup()) > 9002);
+    }
+
+    @Test
+    void testFixturesAreParsedOnceAndReloadable() {
+        // The method has no fixture of its own, but the class's were loaded.
+        assertNotNull(nrmPhoneNumberDao.getById(9001));
+
+        Fixture fixture = FixtureLoader.getFixture("fixtures/nrm_call_groups.json");
+        assertSame(fixture, FixtureLoader.getFixture("fixtures/nrm_call_groups.json"));
+        assertEquals(2, fixture.getRowCount());
+
+        // Rows with their primary key are merged, so loading again is harmless.
+        assertEquals(4, FixtureLoader.load(H2Echo.getEchoDataSource(this),
+                "fixtures/nrm_phone_numbers.csv", "fixtures/nrm_call_groups.json"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> FixtureLoader.getFixture("fixtures/missing.csv"));
+        assertTrue(error.getMessage().contains("fixtures/missing.csv"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.mapping.EchoRowMapper;
+import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
+import com.deepblue523.h2echo.test.dao.mapper.NrmPhoneNumberRowMapper;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import com.deepblue523.h2echo.verify.BeanComparator;
+import com.deepblue523.h2echo.verify.BeanDiff;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+class EchoRowMapperTest {
+
+    @Test
+    void testMapsLikeTheHandWrittenMapper() {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("echoRowMapperTest");
+        jdbcTemplate.update("INSERT INTO nrm_call_groups (id, cidr_group_id, name) VALUES (1, 100, 'Sales')");
+        jdbcTemplate.update("INSERT INTO nrm_phone_numbers (cidr_id, phone_number, description, department, internal_id, "
+                + "cnam, call_group_id, user_id, numeracle_profile_id, archive, archive_date) "
+                + "SELECT X, '+1555' || X, 'Line ' || X, 'Sales', 'INT' || X, 'ACME', 1, MOD(X, 7), 'NP-' || X, "
+                + "MOD(X, 2) = 0, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 2000)");
+
+        EchoRowMapper<NrmPhoneNumber> mapper = EchoRowMapper.forClass(NrmPhoneNumber.class);
+        assertSame(mapper, EchoRowMapper.forClass(NrmPhoneNumber.class));
+
+        String sql = "SELECT * FROM nrm_phone_numbers";
+        List<NrmPhoneNumber> mapped = jdbcTemplate.query(sql, mapper);
+        List<NrmPhoneNumber> handMapped = jdbcTemplate.query(sql, new NrmPhoneNumberRowMapper());
+
+        assertEquals(2_000, mapped.size());
+        BeanDiff diff = BeanComparator.forClass(NrmPhoneNumber.class).compareById(handMapped, mapped, "id");
+        assertTrue(diff.isEmpty(), diff.format());
+        assertEquals(List.of(), mapper.getUnmappedColumns());
+
+        // ---[ NULL stays null, where the hand-written mapper gives 0 ]---
+        jdbcTemplate.update("UPDATE nrm_phone_numbers SET cidr_id = NULL WHERE id = 1");
+        assertNull(jdbcTemplate.query(sql + " WHERE id = 1", mapper).get(0).getCidrId());
+        assertEquals(0, jdbcTemplate.query(sql + " WHERE id = 1", new NrmPhoneNumberRowMapper()).get(0).getCidrId());
+
+        // ---[ Another shape: aliased and extra columns ]---
+        NrmPhoneNumber partial = jdbcTemplate.query(
+                "SELECT id AS PhoneId, phone_number AS phoneNumber, 42 AS extra FROM nrm_phone_numbers WHERE id = 2",
+                mapper).get(0);
+        assertEquals("+15552", partial.getPhoneNumber());
+        assertNull(partial.getId());
+        assertEquals(List.of("PHONEID", "EXTRA"), mapper.getUnmappedColumns());
+    }
+}
@@ -0,0 +1,64 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmEntityDao;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class FlightRecorderEventsTest {
+
+    static class Holder {
+        @EchoDao
+        private NrmEntityDao nrmEntityDao;
+    }
+
+    @Test
+    void testEventsAreRecorded() throws Exception {
+        Path recordingFile = Files.createTempFile("h2echo", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.deepblue523.h2echo.ScriptRead");
+            recording.enable("com.deepblue523.h2echo.StatementTranslate");
+            recording.enable("com.deepblue523.h2echo.StatementExecute");
+            recording.enable("com.deepblue523.h2echo.Migration");
+            recording.enable("com.deepblue523.h2echo.DaoInjection");
+            recording.start();
+
+            H2Echo.echoDaosOnObject(new Holder(), false);
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        Set<String> eventNames = events.stream()
+                .map(event -> event.getEventType().getName())
+                .collect(Collectors.toSet());
+
+        assertTrue(eventNames.containsAll(Set.of(
+                "com.deepblue523.h2echo.ScriptRead",
+                "com.deepblue523.h2echo.StatementTranslate",
+                "com.deepblue523.h2echo.StatementExecute",
+                "com.deepblue523.h2echo.Migration",
+                "com.deepblue523.h2echo.DaoInjection")));
+
+        RecordedEvent scriptRead = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.deepblue523.h2echo.ScriptRead"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("V1.0__initial_schemas.sql", scriptRead.getString("scriptName"));
+
+        Files.deleteIfExists(recordingFile);
+    }
+}
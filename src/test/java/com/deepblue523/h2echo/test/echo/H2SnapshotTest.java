@@ -0,0 +1,38 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.snapshot.H2Snapshot;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class H2SnapshotTest {
+
+    @Test
+    void testRestoreBringsBackSchemaDataAndIdentities() {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("h2SnapshotTest");
+
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/migrations/", ScriptSyntax.MARIA_DB, false);
+        jdbcTemplate.update("INSERT INTO nrm_call_groups (cidr_group_id, name) VALUES (1, 'seeded')");
+
+        H2Snapshot snapshot = H2Snapshot.take(jdbcTemplate);
+        try {
+            jdbcTemplate.update("INSERT INTO nrm_call_groups (cidr_group_id, name) VALUES (2, 'later')");
+            jdbcTemplate.execute("DROP TABLE nrm_audit_results");
+
+            snapshot.restore(jdbcTemplate);
+
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM nrm_call_groups", Integer.class));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM nrm_audit_results", Integer.class));
+
+            // The identity carries on from the snapshot, not from the discarded insert.
+            jdbcTemplate.update("INSERT INTO nrm_call_groups (cidr_group_id, name) VALUES (3, 'after')");
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT MAX(id) FROM nrm_call_groups", Integer.class));
+        } finally {
+            snapshot.delete();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.dialects.DialectRunnerBase;
+import com.deepblue523.h2echo.dialects.IndexCreation;
+import com.deepblue523.h2echo.dialects.MariaDbRunner;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class IndexTranslationTest {
+
+    private static final String SCRIPT =
+            "CREATE TABLE IF NOT EXISTS CUSTOMER (\n"
+            + "    ID BIGINT AUTO_INCREMENT PRIMARY KEY,\n"
+            + "    EMAIL VARCHAR(255) NOT NULL,\n"
+            + "    LAST_NAME VARCHAR(100),\n"
+            + "    FIRST_NAME VARCHAR(100),\n"
+            + "    BIO TEXT,\n"
+            + "    UNIQUE KEY UK_EMAIL (EMAIL),\n"
+            + "    INDEX IX_NAME (LAST_NAME(20), FIRST_NAME),\n"
+            + "    FULLTEXT INDEX FT_BIO (BIO)\n"
+            + ");\n"
+            + "CREATE INDEX IX_FIRST USING BTREE ON CUSTOMER (FIRST_NAME) ALGORITHM=INPLACE LOCK=NONE;\n"
+            + "ALTER TABLE CUSTOMER ADD COLUMN CITY VARCHAR(50), ADD INDEX (CITY, LAST_NAME);\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndexesAreCreatedUpFront() throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("indexUpFrontTest");
+        MigrationReport report = run(jdbcTemplate, IndexCreation.UP_FRONT);
+
+        assertEquals(0, report.getTotalErrors());
+        assertEquals(List.of(
+                "CUSTOMER_IDX_CITY_LAST_NAME",
+                "CUSTOMER_IX_FIRST",
+                "CUSTOMER_IX_NAME",
+                "CUSTOMER_UK_EMAIL"), getIndexNames(jdbcTemplate));
+        assertTrue(report.getScripts().stream()
+                .noneMatch(s -> s.getScriptName().equals(DialectRunnerBase.DEFERRED_INDEXES_SCRIPT_NAME)));
+    }
+
+    @Test
+    void testIndexesCanBeDeferred() throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("indexDeferredTest");
+        MigrationReport report = run(jdbcTemplate, IndexCreation.DEFERRED);
+
+        assertEquals(0, report.getTotalErrors());
+        assertEquals(4, getIndexNames(jdbcTemplate).size());
+
+        MigrationReport.ScriptTiming last = report.getScripts().get(report.getScripts().size() - 1);
+        assertEquals(DialectRunnerBase.DEFERRED_INDEXES_SCRIPT_NAME, last.getScriptName());
+        assertEquals(4, last.getStatementsRun());
+
+        // The unique index is enforced.
+        jdbcTemplate.update("INSERT INTO CUSTOMER (EMAIL) VALUES ('a@x.com')");
+        assertThrows(Exception.class, () -> jdbcTemplate.update(
+                "INSERT INTO CUSTOMER (EMAIL) VALUES ('a@x.com')"));
+    }
+
+    private MigrationReport run(JdbcTemplate jdbcTemplate, IndexCreation indexCreation) throws IOException {
+        Path script = tempDir.resolve("V1.0__indexes.sql");
+        Files.writeString(script, SCRIPT);
+
+        MariaDbRunner runner = new MariaDbRunner();
+        runner.setIndexCreation(indexCreation);
+        return runner.runSqlScriptsOnH2(jdbcTemplate, new File[] {script.toFile()}, false);
+    }
+
+    private List<String> getIndexNames(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES "
+                        + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'CUSTOMER' AND INDEX_TYPE_NAME <> 'PRIMARY KEY' "
+                        + "ORDER BY INDEX_NAME",
+                String.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import com.deepblue523.h2echo.datasource.LazyEchoDataSource;
+import com.deepblue523.h2echo.test.dao.beans.NrmCallGroup;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmEntityDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+
+class LazyEchoTest {
+
+    @EnableH2Echo(lazy = true)
+    static class LazyHolder {
+        @EchoDao
+        private NrmCallGroupsDao nrmCallGroupsDao;
+
+        @EchoDao
+        private NrmEntityDao nrmEntityDao;
+    }
+
+    @Test
+    void testNoMigrationUntilFirstUse() {
+        int deferredBefore = LazyEchoDataSource.getMigrationsDeferred();
+        int runBefore = LazyEchoDataSource.getMigrationsRun();
+        int avoidedBefore = LazyEchoDataSource.getMigrationsAvoided();
+        int untouchedBefore = LazyEchoDataSource.getDataSourcesUntouched();
+
+        LazyHolder holder = new LazyHolder();
+        H2Echo.echoDaosOnObject(holder, false);
+
+        // Two DAOs were injected, but nothing has been built yet.
+        assertNotNull(holder.nrmCallGroupsDao);
+        assertNotNull(holder.nrmEntityDao);
+        assertEquals(deferredBefore + 2, LazyEchoDataSource.getMigrationsDeferred());
+        assertEquals(runBefore, LazyEchoDataSource.getMigrationsRun());
+
+        // ---[ First touch builds the schema, once ]---
+        NrmCallGroup callGroup = TestUtils.getDummyNrmCallGroup();
+        int newCallGroupId = holder.nrmCallGroupsDao.insert(callGroup);
+        assertNotNull(holder.nrmCallGroupsDao.getById(newCallGroupId));
+        assertEquals(runBefore + 1, LazyEchoDataSource.getMigrationsRun());
+
+        // Both fields shared that one run, but laziness didn't avoid anything.
+        assertEquals(avoidedBefore, LazyEchoDataSource.getMigrationsAvoided());
+        assertEquals(untouchedBefore, LazyEchoDataSource.getDataSourcesUntouched());
+    }
+
+    @Test
+    void testUntouchedDaosCostNothing() {
+        int runBefore = LazyEchoDataSource.getMigrationsRun();
+        int avoidedBefore = LazyEchoDataSource.getMigrationsAvoided();
+        int untouchedBefore = LazyEchoDataSource.getDataSourcesUntouched();
+
+        LazyHolder holder = new LazyHolder();
+        H2Echo.echoDaosOnObject(holder, false);
+
+        assertEquals(runBefore, LazyEchoDataSource.getMigrationsRun());
+        assertEquals(untouchedBefore + 1, LazyEchoDataSource.getDataSourcesUntouched());
+        assertEquals(avoidedBefore + 2, LazyEchoDataSource.getMigrationsAvoided());
+    }
+}
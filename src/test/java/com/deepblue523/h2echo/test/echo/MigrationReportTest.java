@@ -0,0 +1,49 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.reporting.MigrationListener;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class MigrationReportTest {
+
+    @Test
+    void testReportCoversScriptsAndStatements() {
+        List<String> scriptsFinished = new ArrayList<>();
+        MigrationListener listener = new MigrationListener() {
+            @Override
+            public void onScriptFinished(MigrationReport.ScriptTiming scriptTiming) {
+                scriptsFinished.add(scriptTiming.getScriptName());
+            }
+        };
+
+        MigrationReport report = H2Echo.runSqlScriptsOnH2(
+                TestUtils.createJdbcTemplate("migrationReportTest"), "db/migrations/", ScriptSyntax.MARIA_DB, false, listener);
+
+        // ---[ Scripts ]---
+        assertEquals(List.of("V1.0__initial_schemas.sql", "V2.0__initial_tables.sql"), scriptsFinished);
+        assertEquals(2, report.getScripts().size());
+        assertTrue(report.getBytesProcessed() > 0);
+        assertTrue(report.getWallNanos() > 0);
+
+        // ---[ Statements ]---
+        // Five tables in a fresh database.  The schema, user and grant statements are skipped.
+        assertEquals(0, report.getTotalErrors());
+        assertEquals(5, report.getTotalStatementsRun());
+        assertTrue(report.getTotalStatementsSkipped() > 0);
+        assertEquals("nothing left to run after translation", report.getSkippedStatements().get(0).getReason());
+        assertEquals("statement type not supported on H2", report.getSkippedStatements().get(1).getReason());
+
+        List<MigrationReport.StatementTiming> slowest = report.getSlowestStatements(3);
+        assertEquals(3, slowest.size());
+        assertTrue(slowest.get(0).getNanos() >= slowest.get(1).getNanos());
+        assertEquals("CREATE TABLE", report.getStatements().get(0).getKind());
+    }
+}
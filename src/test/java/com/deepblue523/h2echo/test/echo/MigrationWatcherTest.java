@@ -0,0 +1,106 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import com.deepblue523.h2echo.watch.MigrationWatcher;
+import com.deepblue523.h2echo.watch.WatchUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class MigrationWatcherTest {
+
+    @Test
+    void testChangesAreAppliedIncrementally(@TempDir Path directory) throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("migrationWatcherTest");
+        write(directory, "V1.0__customers.sql",
+                "CREATE TABLE w_customers (id INT NOT NULL AUTO_INCREMENT, name VARCHAR(40), PRIMARY KEY (id));\n"
+                        + "INSERT INTO w_customers (name) VALUES ('Acme');\n");
+        write(directory, "V2.0__orders.sql",
+                "CREATE TABLE w_orders (id INT NOT NULL AUTO_INCREMENT, customer_id INT, PRIMARY KEY (id));\n");
+        Files.writeString(directory.resolve("V2.0__orders.sql~"), "editor backup, ignored");
+
+        try (MigrationWatcher watcher = new MigrationWatcher(directory, ScriptSyntax.MARIA_DB, jdbcTemplate.getDataSource())) {
+            WatchUpdate build = watcher.build(false);
+            assertEquals(2, build.getAppliedScripts().size());
+            assertTrue(build.isRebuilt());
+            assertTrue(build.getScript("V1.0__customers.sql").isFirstRun());
+            assertEquals(0, build.getScript("V1.0__customers.sql").getFailures());
+            assertTrue(watcher.refresh(false).isEmpty());
+
+            // ---[ A new script goes on top of the live database ]---
+            jdbcTemplate.update("INSERT INTO w_customers (name) VALUES ('Live row')");
+            write(directory, "V3.0__invoices.sql", "CREATE TABLE w_invoices (id INT NOT NULL, PRIMARY KEY (id));\n");
+
+            WatchUpdate appended = watcher.refresh(false);
+            assertFalse(appended.isRebuilt());
+            assertEquals(1, appended.getAppliedScripts().size());
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM w_customers", Integer.class));
+
+            // ---[ An edit goes back to the checkpoint before it ]---
+            write(directory, "V2.0__orders.sql",
+                    "CREATE TABLE w_orders (id INT NOT NULL AUTO_INCREMENT, customer_id INT, total DECIMAL(10,2), PRIMARY KEY (id));\n"
+                            + "INSERT INTO w_no_such_table (id) VALUES (1);\n");
+
+            WatchUpdate edited = watcher.refresh(false);
+            assertTrue(edited.isRebuilt());
+            assertEquals("V1.0__customers.sql", edited.getRestoredFrom());
+            assertEquals(2, edited.getAppliedScripts().size());
+
+            WatchUpdate.ScriptDiff orders = edited.getScript("V2.0__orders.sql");
+            assertEquals(2, orders.getAdded().size(), edited.format());
+            assertEquals(1, orders.getRemoved().size(), edited.format());
+            assertEquals(1, orders.getFailures());
+            assertTrue(edited.getScript("V3.0__invoices.sql").isUnchanged());
+            assertTrue(edited.format().contains("[failed: Table \"W_NO_SUCH_TABLE\" not found"), edited.format());
+
+            // The checkpoint doesn't have the live row.
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM w_customers", Integer.class));
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'W_ORDERS' AND COLUMN_NAME = 'TOTAL'",
+                    Integer.class));
+
+            // ---[ Removing the last script drops its table ]---
+            Files.delete(directory.resolve("V3.0__invoices.sql"));
+
+            WatchUpdate removed = watcher.refresh(false);
+            assertEquals("V2.0__orders.sql", removed.getRestoredFrom());
+            assertEquals(1, removed.getRemovedScripts().size());
+            assertEquals(0, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'W_INVOICES'", Integer.class));
+        }
+    }
+
+    @Test
+    void testWatchThreadPicksUpNewScripts(@TempDir Path directory) throws IOException, InterruptedException {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("migrationWatcherThreadTest");
+        write(directory, "V1.0__customers.sql", "CREATE TABLE w_customers (id INT NOT NULL, PRIMARY KEY (id));\n");
+
+        try (MigrationWatcher watcher = new MigrationWatcher(directory, ScriptSyntax.MARIA_DB, jdbcTemplate.getDataSource())) {
+            BlockingQueue<WatchUpdate> updates = new LinkedBlockingQueue<>();
+            watcher.setUpdateListener(updates::add);
+            watcher.start(false);
+
+            write(directory, "V2.0__orders.sql", "CREATE TABLE w_orders (id INT NOT NULL, PRIMARY KEY (id));\n");
+
+            WatchUpdate update = updates.poll(30, TimeUnit.SECONDS);
+            assertNotNull(update, "No update after adding a script");
+            assertEquals("V2.0__orders.sql", update.getAppliedScripts().get(0));
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'W_ORDERS'", Integer.class));
+        }
+    }
+
+    private static void write(Path directory, String name, String contents) throws IOException {
+        Files.writeString(directory.resolve(name), contents);
+    }
+}
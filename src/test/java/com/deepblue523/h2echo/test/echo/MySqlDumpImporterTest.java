@@ -0,0 +1,132 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.dump.DumpImportReport;
+import com.deepblue523.h2echo.dump.MySqlDumpImporter;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+class MySqlDumpImporterTest {
+
+    private static final String DUMP_HEADER =
+            "-- MySQL dump 10.13  Distrib 8.0.36, for Linux (x86_64)\n"
+            + "/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;\n"
+            + "/*!40103 SET TIME_ZONE='+00:00' */;\n"
+            + "/*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */;\n"
+            + "\n"
+            + "--\n"
+            + "-- Table structure for table `carrier`\n"
+            + "--\n"
+            + "\n"
+            + "DROP TABLE IF EXISTS `carrier`;\n"
+            + "/*!40101 SET @saved_cs_client     = @@character_set_client */;\n"
+            + "CREATE TABLE `carrier` (\n"
+            + "  `id` int(11) unsigned NOT NULL AUTO_INCREMENT,\n"
+            + "  `name` varchar(100) COLLATE utf8mb4_unicode_ci NOT NULL,\n"
+            + "  `active` bit(1) NOT NULL DEFAULT b'1',\n"
+            + "  `value` decimal(10,2) DEFAULT NULL,\n"
+            + "  PRIMARY KEY (`id`),\n"
+            + "  UNIQUE KEY `uk_name` (`name`)\n"
+            + ") ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;\n"
+            + "\n"
+            + "LOCK TABLES `carrier` WRITE;\n"
+            + "/*!40000 ALTER TABLE `carrier` DISABLE KEYS */;\n"
+            + "INSERT INTO `carrier` VALUES (1,'Acme',_binary '\u0001',1.50),(2,'O\\'Brien; Sons',b'0',NULL),"
+            + "(3,'Multi\\nLine',b'1',2.00),(4,'Hex Blob',0x01,NULL);\n"
+            + "/*!40000 ALTER TABLE `carrier` ENABLE KEYS */;\n"
+            + "UNLOCK TABLES;\n"
+            + "\n"
+            + "DROP TABLE IF EXISTS `attachment`;\n"
+            + "CREATE TABLE `attachment` (\n"
+            + "  `id` int(11) NOT NULL,\n"
+            + "  `flag` varbinary(1) DEFAULT NULL,\n"
+            + "  `data` blob,\n"
+            + "  PRIMARY KEY (`id`)\n"
+            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n"
+            + "INSERT INTO `attachment` VALUES (1,0x01,_binary '\u0001'),(2,0x00,0x0102);\n"
+            + "\n"
+            + "DROP TABLE IF EXISTS `route`;\n"
+            + "CREATE TABLE `route` (\n"
+            + "  `id` bigint(20) NOT NULL AUTO_INCREMENT,\n"
+            + "  `carrier_id` int(11) unsigned NOT NULL,\n"
+            + "  `prefix` varchar(20) NOT NULL,\n"
+            + "  `created` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
+            + "  PRIMARY KEY (`id`),\n"
+            + "  KEY `idx_carrier_prefix` (`carrier_id`,`prefix`(10)),\n"
+            + "  CONSTRAINT `fk_route_carrier` FOREIGN KEY (`carrier_id`) REFERENCES `carrier` (`id`) ON DELETE CASCADE\n"
+            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n"
+            + "\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDumpIsImported() throws IOException {
+        StringBuilder dump = new StringBuilder(DUMP_HEADER);
+        dump.append("LOCK TABLES `route` WRITE;\n");
+        for (int statement = 0; statement < 5; statement++) {
+            dump.append("INSERT INTO `route` VALUES ");
+            for (int row = 0; row < 200; row++) {
+                int id = statement * 200 + row + 1;
+                dump.append(row > 0 ? "," : "")
+                        .append("(").append(id).append(",").append(id % 3 + 1).append(",'+1")
+                        .append(id).append("','2024-01-01 00:00:00')");
+            }
+            dump.append(";\n");
+        }
+        dump.append("UNLOCK TABLES;\n");
+
+        Path dumpFile = tempDir.resolve("dump.sql.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dumpFile))) {
+            out.write(dump.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        DriverManagerDataSource dataSource = TestUtils.createDataSource("dumpImportTest");
+        MySqlDumpImporter importer = new MySqlDumpImporter(dataSource);
+        importer.setThreads(2);
+        importer.setBatchSize(64);
+        DumpImportReport report = importer.importDump(dumpFile, false);
+
+        assertEquals(0, report.getErrors().size(), report.format());
+        assertEquals(1006, report.getTotalRows());
+        assertEquals(1000, report.getTable("\"ROUTE\"").getRows());
+        assertEquals(5, report.getTable("\"ROUTE\"").getInsertStatements());
+
+        // Values, including escapes, survive.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals("O'Brien; Sons", jdbcTemplate.queryForObject("SELECT NAME FROM CARRIER WHERE ID = 2", String.class));
+        assertEquals("Multi\nLine", jdbcTemplate.queryForObject("SELECT NAME FROM CARRIER WHERE ID = 3", String.class));
+        assertFalse(jdbcTemplate.queryForObject("SELECT ACTIVE FROM CARRIER WHERE ID = 2", Boolean.class));
+        assertTrue(jdbcTemplate.queryForObject("SELECT ACTIVE FROM CARRIER WHERE ID = 4", Boolean.class));
+
+        // One-byte binary values only become numbers for BOOLEAN columns.
+        assertArrayEquals(new byte[] {1}, jdbcTemplate.queryForObject("SELECT FLAG FROM ATTACHMENT WHERE ID = 1", byte[].class));
+        assertArrayEquals(new byte[] {1}, jdbcTemplate.queryForObject("SELECT DATA FROM ATTACHMENT WHERE ID = 1", byte[].class));
+        assertArrayEquals(new byte[] {0}, jdbcTemplate.queryForObject("SELECT FLAG FROM ATTACHMENT WHERE ID = 2", byte[].class));
+
+        // The primary key, plus the index and foreign key added after the data.
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'ROUTE_IDX_CARRIER_PREFIX'",
+                Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'ROUTE' AND INDEX_TYPE_NAME = 'PRIMARY KEY'",
+                Integer.class));
+        assertThrows(Exception.class, () -> jdbcTemplate.update(
+                "INSERT INTO ROUTE (CARRIER_ID, PREFIX) VALUES (99, '+1')"));
+
+        // Identity counters continue after the loaded ids.
+        jdbcTemplate.update("INSERT INTO CARRIER (NAME) VALUES ('New')");
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT ID FROM CARRIER WHERE NAME = 'New'", Integer.class));
+    }
+}
@@ -0,0 +1,63 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.plans.PlanAnalyzer;
+import com.deepblue523.h2echo.plans.PlanBaseline;
+import com.deepblue523.h2echo.plans.PlanReport;
+import com.deepblue523.h2echo.plans.QueryPlan;
+import com.deepblue523.h2echo.profiling.ProfilingDataSource;
+import com.deepblue523.h2echo.profiling.QueryProfiler;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class PlanAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFullScansAreFlaggedWithSuggestedIndexAndBaseline() throws Exception {
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("planAnalyzerTest");
+
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/migrations/", ScriptSyntax.MARIA_DB, false);
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO nrm_call_groups (cidr_group_id, name) VALUES (?, ?)", i, "group " + i);
+        }
+
+        // ---[ Run a scan and a key lookup through a profiler ]---
+        QueryProfiler profiler = new QueryProfiler();
+        JdbcTemplate profiledTemplate = new JdbcTemplate(new ProfilingDataSource(jdbcTemplate.getDataSource(), profiler));
+        profiledTemplate.queryForList("SELECT * FROM nrm_call_groups WHERE name = ?", "group 3");
+        profiledTemplate.queryForList("SELECT * FROM nrm_call_groups WHERE id = ?", 3);
+
+        PlanReport report = new PlanAnalyzer(jdbcTemplate, 5).analyze(profiler.getExecutions());
+
+        assertEquals(2, report.getPlans().size());
+        assertEquals(1, report.getPlansWithFullScans().size());
+
+        QueryPlan.FullScan scan = report.getPlansWithFullScans().get(0).getFullScans().get(0);
+        assertEquals("NRM_CALL_GROUPS", scan.getTable());
+        assertEquals(10, scan.getRows());
+        assertEquals("CREATE INDEX idx_nrm_call_groups_name ON nrm_call_groups (name);", scan.getSuggestedIndexDdl());
+
+        // Tables at or below the threshold aren't flagged.
+        assertTrue(new PlanAnalyzer(jdbcTemplate, 10).analyze(profiler.getExecutions()).getPlansWithFullScans().isEmpty());
+
+        // ---[ A baseline where the scan used to be an index lookup ]---
+        Path baselineFile = tempDir.resolve("plans.txt");
+        Files.writeString(baselineFile, "NRM_CALL_GROUPS:IDX_NAME\tSELECT * FROM nrm_call_groups WHERE name = ?\n");
+
+        List<String> degradations = new PlanBaseline(baselineFile, false).check(report);
+        assertEquals(1, degradations.size());
+        assertTrue(degradations.get(0).contains("NRM_CALL_GROUPS:scan"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.QueryBudget;
+import com.deepblue523.h2echo.junit.H2EchoExtension;
+import com.deepblue523.h2echo.profiling.ProfilingDataSource;
+import com.deepblue523.h2echo.profiling.QueryProfiler;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(H2EchoExtension.class)
+class QueryBudgetTest {
+
+    @EchoDao
+    private NrmCallGroupsDao nrmCallGroupsDao;
+
+    public QueryBudgetTest() {
+        H2Echo.echoDaosOnObject(this, false);
+    }
+
+    @Test
+    @QueryBudget(maxStatements = 2, maxRowsScanned = 2)
+    void testInsertAndLookupWithinBudget() {
+        // @QueryBudget alone is enough to turn profiling on.
+        assertNotNull(H2Echo.getQueryProfiler(this));
+
+        int id = nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+        assertNotNull(nrmCallGroupsDao.getById(id));
+    }
+
+    @QueryBudget(maxStatements = 1)
+    private void singleStatementBudget() {
+    }
+
+    @Test
+    void testBudgetBreakdownWhenExceeded() throws Exception {
+        int id = nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+        nrmCallGroupsDao.getById(id);
+
+        QueryBudget budget = getClass().getDeclaredMethod("singleStatementBudget").getAnnotation(QueryBudget.class);
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> H2EchoExtension.checkQueryBudget(budget, H2Echo.getQueryProfiler(this).getReport()));
+
+        assertTrue(error.getMessage().startsWith("Query budget exceeded: 2 statements (budget 1)"));
+        assertTrue(error.getMessage().contains("SELECT * FROM nrm_call_groups"));
+    }
+
+    @Test
+    void testExtensionFailsOverBudgetTest() throws Exception {
+        int id = nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+        nrmCallGroupsDao.getById(id);
+
+        // Drive the extension as JUnit would after a test method with a one-statement budget.
+        Method method = getClass().getDeclaredMethod("singleStatementBudget");
+        ExtensionContext context = mock(ExtensionContext.class);
+        doReturn(Optional.of(method)).when(context).getTestMethod();
+        doReturn(Optional.of(this)).when(context).getTestInstance();
+        doReturn(this).when(context).getRequiredTestInstance();
+        doReturn(getClass()).when(context).getRequiredTestClass();
+
+        AssertionError error = assertThrows(AssertionError.class, () -> new H2EchoExtension().afterEach(context));
+        assertTrue(error.getMessage().startsWith("Query budget exceeded: 2 statements (budget 1)"), error.getMessage());
+        verify(context).publishReportEntry(eq(H2EchoExtension.QUERIES_REPORT_KEY), anyString());
+    }
+
+    @Test
+    void testEachBatchEntryCountsAgainstBudget() throws Exception {
+        QueryProfiler profiler = new QueryProfiler();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new ProfilingDataSource(TestUtils.createDataSource("queryBudgetBatch"), profiler));
+        jdbcTemplate.execute("CREATE TABLE batch_budget (id INT)");
+        profiler.reset();
+
+        jdbcTemplate.batchUpdate("INSERT INTO batch_budget (id) VALUES (?)",
+                List.of(new Object[] { 1 }, new Object[] { 2 }, new Object[] { 3 }));
+
+        QueryBudget budget = getClass().getDeclaredMethod("singleStatementBudget").getAnnotation(QueryBudget.class);
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> H2EchoExtension.checkQueryBudget(budget, profiler.getReport()));
+
+        assertTrue(error.getMessage().startsWith("Query budget exceeded: 3 statements (budget 1)"), error.getMessage());
+        assertEquals(3, profiler.getReport().getTotalRows());
+    }
+}
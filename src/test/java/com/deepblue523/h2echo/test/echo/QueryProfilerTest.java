@@ -0,0 +1,55 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.annotations.EchoDao;
+import com.deepblue523.h2echo.annotations.EnableH2Echo;
+import com.deepblue523.h2echo.junit.H2EchoExtension;
+import com.deepblue523.h2echo.profiling.QueryProfileReport;
+import com.deepblue523.h2echo.profiling.SqlNormalizer;
+import com.deepblue523.h2echo.test.dao.impl.NrmCallGroupsDao;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@EnableH2Echo(profileQueries = true)
+@ExtendWith(H2EchoExtension.class)
+class QueryProfilerTest {
+
+    @EchoDao
+    private NrmCallGroupsDao nrmCallGroupsDao;
+
+    public QueryProfilerTest() {
+        H2Echo.echoDaosOnObject(this, false);
+    }
+
+    @Test
+    void testLoopedLookupsAreFlaggedAsNPlusOne() {
+        int[] ids = new int[6];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nrmCallGroupsDao.insert(TestUtils.getDummyNrmCallGroup());
+        }
+
+        // One query per id, in a loop.
+        for (int id : ids) {
+            assertNotNull(nrmCallGroupsDao.getById(id));
+        }
+
+        QueryProfileReport report = H2Echo.getQueryProfiler(this).getReport();
+
+        assertEquals(12, report.getTotalStatements());
+        assertEquals(2, report.getShapes().size());
+        assertEquals(12, report.getTotalRows()); // 6 inserted + 6 read back
+
+        // The lookups ran 6 times with different ids.
+        assertTrue(report.getNPlusOneSuspects().stream()
+                .anyMatch(shape -> shape.getNormalizedSql().startsWith("SELECT * FROM nrm_call_groups")));
+    }
+
+    @Test
+    void testNormalizedShapes() {
+        assertEquals("SELECT * FROM t WHERE id = ? AND name = ? AND col_2 IN (?)",
+                SqlNormalizer.normalize("SELECT *  FROM t\n WHERE id = 42 AND name = 'it''s' AND col_2 IN (1, 2, 3)"));
+    }
+}
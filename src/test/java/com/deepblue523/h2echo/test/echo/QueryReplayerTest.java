@@ -0,0 +1,80 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.replay.LatencyHistogram;
+import com.deepblue523.h2echo.replay.QueryLogFormat;
+import com.deepblue523.h2echo.replay.QueryReplayer;
+import com.deepblue523.h2echo.replay.ReplayReport;
+import com.deepblue523.h2echo.synthetic.SyntheticDataGenerator;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+class QueryReplayerTest {
+
+    @Test
+    void testGeneralLogReplaysPerShape() throws IOException {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("queryReplayerTest");
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(jdbcTemplate.getDataSource(), 3);
+        generator.setRows("nrm_call_groups", 10);
+        generator.setRows("nrm_phone_numbers", 1_000);
+        generator.generate(false);
+
+        StringBuilder log = new StringBuilder();
+        log.append("/usr/sbin/mariadbd, Version: 10.11.6-MariaDB (MariaDB Server). started with:\n");
+        log.append("Tcp port: 3306  Unix socket: /run/mysqld/mysqld.sock\n");
+        log.append("Time\t\t    Id Command\tArgument\n");
+        log.append("240101 10:00:00\t    12 Connect\tapp@10.0.0.5 on nrm using TCP/IP\n");
+        log.append("\t\t    12 Query\tSET NAMES utf8mb4\n");
+        for (int i = 1; i <= 300; i++) {
+            log.append("\t\t    12 Query\tSELECT * FROM `nrm_phone_numbers` WHERE `id` = ").append(i).append('\n');
+            log.append("\t\t    13 Query\tSELECT COUNT(*) FROM nrm_phone_numbers\n");
+            log.append("\t\t    \tWHERE call_group_id = ").append(i % 10 + 1).append('\n');
+        }
+        log.append("240101 10:00:01\t    13 Query\tSELECT * FROM nrm_missing_table\n");
+        log.append("\t\t    12 Quit\t\n");
+
+        QueryReplayer replayer = new QueryReplayer(jdbcTemplate.getDataSource());
+        replayer.setConcurrency(4);
+        ReplayReport report = replayer.replay(new StringReader(log.toString()), QueryLogFormat.AUTO, false);
+
+        assertEquals(601, report.getTotalStatements());
+        assertEquals(1, report.getTotalErrors());
+        assertEquals(3, report.getSkipped()); // SET, Connect and Quit
+        assertEquals(3, report.getShapes().size());
+
+        ReplayReport.ShapeStats lookups = report.getShapes().stream()
+                .filter(shape -> shape.getNormalizedSql().equals("SELECT * FROM \"NRM_PHONE_NUMBERS\" WHERE \"ID\" = ?"))
+                .findFirst().orElseThrow();
+        assertEquals(300, lookups.getLatency().getCount());
+        assertTrue(lookups.getLatency().getValueAtPercentile(50) <= lookups.getLatency().getValueAtPercentile(99));
+        assertTrue(report.format().contains("first error: Table \"NRM_MISSING_TABLE\" not found"), report.format());
+
+        // ---[ A plain SQL-per-line trace ]---
+        String trace = "-- captured by hand\nSELECT 1;\n\nSELECT COUNT(*) FROM nrm_call_groups;\n";
+        assertEquals(2, replayer.replay(new StringReader(trace), QueryLogFormat.AUTO, false).getTotalStatements());
+    }
+
+    @Test
+    void testHistogramPercentilesStayWithinTwoPercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.02);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.02);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(Long.MAX_VALUE);
+        histogram.add(other);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(100_001, histogram.getCount());
+    }
+}
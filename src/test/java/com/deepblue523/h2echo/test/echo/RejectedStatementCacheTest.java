@@ -0,0 +1,75 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.DialectRunnerBase;
+import com.deepblue523.h2echo.dialects.RejectedStatementCache;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.reporting.MigrationReport;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class RejectedStatementCacheTest {
+    private static final String SCRIPT_PATH = "db/incompatible/";
+
+    @Test
+    void testKnownRejectionsAreReportedWithoutRunning(@TempDir Path directory) {
+        Path cacheFile = directory.resolve("rejected.tsv");
+        File[] scripts = H2Echo.getFileList(SCRIPT_PATH);
+
+        DialectRunnerBase firstRunner = H2Echo.createDialectRunner(ScriptSyntax.MARIA_DB);
+        firstRunner.setRejectedStatementCache(new RejectedStatementCache(cacheFile));
+        firstRunner.setSeedData(true);
+        MigrationReport first = firstRunner.runSqlScriptsOnH2(TestUtils.createJdbcTemplate("rejectedCacheFirst"), scripts, false);
+
+        // Two syntax errors are cached; the missing table depends on the schema, so it isn't.
+        assertEquals(3, first.getTotalErrors());
+        assertEquals(0, first.getStatementsRejectedFromCache());
+        assertEquals(2, firstRunner.getRejectedStatementCache().size());
+
+        // ---[ A later run (new JVM, new database) reads the file ]---
+        RejectedStatementCache cache = new RejectedStatementCache(cacheFile);
+        DialectRunnerBase secondRunner = H2Echo.createDialectRunner(ScriptSyntax.MARIA_DB);
+        secondRunner.setRejectedStatementCache(cache);
+        secondRunner.setSeedData(true);
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("rejectedCacheSecond");
+        MigrationReport second = secondRunner.runSqlScriptsOnH2(jdbcTemplate, scripts, false);
+
+        assertEquals(reasons(first), reasons(second));
+        assertEquals(2, second.getStatementsRejectedFromCache());
+        assertEquals(2, cache.getHits());
+        assertEquals(first.getTotalStatementsRun() - 2, second.getTotalStatementsRun());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inc_accounts", Integer.class));
+    }
+
+    @Test
+    void testDryRunReportsEveryRejection() {
+        MigrationReport dryRun = H2Echo.dryRunSqlScriptsOnH2(SCRIPT_PATH, ScriptSyntax.MARIA_DB, false);
+
+        DialectRunnerBase realRunner = H2Echo.createDialectRunner(ScriptSyntax.MARIA_DB);
+        realRunner.setSeedData(true);
+        MigrationReport realRun = realRunner.runSqlScriptsOnH2(TestUtils.createJdbcTemplate("rejectedCacheRealRun"), H2Echo.getFileList(SCRIPT_PATH), false);
+        assertEquals(reasons(realRun), reasons(dryRun));
+        assertTrue(reasons(dryRun).get(0).startsWith("Syntax error"), reasons(dryRun).toString());
+
+        // Inserts were only prepared.
+        List<MigrationReport.StatementTiming> inserts = dryRun.getStatements().stream()
+                .filter(statement -> statement.getSql().startsWith("INSERT") && statement.isSucceeded())
+                .collect(Collectors.toList());
+        assertEquals(2, inserts.size());
+        assertTrue(inserts.stream().allMatch(insert -> insert.getRowCount() == -1));
+    }
+
+    private static List<String> reasons(MigrationReport report) {
+        return report.getFailedStatements().stream().map(MigrationReport.StatementOutcome::getReason)
+                .collect(Collectors.toList());
+    }
+}
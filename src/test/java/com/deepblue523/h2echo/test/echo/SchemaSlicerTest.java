@@ -0,0 +1,68 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.schema.DaoSqlScanner;
+import com.deepblue523.h2echo.schema.SchemaSlice;
+import com.deepblue523.h2echo.schema.SchemaSlicer;
+import com.deepblue523.h2echo.test.dao.impl.NrmAuditResultsDao;
+import com.deepblue523.h2echo.test.dao.impl.NrmEntityDao;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+class SchemaSlicerTest {
+
+    private static File[] getScripts() {
+        return H2Echo.sortSqlScriptsByVersion(H2Echo.getFileList("db/migrations/"));
+    }
+
+    @Test
+    void testTablesFromDaoConstants() {
+        assertEquals(Set.of("nrm_entities"), DaoSqlScanner.findReferencedTables(NrmEntityDao.class));
+        assertEquals(Set.of("a", "b", "c"),
+                DaoSqlScanner.findReferencedTables("SELECT * FROM nrm.a x, b WHERE x.id IN (SELECT id FROM `c`)"));
+    }
+
+    interface EntitySql {
+        String SQL_GET_ENTITIES = "SELECT * FROM nrm_entities";
+        String SQL_DELETE_ALL = "DELETE FROM nrm_entities";
+    }
+
+    interface PhoneNumberSql extends EntitySql {
+        String SQL_GET_PHONE_NUMBERS = "SELECT * FROM nrm_phone_numbers";
+    }
+
+    static class InterfaceSqlDao implements PhoneNumberSql {
+        static final String SQL_DELETE_ALL = "DELETE FROM nrm_call_groups";
+    }
+
+    @Test
+    void testTablesFromInterfaceConstants() {
+        assertEquals(List.of("SQL_DELETE_ALL", "SQL_GET_PHONE_NUMBERS", "SQL_GET_ENTITIES"),
+                List.copyOf(DaoSqlScanner.findSqlConstants(InterfaceSqlDao.class).keySet()));
+        assertEquals(Set.of("nrm_call_groups", "nrm_phone_numbers", "nrm_entities"),
+                DaoSqlScanner.findReferencedTables(InterfaceSqlDao.class));
+    }
+
+    @Test
+    void testSliceFollowsForeignKeys() {
+        SchemaSlice slice = SchemaSlicer.computeSlice(getScripts(), List.of(NrmAuditResultsDao.class));
+
+        assertEquals(Set.of("nrm_audit_results", "nrm_phone_numbers", "nrm_call_groups"), slice.getTables());
+        assertEquals(5, slice.getAllTables().size());
+    }
+
+    @Test
+    void testSliceFiltersStatements() {
+        SchemaSlice slice = SchemaSlicer.computeSlice(getScripts(), List.of(NrmEntityDao.class));
+
+        assertTrue(slice.includes("CREATE TABLE nrm_entities (id INT)"));
+        assertTrue(slice.includes("CREATE SCHEMA IF NOT EXISTS `nrm`"));
+        assertFalse(slice.includes("-- Remediations\nCREATE TABLE nrm_remediations (id INT)"));
+        assertFalse(slice.includes("INSERT INTO nrm_call_groups VALUES (1)"));
+    }
+}
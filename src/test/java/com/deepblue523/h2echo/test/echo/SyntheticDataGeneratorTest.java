@@ -0,0 +1,71 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.synthetic.SyntheticDataGenerator;
+import com.deepblue523.h2echo.synthetic.SyntheticDataReport;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class SyntheticDataGeneratorTest {
+
+    @Test
+    void testRowsFollowTheSchemaAndSettings() {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("syntheticDataTest");
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(jdbcTemplate.getDataSource(), 42);
+        generator.setRows("nrm_call_groups", 50);
+        generator.setRows("nrm_audit_results", 5_000);
+        generator.setRows("nrm_phone_numbers", 20_000);
+        generator.setSkew("nrm_phone_numbers.call_group_id", 2.0);
+        generator.setCardinality("nrm_phone_numbers.department", 5);
+        generator.setThreads(2);
+        generator.setBatchSize(500);
+
+        SyntheticDataReport report = generator.generate(false);
+        assertEquals(25_050, report.getTotalRows());
+        assertEquals("NRM_CALL_GROUPS", report.getTables().get(0).getTableName());
+
+        // ---[ UNIQUE and foreign keys hold ]---
+        assertEquals(20_000, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT phone_number) FROM nrm_phone_numbers", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM nrm_audit_results a LEFT JOIN nrm_phone_numbers p ON p.id = a.phone_number_id "
+                        + "WHERE p.id IS NULL", Integer.class));
+
+        // ---[ Cardinality and skew ]---
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT department) FROM nrm_phone_numbers", Integer.class));
+        int biggestGroup = jdbcTemplate.queryForObject(
+                "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM nrm_phone_numbers GROUP BY call_group_id)", Integer.class);
+        assertTrue(biggestGroup > 2_000, "Expected a skewed call group, the biggest has " + biggestGroup);
+
+        // ---[ Identity moved past the generated ids ]---
+        jdbcTemplate.update("INSERT INTO nrm_call_groups (cidr_group_id, name) VALUES (1, 'After')");
+        assertEquals(51, jdbcTemplate.queryForObject(
+                "SELECT id FROM nrm_call_groups WHERE name = 'After'", Integer.class));
+    }
+
+    @Test
+    void testSameSeedGivesSameRowsOnAnyThreadCount() {
+        String query = "SELECT * FROM nrm_phone_numbers ORDER BY id";
+
+        JdbcTemplate first = TestUtils.createMigratedJdbcTemplate("syntheticDataSeedTest1");
+        generate(first, 4, 100);
+
+        JdbcTemplate second = TestUtils.createMigratedJdbcTemplate("syntheticDataSeedTest2");
+        generate(second, 1, 333);
+
+        assertEquals(first.queryForList(query), second.queryForList(query));
+    }
+
+    private static void generate(JdbcTemplate jdbcTemplate, int threads, int batchSize) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(jdbcTemplate.getDataSource(), 7);
+        generator.setRows("nrm_call_groups", 10);
+        generator.setRows("nrm_phone_numbers", 3_000);
+        generator.setThreads(threads);
+        generator.setBatchSize(batchSize);
+        generator.generate(false);
+    }
+}
@@ -0,0 +1,69 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.deepblue523.h2echo.fixtures.FixtureLoader;
+import com.deepblue523.h2echo.synthetic.SyntheticDataGenerator;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import com.deepblue523.h2echo.verify.TableDiff;
+import com.deepblue523.h2echo.verify.TableFingerprint;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+class TableFingerprintTest {
+
+    @Test
+    void testFingerprintsAndKeyedDiffOfBulkChanges() {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("tableFingerprintTest");
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(jdbcTemplate.getDataSource(), 11);
+        generator.setRows("nrm_call_groups", 20);
+        generator.setRows("nrm_phone_numbers", 10_000);
+        generator.generate(false);
+
+        jdbcTemplate.execute("CREATE TABLE expected_numbers AS SELECT * FROM nrm_phone_numbers");
+
+        // ---[ Fingerprints ignore row order ]---
+        TableFingerprint before = TableFingerprint.ofTable(jdbcTemplate.getDataSource(), "nrm_phone_numbers");
+        assertEquals(10_000, before.getRowCount());
+        assertEquals(before, TableFingerprint.ofQuery(jdbcTemplate.getDataSource(),
+                "SELECT * FROM expected_numbers ORDER BY id DESC"));
+
+        // ---[ A bulk change shows up in the fingerprint, and the diff says where ]---
+        jdbcTemplate.update("UPDATE nrm_phone_numbers SET department = 'Moved' WHERE id <= 100");
+        jdbcTemplate.update("DELETE FROM nrm_phone_numbers WHERE id = 500");
+        jdbcTemplate.update("INSERT INTO nrm_phone_numbers (id, phone_number) VALUES (20000, '+15550020000')");
+
+        assertNotEquals(before, TableFingerprint.ofTable(jdbcTemplate.getDataSource(), "nrm_phone_numbers"));
+
+        TableDiff diff = TableDiff.compareQueries(jdbcTemplate.getDataSource(),
+                "SELECT * FROM nrm_phone_numbers", "SELECT * FROM expected_numbers", "id");
+        assertEquals(100, diff.getChangedCount());
+        assertEquals(TableDiff.MAX_KEYS, diff.getChanged().size());
+        assertEquals(List.of(List.of(500)), diff.getMissing());
+        assertEquals(List.of(List.of(20000)), diff.getUnexpected());
+        assertTrue(diff.format().contains("and 80 more"));
+
+        // ---[ Only the expected columns count ]---
+        assertTrue(TableDiff.compareQueries(jdbcTemplate.getDataSource(),
+                "SELECT * FROM nrm_phone_numbers WHERE id <> 20000",
+                "SELECT id, phone_number FROM expected_numbers WHERE id <> 500", "id").isEmpty());
+    }
+
+    @Test
+    void testDiffAgainstAFixture() {
+        JdbcTemplate jdbcTemplate = TestUtils.createMigratedJdbcTemplate("tableDiffFixtureTest");
+        FixtureLoader.load(jdbcTemplate.getDataSource(), "fixtures/nrm_call_groups.json");
+
+        TableDiff diff = TableDiff.compareToFixture(jdbcTemplate.getDataSource(), "nrm_call_groups",
+                "fixtures/nrm_call_groups.json", "id");
+        assertTrue(diff.isEmpty(), diff.format());
+
+        jdbcTemplate.update("UPDATE nrm_call_groups SET name = 'Renamed' WHERE id = 9002");
+        diff = TableDiff.compareToFixture(jdbcTemplate.getDataSource(), "nrm_call_groups",
+                "fixtures/nrm_call_groups.json", "id");
+        assertEquals(List.of(List.of(9002)), diff.getChanged());
+        assertEquals(0, diff.getMissingCount() + diff.getUnexpectedCount());
+    }
+}
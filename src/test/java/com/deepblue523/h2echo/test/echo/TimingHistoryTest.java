@@ -0,0 +1,112 @@
+package com.deepblue523.h2echo.test.echo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.deepblue523.h2echo.H2Echo;
+import com.deepblue523.h2echo.dialects.ScriptSyntax;
+import com.deepblue523.h2echo.junit.H2EchoExtension;
+import com.deepblue523.h2echo.reporting.TimingHistory;
+import com.deepblue523.h2echo.test.support.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+
+class TimingHistoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(TimingHistory.HISTORY_PROPERTY);
+        System.clearProperty(TimingHistory.HISTORY_FILE_PROPERTY);
+        System.clearProperty(TimingHistory.THRESHOLD_PROPERTY);
+        System.clearProperty(TimingHistory.MODE_PROPERTY);
+        System.clearProperty(TimingHistory.MIN_MILLIS_PROPERTY);
+        TimingHistory.clearRegressions();
+    }
+
+    @Test
+    void testMigrationsAreRecorded() {
+        Path historyFile = tempDir.resolve("history.csv");
+        System.setProperty(TimingHistory.HISTORY_PROPERTY, "true");
+        System.setProperty(TimingHistory.HISTORY_FILE_PROPERTY, historyFile.toString());
+
+        JdbcTemplate jdbcTemplate = TestUtils.createJdbcTemplate("timingHistoryTest");
+
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/migrations/", ScriptSyntax.MARIA_DB, false);
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, "db/migrations/", ScriptSyntax.MARIA_DB, false);
+
+        List<TimingHistory.Entry> history = TimingHistory.readHistory(historyFile);
+        assertEquals(2, history.size());
+        assertEquals(TimingHistory.KIND_MIGRATION, history.get(0).getKind());
+        assertEquals(history.get(0).getMigrationSetHash(), history.get(1).getMigrationSetHash());
+        assertEquals(TimingHistory.getMachineFingerprint(), history.get(1).getMachineFingerprint());
+        assertFalse(history.get(1).isFirstInJvm());
+    }
+
+    @Test
+    void testRegressionGate() {
+        String machine = TimingHistory.getMachineFingerprint();
+        List<TimingHistory.Entry> history = List.of(
+                new TimingHistory.Entry(1, "migration", "abc", machine, true, 100, 10),
+                new TimingHistory.Entry(2, "migration", "abc", machine, true, 110, 10),
+                new TimingHistory.Entry(3, "migration", "abc", machine, true, 90, 10),
+                new TimingHistory.Entry(4, "migration", "other", machine, true, 1, 10));
+
+        System.setProperty(TimingHistory.THRESHOLD_PROPERTY, "25");
+        System.setProperty(TimingHistory.MODE_PROPERTY, "fail");
+        System.setProperty(TimingHistory.MIN_MILLIS_PROPERTY, "10");
+
+        // Within 25% of the median (100 ms).
+        assertNull(TimingHistory.checkForRegression(
+                new TimingHistory.Entry(5, "migration", "abc", machine, true, 120, 10), history));
+        TimingHistory.assertNoRegressions();
+
+        // Well beyond it.  The check itself doesn't throw; the suite-level assertion does.
+        String regression = TimingHistory.checkForRegression(
+                new TimingHistory.Entry(6, "migration", "abc", machine, true, 200, 10), history);
+        assertTrue(regression.contains("rolling median 100.0 ms"));
+
+        // Runs that aren't comparable (not the first in the JVM) have no history yet.
+        assertNull(TimingHistory.checkForRegression(
+                new TimingHistory.Entry(7, "migration", "abc", machine, false, 200, 10), history));
+
+        AssertionError e = assertThrows(AssertionError.class, TimingHistory::assertNoRegressions);
+        assertTrue(e.getMessage().startsWith("1 H2Echo timing regression"), e.getMessage());
+
+        System.setProperty(TimingHistory.MODE_PROPERTY, "warn");
+        TimingHistory.assertNoRegressions();
+    }
+
+    @Test
+    void testExtensionFailsClassInFailMode() {
+        String machine = TimingHistory.getMachineFingerprint();
+        List<TimingHistory.Entry> history = List.of(
+                new TimingHistory.Entry(1, "migration", "abc", machine, true, 100, 10),
+                new TimingHistory.Entry(2, "migration", "abc", machine, true, 100, 10),
+                new TimingHistory.Entry(3, "migration", "abc", machine, true, 100, 10));
+
+        System.setProperty(TimingHistory.THRESHOLD_PROPERTY, "25");
+        System.setProperty(TimingHistory.MIN_MILLIS_PROPERTY, "10");
+        TimingHistory.checkForRegression(new TimingHistory.Entry(4, "migration", "abc", machine, true, 200, 10), history);
+
+        H2EchoExtension extension = new H2EchoExtension();
+        ExtensionContext context = mock(ExtensionContext.class);
+
+        // Warn mode only prints.
+        assertDoesNotThrow(() -> extension.afterAll(context));
+
+        // Fail mode fails the class, once.
+        System.setProperty(TimingHistory.MODE_PROPERTY, "fail");
+        AssertionError e = assertThrows(AssertionError.class, () -> extension.afterAll(context));
+        assertTrue(e.getMessage().startsWith("1 H2Echo timing regression"), e.getMessage());
+        assertDoesNotThrow(() -> extension.afterAll(context));
+    }
+}
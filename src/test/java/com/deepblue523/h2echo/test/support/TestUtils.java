@@ -1,16 +1,46 @@
 package com.deepblue523.h2echo.test.support;
 
+import com.deepblue523.h2echo.H2Echo;
 import com.deepblue523.h2echo.test.dao.beans.NrmAuditResult;
 import com.deepblue523.h2echo.test.dao.beans.NrmCallGroup;
 import com.deepblue523.h2echo.test.dao.beans.NrmEntity;
 import com.deepblue523.h2echo.test.dao.beans.NrmPhoneNumber;
 
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
 import java.sql.Timestamp;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 public class TestUtils {
+    /***
+     * @param dbName The name of an in-memory database, kept until the JVM exits.
+     * @return A data source for it.
+     */
+    public static DriverManagerDataSource createDataSource(String dbName) {
+        return H2Echo.createDataSource("jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /***
+     * @param dbName The name of an in-memory database, kept until the JVM exits.
+     * @return A JdbcTemplate on the (empty) database.
+     */
+    public static JdbcTemplate createJdbcTemplate(String dbName) {
+        return new JdbcTemplate(createDataSource(dbName));
+    }
+
+    /***
+     * @param dbName The name of an in-memory database, kept until the JVM exits.
+     * @return A JdbcTemplate on the database, with the default migrations run on it.
+     */
+    public static JdbcTemplate createMigratedJdbcTemplate(String dbName) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(dbName);
+        H2Echo.runSqlScriptsOnH2(jdbcTemplate, false);
+        return jdbcTemplate;
+    }
+
     public static NrmAuditResult getDummyNrmAuditResult(int phoneNumberId) {
         NrmAuditResult auditResult = new NrmAuditResult();
 
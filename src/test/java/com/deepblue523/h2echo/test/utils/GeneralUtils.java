@@ -1,5 +1,7 @@
 package com.deepblue523.h2echo.test.utils;
 
+import com.deepblue523.h2echo.verify.BeanComparator;
+import com.deepblue523.h2echo.verify.BeanDiff;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -9,7 +11,6 @@ import org.springframework.core.io.ResourceLoader;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.*;
-import java.lang.reflect.Field;
 import java.util.*;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -146,7 +147,7 @@ public class GeneralUtils {
      * @param printError    If true, prints error messages to the console when fields don't match.
      * @param excludeFields An array of field names to exclude from the comparison.
      * @return              true if the objects are equal, false otherwise.
-     * @throws Exception    If there's an error accessing object fields during comparison.
+     * @throws IllegalArgumentException If an excluded field isn't a field of the objects.
      */
     public static boolean compareObjectsShallow(Object obj1, Object obj2, boolean printError, String... excludeFields) {
         // Compare NULLs.
@@ -163,58 +164,22 @@ public class GeneralUtils {
             return false;
         }
 
-        // Compare each field.
-        boolean oneOrMoreFailedComparisons = false;
-        List<String> excludeFieldsList = excludeFields != null
-                ? Arrays.asList(excludeFields) : new ArrayList<String>();
-
-        for (Field field : obj1.getClass().getDeclaredFields()) {
-            try {
-                field.setAccessible(true);
-
-                Object value1 = field.get(obj1);
-                Object value2 = field.get(obj2);
-
-                // Skip field if specified.
-                if (excludeFields != null && excludeFieldsList.contains(field.getName())) {
-                    continue;
-                }
-
-                // Compare for NULLs.
-                if (value1 == null && value2 == null) {
-                    continue;
-                }
-
-                if (value1 == null) {
-                    if (printError) {
-                        System.out.println("Field '" + field.getName() + "' does not match: NULL != '" + value2 + "'");
-                    }
-
-                    return false;
-                }
-
-                if (value2 == null) {
-                    if (printError) {
-                        System.out.println("Field '" + field.getName() + "' does not match: '" + value1 + "' != NULL");
-                    }
-
-                    return false;
-                }
-
-                // Check the values.
-                if (!value1.equals(value2)) {
-                    if (printError) {
-                        String errorMsg = "Field '" + field.getName() + "' does not match: '" + value1 + "' != '" + value2 + "'";
-                        System.out.println(errorMsg);
-                    }
-
-                    oneOrMoreFailedComparisons = true;
-                }
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Unable to fetch field '" + field.getName() + "' during comparison", e);
+        // Compare each field (the accessors are worked out once per class and exclude list).
+        @SuppressWarnings("unchecked")
+        BeanComparator<Object> comparator = BeanComparator.forClass((Class<Object>) obj1.getClass(), excludeFields);
+        List<BeanDiff.FieldDifference> differences = comparator.diff(obj2, obj1);
+
+        if (printError) {
+            for (BeanDiff.FieldDifference difference : differences) {
+                System.out.println("Field '" + difference.getField() + "' does not match: "
+                        + describe(difference.getActual()) + " != " + describe(difference.getExpected()));
             }
         }
 
-        return !oneOrMoreFailedComparisons;
+        return differences.isEmpty();
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "NULL" : "'" + value + "'";
     }
 }
@@ -0,0 +1,22 @@
+-- MariaDB statements H2 rejects, for the rejected statement cache and dry run tests.
+
+CREATE TABLE inc_accounts (
+    id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(40) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO inc_accounts (name) VALUES ('Acme');
+
+CREATE TABLE inc_audit (
+    id INT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+ALTER TABLE inc_accounts ADD COLUMN tier INT;
+
+INSERT INTO inc_missing (id) VALUES (1);
+
+INSERT INTO inc_accounts (name, tier) VALUES ('Globex', 2);
+
+INSERT INTO inc_accounts (name) VALUES ('Initech') RETURNING id;
@@ -0,0 +1,19 @@
+-- Seed data, for the seed data tests.  On a re-run seed_carrier is kept, while
+-- seed_route is dropped and recreated.
+
+CREATE TABLE seed_carrier (
+    id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(40) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS seed_route (
+    id INT NOT NULL AUTO_INCREMENT,
+    prefix VARCHAR(20) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO seed_carrier (name) VALUES ('Acme');
+INSERT INTO seed_carrier (name) VALUES ('Globex');
+UPDATE seed_carrier SET name = 'Acme Corp' WHERE name = 'Acme';
+INSERT INTO seed_route (prefix) VALUES ('+1');
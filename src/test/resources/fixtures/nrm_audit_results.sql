@@ -0,0 +1,4 @@
+-- Audit results for the fixture phone numbers.
+INSERT INTO nrm_audit_results (id, phone_number_id, last_audit_date, ftc_flagged, nomorobo_flagged)
+VALUES (9001, 9001, '2024-02-01 12:00:00', TRUE, FALSE),
+       (9002, 9002, '2024-02-02 12:00:00', FALSE, TRUE);